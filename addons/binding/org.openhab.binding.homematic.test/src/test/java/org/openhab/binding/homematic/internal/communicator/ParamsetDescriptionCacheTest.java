@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.homematic.internal.communicator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.model.HmChannel;
+import org.openhab.binding.homematic.internal.model.HmDatapoint;
+import org.openhab.binding.homematic.internal.model.HmDevice;
+import org.openhab.binding.homematic.internal.model.HmInterface;
+import org.openhab.binding.homematic.internal.model.HmParamsetType;
+import org.openhab.binding.homematic.internal.model.HmValueType;
+
+/**
+ * Tests for {@link ParamsetDescriptionCache}.
+ *
+ * @author agent - Initial contribution
+ */
+public class ParamsetDescriptionCacheTest {
+    private static final long REVALIDATE_INTERVAL = TimeUnit.DAYS.toMillis(7);
+
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("paramsets").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static HmChannel createChannel(String address, String firmware) {
+        HmDevice device = new HmDevice(address, HmInterface.RF, "HM-LC-Dim1T-Pl-3", "ccu", null, firmware);
+        HmChannel channel = new HmChannel("DIMMER", 1);
+        device.addChannel(channel);
+        return channel;
+    }
+
+    private static void addDatapoints(HmChannel channel) {
+        HmDatapoint level = new HmDatapoint("LEVEL", "LEVEL", HmValueType.FLOAT, 0.0, false, HmParamsetType.VALUES);
+        level.setMinValue(0.0);
+        level.setMaxValue(1.0);
+        level.setDefaultValue(0.0);
+        level.setUnit("100%");
+        level.setReadable(true);
+        channel.addDatapoint(level);
+
+        HmDatapoint mode = new HmDatapoint("LOGIC_COMBINATION", "LOGIC_COMBINATION", HmValueType.ENUM, 1, false,
+                HmParamsetType.MASTER);
+        mode.setOptions(new String[] { "INACTIVE", "OR", "AND" });
+        mode.setMinValue(0);
+        mode.setMaxValue(2);
+        mode.setDefaultValue(1);
+        channel.addDatapoint(mode);
+
+        HmDatapoint virtual = new HmDatapoint("RELOAD", "RELOAD", HmValueType.BOOL, false, false,
+                HmParamsetType.VALUES);
+        virtual.setVirtual(true);
+        channel.addDatapoint(virtual);
+    }
+
+    @Test
+    public void testSharedByDeviceTypeAndFirmware() {
+        ParamsetDescriptionCache cache = new ParamsetDescriptionCache(directory, REVALIDATE_INTERVAL);
+        HmChannel channel = createChannel("ABC0000001", "2.9");
+        assertThat(cache.get(channel), is(nullValue()));
+
+        addDatapoints(channel);
+        cache.put(channel);
+
+        assertThat(cache.get(createChannel("ABC0000002", "2.9")).size(), is(2));
+        assertThat(cache.get(createChannel("ABC0000003", "2.10")), is(nullValue()));
+        assertThat(cache.resetHits(), is(1));
+        assertThat(cache.resetMisses(), is(2));
+    }
+
+    @Test
+    public void testPersistence() {
+        ParamsetDescriptionCache cache = new ParamsetDescriptionCache(directory, REVALIDATE_INTERVAL);
+        HmChannel channel = createChannel("ABC0000001", "2.9");
+        addDatapoints(channel);
+        cache.put(channel);
+        cache.save();
+
+        Collection<HmDatapoint> datapoints = new ParamsetDescriptionCache(directory, REVALIDATE_INTERVAL)
+                .get(createChannel("ABC0000002", "2.9"));
+        assertThat(datapoints.size(), is(2));
+        for (HmDatapoint dp : datapoints) {
+            HmDatapoint original = channel.getDatapoint(dp.getParamsetType(), dp.getName());
+            assertThat(dp.toString(), is(original.toString()));
+            assertThat(dp.getOptions(), is(original.getOptions()));
+        }
+    }
+
+    @Test
+    public void testRevalidate() {
+        ParamsetDescriptionCache cache = new ParamsetDescriptionCache(directory, 0);
+        HmChannel channel = createChannel("ABC0000001", "2.9");
+        addDatapoints(channel);
+        cache.put(channel);
+        assertThat(cache.isStale(channel.getDevice()), is(true));
+
+        HmChannel loadedChannel = createChannel("ABC0000001", "2.9");
+        addDatapoints(loadedChannel);
+        assertThat(cache.revalidate(loadedChannel.getDevice()), is(false));
+
+        loadedChannel.getDatapoint(HmParamsetType.VALUES, "LEVEL").setMaxValue(2.0);
+        assertThat(cache.revalidate(loadedChannel.getDevice()), is(true));
+        HmDatapoint level = null;
+        for (HmDatapoint dp : cache.get(channel)) {
+            if ("LEVEL".equals(dp.getName())) {
+                level = dp;
+            }
+        }
+        assertThat(level.getMaxValue(), is(2.0));
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        Files.write(new File(directory, "HM-LC-Dim1T-Pl-3_2.9.bin").toPath(), new byte[] { 0, 0, 0, 1, 42 });
+        ParamsetDescriptionCache cache = new ParamsetDescriptionCache(directory, REVALIDATE_INTERVAL);
+        assertThat(cache.get(createChannel("ABC0000001", "2.9")), is(nullValue()));
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.homematic.internal.communicator.client;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.common.HomematicConfig;
+import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends requests with the {@link BinRpcClient} to a local BIN-RPC stub server.
+ *
+ * @author agent - Initial contribution
+ */
+public class BinRpcClientTest {
+    private final Logger logger = LoggerFactory.getLogger(BinRpcClientTest.class);
+
+    private static final String ENCODING = "ISO-8859-1";
+    private static final String SLOW_METHOD = "getParamset";
+    private static final long SLOW_METHOD_DELAY = 500;
+    private static final long METHOD_DELAY = 5;
+
+    private ServerSocket serverSocket;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    private HomematicConfig config;
+    private BinRpcClient client;
+
+    @Before
+    public void setup() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        serverExecutor = Executors.newCachedThreadPool();
+        serverExecutor.execute(this::acceptConnections);
+
+        config = new HomematicConfig();
+        config.setGatewayAddress(serverSocket.getInetAddress().getHostAddress());
+        config.setTimeout(5);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        if (client != null) {
+            client.dispose();
+        }
+        serverSocket.close();
+        serverExecutor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                serverExecutor.execute(() -> handleConnection(socket));
+            }
+        } catch (IOException e) {
+            // server closed
+        }
+    }
+
+    /**
+     * Answers every request with its method name, like a Homematic gateway answering over a keep-alive connection.
+     */
+    private void handleConnection(Socket socket) {
+        try {
+            while (true) {
+                BinRpcMessage request = new BinRpcMessage(socket.getInputStream(), true, ENCODING);
+                int active = activeRequests.incrementAndGet();
+                maxActiveRequests.accumulateAndGet(active, Math::max);
+                Thread.sleep(SLOW_METHOD.equals(request.getMethodName()) ? SLOW_METHOD_DELAY : METHOD_DELAY);
+                activeRequests.decrementAndGet();
+
+                BinRpcMessage response = new BinRpcMessage(null, BinRpcMessage.TYPE.RESPONSE, ENCODING);
+                response.addArg(request.getMethodName());
+                socket.getOutputStream().write(response.createMessage());
+            }
+        } catch (EOFException | InterruptedException e) {
+            // connection closed by the client or server stopped
+        } catch (IOException e) {
+            // connection closed
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private Object send(String methodName) throws IOException {
+        return client.sendMessage(serverSocket.getLocalPort(), client.createRpcRequest(methodName))[0];
+    }
+
+    private long measureThroughput(int poolSize, int threads, int requestsPerThread) throws Exception {
+        config.setSocketPoolSize(poolSize);
+        client = new BinRpcClient(config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; ++t) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < requestsPerThread; ++i) {
+                    assertThat(send("getValue"), is("getValue"));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        long duration = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        executor.shutdown();
+
+        long requestsPerSecond = threads * requestsPerThread * 1000L / duration;
+        logger.info("BIN-RPC pool size {}: {} requests from {} threads in {}ms ({} requests/s)", poolSize,
+                threads * requestsPerThread, threads, duration, requestsPerSecond);
+        client.dispose();
+        return requestsPerSecond;
+    }
+
+    @Test
+    public void requestsAreSentConcurrentlyUpToPoolSize() throws Exception {
+        measureThroughput(3, 8, 25);
+
+        assertThat(maxActiveRequests.get(), is(3));
+        // sockets are reused instead of being opened for every request
+        assertTrue(connections.get() <= 3);
+    }
+
+    @Test
+    public void throughput() throws Exception {
+        long single = measureThroughput(1, 8, 25);
+        assertThat(maxActiveRequests.get(), is(1));
+
+        long pooled = measureThroughput(4, 8, 25);
+        assertTrue("pooled " + pooled + " requests/s, single " + single + " requests/s", pooled > single);
+    }
+
+    @Test
+    public void slowRequestDoesNotBlockOtherRequests() throws Exception {
+        config.setSocketPoolSize(2);
+        client = new BinRpcClient(config);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> slow = executor.submit(() -> send(SLOW_METHOD));
+        while (activeRequests.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        long start = System.nanoTime();
+        assertThat(send("setValue"), is("setValue"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < SLOW_METHOD_DELAY);
+        assertThat(slow.isDone(), is(false));
+
+        assertThat(slow.get(5, TimeUnit.SECONDS), is(SLOW_METHOD));
+        executor.shutdown();
+    }
+
+    @Test
+    public void reconnectsAfterSocketsAreRemoved() throws Exception {
+        config.setSocketPoolSize(2);
+        SocketHandler socketHandler = new SocketHandler(config);
+        int port = serverSocket.getLocalPort();
+
+        SocketInfo first = socketHandler.getSocket(port);
+        SocketInfo second = socketHandler.getSocket(port);
+        socketHandler.returnSocket(port, first, true);
+        socketHandler.removeSocket(port);
+        assertTrue(first.getSocket().isClosed());
+
+        // still in use while the sockets were removed, closed when returned
+        socketHandler.returnSocket(port, second, true);
+        assertTrue(second.getSocket().isClosed());
+
+        SocketInfo third = socketHandler.getSocket(port);
+        assertThat(third.getSocket().isClosed(), is(false));
+        socketHandler.returnSocket(port, third, true);
+        socketHandler.flush();
+        assertTrue(third.getSocket().isClosed());
+    }
+}
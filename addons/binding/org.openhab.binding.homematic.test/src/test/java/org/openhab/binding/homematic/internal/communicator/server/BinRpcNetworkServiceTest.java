@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.homematic.internal.communicator.server;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.common.HomematicConfig;
+import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
+import org.openhab.binding.homematic.internal.communicator.parser.EventParser;
+import org.openhab.binding.homematic.internal.model.HmDatapointInfo;
+
+/**
+ * Sends events to the {@link BinRpcNetworkService} like a Homematic gateway does and checks the decoding with the
+ * {@link BinRpcEventDecoder}.
+ *
+ * @author agent - Initial contribution
+ */
+public class BinRpcNetworkServiceTest {
+
+    private static final String ENCODING = "ISO-8859-1";
+
+    private BinRpcNetworkService networkService;
+    private Thread networkServiceThread;
+    private int port;
+
+    private final List<HmDatapointInfo> receivedDpInfos = Collections.synchronizedList(new ArrayList<>());
+    private final List<Object> receivedValues = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> newDevices = Collections.synchronizedList(new ArrayList<>());
+
+    private final RpcEventListener listener = new RpcEventListener() {
+        @Override
+        public void eventReceived(HmDatapointInfo dpInfo, Object newValue) {
+            receivedDpInfos.add(dpInfo);
+            receivedValues.add(newValue);
+        }
+
+        @Override
+        public void eventsReceived(List<HmDatapointInfo> dpInfos, List<Object> newValues) {
+            batchSizes.add(dpInfos.size());
+            RpcEventListener.super.eventsReceived(dpInfos, newValues);
+        }
+
+        @Override
+        public void newDevices(List<String> adresses) {
+            newDevices.addAll(adresses);
+        }
+
+        @Override
+        public void deleteDevices(List<String> addresses) {
+        }
+    };
+
+    @Before
+    public void setup() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HomematicConfig config = new HomematicConfig();
+        config.setBindAddress(InetAddress.getLoopbackAddress().getHostAddress());
+        config.setBinCallbackPort(port);
+
+        networkService = new BinRpcNetworkService(listener, config);
+        networkServiceThread = new Thread(networkService);
+        networkServiceThread.start();
+    }
+
+    @After
+    public void cleanup() throws InterruptedException {
+        networkService.shutdown();
+        networkServiceThread.join(5000);
+    }
+
+    private static Map<String, Object> createCall(String methodName, Object... params) {
+        Map<String, Object> call = new TreeMap<>();
+        call.put("methodName", methodName);
+        call.put("params", Arrays.asList(params));
+        return call;
+    }
+
+    private static Object createValue(int i) {
+        switch (i % 4) {
+            case 0:
+                return i;
+            case 1:
+                return i % 8 == 1;
+            case 2:
+                return "value" + i;
+            default:
+                return i / 100.0;
+        }
+    }
+
+    private static byte[] createMulticall(int firstEvent, int events) {
+        List<Object> calls = new ArrayList<>();
+        for (int i = firstEvent; i < firstEvent + events; i++) {
+            calls.add(createCall("event", "openHAB-RF", "NEQ" + String.format("%07d", i % 100) + ":" + (i % 4),
+                    "LEVEL", createValue(i)));
+        }
+        BinRpcMessage message = new BinRpcMessage("system.multicall", ENCODING);
+        message.addArg(calls);
+        return message.createMessage();
+    }
+
+    private static Object[] readResponse(InputStream is) throws IOException {
+        return new BinRpcMessage(is, false, ENCODING).getResponseData();
+    }
+
+    private void waitForEvents(int count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (receivedDpInfos.size() < count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertThat(receivedDpInfos.size(), is(count));
+    }
+
+    @Test
+    public void decoderMatchesBinRpcMessage() throws Exception {
+        byte[] multicall = createMulticall(0, 100);
+
+        BinRpcEventDecoder decoder = new BinRpcEventDecoder();
+        assertTrue(decoder.decode(ByteBuffer.wrap(multicall), ENCODING));
+        assertThat(decoder.getMethodName(), is("system.multicall"));
+
+        Object[] calls = (Object[]) new BinRpcMessage(multicall, true, ENCODING).getResponseData()[0];
+        assertThat(decoder.getDatapointInfos().size(), is(calls.length));
+        EventParser eventParser = new EventParser();
+        for (int i = 0; i < calls.length; i++) {
+            Object[] params = (Object[]) ((Map<?, ?>) calls[i]).get("params");
+            assertThat(decoder.getDatapointInfos().get(i), is(eventParser.parse(params)));
+            assertThat(decoder.getValues().get(i), is(eventParser.getValue()));
+        }
+
+        BinRpcMessage event = new BinRpcMessage("event", ENCODING);
+        event.addArg("openHAB-RF");
+        event.addArg("NEQ0000042:1");
+        event.addArg("STATE");
+        event.addArg(Boolean.TRUE);
+        assertTrue(decoder.decode(ByteBuffer.wrap(event.createMessage()), ENCODING));
+        assertThat(decoder.getDatapointInfos().size(), is(1));
+        assertThat(decoder.getDatapointInfos().get(0).getAddress(), is("NEQ0000042"));
+        assertThat(decoder.getDatapointInfos().get(0).getChannel(), is(1));
+        assertThat(decoder.getValues().get(0), is(Boolean.TRUE));
+    }
+
+    @Test
+    public void decoderRejectsOtherCalls() throws Exception {
+        BinRpcMessage multicall = new BinRpcMessage("system.multicall", ENCODING);
+        multicall.addArg(Arrays.asList(createCall("event", "openHAB-RF", "NEQ0000042:1", "STATE", true),
+                createCall("newDevices", "openHAB-RF", Collections.emptyList())));
+        BinRpcEventDecoder decoder = new BinRpcEventDecoder();
+        assertFalse(decoder.decode(ByteBuffer.wrap(multicall.createMessage()), ENCODING));
+
+        BinRpcMessage listDevices = new BinRpcMessage("listDevices", ENCODING);
+        listDevices.addArg("openHAB-RF");
+        assertFalse(decoder.decode(ByteBuffer.wrap(listDevices.createMessage()), ENCODING));
+    }
+
+    @Test
+    public void eventBurst() throws Exception {
+        final int messages = 200;
+        final int eventsPerMessage = 50;
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream os = socket.getOutputStream();
+            InputStream is = socket.getInputStream();
+            for (int m = 0; m < messages; m++) {
+                os.write(createMulticall(m * eventsPerMessage, eventsPerMessage));
+            }
+            for (int m = 0; m < messages; m++) {
+                assertThat(readResponse(is)[0], is(new Object[] { "event" }));
+            }
+        }
+        waitForEvents(messages * eventsPerMessage);
+
+        assertThat(batchSizes.size(), is(messages));
+        for (int i = 0; i < messages * eventsPerMessage; i++) {
+            assertThat(receivedValues.get(i), is(createValue(i)));
+        }
+    }
+
+    @Test
+    public void fragmentedAndLargeMessages() throws Exception {
+        byte[] small = createMulticall(0, 3);
+        byte[] large = createMulticall(3, 2000);
+        assertTrue(large.length > 8192);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream os = socket.getOutputStream();
+            for (byte b : small) {
+                os.write(b);
+                os.flush();
+            }
+            os.write(large);
+            os.write(small);
+
+            for (int m = 0; m < 3; m++) {
+                assertThat(readResponse(socket.getInputStream())[0], is(new Object[] { "event" }));
+            }
+        }
+        waitForEvents(2006);
+        assertThat(batchSizes, is(Arrays.asList(3, 2000, 3)));
+    }
+
+    @Test
+    public void otherMethodsAreHandled() throws Exception {
+        BinRpcMessage multicall = new BinRpcMessage("system.multicall", ENCODING);
+        multicall.addArg(Arrays.asList(createCall("event", "openHAB-RF", "NEQ0000042:1", "STATE", true),
+                createCall("newDevices", "openHAB-RF",
+                        Arrays.asList(Collections.singletonMap("ADDRESS", "NEQ0000043")))));
+        BinRpcMessage listDevices = new BinRpcMessage("listDevices", ENCODING);
+        listDevices.addArg("openHAB-RF");
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.getOutputStream().write(multicall.createMessage());
+            assertThat(readResponse(socket.getInputStream())[0], is(new Object[] { "event" }));
+            socket.getOutputStream().write(listDevices.createMessage());
+            assertThat(readResponse(socket.getInputStream())[0], is(new Object[0]));
+        }
+        waitForEvents(1);
+        assertThat(newDevices, is(Arrays.asList("NEQ0000043")));
+    }
+}
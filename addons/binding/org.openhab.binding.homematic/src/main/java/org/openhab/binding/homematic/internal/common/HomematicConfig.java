@@ -53,7 +53,9 @@ public class HomematicConfig {
     private int binCallbackPort;
 
     private int socketMaxAlive = 900;
+    private int socketPoolSize = 3;
     private int timeout = 15;
+    private int metadataLoadThreads = 4;
     private int installModeDuration = DEFAULT_INSTALL_MODE_DURATION;
     private long discoveryTimeToLive = -1;
     private boolean unpairOnDeletion = false;
@@ -169,6 +171,20 @@ public class HomematicConfig {
         this.socketMaxAlive = socketMaxAlive;
     }
 
+    /**
+     * Returns the maximum number of concurrent BIN-RPC socket connections per port of a Homematic gateway.
+     */
+    public int getSocketPoolSize() {
+        return socketPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of concurrent BIN-RPC socket connections per port of a Homematic gateway.
+     */
+    public void setSocketPoolSize(int socketPoolSize) {
+        this.socketPoolSize = socketPoolSize;
+    }
+
     /**
      * Returns the timeout for the communication to a Homematic gateway in seconds.
      */
@@ -183,6 +199,20 @@ public class HomematicConfig {
         this.timeout = timeout;
     }
 
+    /**
+     * Returns the number of parallel connections used to load the device metadata from a Homematic gateway.
+     */
+    public int getMetadataLoadThreads() {
+        return metadataLoadThreads;
+    }
+
+    /**
+     * Sets the number of parallel connections used to load the device metadata from a Homematic gateway.
+     */
+    public void setMetadataLoadThreads(int metadataLoadThreads) {
+        this.metadataLoadThreads = metadataLoadThreads;
+    }
+
     /**
      * Returns the time to live for discovery results of a Homematic gateway in seconds.
      */
@@ -404,7 +434,8 @@ public class HomematicConfig {
                 .append("rfPort", getRfPort()).append("wiredPort", getWiredPort()).append("hmIpPort", getHmIpPort())
                 .append("cuxdPort", getCuxdPort()).append("groupPort", getGroupPort()).append("timeout", timeout)
                 .append("discoveryTimeToLive", discoveryTimeToLive).append("installModeDuration", installModeDuration)
-                .append("socketMaxAlive", socketMaxAlive);
+                .append("socketMaxAlive", socketMaxAlive).append("socketPoolSize", socketPoolSize)
+                .append("metadataLoadThreads", metadataLoadThreads);
         return tsb.toString();
     }
 }
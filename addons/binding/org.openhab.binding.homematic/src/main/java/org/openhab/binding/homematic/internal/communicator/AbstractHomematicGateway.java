@@ -14,6 +14,7 @@ package org.openhab.binding.homematic.internal.communicator;
 
 import static org.openhab.binding.homematic.internal.misc.HomematicConstants.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,12 +26,21 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
 import org.openhab.binding.homematic.internal.communicator.client.BinRpcClient;
@@ -90,6 +100,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     public static final double DEFAULT_DISABLE_DELAY = 2.0;
     private static final long CONNECTION_TRACKER_INTERVAL_SECONDS = 15;
     private static final String GATEWAY_POOL_NAME = "homematicGateway";
+    private static final long PARAMSET_CACHE_REVALIDATE_INTERVAL = TimeUnit.DAYS.toMillis(7);
 
     private final Map<TransferMode, RpcClient<?>> rpcClients = new HashMap<TransferMode, RpcClient<?>>();
     private final Map<TransferMode, RpcServer> rpcServers = new HashMap<TransferMode, RpcServer>();
@@ -106,7 +117,9 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     private final Map<String, HmDevice> devices = Collections.synchronizedMap(new HashMap<String, HmDevice>());
     private final Map<HmInterface, TransferMode> availableInterfaces = new TreeMap<HmInterface, TransferMode>();
     private static List<VirtualDatapointHandler> virtualDatapointHandlers = new ArrayList<VirtualDatapointHandler>();
-    private boolean cancelLoadAllMetadata;
+    private volatile boolean cancelLoadAllMetadata;
+    private final ParamsetDescriptionCache paramsetDescriptionCache;
+    private final ThreadLocal<Map<TransferMode, RpcClient<?>>> metadataRpcClients = new ThreadLocal<>();
     private boolean initialized;
     private boolean newDeviceEventsEnabled;
     private ScheduledFuture<?> enableNewDeviceFuture;
@@ -139,6 +152,10 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         this.config = config;
         this.gatewayAdapter = gatewayAdapter;
         this.httpClient = httpClient;
+        this.paramsetDescriptionCache = new ParamsetDescriptionCache(
+                new File(ConfigConstants.getUserDataFolder(),
+                        "homematic" + File.separator + "paramsets" + File.separator + id),
+                PARAMSET_CACHE_REVALIDATE_INTERVAL);
     }
 
     @Override
@@ -226,12 +243,18 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     protected synchronized void startClients() throws IOException {
         for (TransferMode mode : availableInterfaces.values()) {
             if (!rpcClients.containsKey(mode)) {
-                rpcClients.put(mode,
-                        mode == TransferMode.XML_RPC ? new XmlRpcClient(config, httpClient) : new BinRpcClient(config));
+                rpcClients.put(mode, createRpcClient(mode));
             }
         }
     }
 
+    /**
+     * Creates a new client for the transfer mode.
+     */
+    private RpcClient<?> createRpcClient(TransferMode mode) throws IOException {
+        return mode == TransferMode.XML_RPC ? new XmlRpcClient(config, httpClient) : new BinRpcClient(config);
+    }
+
     /**
      * Stops the Homematic gateway client.
      */
@@ -303,7 +326,9 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
 
     @Override
     public RpcClient<?> getRpcClient(HmInterface hmInterface) throws IOException {
-        RpcClient<?> rpcClient = rpcClients.get(availableInterfaces.get(hmInterface));
+        // a metadata loader thread uses its own clients
+        Map<TransferMode, RpcClient<?>> clients = metadataRpcClients.get();
+        RpcClient<?> rpcClient = (clients != null ? clients : rpcClients).get(availableInterfaces.get(hmInterface));
         if (rpcClient == null) {
             throw new IOException("RPC client for interface " + hmInterface + " not available");
         }
@@ -368,64 +393,181 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     @Override
     public void loadAllDeviceMetadata() throws IOException {
         cancelLoadAllMetadata = false;
+        final long startTime = System.currentTimeMillis();
         // load all device descriptions
         List<HmDevice> deviceDescriptions = getDeviceDescriptions();
 
-        // loading datapoints for all channels
+        // loading datapoints for all channels, the gateway extras in this thread and all other devices in parallel
         Set<String> loadedDevices = new HashSet<String>();
-        Map<String, Collection<HmDatapoint>> datapointsByChannelIdCache = new HashMap<String, Collection<HmDatapoint>>();
-        for (HmDevice device : deviceDescriptions) {
-            if (!cancelLoadAllMetadata) {
-                try {
-                    logger.trace("Loading metadata for device '{}' of type '{}'", device.getAddress(),
-                            device.getType());
-                    if (device.isGatewayExtras()) {
-                        loadChannelValues(device.getChannel(HmChannel.CHANNEL_NUMBER_VARIABLE));
-                        loadChannelValues(device.getChannel(HmChannel.CHANNEL_NUMBER_SCRIPT));
-                    } else {
-                        for (HmChannel channel : device.getChannels()) {
-                            logger.trace("  Loading channel {}", channel);
-                            // speed up metadata generation a little bit for equal channels in the gateway devices
-                            if ((DEVICE_TYPE_VIRTUAL.equals(device.getType())
-                                    || DEVICE_TYPE_VIRTUAL_WIRED.equals(device.getType())) && channel.getNumber() > 1) {
-                                HmChannel previousChannel = device.getChannel(channel.getNumber() - 1);
-                                cloneAllDatapointsIntoChannel(channel, previousChannel.getDatapoints());
-                            } else {
-                                String channelId = String.format("%s:%s:%s", channel.getDevice().getType(),
-                                        channel.getDevice().getFirmware(), channel.getNumber());
-                                Collection<HmDatapoint> cachedDatapoints = datapointsByChannelIdCache.get(channelId);
-                                if (cachedDatapoints != null) {
-                                    // clone all datapoints
-                                    cloneAllDatapointsIntoChannel(channel, cachedDatapoints);
-                                } else {
-                                    logger.trace("    Loading datapoints into channel {}", channel);
-                                    addChannelDatapoints(channel, HmParamsetType.MASTER);
-                                    addChannelDatapoints(channel, HmParamsetType.VALUES);
-
-                                    // Make sure to only cache non-reconfigurable channels. For reconfigurable channels,
-                                    // the data point set might change depending on the selected mode.
-                                    if (!channel.isReconfigurable()) {
-                                        datapointsByChannelIdCache.put(channelId, channel.getDatapoints());
-                                    }
-                                }
+        Map<String, HmDevice> staleDevices = new ConcurrentHashMap<String, HmDevice>();
+        List<Map<TransferMode, RpcClient<?>>> loaderClients = Collections
+                .synchronizedList(new ArrayList<Map<TransferMode, RpcClient<?>>>());
+        final int threads = Math.max(1, config.getMetadataLoadThreads());
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new NamedThreadFactory("homematicMetadata-" + id, true));
+        CompletionService<Long> completionService = new ExecutorCompletionService<Long>(executor);
+        Map<Future<Long>, HmDevice> loadingDevices = new HashMap<Future<Long>, HmDevice>();
+        int timedDevices = 0;
+        long maxLoadTime = 0;
+        long sumLoadTime = 0;
+        String slowestDevice = null;
+        try {
+            for (HmDevice device : deviceDescriptions) {
+                if (device.isGatewayExtras()) {
+                    if (!cancelLoadAllMetadata) {
+                        try {
+                            loadChannelValues(device.getChannel(HmChannel.CHANNEL_NUMBER_VARIABLE));
+                            loadChannelValues(device.getChannel(HmChannel.CHANNEL_NUMBER_SCRIPT));
+                            deviceLoaded(device, loadedDevices);
+                        } catch (IOException ex) {
+                            logger.warn("Can't load device with address '{}' from gateway '{}': {}",
+                                    device.getAddress(), id, ex.getMessage());
+                        }
+                    }
+                } else {
+                    loadingDevices.put(completionService.submit(() -> {
+                        if (cancelLoadAllMetadata) {
+                            return null;
+                        }
+                        if (metadataRpcClients.get() == null) {
+                            Map<TransferMode, RpcClient<?>> clients = new HashMap<TransferMode, RpcClient<?>>();
+                            for (TransferMode mode : availableInterfaces.values()) {
+                                clients.put(mode, createRpcClient(mode));
                             }
+                            loaderClients.add(clients);
+                            metadataRpcClients.set(clients);
                         }
+                        final long deviceStartTime = System.nanoTime();
+                        loadDeviceMetadata(device, staleDevices);
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - deviceStartTime);
+                    }), device);
+                }
+            }
+
+            // prepare the devices and notify the adapter in the calling thread, in the order they are loaded
+            for (int i = loadingDevices.size(); i > 0; i--) {
+                Future<Long> future = completionService.take();
+                HmDevice device = loadingDevices.get(future);
+                try {
+                    Long loadTime = future.get();
+                    if (loadTime != null && !cancelLoadAllMetadata) {
+                        logger.trace("Loaded metadata for device '{}' of type '{}' in {} ms", device.getAddress(),
+                                device.getType(), loadTime);
+                        timedDevices++;
+                        sumLoadTime += loadTime;
+                        if (loadTime >= maxLoadTime) {
+                            maxLoadTime = loadTime;
+                            slowestDevice = device.getAddress();
+                        }
+                        deviceLoaded(device, loadedDevices);
                     }
-                    prepareDevice(device);
-                    loadedDevices.add(device.getAddress());
-                    gatewayAdapter.onDeviceLoaded(device);
-                } catch (IOException ex) {
+                } catch (ExecutionException ex) {
                     logger.warn("Can't load device with address '{}' from gateway '{}': {}", device.getAddress(), id,
-                            ex.getMessage());
+                            ex.getCause().getMessage());
                 }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            cancelLoadAllMetadata = true;
+        } finally {
+            executor.shutdownNow();
+            for (Map<TransferMode, RpcClient<?>> clients : loaderClients) {
+                clients.values().forEach(RpcClient::dispose);
+            }
         }
+
+        paramsetDescriptionCache.save();
+        logger.info(
+                "Loaded metadata of {} devices from gateway '{}' in {} ms with {} connection(s), {} channel(s) from cache, {} from the gateway, device load time avg {} ms, max {} ms ('{}')",
+                loadedDevices.size(), id, System.currentTimeMillis() - startTime, threads,
+                paramsetDescriptionCache.resetHits(), paramsetDescriptionCache.resetMisses(),
+                timedDevices == 0 ? 0 : sumLoadTime / timedDevices, maxLoadTime, slowestDevice);
+
         if (!cancelLoadAllMetadata) {
             devices.keySet().retainAll(loadedDevices);
+            if (!staleDevices.isEmpty()) {
+                scheduler.execute(() -> revalidateParamsetDescriptions(staleDevices.values()));
+            }
         }
         initialized = true;
     }
 
+    /**
+     * Loads the datapoints of all channels of the device, either from the cache or from the gateway.
+     */
+    private void loadDeviceMetadata(HmDevice device, Map<String, HmDevice> staleDevices) throws IOException {
+        logger.trace("Loading metadata for device '{}' of type '{}'", device.getAddress(), device.getType());
+        for (HmChannel channel : device.getChannels()) {
+            logger.trace("  Loading channel {}", channel);
+            // speed up metadata generation a little bit for equal channels in the gateway devices
+            if ((DEVICE_TYPE_VIRTUAL.equals(device.getType()) || DEVICE_TYPE_VIRTUAL_WIRED.equals(device.getType()))
+                    && channel.getNumber() > 1) {
+                HmChannel previousChannel = device.getChannel(channel.getNumber() - 1);
+                cloneAllDatapointsIntoChannel(channel, previousChannel.getDatapoints());
+            } else {
+                Collection<HmDatapoint> cachedDatapoints = paramsetDescriptionCache.get(channel);
+                if (cachedDatapoints != null) {
+                    // clone all datapoints
+                    cloneAllDatapointsIntoChannel(channel, cachedDatapoints);
+                } else {
+                    logger.trace("    Loading datapoints into channel {}", channel);
+                    addChannelDatapoints(channel, HmParamsetType.MASTER);
+                    addChannelDatapoints(channel, HmParamsetType.VALUES);
+
+                    // Make sure to only cache non-reconfigurable channels. For reconfigurable channels,
+                    // the data point set might change depending on the selected mode.
+                    if (!channel.isReconfigurable()) {
+                        paramsetDescriptionCache.put(channel);
+                    }
+                }
+            }
+        }
+        if (paramsetDescriptionCache.isStale(device)) {
+            staleDevices.putIfAbsent(device.getType() + ":" + device.getFirmware(), device);
+        }
+    }
+
+    /**
+     * Prepares a loaded device and notifies the gateway adapter.
+     */
+    private void deviceLoaded(HmDevice device, Set<String> loadedDevices) {
+        prepareDevice(device);
+        loadedDevices.add(device.getAddress());
+        gatewayAdapter.onDeviceLoaded(device);
+    }
+
+    /**
+     * Loads the paramset descriptions of one device per stale cache entry again and updates the cache.
+     */
+    private void revalidateParamsetDescriptions(Collection<HmDevice> staleDevices) {
+        for (HmDevice device : staleDevices) {
+            if (cancelLoadAllMetadata || !initialized) {
+                return;
+            }
+            HmDevice loadedDevice = new HmDevice(device.getAddress(), device.getHmInterface(), device.getType(),
+                    device.getGatewayId(), device.getHomegearId(), device.getFirmware());
+            try {
+                for (HmChannel channel : device.getChannels()) {
+                    if (!channel.isReconfigurable()) {
+                        HmChannel loadedChannel = new HmChannel(channel.getType(), channel.getNumber());
+                        loadedDevice.addChannel(loadedChannel);
+                        addChannelDatapoints(loadedChannel, HmParamsetType.MASTER);
+                        addChannelDatapoints(loadedChannel, HmParamsetType.VALUES);
+                    }
+                }
+                if (paramsetDescriptionCache.revalidate(loadedDevice)) {
+                    logger.info(
+                            "Metadata of device type '{}' with firmware '{}' changed on gateway '{}', reload the devices to use it",
+                            device.getType(), device.getFirmware(), id);
+                }
+            } catch (IOException ex) {
+                logger.debug("Can't revalidate metadata of device type '{}' on gateway '{}': {}", device.getType(), id,
+                        ex.getMessage());
+            }
+        }
+        paramsetDescriptionCache.save();
+    }
+
     /**
      * Loads all datapoints from the gateway.
      */
@@ -729,27 +871,59 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         if (echoEvents.remove(dpInfo)) {
             logger.debug("Echo event detected, ignoring '{}'", dpInfo);
         } else {
-            try {
-                if (connectionTrackerThread != null && dpInfo.isPong() && id.equals(newValue)) {
-                    connectionTrackerThread.pongReceived();
-                }
-                if (initialized) {
-                    final HmDatapoint dp = getDatapoint(dpInfo);
-                    HmDatapointConfig config = gatewayAdapter.getDatapointConfig(dp);
-                    receiveDelayedExecutor.start(dpInfo, config.getReceiveDelay(), () -> {
-                        dp.setValue(newValue);
+            handleEvent(dpInfo, newValue);
+        }
+    }
 
-                        gatewayAdapter.onStateUpdated(dp);
-                        handleVirtualDatapointEvent(dp, true);
-                        if (dp.isPressDatapoint() && MiscUtils.isTrueValue(dp.getValue())) {
-                            disableDatapoint(dp, DEFAULT_DISABLE_DELAY);
-                        }
-                    });
+    /**
+     * Handles all events of a system.multicall in one pass: The echo events are filtered out with a single lock of the
+     * echo event set, the remaining events are handled in the order they were sent.
+     */
+    @Override
+    public void eventsReceived(List<HmDatapointInfo> dpInfos, List<Object> newValues) {
+        logger.debug("Received {} events from gateway with id '{}'", dpInfos.size(), id);
+
+        boolean[] echo = new boolean[dpInfos.size()];
+        synchronized (echoEvents) {
+            if (!echoEvents.isEmpty()) {
+                for (int i = 0; i < echo.length; i++) {
+                    echo[i] = echoEvents.remove(dpInfos.get(i));
                 }
-            } catch (HomematicClientException | IOException ex) {
-                // ignore
             }
         }
+        for (int i = 0; i < echo.length; i++) {
+            HmDatapointInfo dpInfo = dpInfos.get(i);
+            Object newValue = newValues.get(i);
+            if (echo[i]) {
+                logger.debug("Echo event detected, ignoring '{}'", dpInfo);
+            } else {
+                logger.trace("Received new value '{}' for '{}' from gateway with id '{}'", newValue, dpInfo, id);
+                handleEvent(dpInfo, newValue);
+            }
+        }
+    }
+
+    private void handleEvent(HmDatapointInfo dpInfo, Object newValue) {
+        try {
+            if (connectionTrackerThread != null && dpInfo.isPong() && id.equals(newValue)) {
+                connectionTrackerThread.pongReceived();
+            }
+            if (initialized) {
+                final HmDatapoint dp = getDatapoint(dpInfo);
+                HmDatapointConfig config = gatewayAdapter.getDatapointConfig(dp);
+                receiveDelayedExecutor.start(dpInfo, config.getReceiveDelay(), () -> {
+                    dp.setValue(newValue);
+
+                    gatewayAdapter.onStateUpdated(dp);
+                    handleVirtualDatapointEvent(dp, true);
+                    if (dp.isPressDatapoint() && MiscUtils.isTrueValue(dp.getValue())) {
+                        disableDatapoint(dp, DEFAULT_DISABLE_DELAY);
+                    }
+                });
+            }
+        } catch (HomematicClientException | IOException ex) {
+            // ignore
+        }
     }
 
     @Override
@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.homematic.internal.communicator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.binding.homematic.internal.model.HmChannel;
+import org.openhab.binding.homematic.internal.model.HmDatapoint;
+import org.openhab.binding.homematic.internal.model.HmDevice;
+import org.openhab.binding.homematic.internal.model.HmParamsetType;
+import org.openhab.binding.homematic.internal.model.HmValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk backed cache for the datapoint metadata of the paramset descriptions (MASTER and VALUES) of device channels.
+ * The metadata only depends on the device type and the firmware, so all devices of the same type share one entry.
+ * Each entry is stored in its own file and read lazily, when a device of that type is loaded for the first time.
+ * Entries older than the revalidation interval are still served, but reported as stale, so they can be refreshed
+ * from the gateway in the background.
+ *
+ * @author agent - Initial contribution
+ */
+public class ParamsetDescriptionCache {
+    private final Logger logger = LoggerFactory.getLogger(ParamsetDescriptionCache.class);
+    private static final int FILE_VERSION = 1;
+    private static final String FILE_EXTENSION = ".bin";
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_INTEGER = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_BOOLEAN = 4;
+    private static final byte VALUE_STRING = 5;
+
+    private final File directory;
+    private final long revalidateInterval;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * The cached datapoints of all channels of a device type and firmware.
+     */
+    private static class Entry {
+        final Map<Integer, List<HmDatapoint>> channels = new ConcurrentHashMap<>();
+        volatile long validated;
+        volatile boolean dirty;
+
+        Entry(long validated) {
+            this.validated = validated;
+        }
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @param directory the directory of the cache files, created on the first write
+     * @param revalidateInterval the time in milliseconds after which an entry is stale
+     */
+    public ParamsetDescriptionCache(File directory, long revalidateInterval) {
+        this.directory = directory;
+        this.revalidateInterval = revalidateInterval;
+    }
+
+    /**
+     * Returns the cached datapoints of the channel or null, if the channel is not cached. The returned datapoints
+     * must be cloned into the channel.
+     */
+    public Collection<HmDatapoint> get(HmChannel channel) {
+        List<HmDatapoint> datapoints = getEntry(channel.getDevice()).channels.get(channel.getNumber());
+        if (datapoints == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return datapoints;
+    }
+
+    /**
+     * Stores the non virtual datapoints of a loaded channel.
+     */
+    public void put(HmChannel channel) {
+        List<HmDatapoint> datapoints = new ArrayList<>();
+        for (HmDatapoint dp : channel.getDatapoints()) {
+            if (!dp.isVirtual()) {
+                HmDatapoint clonedDp = dp.clone();
+                clonedDp.setChannel(null);
+                datapoints.add(clonedDp);
+            }
+        }
+        Entry entry = getEntry(channel.getDevice());
+        entry.channels.put(channel.getNumber(), datapoints);
+        entry.dirty = true;
+    }
+
+    /**
+     * Replaces the entry of the device type with the channels of the given device, if they differ.
+     *
+     * @return true, if the cached metadata was different
+     */
+    public boolean revalidate(HmDevice device) {
+        Entry entry = getEntry(device);
+        boolean changed = false;
+        for (HmChannel channel : device.getChannels()) {
+            List<HmDatapoint> cached = entry.channels.get(channel.getNumber());
+            if (cached != null && !Arrays.equals(encode(cached), encode(channel.getDatapoints()))) {
+                changed = true;
+                put(channel);
+            }
+        }
+        entry.validated = System.currentTimeMillis();
+        entry.dirty = true;
+        return changed;
+    }
+
+    /**
+     * Returns true, if the entry of the device type is older than the revalidation interval.
+     */
+    public boolean isStale(HmDevice device) {
+        Entry entry = getEntry(device);
+        return !entry.channels.isEmpty() && System.currentTimeMillis() - entry.validated >= revalidateInterval;
+    }
+
+    /**
+     * Writes all changed entries to disk.
+     */
+    public void save() {
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            if (entry.dirty) {
+                entry.dirty = false;
+                try {
+                    write(getFile(mapEntry.getKey()), entry);
+                } catch (IOException ex) {
+                    logger.warn("Can't write paramset description cache file for '{}': {}", mapEntry.getKey(),
+                            ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of channels served from the cache since the last call and resets the counter.
+     */
+    public int resetHits() {
+        return hits.getAndSet(0);
+    }
+
+    /**
+     * Returns the number of channels not found in the cache since the last call and resets the counter.
+     */
+    public int resetMisses() {
+        return misses.getAndSet(0);
+    }
+
+    private Entry getEntry(HmDevice device) {
+        return entries.computeIfAbsent(getKey(device), key -> read(getFile(key)));
+    }
+
+    private static String getKey(HmDevice device) {
+        return String.format("%s_%s", device.getType(), device.getFirmware()).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + FILE_EXTENSION);
+    }
+
+    /**
+     * Reads the cache file, returns an empty entry if it does not exist or is invalid.
+     */
+    private Entry read(File file) {
+        if (!file.isFile()) {
+            return new Entry(System.currentTimeMillis());
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                logger.debug("Ignoring paramset description cache file '{}' with another version", file);
+                return new Entry(System.currentTimeMillis());
+            }
+            Entry entry = new Entry(in.readLong());
+            int channelCount = in.readInt();
+            for (int i = 0; i < channelCount; i++) {
+                int channelNumber = in.readInt();
+                int datapointCount = in.readInt();
+                List<HmDatapoint> datapoints = new ArrayList<>(datapointCount);
+                for (int j = 0; j < datapointCount; j++) {
+                    datapoints.add(readDatapoint(in));
+                }
+                entry.channels.put(channelNumber, datapoints);
+            }
+            return entry;
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Ignoring invalid paramset description cache file '{}': {}", file, ex.getMessage());
+            return new Entry(System.currentTimeMillis());
+        }
+    }
+
+    private void write(File file, Entry entry) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        File tmpFile = new File(directory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeLong(entry.validated);
+            Map<Integer, List<HmDatapoint>> channels = new TreeMap<>(entry.channels);
+            out.writeInt(channels.size());
+            for (Map.Entry<Integer, List<HmDatapoint>> channel : channels.entrySet()) {
+                out.writeInt(channel.getKey());
+                writeDatapoints(out, channel.getValue());
+            }
+        }
+        if (file.exists() && !file.delete() || !tmpFile.renameTo(file)) {
+            throw new IOException("Can't replace file " + file);
+        }
+    }
+
+    /**
+     * Returns the binary representation of the datapoints, used to compare cached and loaded metadata.
+     */
+    private static byte[] encode(Collection<HmDatapoint> datapoints) {
+        List<HmDatapoint> nonVirtual = new ArrayList<>();
+        for (HmDatapoint dp : datapoints) {
+            if (!dp.isVirtual()) {
+                nonVirtual.add(dp);
+            }
+        }
+        nonVirtual.sort((dp1, dp2) -> (dp1.getParamsetType() + dp1.getName())
+                .compareTo(dp2.getParamsetType() + dp2.getName()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeDatapoints(out, nonVirtual);
+        } catch (IOException ex) {
+            // not possible with a ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeDatapoints(DataOutputStream out, List<HmDatapoint> datapoints) throws IOException {
+        out.writeInt(datapoints.size());
+        for (HmDatapoint dp : datapoints) {
+            out.writeUTF(dp.getName());
+            writeString(out, dp.getDescription());
+            out.writeUTF(dp.getType().name());
+            out.writeUTF(dp.getParamsetType().name());
+            writeValue(out, dp.getMinValue());
+            writeValue(out, dp.getMaxValue());
+            writeValue(out, dp.getStep());
+            writeValue(out, dp.getDefaultValue());
+            String[] options = dp.getOptions();
+            out.writeInt(options == null ? -1 : options.length);
+            if (options != null) {
+                for (String option : options) {
+                    writeString(out, option);
+                }
+            }
+            out.writeBoolean(dp.isReadOnly());
+            out.writeBoolean(dp.isReadable());
+            out.writeBoolean(dp.isTrigger());
+            writeString(out, dp.getInfo());
+            writeString(out, dp.getUnit());
+        }
+    }
+
+    private static HmDatapoint readDatapoint(DataInputStream in) throws IOException {
+        HmDatapoint dp = new HmDatapoint();
+        dp.setName(in.readUTF());
+        dp.setDescription(readString(in));
+        dp.setType(HmValueType.valueOf(in.readUTF()));
+        dp.setParamsetType(HmParamsetType.valueOf(in.readUTF()));
+        dp.setMinValue((Number) readValue(in));
+        dp.setMaxValue((Number) readValue(in));
+        dp.setStep((Number) readValue(in));
+        dp.setDefaultValue(readValue(in));
+        int optionCount = in.readInt();
+        if (optionCount >= 0) {
+            String[] options = new String[optionCount];
+            for (int i = 0; i < optionCount; i++) {
+                options[i] = readString(in);
+            }
+            dp.setOptions(options);
+        }
+        dp.setReadOnly(in.readBoolean());
+        dp.setReadable(in.readBoolean());
+        dp.setTrigger(in.readBoolean());
+        dp.setInfo(readString(in));
+        dp.setUnit(readString(in));
+        dp.setValue(dp.getDefaultValue());
+        return dp;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Number) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value != null) {
+            out.writeByte(VALUE_STRING);
+            out.writeUTF(value.toString());
+        } else {
+            out.writeByte(VALUE_NULL);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_INTEGER:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_STRING:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+}
@@ -13,24 +13,33 @@
 package org.openhab.binding.homematic.internal.communicator.client;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Simple socket cache class.
+ * Socket pool class, keeps up to {@link HomematicConfig#getSocketPoolSize()} sockets per port.
+ * <p>
+ * A socket is borrowed with {@link #getSocket(int)} for exactly one request/response cycle and must be handed back
+ * with {@link #returnSocket(int, SocketInfo, boolean)}, so that requests to the same port can be sent concurrently.
  *
  * @author Gerhard Riegler - Initial contribution
+ * @author agent - Pool of sockets per port
  */
 public class SocketHandler {
     private final Logger logger = LoggerFactory.getLogger(SocketHandler.class);
 
-    private Map<Integer, SocketInfo> socketsPerPort = new HashMap<Integer, SocketInfo>();
+    private final Map<Integer, SocketPool> poolsPerPort = new ConcurrentHashMap<>();
     private HomematicConfig config;
 
     public SocketHandler(HomematicConfig config) {
@@ -38,56 +47,112 @@ public class SocketHandler {
     }
 
     /**
-     * Returns a socket for the given port, (re)creates it if required.
+     * Borrows a socket for the given port, (re)creates it if required. Blocks up to the configured timeout if all
+     * sockets of the port are in use.
      */
-    public Socket getSocket(int port) throws IOException {
-        SocketInfo socketInfo = socketsPerPort.get(port);
-        if (socketInfo == null) {
+    public SocketInfo getSocket(int port) throws IOException {
+        SocketPool pool = poolsPerPort.computeIfAbsent(port, p -> new SocketPool(config.getSocketPoolSize()));
+        try {
+            if (!pool.permits.tryAcquire(config.getTimeout(), TimeUnit.SECONDS)) {
+                throw new IOException("No free socket for port " + port + " within " + config.getTimeout() + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a socket for port " + port);
+        }
+
+        try {
+            int generation;
+            while (true) {
+                SocketInfo socketInfo;
+                synchronized (pool) {
+                    generation = pool.generation;
+                    socketInfo = pool.idle.pollFirst();
+                }
+                if (socketInfo == null) {
+                    break;
+                }
+                if (isMaxAliveReached(socketInfo) || socketInfo.getSocket().isClosed()) {
+                    logger.debug("Max alive time reached for socket on port {}", port);
+                    closeSilent(socketInfo.getSocket());
+                } else {
+                    logger.trace("Returning socket for port {}", port);
+                    return socketInfo;
+                }
+            }
+
             logger.trace("Creating new socket for port {}", port);
             Socket socket = new Socket();
-            socket.setSoTimeout(config.getTimeout() * 1000);
-            socket.setReuseAddress(true);
-            socket.connect(new InetSocketAddress(config.getGatewayAddress(), port), socket.getSoTimeout());
-            socketInfo = new SocketInfo(socket);
-            socketsPerPort.put(port, socketInfo);
-        } else {
-            boolean isMaxAliveReached = System.currentTimeMillis()
-                    - socketInfo.getCreated() > (config.getSocketMaxAlive() * 1000);
-
-            if (isMaxAliveReached) {
-                logger.debug("Max alive time reached for socket on port {}", port);
-                removeSocket(port);
-                return getSocket(port);
+            try {
+                socket.setSoTimeout(config.getTimeout() * 1000);
+                socket.setReuseAddress(true);
+                socket.connect(new InetSocketAddress(config.getGatewayAddress(), port), socket.getSoTimeout());
+            } catch (IOException ex) {
+                closeSilent(socket);
+                throw ex;
             }
-            logger.trace("Returning socket for port {}", port);
+            return new SocketInfo(socket, generation);
+        } catch (IOException | RuntimeException ex) {
+            pool.permits.release();
+            throw ex;
         }
-        return socketInfo.getSocket();
     }
 
     /**
-     * Removes the socket for the given port from the cache.
+     * Hands a borrowed socket back to the pool of the given port. If the socket is not reusable, because the
+     * request/response cycle failed or the sockets of the port have been removed in the meantime, it is closed.
      */
-    public void removeSocket(int port) {
-        SocketInfo socketInfo = socketsPerPort.get(port);
-        if (socketInfo != null) {
+    public void returnSocket(int port, SocketInfo socketInfo, boolean reusable) {
+        SocketPool pool = poolsPerPort.get(port);
+        boolean keep = false;
+        if (pool != null) {
+            synchronized (pool) {
+                keep = reusable && socketInfo.getGeneration() == pool.generation && !isMaxAliveReached(socketInfo);
+                if (keep) {
+                    pool.idle.offerFirst(socketInfo);
+                }
+            }
+            pool.permits.release();
+        }
+        if (!keep) {
             logger.trace("Closing Socket on port {}", port);
-            socketsPerPort.remove(port);
             closeSilent(socketInfo.getSocket());
         }
     }
 
+    /**
+     * Closes all idle sockets for the given port. Sockets which are currently in use are closed as soon as they are
+     * returned.
+     */
+    public void removeSocket(int port) {
+        SocketPool pool = poolsPerPort.get(port);
+        if (pool != null) {
+            logger.trace("Closing Sockets on port {}", port);
+            SocketInfo[] idle;
+            synchronized (pool) {
+                pool.generation++;
+                idle = pool.idle.toArray(new SocketInfo[0]);
+                pool.idle.clear();
+            }
+            for (SocketInfo socketInfo : idle) {
+                closeSilent(socketInfo.getSocket());
+            }
+        }
+    }
+
     /**
      * Removes all cached sockets.
      */
     public void flush() {
-        synchronized (SocketHandler.class) {
-            Integer[] portsToRemove = socketsPerPort.keySet().toArray(new Integer[0]);
-            for (Integer key : portsToRemove) {
-                removeSocket(key);
-            }
+        for (Integer port : poolsPerPort.keySet()) {
+            removeSocket(port);
         }
     }
 
+    private boolean isMaxAliveReached(SocketInfo socketInfo) {
+        return System.currentTimeMillis() - socketInfo.getCreated() > (config.getSocketMaxAlive() * 1000);
+    }
+
     /**
      * Silently closes the given socket.
      */
@@ -98,4 +163,18 @@ public class SocketHandler {
             // ignore
         }
     }
+
+    /**
+     * The sockets of one port. The most recently used idle socket is reused first, so that surplus sockets run into
+     * their max alive time when the load drops.
+     */
+    private static class SocketPool {
+        private final Semaphore permits;
+        private final Deque<SocketInfo> idle = new ArrayDeque<>();
+        private int generation;
+
+        private SocketPool(int size) {
+            permits = new Semaphore(Math.max(1, size), true);
+        }
+    }
 }
@@ -31,9 +31,17 @@ public class EventParser extends CommonRpcParser<Object[], HmDatapointInfo> {
 
     @Override
     public HmDatapointInfo parse(Object[] message) throws IOException {
+        return parse(message[1], message[2], message[3]);
+    }
+
+    /**
+     * Parses the already extracted address, datapoint name and value of a event.
+     */
+    public HmDatapointInfo parse(Object addressWithChannelObject, Object nameObject, Object newValue)
+            throws IOException {
         String address;
         Integer channel = 0;
-        String addressWithChannel = toString(message[1]);
+        String addressWithChannel = toString(addressWithChannelObject);
         if ("".equals(addressWithChannel)) {
             address = HmDevice.ADDRESS_GATEWAY_EXTRAS;
             channel = HmChannel.CHANNEL_NUMBER_VARIABLE;
@@ -45,8 +53,8 @@ public class EventParser extends CommonRpcParser<Object[], HmDatapointInfo> {
             }
         }
 
-        String name = toString(message[2]);
-        value = message[3];
+        String name = toString(nameObject);
+        value = newValue;
 
         return new HmDatapointInfo(address, HmParamsetType.VALUES, channel, name);
     }
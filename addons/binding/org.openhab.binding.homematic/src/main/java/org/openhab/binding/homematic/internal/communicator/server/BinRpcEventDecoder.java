@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.homematic.internal.communicator.server;
+
+import static org.openhab.binding.homematic.internal.misc.HomematicConstants.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openhab.binding.homematic.internal.communicator.parser.EventParser;
+import org.openhab.binding.homematic.internal.model.HmDatapointInfo;
+
+/**
+ * Decodes BIN-RPC event and system.multicall requests straight from the receive buffer into {@link HmDatapointInfo}s,
+ * without materializing the whole call structure like the BinRpcMessage does. The decoder and its result lists are
+ * reused for all requests of a connection.
+ *
+ * @author agent - Initial contribution
+ */
+public class BinRpcEventDecoder {
+    private static final int TYPE_INTEGER = 1;
+    private static final int TYPE_BOOLEAN = 2;
+    private static final int TYPE_STRING = 3;
+    private static final int TYPE_DOUBLE = 4;
+    private static final int TYPE_DATE = 5;
+    private static final int TYPE_ARRAY = 0x100;
+    private static final int TYPE_STRUCT = 0x101;
+
+    private static final String MEMBER_METHOD_NAME = "methodName";
+    private static final String MEMBER_PARAMS = "params";
+
+    private final EventParser eventParser = new EventParser();
+    private final List<HmDatapointInfo> dpInfos = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    private ByteBuffer buffer;
+    private String encoding;
+    private String methodName;
+
+    /**
+     * Decodes the BIN-RPC request between the position and the limit of the given buffer. Returns false if the
+     * request is not a event or a system.multicall which only consists of events, the request must be decoded with
+     * the BinRpcMessage then.
+     */
+    public boolean decode(ByteBuffer message, String encoding) throws IOException {
+        this.buffer = message;
+        this.encoding = encoding;
+        dpInfos.clear();
+        values.clear();
+        try {
+            buffer.position(buffer.position() + 8);
+            methodName = readString();
+            int args = buffer.getInt();
+            if (RPC_METHODNAME_EVENT.equals(methodName)) {
+                return args >= 4 && decodeEventParams(args);
+            } else if (RPC_METHODNAME_SYSTEM_MULTICALL.equals(methodName)) {
+                return args == 1 && decodeMulticall();
+            }
+            return false;
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("Invalid BIN-RPC message: " + ex.getMessage(), ex);
+        } finally {
+            buffer = null;
+        }
+    }
+
+    /**
+     * Returns the method name of the last decoded request.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Returns the datapoints of the events of the last decoded request.
+     */
+    public List<HmDatapointInfo> getDatapointInfos() {
+        return dpInfos;
+    }
+
+    /**
+     * Returns the values of the events of the last decoded request, in the same order as the datapoints.
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    private boolean decodeMulticall() throws IOException {
+        if (buffer.getInt() != TYPE_ARRAY) {
+            return false;
+        }
+        int calls = buffer.getInt();
+        while (calls-- > 0) {
+            if (buffer.getInt() != TYPE_STRUCT) {
+                return false;
+            }
+            int members = buffer.getInt();
+            boolean isEvent = false;
+            while (members-- > 0) {
+                String member = readString();
+                if (MEMBER_METHOD_NAME.equals(member)) {
+                    isEvent = RPC_METHODNAME_EVENT.equals(readValue());
+                    if (!isEvent) {
+                        return false;
+                    }
+                } else if (MEMBER_PARAMS.equals(member)) {
+                    if (!isEvent || buffer.getInt() != TYPE_ARRAY) {
+                        return false;
+                    }
+                    int params = buffer.getInt();
+                    if (params < 4 || !decodeEventParams(params)) {
+                        return false;
+                    }
+                } else {
+                    readValue();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the interface id, address, datapoint name and value of a event.
+     */
+    private boolean decodeEventParams(int params) throws IOException {
+        readValue();
+        Object address = readValue();
+        Object name = readValue();
+        Object value = readValue();
+        for (int i = 4; i < params; i++) {
+            readValue();
+        }
+        dpInfos.add(eventParser.parse(address, name, value));
+        values.add(eventParser.getValue());
+        return true;
+    }
+
+    private String readString() throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, encoding);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /**
+     * Reads a value the same way as the BinRpcMessage does.
+     */
+    private Object readValue() throws IOException {
+        int type = buffer.getInt();
+        switch (type) {
+            case TYPE_INTEGER:
+                return buffer.getInt();
+            case TYPE_BOOLEAN:
+                return buffer.get() != 0 ? Boolean.TRUE : Boolean.FALSE;
+            case TYPE_STRING:
+                return readString();
+            case TYPE_DOUBLE:
+                int mantissa = buffer.getInt();
+                int exponent = buffer.getInt();
+                BigDecimal bd = new BigDecimal((double) mantissa / (double) (1 << 30) * Math.pow(2, exponent));
+                return bd.setScale(6, RoundingMode.HALF_DOWN).doubleValue();
+            case TYPE_DATE:
+                return new Date(buffer.getInt() * 1000L);
+            case TYPE_ARRAY:
+                int numElements = buffer.getInt();
+                List<Object> array = new ArrayList<>();
+                while (numElements-- > 0) {
+                    array.add(readValue());
+                }
+                return array.toArray();
+            case TYPE_STRUCT:
+                numElements = buffer.getInt();
+                Map<String, Object> struct = new TreeMap<>();
+                while (numElements-- > 0) {
+                    String name = readString();
+                    struct.put(name, readValue());
+                }
+                return struct;
+            default:
+                throw new IOException("Unknown data type " + type);
+        }
+    }
+}
@@ -14,40 +14,83 @@ package org.openhab.binding.homematic.internal.communicator.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
 import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
 import org.openhab.binding.homematic.internal.communicator.message.RpcRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Waits for a message from the Homematic gateway and starts the RpcCallbackHandler to handle the message.
+ * Waits for messages from the Homematic gateway on a single selector thread and handles them with the
+ * RpcResponseHandler.
+ * <p>
+ * The messages of a connection are read into a reusable buffer and handled one after another on the RPC thread pool,
+ * the connection is not read while a message is handled. Event and system.multicall messages are decoded straight
+ * from the buffer by the {@link BinRpcEventDecoder}, all other messages by the {@link BinRpcMessage}.
  *
  * @author Gerhard Riegler - Initial contribution
+ * @author agent - Selector based server with streaming event decoding
  */
 public class BinRpcNetworkService implements Runnable {
+    private final Logger logger = LoggerFactory.getLogger(BinRpcNetworkService.class);
+
     private static final byte BIN_EMPTY_STRING[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 0, 3, 0, 0, 0, 0 };
     private static final byte BIN_EMPTY_ARRAY[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 1, 0, 0, 0, 0, 0 };
     private static final byte BIN_EMPTY_EVENT_LIST[] = { 'B', 'i', 'n', 1, 0, 0, 0, 21, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0,
             3, 0, 0, 0, 5, 'e', 'v', 'e', 'n', 't' };
 
     private static final String RPC_POOL_NAME = "homematicRpc";
-    private ServerSocket serverSocket;
-    private boolean accept = true;
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    private static final long STATISTICS_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Queue<Connection> handledConnections = new ConcurrentLinkedQueue<>();
+    private volatile boolean accept = true;
     private HomematicConfig config;
     private RpcResponseHandler<byte[]> rpcResponseHandler;
 
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong maxDecodeNanos = new AtomicLong();
+    private volatile long statisticsStart = System.currentTimeMillis();
+
     /**
      * Creates the socket for listening to events from the Homematic gateway.
      */
     public BinRpcNetworkService(RpcEventListener listener, HomematicConfig config) throws IOException {
         this.config = config;
 
-        serverSocket = new ServerSocket();
-        serverSocket.setReuseAddress(true);
-        serverSocket.bind(new InetSocketAddress(config.getBindAddress(), config.getBinCallbackPort()));
+        selector = Selector.open();
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.bind(new InetSocketAddress(config.getBindAddress(), config.getBinCallbackPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            selector.close();
+            throw ex;
+        }
 
         this.rpcResponseHandler = new RpcResponseHandler<byte[]>(listener) {
 
@@ -74,31 +117,253 @@ public class BinRpcNetworkService implements Runnable {
     }
 
     /**
-     * Listening for events and starts the callbackHandler if a event received.
+     * Accepts connections, reads messages and writes the results until the service is shut down.
      */
     @Override
     public void run() {
         while (accept) {
             try {
-                Socket cs = serverSocket.accept();
-                BinRpcResponseHandler rpcHandler = new BinRpcResponseHandler(cs, rpcResponseHandler, config);
-                ThreadPoolManager.getPool(RPC_POOL_NAME).execute(rpcHandler);
+                selector.select(STATISTICS_INTERVAL);
+
+                Connection connection;
+                while ((connection = handledConnections.poll()) != null) {
+                    writeResult(connection);
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptConnection();
+                    } else {
+                        connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            readMessage(connection);
+                        } else if (key.isWritable()) {
+                            writeResult(connection);
+                        }
+                    }
+                }
+                logStatistics(false);
+            } catch (ClosedSelectorException ex) {
+                break;
             } catch (IOException ex) {
-                // ignore
+                logger.debug("{}", ex.getMessage(), ex);
             }
         }
     }
 
+    private void acceptConnection() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        }
+    }
+
+    /**
+     * Reads from the connection and starts the handling of the message as soon as it has been received completely.
+     */
+    private void readMessage(Connection connection) {
+        try {
+            if (connection.channel.read(connection.buffer) < 0) {
+                connection.close();
+            } else {
+                handleIfComplete(connection);
+            }
+        } catch (IOException | CancelledKeyException ex) {
+            logger.debug("Closing BIN-RPC connection: {}", ex.getMessage());
+            connection.close();
+        }
+    }
+
+    private void handleIfComplete(Connection connection) throws IOException {
+        ByteBuffer buffer = connection.buffer;
+        if (buffer.position() < 8) {
+            return;
+        }
+        if (buffer.get(0) != 'B' || buffer.get(1) != 'i' || buffer.get(2) != 'n') {
+            throw new IOException("No BinX signature");
+        }
+        int length = buffer.getInt(4);
+        if (length < 0 || length > MAX_MESSAGE_SIZE - 8) {
+            throw new IOException("Invalid BIN-RPC message length " + length);
+        }
+        int messageSize = length + 8;
+        if (messageSize > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(messageSize);
+            buffer.flip();
+            larger.put(buffer);
+            connection.buffer = buffer = larger;
+        }
+        if (buffer.position() >= messageSize) {
+            connection.messageSize = messageSize;
+            connection.key.interestOps(0);
+            ThreadPoolManager.getPool(RPC_POOL_NAME).execute(() -> handleMessage(connection));
+        }
+    }
+
+    /**
+     * Handles the message at the start of the connection buffer and hands the connection back to the selector thread
+     * for writing the result.
+     */
+    private void handleMessage(Connection connection) {
+        try {
+            ByteBuffer message = connection.buffer.duplicate();
+            message.position(0).limit(connection.messageSize);
+            connection.result = decodeAndHandle(connection.decoder, message);
+
+            // keep the already received part of the next message
+            ByteBuffer buffer = connection.buffer;
+            buffer.flip();
+            buffer.position(connection.messageSize);
+            if (buffer.capacity() > INITIAL_BUFFER_SIZE && buffer.remaining() <= INITIAL_BUFFER_SIZE) {
+                // don't hold on to the memory of a large message
+                connection.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE).put(buffer);
+            } else {
+                buffer.compact();
+            }
+
+            handledConnections.add(connection);
+            selector.wakeup();
+        } catch (Exception ex) {
+            logger.warn("{}", ex.getMessage(), ex);
+            connection.close();
+        }
+    }
+
+    private byte[] decodeAndHandle(BinRpcEventDecoder decoder, ByteBuffer message) throws Exception {
+        String encoding = config.getEncoding();
+        long start = System.nanoTime();
+        if (decoder.decode(message.duplicate(), encoding)) {
+            long duration = System.nanoTime() - start;
+            messages.incrementAndGet();
+            events.addAndGet(decoder.getDatapointInfos().size());
+            decodeNanos.addAndGet(duration);
+            maxDecodeNanos.accumulateAndGet(duration, Math::max);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Event BinRpcMessage: {} with {} events decoded in {}µs", decoder.getMethodName(),
+                        decoder.getDatapointInfos().size(), TimeUnit.NANOSECONDS.toMicros(duration));
+            }
+            return rpcResponseHandler.handleEvents(decoder.getMethodName(), decoder.getDatapointInfos(),
+                    decoder.getValues());
+        }
+
+        byte[] data = new byte[message.remaining()];
+        message.get(data);
+        BinRpcMessage binRpcMessage = new BinRpcMessage(data, true, encoding);
+        logger.trace("Event BinRpcMessage: {}", binRpcMessage);
+        return rpcResponseHandler.handleMethodCall(binRpcMessage.getMethodName(), binRpcMessage.getResponseData());
+    }
+
+    /**
+     * Writes the result of the handled message and continues reading from the connection.
+     */
+    private void writeResult(Connection connection) {
+        try {
+            if (connection.result != null) {
+                if (connection.output == null) {
+                    connection.output = ByteBuffer.wrap(connection.result);
+                }
+                connection.channel.write(connection.output);
+                if (connection.output.hasRemaining()) {
+                    connection.key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            connection.result = null;
+            connection.output = null;
+
+            boolean isMaxAliveReached = System.currentTimeMillis()
+                    - connection.created > (config.getSocketMaxAlive() * 1000);
+            if (isMaxAliveReached) {
+                connection.close();
+            } else {
+                connection.key.interestOps(SelectionKey.OP_READ);
+                handleIfComplete(connection);
+            }
+        } catch (IOException | CancelledKeyException ex) {
+            logger.debug("Closing BIN-RPC connection: {}", ex.getMessage());
+            connection.close();
+        }
+    }
+
+    /**
+     * Logs the event rate and the decode time of the event messages every minute.
+     */
+    private void logStatistics(boolean force) {
+        long now = System.currentTimeMillis();
+        long duration = now - statisticsStart;
+        if (duration < STATISTICS_INTERVAL && !force) {
+            return;
+        }
+        statisticsStart = now;
+        long messageCount = messages.getAndSet(0);
+        long eventCount = events.getAndSet(0);
+        long decodeTime = decodeNanos.getAndSet(0);
+        long maxDecodeTime = maxDecodeNanos.getAndSet(0);
+        if (messageCount > 0) {
+            logger.debug(
+                    "Received {} events in {} BIN-RPC messages within {}s ({} events/s), "
+                            + "decode time per message: average {}µs, max {}µs",
+                    eventCount, messageCount, TimeUnit.MILLISECONDS.toSeconds(duration),
+                    eventCount * 1000 / Math.max(1, duration),
+                    TimeUnit.NANOSECONDS.toMicros(decodeTime / messageCount),
+                    TimeUnit.NANOSECONDS.toMicros(maxDecodeTime));
+        }
+    }
+
     /**
      * Stops the listening.
      */
     public void shutdown() {
         accept = false;
         try {
-            serverSocket.close();
+            serverChannel.close();
         } catch (IOException ioe) {
             // ignore
         }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        try {
+            selector.close();
+        } catch (IOException ioe) {
+            // ignore
+        }
+        logStatistics(true);
     }
 
+    /**
+     * A connection from the Homematic gateway with its receive buffer.
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private final long created = System.currentTimeMillis();
+        private final BinRpcEventDecoder decoder = new BinRpcEventDecoder();
+        private SelectionKey key;
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private int messageSize;
+        private byte[] result;
+        private ByteBuffer output;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void close() {
+            connections.remove(this);
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+        }
+    }
 }
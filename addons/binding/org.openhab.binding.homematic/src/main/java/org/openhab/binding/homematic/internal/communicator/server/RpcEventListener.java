@@ -28,6 +28,15 @@ public interface RpcEventListener {
      */
     public void eventReceived(HmDatapointInfo dpInfo, Object newValue);
 
+    /**
+     * Called with all events of a system.multicall received from a Homematic gateway, in the order they were sent.
+     */
+    public default void eventsReceived(List<HmDatapointInfo> dpInfos, List<Object> newValues) {
+        for (int i = 0; i < dpInfos.size(); i++) {
+            eventReceived(dpInfos.get(i), newValues.get(i));
+        }
+    }
+
     /**
      * Called when new devices has been detected on the Homeamtic gateway.
      */
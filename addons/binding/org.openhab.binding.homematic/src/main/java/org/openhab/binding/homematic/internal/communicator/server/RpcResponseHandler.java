@@ -60,15 +60,27 @@ public abstract class RpcResponseHandler<T> {
             msg.addArg(getListMethods());
             return msg.createMessage();
         } else if (RPC_METHODNAME_SYSTEM_MULTICALL.equals(methodName)) {
+            List<HmDatapointInfo> dpInfos = new ArrayList<HmDatapointInfo>();
+            List<Object> values = new ArrayList<Object>();
+            EventParser eventParser = new EventParser();
             for (Object o : (Object[]) responseData[0]) {
                 Map<?, ?> call = (Map<?, ?>) o;
                 if (call != null) {
                     String method = ObjectUtils.toString(call.get("methodName"));
                     Object[] data = (Object[]) call.get("params");
-                    handleMethodCall(method, data);
+                    if (RPC_METHODNAME_EVENT.equals(method)) {
+                        dpInfos.add(eventParser.parse(data));
+                        values.add(eventParser.getValue());
+                    } else {
+                        // keep the order of the events and the other calls
+                        handleEvents(RPC_METHODNAME_SYSTEM_MULTICALL, dpInfos, values);
+                        dpInfos = new ArrayList<HmDatapointInfo>();
+                        values = new ArrayList<Object>();
+                        handleMethodCall(method, data);
+                    }
                 }
             }
-            return getEmptyEventListResult();
+            return handleEvents(RPC_METHODNAME_SYSTEM_MULTICALL, dpInfos, values);
         } else if (RPC_METHODNAME_SET_CONFIG_READY.equals(methodName)) {
             return getEmptyEventListResult();
         } else {
@@ -99,6 +111,20 @@ public abstract class RpcResponseHandler<T> {
         return getEmptyStringResult();
     }
 
+    /**
+     * Populates already decoded events to the listener in one batch. Returns the result of a single event or of a
+     * system.multicall, depending on the given methodName.
+     */
+    public T handleEvents(String methodName, List<HmDatapointInfo> dpInfos, List<Object> values) {
+        if (dpInfos.size() == 1) {
+            listener.eventReceived(dpInfos.get(0), values.get(0));
+        } else if (!dpInfos.isEmpty()) {
+            listener.eventsReceived(dpInfos, values);
+        }
+        return RPC_METHODNAME_SYSTEM_MULTICALL.equals(methodName) ? getEmptyEventListResult()
+                : getEmptyStringResult();
+    }
+
     /**
      * Calls the listener when a devices has been detected.
      */
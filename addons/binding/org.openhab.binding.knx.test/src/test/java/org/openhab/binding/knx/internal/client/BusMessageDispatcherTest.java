@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.client;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.knx.internal.handler.GroupAddressListener;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.IndividualAddress;
+
+/**
+ * Replays a bus trace through the {@link BusMessageDispatcher}.
+ * <p>
+ * The trace is generated with a fixed seed: device things with a few group addresses each, some of them shared by
+ * many things, and a part of the telegrams going to group addresses without any thing.
+ *
+ * @author agent - Initial contribution
+ */
+public class BusMessageDispatcherTest {
+
+    private static final int THINGS = 20;
+    private static final int GROUP_ADDRESSES_PER_THING = 4;
+    private static final int GROUP_ADDRESSES = 50;
+    private static final int TELEGRAMS = 500;
+
+    private ScheduledExecutorService knxScheduler;
+    private final List<TestListener> things = new ArrayList<>();
+    private final List<Telegram> trace = new ArrayList<>();
+
+    private static class Telegram {
+        private final IndividualAddress source;
+        private final GroupAddress destination;
+        private final byte[] asdu;
+
+        private Telegram(IndividualAddress source, GroupAddress destination, byte[] asdu) {
+            this.source = source;
+            this.destination = destination;
+            this.asdu = asdu;
+        }
+    }
+
+    private static class TestListener implements GroupAddressListener {
+        private final Set<GroupAddress> groupAddresses = new HashSet<>();
+        private final List<Telegram> received = Collections.synchronizedList(new ArrayList<>());
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+
+        private void received(Telegram telegram) {
+            received.add(telegram);
+            latch.countDown();
+        }
+
+        @Override
+        public boolean listensTo(GroupAddress destination) {
+            return groupAddresses.contains(destination);
+        }
+
+        @Override
+        public Set<GroupAddress> getGroupAddresses() {
+            return groupAddresses;
+        }
+
+        @Override
+        public void onGroupWrite(AbstractKNXClient client, IndividualAddress source, GroupAddress destination,
+                byte[] asdu) {
+        }
+
+        @Override
+        public void onGroupRead(AbstractKNXClient client, IndividualAddress source, GroupAddress destination,
+                byte[] asdu) {
+        }
+
+        @Override
+        public void onGroupReadResponse(AbstractKNXClient client, IndividualAddress source, GroupAddress destination,
+                byte[] asdu) {
+        }
+    }
+
+    private static GroupAddress groupAddress(int index) {
+        return new GroupAddress(index / 2048, (index / 256) % 8, index % 256);
+    }
+
+    @Before
+    public void setup() {
+        knxScheduler = new ScheduledThreadPoolExecutor(4);
+
+        Random random = new Random(4711);
+        for (int i = 0; i < THINGS; i++) {
+            TestListener thing = new TestListener();
+            while (thing.groupAddresses.size() < GROUP_ADDRESSES_PER_THING) {
+                // central group addresses like "all off" are shared by many things
+                int index = random.nextInt(4) == 0 ? random.nextInt(3) : random.nextInt(GROUP_ADDRESSES);
+                thing.groupAddresses.add(groupAddress(index));
+            }
+            things.add(thing);
+        }
+
+        for (int i = 0; i < TELEGRAMS; i++) {
+            // a part of the telegrams goes to group addresses without a thing
+            int index = random.nextInt(GROUP_ADDRESSES + 10);
+            trace.add(new Telegram(new IndividualAddress(random.nextInt(0xffff)), groupAddress(index),
+                    new byte[] { (byte) i, (byte) (i >> 8) }));
+        }
+    }
+
+    @After
+    public void cleanup() {
+        knxScheduler.shutdownNow();
+    }
+
+    private void expectDeliveries() {
+        for (TestListener thing : things) {
+            int count = 0;
+            for (Telegram telegram : trace) {
+                if (thing.listensTo(telegram.destination)) {
+                    count++;
+                }
+            }
+            thing.received.clear();
+            thing.latch = new CountDownLatch(count);
+        }
+    }
+
+    private void awaitDeliveries() throws InterruptedException {
+        for (TestListener thing : things) {
+            assertTrue(thing.latch.await(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private void replay(BusMessageDispatcher dispatcher) throws InterruptedException {
+        for (Telegram telegram : trace) {
+            dispatcher.dispatch(telegram.destination, listener -> ((TestListener) listener).received(telegram));
+        }
+        awaitDeliveries();
+    }
+
+    @Test
+    public void replayDeliversInOrder() throws InterruptedException {
+        BusMessageDispatcher dispatcher = new BusMessageDispatcher(knxScheduler);
+        things.forEach(dispatcher::register);
+
+        expectDeliveries();
+        replay(dispatcher);
+
+        for (TestListener thing : things) {
+            List<Telegram> expected = new ArrayList<>();
+            for (Telegram telegram : trace) {
+                if (thing.listensTo(telegram.destination)) {
+                    expected.add(telegram);
+                }
+            }
+            assertEquals(expected, thing.received);
+        }
+    }
+
+    @Test
+    public void registrationUpdatesIndex() throws InterruptedException {
+        AtomicLong delivered = new AtomicLong();
+        BusMessageDispatcher dispatcher = new BusMessageDispatcher(Runnable::run);
+        TestListener thing = things.get(0);
+        GroupAddress first = thing.groupAddresses.iterator().next();
+        GroupAddress unknown = groupAddress(GROUP_ADDRESSES + 1);
+
+        assertTrue(dispatcher.register(thing));
+        assertFalse(dispatcher.register(thing));
+        assertTrue(dispatcher.dispatch(first, listener -> delivered.incrementAndGet()));
+        assertFalse(dispatcher.dispatch(unknown, listener -> delivered.incrementAndGet()));
+
+        thing.groupAddresses.remove(first);
+        thing.groupAddresses.add(unknown);
+        dispatcher.register(thing);
+        assertFalse(dispatcher.dispatch(first, listener -> delivered.incrementAndGet()));
+        assertTrue(dispatcher.dispatch(unknown, listener -> delivered.incrementAndGet()));
+
+        assertTrue(dispatcher.unregister(thing));
+        assertFalse(dispatcher.unregister(thing));
+        assertFalse(dispatcher.dispatch(unknown, listener -> delivered.incrementAndGet()));
+        assertEquals(2, delivered.get());
+    }
+}
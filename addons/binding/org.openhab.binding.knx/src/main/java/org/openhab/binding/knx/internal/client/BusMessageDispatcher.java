@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.knx.internal.handler.GroupAddressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.GroupAddress;
+
+/**
+ * Routes received telegrams to the {@link GroupAddressListener}s which are registered for their destination.
+ * <p>
+ * The listeners are indexed by their group addresses when they are registered, so a telegram is only handed to the
+ * listeners of its destination. The telegrams are delivered one after another in the order they were received, by a
+ * single task on the given executor which runs as long as there are telegrams queued.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class BusMessageDispatcher {
+
+    private final Logger logger = LoggerFactory.getLogger(BusMessageDispatcher.class);
+
+    private final Executor executor;
+    private final Map<GroupAddressListener, Set<GroupAddress>> listeners = new HashMap<>();
+    private final Map<GroupAddress, List<GroupAddressListener>> listenersByGroupAddress = new ConcurrentHashMap<>();
+    private final Queue<Runnable> deliveries = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    public BusMessageDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registers the listener for its current group addresses. Registering a listener again updates its group
+     * addresses.
+     *
+     * @param listener the listener
+     * @return {@code true} if it wasn't registered before
+     */
+    public synchronized boolean register(GroupAddressListener listener) {
+        Set<GroupAddress> groupAddresses = new HashSet<>(listener.getGroupAddresses());
+        @Nullable Set<GroupAddress> previous = listeners.put(listener, groupAddresses);
+        if (previous != null) {
+            removeFromIndex(listener, previous);
+        }
+        for (GroupAddress groupAddress : groupAddresses) {
+            List<GroupAddressListener> current = listenersByGroupAddress.getOrDefault(groupAddress,
+                    Collections.emptyList());
+            List<GroupAddressListener> updated = new ArrayList<>(current.size() + 1);
+            updated.addAll(current);
+            updated.add(listener);
+            listenersByGroupAddress.put(groupAddress, Collections.unmodifiableList(updated));
+        }
+        return previous == null;
+    }
+
+    /**
+     * Removes the listener from all its group addresses.
+     *
+     * @param listener the listener
+     * @return {@code true} if it was successfully removed
+     */
+    public synchronized boolean unregister(GroupAddressListener listener) {
+        @Nullable Set<GroupAddress> groupAddresses = listeners.remove(listener);
+        if (groupAddresses == null) {
+            return false;
+        }
+        removeFromIndex(listener, groupAddresses);
+        return true;
+    }
+
+    private void removeFromIndex(GroupAddressListener listener, Set<GroupAddress> groupAddresses) {
+        for (GroupAddress groupAddress : groupAddresses) {
+            @Nullable List<GroupAddressListener> current = listenersByGroupAddress.get(groupAddress);
+            if (current != null) {
+                List<GroupAddressListener> updated = new ArrayList<>(current);
+                updated.remove(listener);
+                if (updated.isEmpty()) {
+                    listenersByGroupAddress.remove(groupAddress);
+                } else {
+                    listenersByGroupAddress.put(groupAddress, Collections.unmodifiableList(updated));
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the notification of all listeners of the given destination.
+     *
+     * @param destination the destination of the telegram
+     * @param notification the notification which is applied to each listener
+     * @return {@code true} if there is at least one listener for the destination
+     */
+    public boolean dispatch(GroupAddress destination, Consumer<GroupAddressListener> notification) {
+        @Nullable List<GroupAddressListener> receivers = listenersByGroupAddress.get(destination);
+        if (receivers == null) {
+            return false;
+        }
+        deliveries.add(() -> {
+            for (GroupAddressListener listener : receivers) {
+                try {
+                    notification.accept(listener);
+                } catch (RuntimeException e) {
+                    logger.warn("Listener '{}' failed to process a telegram to '{}': {}", listener, destination,
+                            e.getMessage(), e);
+                }
+            }
+        });
+        scheduleDelivery();
+        return true;
+    }
+
+    private void scheduleDelivery() {
+        if (!deliveries.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::deliver);
+            } catch (RejectedExecutionException e) {
+                delivering.set(false);
+                logger.debug("Could not deliver the received telegrams: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void deliver() {
+        try {
+            Runnable delivery;
+            while ((delivery = deliveries.poll()) != null) {
+                delivery.run();
+            }
+        } finally {
+            delivering.set(false);
+        }
+        // a telegram might have been queued after the last poll, but before the flag was reset
+        scheduleDelivery();
+    }
+}
@@ -12,6 +12,8 @@
  */
 package org.openhab.binding.knx.internal.handler;
 
+import java.util.Set;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.openhab.binding.knx.internal.client.BusMessageListener;
 
@@ -34,4 +36,10 @@ public interface GroupAddressListener extends BusMessageListener {
      */
     public boolean listensTo(GroupAddress destination);
 
+    /**
+     * Returns all GroupAddresses the GroupAddressListener has an interest in. The KNX client indexes the listener by
+     * these addresses when it is registered, so they must not change until the listener is registered again.
+     */
+    public Set<GroupAddress> getGroupAddresses();
+
 }
@@ -730,6 +730,24 @@ public class ModbusDataHandlerTest extends JavaTest {
         // no datetime, conversion not possible without transformation
     }
 
+    @Test
+    public void testOnRegistersUnchangedValueNotProcessedAgain() {
+        ModbusDataThingHandler dataHandler = testReadHandlingGeneric(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS,
+                "0", "default", ModbusConstants.ValueType.INT16, null,
+                new BasicModbusRegisterArray(new ModbusRegister[] { new BasicModbusRegister((byte) 0, (byte) 5) }),
+                null);
+        ModbusReadRequestBlueprint request = Mockito.mock(ModbusReadRequestBlueprint.class);
+        dataHandler.onRegisters(request,
+                new BasicModbusRegisterArray(new ModbusRegister[] { new BasicModbusRegister((byte) 0, (byte) 5) }));
+        dataHandler.onRegisters(request,
+                new BasicModbusRegisterArray(new ModbusRegister[] { new BasicModbusRegister((byte) 0, (byte) 6) }));
+
+        List<State> numberUpdates = stateUpdates.get(dataHandler.getThing().getChannel(CHANNEL_NUMBER).getUID());
+        assertThat(numberUpdates, is(equalTo(Arrays.asList(new DecimalType(5), new DecimalType(6)))));
+        assertThat(stateUpdates.get(dataHandler.getThing().getChannel(CHANNEL_LAST_READ_SUCCESS).getUID()).size(),
+                is(equalTo(3)));
+    }
+
     private void mockTransformation(String name, TransformationService service) throws InvalidSyntaxException {
         doReturn(Arrays.asList(new Object[] { null })).when(bundleContext)
                 .getServiceReferences(TransformationService.class, "(smarthome.transform=" + name + ")");
@@ -19,10 +19,12 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.NotImplementedException;
@@ -145,6 +147,20 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
     private volatile Map<String, ChannelUID> channelCache = new HashMap<>();
     private volatile Map<ChannelUID, Long> channelLastUpdated = new HashMap<>(NUMER_OF_CHANNELS_HINT);
     private volatile Map<ChannelUID, State> channelLastState = new HashMap<>(NUMER_OF_CHANNELS_HINT);
+    /**
+     * Raw value of the last processed poll, see {@link ModbusBitUtilities#extractRawValueFromRegisters}. Used to skip
+     * transformations and state updates when the polled data has not changed.
+     */
+    private volatile long lastRawValue;
+    private volatile boolean hasLastRawValue;
+    /**
+     * Oldest update time of the channels updated when processing the last poll
+     */
+    private volatile long oldestChannelUpdateMillis;
+    /**
+     * Linked data channels when processing the last poll
+     */
+    private volatile Set<ChannelUID> lastProcessedChannels = new HashSet<>();
 
     private volatile LocalDateTime lastStatusInfoUpdate = LocalDateTime.MIN;
     private volatile ThingStatusInfo statusInfo = new ThingStatusInfo(ThingStatus.UNKNOWN, ThingStatusDetail.NONE,
@@ -413,6 +429,10 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
         statusInfo = new ThingStatusInfo(ThingStatus.UNKNOWN, ThingStatusDetail.NONE, null);
         channelLastUpdated = new HashMap<>(NUMER_OF_CHANNELS_HINT);
         channelLastState = new HashMap<>(NUMER_OF_CHANNELS_HINT);
+        lastRawValue = 0L;
+        hasLastRawValue = false;
+        oldestChannelUpdateMillis = 0L;
+        lastProcessedChannels = new HashSet<>();
     }
 
     @Override
@@ -674,9 +694,16 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
             int itemsPerRegister = 16 / readValueType.getBits();
             extractIndex = (readIndex.get() - pollStart) * itemsPerRegister + subIndex;
         }
-        numericState = ModbusBitUtilities.extractStateFromRegisters(registers, extractIndex, readValueType);
+        long rawValue = ModbusBitUtilities.extractRawValueFromRegisters(registers, extractIndex, readValueType);
+        if (processUnchangedValue(rawValue)) {
+            logger.trace("Thing {} polled value unchanged, raw value {}", thing.getUID(), rawValue);
+            return;
+        }
+        numericState = ModbusBitUtilities.rawValueToDecimalType(rawValue, readValueType);
         boolean boolValue = !numericState.equals(DecimalType.ZERO);
         Map<ChannelUID, State> values = processUpdatedValue(numericState, boolValue);
+        lastRawValue = rawValue;
+        hasLastRawValue = true;
         logger.debug(
                 "Thing {} channels updated: {}. readValueType={}, readIndex={}, readSubIndex(or 0)={}, extractIndex={} -> numeric value {} and boolValue={}. Registers {} for request {}",
                 thing.getUID(), values, readValueType, readIndex, readSubIndex.orElse(0), extractIndex, numericState,
@@ -691,8 +718,15 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
             return;
         }
         boolean boolValue = bits.getBit(readIndex.get() - pollStart);
+        long rawValue = boolValue ? 1L : 0L;
+        if (processUnchangedValue(rawValue)) {
+            logger.trace("Thing {} polled value unchanged, raw value {}", thing.getUID(), rawValue);
+            return;
+        }
         DecimalType numericState = boolValue ? new DecimalType(BigDecimal.ONE) : DecimalType.ZERO;
         Map<ChannelUID, State> values = processUpdatedValue(numericState, boolValue);
+        lastRawValue = rawValue;
+        hasLastRawValue = true;
         logger.debug(
                 "Thing {} channels updated: {}. readValueType={}, readIndex={} -> numeric value {} and boolValue={}. Bits {} for request {}",
                 thing.getUID(), values, readValueType, readIndex, numericState, boolValue, bits, request);
@@ -787,6 +821,36 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
         }
     }
 
+    /**
+     * Handle polled value cheaply if it is equal to the previously processed value, and none of the channels need
+     * to be updated due to <code>updateUnchangedValuesEveryMillis</code>. In that case, only status and the last read
+     * success channel are updated. Transformations are not applied again, since they would produce the same states.
+     *
+     * @param rawValue raw polled value
+     * @return whether the value was handled. If false, the value should be processed normally.
+     */
+    private boolean processUnchangedValue(long rawValue) {
+        long now = System.currentTimeMillis();
+        if (!hasLastRawValue || rawValue != lastRawValue || updateUnchangedValuesEveryMillis <= 0L
+                || now - oldestChannelUpdateMillis > updateUnchangedValuesEveryMillis) {
+            return false;
+        }
+        for (String channelId : CHANNEL_ID_TO_ACCEPTED_TYPES.keySet()) {
+            ChannelUID channelUID = getChannelUID(channelId);
+            if (isLinked(channelUID) && !lastProcessedChannels.contains(channelUID)) {
+                // Channel linked after the last processing
+                return false;
+            }
+        }
+        updateStatusIfChanged(ThingStatus.ONLINE);
+        ChannelUID lastReadSuccessUID = getChannelUID(ModbusBindingConstantsInternal.CHANNEL_LAST_READ_SUCCESS);
+        if (isLinked(lastReadSuccessUID)) {
+            tryUpdateState(lastReadSuccessUID, new DateTimeType());
+            channelLastUpdated.put(lastReadSuccessUID, now);
+        }
+        return true;
+    }
+
     /**
      * Update linked channels
      *
@@ -796,11 +860,13 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
      */
     private Map<ChannelUID, State> processUpdatedValue(DecimalType numericState, boolean boolValue) {
         Map<@NonNull ChannelUID, @NonNull State> states = new HashMap<>();
+        Set<ChannelUID> processedChannels = new HashSet<>();
         CHANNEL_ID_TO_ACCEPTED_TYPES.keySet().stream().forEach(channelId -> {
             ChannelUID channelUID = getChannelUID(channelId);
             if (!isLinked(channelUID)) {
                 return;
             }
+            processedChannels.add(channelUID);
             List<Class<? extends State>> acceptedDataTypes = CHANNEL_ID_TO_ACCEPTED_TYPES.get(channelId);
             if (acceptedDataTypes.isEmpty()) {
                 return;
@@ -852,6 +918,7 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
         if (isLinked(lastReadSuccessUID)) {
             states.put(lastReadSuccessUID, new DateTimeType());
         }
+        lastProcessedChannels = processedChannels;
         updateExpiredChannels(states);
         return states;
     }
@@ -863,6 +930,11 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
             // Update channels that have not been updated in a while, or when their values has changed
             states.forEach((uid, state) -> updateExpiredChannel(now, uid, state));
             channelLastState = states;
+            long oldest = now;
+            for (ChannelUID uid : states.keySet()) {
+                oldest = Math.min(oldest, channelLastUpdated.getOrDefault(uid, 0L));
+            }
+            oldestChannelUpdateMillis = oldest;
         }
     }
 
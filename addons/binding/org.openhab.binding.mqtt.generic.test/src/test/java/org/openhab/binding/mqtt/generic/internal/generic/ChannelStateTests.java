@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.library.types.HSBType;
 import org.eclipse.smarthome.core.library.types.RawType;
 import org.eclipse.smarthome.core.library.types.StringType;
@@ -53,6 +54,7 @@ import org.openhab.binding.mqtt.generic.internal.values.LocationValue;
 import org.openhab.binding.mqtt.generic.internal.values.NumberValue;
 import org.openhab.binding.mqtt.generic.internal.values.PercentageValue;
 import org.openhab.binding.mqtt.generic.internal.values.TextValue;
+import org.openhab.binding.mqtt.handler.TopicSubscriptionIndex;
 
 /**
  * Tests the {@link ChannelState} class.
@@ -103,9 +105,11 @@ public class ChannelStateTests {
     public void noInteractionTimeoutTest() throws InterruptedException, ExecutionException, TimeoutException {
         ChannelState c = spy(new ChannelState(config, channelUID, textValue, channelStateUpdateListener));
         c.start(connection, scheduler, 50).get(100, TimeUnit.MILLISECONDS);
-        verify(connection).subscribe(eq("state"), eq(c));
+        verify(connection).subscribe(eq("state"), any());
+        assertThat(TopicSubscriptionIndex.of(connection).isSubscribed("state", c), is(true));
         c.stop().get();
-        verify(connection).unsubscribe(eq("state"), eq(c));
+        verify(connection).unsubscribe(eq("state"), any());
+        assertThat(TopicSubscriptionIndex.of(connection).isSubscribed("state", c), is(false));
     }
 
     @Test
@@ -113,7 +117,8 @@ public class ChannelStateTests {
         ChannelState c = spy(new ChannelState(config, channelUID, textValue, channelStateUpdateListener));
 
         c.start(connection, scheduler, 0).get(50, TimeUnit.MILLISECONDS);
-        verify(connection).subscribe(eq("state"), eq(c));
+        verify(connection).subscribe(eq("state"), any());
+        assertThat(TopicSubscriptionIndex.of(connection).isSubscribed("state", c), is(true));
 
         c.publishValue(new StringType("UPDATE")).get();
         verify(connection).publish(eq("command"), argThat(p -> Arrays.equals(p, "UPDATE".getBytes())), anyInt(),
@@ -135,7 +140,8 @@ public class ChannelStateTests {
         verify(connection).publish(eq("command"), any(), anyInt(), eq(true));
 
         c.stop().get();
-        verify(connection).unsubscribe(eq("state"), eq(c));
+        verify(connection).unsubscribe(eq("state"), any());
+        assertThat(TopicSubscriptionIndex.of(connection).isSubscribed("state", c), is(false));
     }
 
     @Test
@@ -298,4 +304,35 @@ public class ChannelStateTests {
         assertThat(value.getChannelState(), is(instanceOf(RawType.class)));
         assertThat(((RawType) value.getChannelState()).getMimeType(), is("image/jpeg"));
     }
+
+    @Test
+    public void receiveEchoOfCommandedValueTest() throws InterruptedException, ExecutionException, TimeoutException {
+        NumberValue value = new NumberValue(null, null, null);
+        ChannelState c = spy(new ChannelState(config, channelUID, value, channelStateUpdateListener));
+        c.start(connection, mock(ScheduledExecutorService.class), 100);
+
+        c.processMessage("state", "20".getBytes());
+
+        // The cached value already holds a commanded value, the confirmation of the device must still be forwarded
+        value.update(new DecimalType(21.5));
+        c.processMessage("state", "21.5".getBytes());
+        assertThat(value.getChannelState().toString(), is("21.5"));
+
+        verify(channelStateUpdateListener, times(2)).updateChannelState(eq(channelUID), any());
+    }
+
+    @Test
+    public void receiveUnchangedValueTest() throws InterruptedException, ExecutionException, TimeoutException {
+        NumberValue value = new NumberValue(null, null, null);
+        ChannelState c = spy(new ChannelState(config, channelUID, value, channelStateUpdateListener));
+        c.start(connection, mock(ScheduledExecutorService.class), 100);
+
+        c.processMessage("state", "21.5".getBytes());
+        c.processMessage("state", "21.5".getBytes());
+        verify(channelStateUpdateListener, times(1)).updateChannelState(eq(channelUID), any());
+
+        c.processMessage("state", "22".getBytes());
+        assertThat(value.getChannelState().toString(), is("22"));
+        verify(channelStateUpdateListener, times(2)).updateChannelState(eq(channelUID), any());
+    }
 }
@@ -45,6 +45,7 @@ import org.openhab.binding.mqtt.generic.internal.values.OnOffValue;
 import org.openhab.binding.mqtt.generic.internal.values.TextValue;
 import org.openhab.binding.mqtt.generic.internal.values.ValueFactory;
 import org.openhab.binding.mqtt.handler.AbstractBrokerHandler;
+import org.openhab.binding.mqtt.handler.TopicSubscriptionIndex;
 
 /**
  * Tests cases for {@link GenericThingHandler}.
@@ -118,7 +119,9 @@ public class GenericThingHandlerTests {
         assertThat(channelConfig.getStateTopic(), is("test/state"));
         assertThat(channelConfig.getCommandTopic(), is("test/command"));
 
-        verify(connection).subscribe(eq(channelConfig.getStateTopic()), eq(channelConfig));
+        verify(connection).subscribe(eq(channelConfig.getStateTopic()), any());
+        assertThat(TopicSubscriptionIndex.of(connection).isSubscribed(channelConfig.getStateTopic(), channelConfig),
+                is(true));
 
         verify(callback).statusUpdated(eq(thing), argThat((arg) -> arg.getStatus().equals(ThingStatus.ONLINE)
                 && arg.getStatusDetail().equals(ThingStatusDetail.NONE)));
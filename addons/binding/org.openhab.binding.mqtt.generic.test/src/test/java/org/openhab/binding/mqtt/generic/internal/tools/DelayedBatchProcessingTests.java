@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.internal.tools;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing.OverflowPolicy;
+
+/**
+ * Tests cases for {@link DelayedBatchProcessing}.
+ *
+ * @author agent - Initial contribution
+ */
+public class DelayedBatchProcessingTests {
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = spy(new ScheduledThreadPoolExecutor(1));
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void timeBasedFlush() {
+        DelayedBatchProcessing<Integer> subject = new DelayedBatchProcessing<>(50, batches::add, scheduler);
+        subject.accept(1);
+        subject.accept(2);
+        assertTrue(subject.isArmed());
+        assertThat(subject.getQueued(), is(2));
+
+        verify(scheduler).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+        long deadline = System.currentTimeMillis() + 1000;
+        while (batches.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertThat(batches, is(Collections.singletonList(Arrays.asList(1, 2))));
+        assertFalse(subject.isArmed());
+        assertThat(subject.getQueued(), is(0));
+    }
+
+    @Test
+    public void concurrentProducersArmOneTimer() throws InterruptedException {
+        // A long delay: All objects are added before the timer expires
+        DelayedBatchProcessing<Integer> subject = new DelayedBatchProcessing<>(10000, batches::add, scheduler);
+        final int threads = 8;
+        final int perThread = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * perThread;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        subject.accept(offset + i);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+        assertThat(subject.getQueued(), is(threads * perThread));
+
+        subject.forceProcessNow();
+        assertFalse(subject.isArmed());
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(threads * perThread));
+    }
+
+    @Test
+    public void consumerIsNotCalledConcurrently() throws InterruptedException {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final AtomicInteger delivered = new AtomicInteger();
+        // Full batches are delivered by the producers, the others by the timer
+        DelayedBatchProcessing<Integer> subject = new DelayedBatchProcessing<>(1, 10, OverflowPolicy.FLUSH, batch -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ignored) {
+            }
+            delivered.addAndGet(batch.size());
+            active.decrementAndGet();
+        }, scheduler);
+        final int threads = 4;
+        final int perThread = 200;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    subject.accept(i);
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        subject.forceProcessNow();
+
+        assertThat(maxActive.get(), is(1));
+        assertThat(delivered.get(), is(threads * perThread));
+    }
+
+    @Test
+    public void sizeBasedFlush() {
+        DelayedBatchProcessing<Integer> subject = new DelayedBatchProcessing<>(10000, 3, OverflowPolicy.FLUSH,
+                batches::add, scheduler);
+        for (int i = 0; i < 7; i++) {
+            subject.accept(i);
+        }
+        // Full batches are delivered on the producing thread
+        assertThat(batches, is(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5))));
+        assertThat(subject.join(), is(Collections.singletonList(6)));
+        assertThat(subject.getDropped(), is(0L));
+    }
+
+    @Test
+    public void dropPolicies() {
+        DelayedBatchProcessing<Integer> newest = new DelayedBatchProcessing<>(10000, 3, OverflowPolicy.DROP_NEWEST,
+                batches::add, scheduler);
+        DelayedBatchProcessing<Integer> oldest = new DelayedBatchProcessing<>(10000, 3, OverflowPolicy.DROP_OLDEST,
+                batches::add, scheduler);
+        for (int i = 0; i < 5; i++) {
+            newest.accept(i);
+            oldest.accept(i);
+        }
+        assertTrue(batches.isEmpty());
+        assertThat(newest.getDropped(), is(2L));
+        assertThat(oldest.getDropped(), is(2L));
+        assertThat(newest.join(), is(Arrays.asList(0, 1, 2)));
+        assertThat(oldest.join(), is(Arrays.asList(2, 3, 4)));
+    }
+
+    @Test
+    public void joinCancelsTimer() {
+        DelayedBatchProcessing<Integer> subject = new DelayedBatchProcessing<>(10000, batches::add, scheduler);
+        subject.accept(1);
+        ScheduledFuture<?> future = subject.future;
+        assertNotNull(future);
+        assertThat(subject.join(), is(Collections.singletonList(1)));
+        assertTrue(future.isCancelled());
+        assertFalse(subject.isArmed());
+
+        // A new object arms a new timer
+        subject.accept(2);
+        assertTrue(subject.isArmed());
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any());
+    }
+}
@@ -25,6 +25,7 @@ import org.eclipse.smarthome.core.library.types.PercentType;
 import org.eclipse.smarthome.core.library.types.StringType;
 import org.eclipse.smarthome.core.library.types.UpDownType;
 import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.TypeParser;
 import org.junit.Test;
 import org.openhab.binding.mqtt.generic.internal.values.ColorValue;
@@ -231,4 +232,33 @@ public class ValueTests {
                 null);
         v.update(new DecimalType(9.0));
     }
+
+    @Test
+    public void parsePayloadMatchesTypeParser() {
+        Value[] values = { new NumberValue(null, null, null), new OnOffValue("open", "closed"),
+                new PercentageValue(new BigDecimal(-100), new BigDecimal(100), null, "on", "off") };
+        String[] payloads = { "15", "-3", "21.50", "0.001", "007", "1e3", "+5", "5.", ".5", "-", "", "ON", "OFF", "on",
+                "open", "closed", "123456789012345678901" };
+        for (Value v : values) {
+            for (String payload : payloads) {
+                Command command = v.parsePayload(payload.getBytes());
+                if (command != null) {
+                    v.update(command);
+                    State fast = v.getChannelState();
+                    v.update(p(v, payload));
+                    assertThat(v.getClass().getSimpleName() + " " + payload, fast, is(v.getChannelState()));
+                }
+            }
+        }
+
+        assertThat(values[0].parsePayload("21.50".getBytes()), is(new DecimalType(new BigDecimal("21.50"))));
+        assertThat(values[0].parsePayload("-3".getBytes()), is(new DecimalType(-3)));
+        assertNull(values[0].parsePayload("1e3".getBytes()));
+        assertThat(values[1].parsePayload("open".getBytes()), is(OnOffType.ON));
+        assertThat(values[1].parsePayload("OFF".getBytes()), is(OnOffType.OFF));
+        assertNull(values[1].parsePayload("on".getBytes()));
+        assertThat(values[2].parsePayload("ON".getBytes()), is(OnOffType.ON));
+        assertNull(values[2].parsePayload("on".getBytes()));
+        assertNull(new TextValue().parsePayload("15".getBytes()));
+    }
 }
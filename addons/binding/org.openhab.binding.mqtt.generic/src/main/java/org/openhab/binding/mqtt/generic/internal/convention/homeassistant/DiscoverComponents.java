@@ -24,6 +24,7 @@ import org.eclipse.smarthome.core.thing.ThingUID;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.binding.mqtt.generic.internal.generic.ChannelStateUpdateListener;
+import org.openhab.binding.mqtt.handler.TopicSubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -118,7 +119,8 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         this.connectionRef = new WeakReference<>(connection);
 
         // Subscribe to the wildcard topics and start receive MQTT retained topics
-        CompletableFuture.allOf(connection.subscribe(topic, this), connection.subscribe(topicWithNode, this))
+        TopicSubscriptionIndex subscriptions = TopicSubscriptionIndex.of(connection);
+        CompletableFuture.allOf(subscriptions.subscribe(topic, this), subscriptions.subscribe(topicWithNode, this))
                 .thenRun(this::subscribeSuccess).exceptionally(this::subscribeFail);
 
         return discoverFinishedFuture;
@@ -130,8 +132,9 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         if (connection != null && discoverTime > 0) {
             this.stopDiscoveryFuture = scheduler.schedule(() -> {
                 this.stopDiscoveryFuture = null;
-                connection.unsubscribe(topicWithNode, this);
-                connection.unsubscribe(topic, this);
+                TopicSubscriptionIndex subscriptions = TopicSubscriptionIndex.of(connection);
+                subscriptions.unsubscribe(topicWithNode, this);
+                subscriptions.unsubscribe(topic, this);
                 this.discoveredListener = null;
                 discoverFinishedFuture.complete(null);
             }, discoverTime, TimeUnit.MILLISECONDS);
@@ -150,8 +153,9 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         this.discoveredListener = null;
         final MqttBrokerConnection connection = connectionRef.get();
         if (connection != null) {
-            connection.unsubscribe(topicWithNode, this);
-            connection.unsubscribe(topic, this);
+            TopicSubscriptionIndex subscriptions = TopicSubscriptionIndex.of(connection);
+            subscriptions.unsubscribe(topicWithNode, this);
+            subscriptions.unsubscribe(topic, this);
             connectionRef.clear();
         }
         discoverFinishedFuture.completeExceptionally(e);
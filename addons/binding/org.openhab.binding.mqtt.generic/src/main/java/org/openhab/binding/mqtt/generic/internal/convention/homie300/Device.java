@@ -25,6 +25,7 @@ import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.binding.mqtt.generic.internal.handler.HomieThingHandler;
 import org.openhab.binding.mqtt.generic.internal.mapping.AbstractMqttAttributeClass;
 import org.openhab.binding.mqtt.generic.internal.tools.ChildMap;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +61,11 @@ public class Device implements AbstractMqttAttributeClass.AttributeChanged {
     public String deviceID = "";
     private boolean initialized = false;
 
+    // Changes of the nodes are applied in batches, re-applying them is expensive. Other changes are applied at once.
+    static final int ATTRIBUTE_CHANGE_DELAY = 50;
+    private @Nullable DelayedBatchProcessing<String> attributeChanges;
+    private @Nullable MqttBrokerConnection connection;
+
     /**
      * Creates a Homie Device structure. It consists of device attributes, device statistics and nodes.
      *
@@ -165,6 +171,10 @@ public class Device implements AbstractMqttAttributeClass.AttributeChanged {
      * Unsubscribe from everything.
      */
     public CompletableFuture<@Nullable Void> stop() {
+        final DelayedBatchProcessing<String> attributeChanges = this.attributeChanges;
+        if (attributeChanges != null) {
+            attributeChanges.join();
+        }
         return attributes.unsubscribe().thenCompose(
                 b -> CompletableFuture.allOf(nodes.stream().map(n -> n.stop()).toArray(CompletableFuture[]::new)));
     }
@@ -268,7 +278,7 @@ public class Device implements AbstractMqttAttributeClass.AttributeChanged {
     }
 
     @Override
-    public void attributeChanged(String name, Object value, MqttBrokerConnection connection,
+    public synchronized void attributeChanged(String name, Object value, MqttBrokerConnection connection,
             ScheduledExecutorService scheduler, boolean allMandatoryFieldsReceived) {
         if (!initialized || !allMandatoryFieldsReceived) {
             return;
@@ -283,10 +293,29 @@ public class Device implements AbstractMqttAttributeClass.AttributeChanged {
                     return;
                 }
                 case "nodes": {
-                    applyNodes(connection, scheduler, 500);
+                    this.connection = connection;
+                    DelayedBatchProcessing<String> attributeChanges = this.attributeChanges;
+                    if (attributeChanges == null) {
+                        attributeChanges = new DelayedBatchProcessing<>(ATTRIBUTE_CHANGE_DELAY,
+                                names -> nodesChanged(scheduler), scheduler);
+                        this.attributeChanges = attributeChanges;
+                    }
+                    attributeChanges.accept(name);
                     return;
                 }
             }
         }
     }
+
+    /**
+     * Applies the nodes once for a burst of $nodes changes.
+     *
+     * @param scheduler A scheduler to realize the timeout
+     */
+    void nodesChanged(ScheduledExecutorService scheduler) {
+        final MqttBrokerConnection connection = this.connection;
+        if (connection != null) {
+            applyNodes(connection, scheduler, 500);
+        }
+    }
 }
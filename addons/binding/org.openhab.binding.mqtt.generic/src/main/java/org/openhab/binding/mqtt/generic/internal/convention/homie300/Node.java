@@ -30,6 +30,7 @@ import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.binding.mqtt.generic.internal.MqttBindingConstants;
 import org.openhab.binding.mqtt.generic.internal.mapping.AbstractMqttAttributeClass;
 import org.openhab.binding.mqtt.generic.internal.tools.ChildMap;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +56,9 @@ public class Node implements AbstractMqttAttributeClass.AttributeChanged {
     public final ChannelGroupTypeUID channelGroupTypeUID;
     private final String topic;
     private boolean initialized = false;
+    // Changes of the properties are applied in batches, see Device
+    private @Nullable DelayedBatchProcessing<String> attributeChanges;
+    private @Nullable MqttBrokerConnection connection;
 
     /**
      * Creates a Homie Node.
@@ -107,6 +111,10 @@ public class Node implements AbstractMqttAttributeClass.AttributeChanged {
      * @return Returns a future that completes as soon as all unsubscriptions have been performed.
      */
     public CompletableFuture<@Nullable Void> stop() {
+        final DelayedBatchProcessing<String> attributeChanges = this.attributeChanges;
+        if (attributeChanges != null) {
+            attributeChanges.join();
+        }
         return attributes.unsubscribe().thenCompose(
                 b -> CompletableFuture.allOf(properties.stream().map(p -> p.stop()).toArray(CompletableFuture[]::new)));
     }
@@ -179,7 +187,7 @@ public class Node implements AbstractMqttAttributeClass.AttributeChanged {
     }
 
     @Override
-    public void attributeChanged(String name, Object value, MqttBrokerConnection connection,
+    public synchronized void attributeChanged(String name, Object value, MqttBrokerConnection connection,
             ScheduledExecutorService scheduler, boolean allMandatoryFieldsReceived) {
 
         if (!initialized || !allMandatoryFieldsReceived) {
@@ -190,12 +198,33 @@ public class Node implements AbstractMqttAttributeClass.AttributeChanged {
             attributesReceived(connection, scheduler, 500);
         } else {
             if ("properties".equals(name)) {
-                applyProperties(connection, scheduler, 500);
+                this.connection = connection;
+                DelayedBatchProcessing<String> attributeChanges = this.attributeChanges;
+                if (attributeChanges == null) {
+                    attributeChanges = new DelayedBatchProcessing<>(Device.ATTRIBUTE_CHANGE_DELAY,
+                            names -> propertiesChanged(scheduler), scheduler);
+                    this.attributeChanges = attributeChanges;
+                }
+                attributeChanges.accept(name);
+                return;
             }
         }
         callback.nodeAddedOrChanged(this);
     }
 
+    /**
+     * Applies the properties once for a burst of $properties changes and notifies the callback.
+     *
+     * @param scheduler A scheduler to realize the timeout
+     */
+    void propertiesChanged(ScheduledExecutorService scheduler) {
+        final MqttBrokerConnection connection = this.connection;
+        if (connection != null) {
+            applyProperties(connection, scheduler, 500);
+            callback.nodeAddedOrChanged(this);
+        }
+    }
+
     @Override
     public String toString() {
         return channelGroupUID.toString();
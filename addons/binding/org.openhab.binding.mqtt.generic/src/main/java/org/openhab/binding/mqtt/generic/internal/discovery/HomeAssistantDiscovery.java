@@ -13,8 +13,11 @@
 package org.openhab.binding.mqtt.generic.internal.discovery;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -33,6 +36,8 @@ import org.openhab.binding.mqtt.discovery.MQTTTopicDiscoveryService;
 import org.openhab.binding.mqtt.generic.internal.MqttBindingConstants;
 import org.openhab.binding.mqtt.generic.internal.convention.homeassistant.HAConfiguration;
 import org.openhab.binding.mqtt.generic.internal.convention.homeassistant.HaID;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing.OverflowPolicy;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -54,6 +59,28 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
     private @Nullable ScheduledFuture<?> future;
     private final Gson gson = new Gson();
 
+    static final int BATCH_DELAY = 200;
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Retained configuration topics arrive in bursts. They are processed in batches, so that a Thing with many
+     * components results in one discovery result instead of one per component.
+     */
+    private final DelayedBatchProcessing<ConfigTopic> configTopics = new DelayedBatchProcessing<>(BATCH_DELAY,
+            BATCH_SIZE, OverflowPolicy.FLUSH, this::processConfigTopics, scheduler);
+
+    private static class ConfigTopic {
+        final ThingUID connectionBridge;
+        final HaID topicParts;
+        final byte[] payload;
+
+        ConfigTopic(ThingUID connectionBridge, HaID topicParts, byte[] payload) {
+            this.connectionBridge = connectionBridge;
+            this.topicParts = topicParts;
+            this.payload = payload;
+        }
+    }
+
     public static final Map<String, String> HA_COMP_TO_NAME = new TreeMap<>();
     {
         HA_COMP_TO_NAME.put("alarm_control_panel", "Alarm Control Panel");
@@ -123,36 +150,56 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         if (!topic.endsWith("/config")) {
             return;
         }
+        configTopics.accept(new ConfigTopic(connectionBridge, determineTopicParts(topic), payload));
+    }
 
-        // We will of course find multiple of the same unique Thing IDs, for each different component another one.
-        // Therefore the components are assembled into a list and given to the DiscoveryResult label for the user to
-        // easily recognise object capabilities.
-        HaID topicParts = determineTopicParts(topic);
-        final String thingID = topicParts.getThingID();
-        final ThingUID thingUID = new ThingUID(MqttBindingConstants.HOMEASSISTANT_MQTT_THING, connectionBridge,
-                thingID);
-
+    /**
+     * Processes a batch of received configuration topics. Each Thing of the batch is discovered once.
+     *
+     * @param batch Configuration topics
+     */
+    synchronized void processConfigTopics(List<ConfigTopic> batch) {
         // Reset the found-component timer.
         // We will collect components for the thing label description for another 2 seconds.
         final ScheduledFuture<?> future = this.future;
         if (future != null) {
             future.cancel(false);
         }
-        this.future = scheduler.schedule(componentsPerThingID::clear, 2, TimeUnit.SECONDS);
+        this.future = scheduler.schedule(this::clearComponents, 2, TimeUnit.SECONDS);
 
-        // We need to keep track of already found component topics for a specific object_id/node_id
-        Set<String> components = componentsPerThingID.getOrDefault(thingID, new HashSet<>());
-        if (components.contains(topicParts.component)) {
-            logger.trace("Discovered an already known component {}", topicParts.component);
-            return; // If we already know about this object component, ignore the discovered topic.
+        // We will of course find multiple of the same unique Thing IDs, for each different component another one.
+        // Therefore the components are assembled into a list and given to the DiscoveryResult label for the user to
+        // easily recognise object capabilities.
+        Map<ThingUID, ConfigTopic> changedThings = new LinkedHashMap<>();
+        for (ConfigTopic configTopic : batch) {
+            final HaID topicParts = configTopic.topicParts;
+            final String thingID = topicParts.getThingID();
+
+            // We need to keep track of already found component topics for a specific object_id/node_id
+            Set<String> components = componentsPerThingID.computeIfAbsent(thingID, k -> new HashSet<>());
+            if (!components.add(topicParts.component)) {
+                logger.trace("Discovered an already known component {}", topicParts.component);
+                continue; // If we already know about this object component, ignore the discovered topic.
+            }
+            changedThings.put(new ThingUID(MqttBindingConstants.HOMEASSISTANT_MQTT_THING,
+                    configTopic.connectionBridge, thingID), configTopic);
         }
-        components.add(topicParts.component);
-        componentsPerThingID.put(thingID, components);
 
-        final String componentNames = components.stream().map(c -> HA_COMP_TO_NAME.getOrDefault(c, c))
-                .collect(Collectors.joining(","));
+        changedThings.forEach(this::discovered);
+    }
+
+    private synchronized void clearComponents() {
+        componentsPerThingID.clear();
+    }
+
+    private void discovered(ThingUID thingUID, ConfigTopic configTopic) {
+        final HaID topicParts = configTopic.topicParts;
+        final String componentNames = componentsPerThingID
+                .getOrDefault(topicParts.getThingID(), Collections.emptySet()).stream()
+                .map(c -> HA_COMP_TO_NAME.getOrDefault(c, c)).collect(Collectors.joining(","));
 
-        HAConfiguration config = HAConfiguration.fromString(new String(payload, StandardCharsets.UTF_8), gson);
+        HAConfiguration config = HAConfiguration.fromString(new String(configTopic.payload, StandardCharsets.UTF_8),
+                gson);
 
         Map<String, Object> properties = new HashMap<>();
         properties.put("objectid", topicParts.objectID);
@@ -163,12 +210,12 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         thingRemoved(thingUID);
         // Because we need the new properties map with the updated "components" list
         thingDiscovered(DiscoveryResultBuilder.create(thingUID).withProperties(properties)
-                .withRepresentationProperty("objectid").withBridge(connectionBridge)
+                .withRepresentationProperty("objectid").withBridge(configTopic.connectionBridge)
                 .withLabel(config.name + " (" + componentNames + ")").build());
     }
 
     @Override
-    public void topicVanished(ThingUID connectionBridge, MqttBrokerConnection connection, String topic) {
+    public synchronized void topicVanished(ThingUID connectionBridge, MqttBrokerConnection connection, String topic) {
         if (!topic.endsWith("/config")) {
             return;
         }
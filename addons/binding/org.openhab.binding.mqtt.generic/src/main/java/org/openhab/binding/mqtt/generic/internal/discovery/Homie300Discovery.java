@@ -14,6 +14,8 @@ package org.openhab.binding.mqtt.generic.internal.discovery;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -27,6 +29,8 @@ import org.eclipse.smarthome.core.thing.ThingUID;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.binding.mqtt.discovery.MQTTTopicDiscoveryService;
 import org.openhab.binding.mqtt.generic.internal.MqttBindingConstants;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing;
+import org.openhab.binding.mqtt.generic.internal.tools.DelayedBatchProcessing.OverflowPolicy;
 import org.openhab.binding.mqtt.generic.internal.tools.WaitForTopicValue;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -44,6 +48,30 @@ import org.slf4j.LoggerFactory;
 public class Homie300Discovery extends AbstractMQTTDiscovery {
     private final Logger logger = LoggerFactory.getLogger(Homie300Discovery.class);
 
+    static final int BATCH_DELAY = 200;
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Found devices are processed in batches. A device that is found several times within a batch (on a
+     * reconnect for example) is only published once.
+     */
+    private final DelayedBatchProcessing<DeviceTopic> deviceTopics = new DelayedBatchProcessing<>(BATCH_DELAY,
+            BATCH_SIZE, OverflowPolicy.FLUSH, this::processDeviceTopics, scheduler);
+
+    private static class DeviceTopic {
+        final ThingUID connectionBridge;
+        final MqttBrokerConnection connection;
+        final String deviceID;
+        final String topic;
+
+        DeviceTopic(ThingUID connectionBridge, MqttBrokerConnection connection, String deviceID, String topic) {
+            this.connectionBridge = connectionBridge;
+            this.connection = connection;
+            this.deviceID = deviceID;
+            this.topic = topic;
+        }
+    }
+
     public Homie300Discovery() {
         super(Stream.of(MqttBindingConstants.HOMIE300_MQTT_THING).collect(Collectors.toSet()), 3, true, "+/+/$homie");
     }
@@ -99,18 +127,34 @@ public class Homie300Discovery extends AbstractMQTTDiscovery {
             return;
         }
 
-        publishDevice(connectionBridge, connection, deviceID, topic);
+        deviceTopics.accept(new DeviceTopic(connectionBridge, connection, deviceID, topic));
+    }
 
-        // Retrieve name and update found discovery
-        try {
-            WaitForTopicValue w = new WaitForTopicValue(connection, topic.replace("$homie", "$name"));
-            w.waitForTopicValueAsync(scheduler, 700).thenAccept(name -> {
-                publishDevice(connectionBridge, connection, deviceID, name);
-            });
-        } catch (InterruptedException | ExecutionException ignored) {
-            // The name is nice to have, but not required
+    /**
+     * Publishes each device of the batch once.
+     *
+     * @param batch Found device topics
+     */
+    void processDeviceTopics(List<DeviceTopic> batch) {
+        Map<ThingUID, DeviceTopic> devices = new LinkedHashMap<>();
+        for (DeviceTopic deviceTopic : batch) {
+            devices.put(new ThingUID(MqttBindingConstants.HOMIE300_MQTT_THING, deviceTopic.connectionBridge,
+                    deviceTopic.deviceID), deviceTopic);
         }
 
+        for (DeviceTopic d : devices.values()) {
+            publishDevice(d.connectionBridge, d.connection, d.deviceID, d.topic);
+
+            // Retrieve name and update found discovery
+            try {
+                WaitForTopicValue w = new WaitForTopicValue(d.connection, d.topic.replace("$homie", "$name"));
+                w.waitForTopicValueAsync(scheduler, 700).thenAccept(name -> {
+                    publishDevice(d.connectionBridge, d.connection, d.deviceID, name);
+                });
+            } catch (InterruptedException | ExecutionException ignored) {
+                // The name is nice to have, but not required
+            }
+        }
     }
 
     void publishDevice(ThingUID connectionBridge, MqttBrokerConnection connection, String deviceID, String topic) {
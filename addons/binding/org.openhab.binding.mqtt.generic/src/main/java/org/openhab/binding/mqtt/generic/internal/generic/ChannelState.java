@@ -27,10 +27,13 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.TypeParser;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.binding.mqtt.generic.internal.values.Value;
+import org.openhab.binding.mqtt.handler.PublishQueue;
+import org.openhab.binding.mqtt.handler.TopicSubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +64,11 @@ public class ChannelState implements MqttMessageSubscriber {
     protected boolean hasSubscribed = false;
     private @Nullable ScheduledFuture<?> scheduledFuture;
     private CompletableFuture<@Nullable Void> future = new CompletableFuture<>();
+    /**
+     * The state last received on the state topic. Unlike the cached value it is not changed by published commands,
+     * so that the confirmation of a command by the device is still forwarded.
+     */
+    private @Nullable State lastReceivedState;
 
     /**
      * Creates a new channel state.
@@ -147,30 +155,38 @@ public class ChannelState implements MqttMessageSubscriber {
 
         if (cachedValue.isBinary()) {
             cachedValue.update(payload);
-            channelStateUpdateListener.updateChannelState(channelUID, cachedValue.getChannelState());
+            updateChannelState(channelStateUpdateListener);
             receivedOrTimeout();
             return;
         }
 
-        // String value: Apply transformations
-        String strvalue = new String(payload, StandardCharsets.UTF_8);
-        for (ChannelStateTransformation t : transformationsIn) {
-            strvalue = t.processValue(strvalue);
-        }
-
-        // Is trigger?: Special handling
-        if (config.trigger) {
-            channelStateUpdateListener.triggerChannel(channelUID, strvalue);
-            receivedOrTimeout();
-            return;
+        // Untransformed common payloads (numbers, ON/OFF) are parsed straight from the bytes
+        Command command = null;
+        if (transformationsIn.isEmpty() && !config.trigger) {
+            command = cachedValue.parsePayload(payload);
         }
 
-        Command command = TypeParser.parseCommand(cachedValue.getSupportedCommandTypes(), strvalue);
         if (command == null) {
-            logger.warn("Incoming payload '{}' not supported by type '{}'", strvalue,
-                    cachedValue.getClass().getSimpleName());
-            receivedOrTimeout();
-            return;
+            // String value: Apply transformations
+            String strvalue = new String(payload, StandardCharsets.UTF_8);
+            for (ChannelStateTransformation t : transformationsIn) {
+                strvalue = t.processValue(strvalue);
+            }
+
+            // Is trigger?: Special handling
+            if (config.trigger) {
+                channelStateUpdateListener.triggerChannel(channelUID, strvalue);
+                receivedOrTimeout();
+                return;
+            }
+
+            command = TypeParser.parseCommand(cachedValue.getSupportedCommandTypes(), strvalue);
+            if (command == null) {
+                logger.warn("Incoming payload '{}' not supported by type '{}'", strvalue,
+                        cachedValue.getClass().getSimpleName());
+                receivedOrTimeout();
+                return;
+            }
         }
 
         Command postOnlyCommand = cachedValue.isPostOnly(command);
@@ -184,7 +200,7 @@ public class ChannelState implements MqttMessageSubscriber {
         try {
             cachedValue.update(command);
         } catch (IllegalArgumentException | IllegalStateException e) {
-            logger.warn("Command '{}' not supported by type '{}': {}", strvalue, cachedValue.getClass().getSimpleName(),
+            logger.warn("Command '{}' not supported by type '{}': {}", command, cachedValue.getClass().getSimpleName(),
                     e.getMessage());
             receivedOrTimeout();
             return;
@@ -193,11 +209,24 @@ public class ChannelState implements MqttMessageSubscriber {
         if (config.postCommand) {
             channelStateUpdateListener.postChannelCommand(channelUID, (Command) cachedValue.getChannelState());
         } else {
-            channelStateUpdateListener.updateChannelState(channelUID, cachedValue.getChannelState());
+            updateChannelState(channelStateUpdateListener);
         }
         receivedOrTimeout();
     }
 
+    /**
+     * Forwards the cached value, unless it equals the state last received on the state topic
+     */
+    private void updateChannelState(ChannelStateUpdateListener channelStateUpdateListener) {
+        final State state = cachedValue.getChannelState();
+        if (state.equals(lastReceivedState)) {
+            logger.trace("Unchanged value for channel {} not updated", channelUID);
+            return;
+        }
+        lastReceivedState = state;
+        channelStateUpdateListener.updateChannelState(channelUID, state);
+    }
+
     /**
      * Returns the state topic. Might be an empty string if this is a stateless channel (TRIGGER kind channel).
      */
@@ -235,7 +264,8 @@ public class ChannelState implements MqttMessageSubscriber {
     public CompletableFuture<@Nullable Void> stop() {
         final MqttBrokerConnection connection = this.connection;
         if (connection != null && StringUtils.isNotBlank(config.stateTopic)) {
-            return connection.unsubscribe(config.stateTopic, this).thenRun(this::internalStop);
+            return TopicSubscriptionIndex.of(connection).unsubscribe(config.stateTopic, this)
+                    .thenRun(this::internalStop);
         } else {
             internalStop();
             return CompletableFuture.completedFuture(null);
@@ -246,6 +276,7 @@ public class ChannelState implements MqttMessageSubscriber {
         this.connection = null;
         this.channelStateUpdateListener = null;
         hasSubscribed = false;
+        lastReceivedState = null;
         cachedValue.resetState();
     }
 
@@ -291,7 +322,9 @@ public class ChannelState implements MqttMessageSubscriber {
         }
 
         this.future = new CompletableFuture<>();
-        connection.subscribe(config.stateTopic, this).thenRun(() -> {
+        lastReceivedState = null;
+        // Triggers only need new messages and can always share the subscription of the topic
+        TopicSubscriptionIndex.of(connection).subscribe(config.stateTopic, this, !config.trigger).thenRun(() -> {
             hasSubscribed = true;
             logger.debug("Subscribed channel {} to topic: {}", this.channelUID, config.stateTopic);
             if (timeout > 0 && !future.isDone()) {
@@ -340,8 +373,9 @@ public class ChannelState implements MqttMessageSubscriber {
                 mqttCommandValue = t.processValue(mqttCommandValue);
             }
             // Send retained messages if this is a stateful channel
-            return connection.publish(config.commandTopic, mqttCommandValue.getBytes(), 1, config.retained)
-                    .thenRun(() -> {
+            // Queued and pipelined with other publishes on this connection
+            return PublishQueue.of(connection)
+                    .publish(config.commandTopic, mqttCommandValue.getBytes(), 1, config.retained).thenRun(() -> {
                     });
         } else {
             CompletableFuture<@Nullable Void> f = new CompletableFuture<>();
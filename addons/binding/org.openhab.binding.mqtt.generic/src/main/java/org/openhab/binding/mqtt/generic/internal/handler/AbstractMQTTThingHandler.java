@@ -205,15 +205,6 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler implemen
         super.handleRemoval();
     }
 
-    @Override
-    public void dispose() {
-        MqttBrokerConnection connection = this.connection;
-        if (connection != null) {
-            connection.unsubscribeAll();
-        }
-        super.dispose();
-    }
-
     @Override
     public void updateChannelState(ChannelUID channelUID, State value) {
         super.updateState(channelUID, value);
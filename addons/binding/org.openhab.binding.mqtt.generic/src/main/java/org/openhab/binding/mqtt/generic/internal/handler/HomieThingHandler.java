@@ -14,7 +14,10 @@ package org.openhab.binding.mqtt.generic.internal.handler;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -118,6 +121,21 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
 
     @Override
     protected void stop() {
+        stopDevice();
+    }
+
+    @Override
+    public void dispose() {
+        // Unsubscribe from the topics of this device only, the broker connection is shared with other Things
+        try {
+            stopDevice().get(500, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException ignore) {
+            // Ignore any interrupts and timeouts on finish
+        }
+        super.dispose();
+    }
+
+    private CompletableFuture<@Nullable Void> stopDevice() {
         logger.debug("About to stop Homie device {}", device.attributes.name);
         final ScheduledFuture<?> heartBeatTimer = this.heartBeatTimer;
         if (heartBeatTimer != null) {
@@ -125,7 +143,7 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
             this.heartBeatTimer = null;
         }
         delayedProcessing.join();
-        device.stop();
+        return device.stop();
     }
 
     @Override
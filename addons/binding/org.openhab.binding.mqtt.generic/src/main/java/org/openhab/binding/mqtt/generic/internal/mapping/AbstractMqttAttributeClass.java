@@ -25,6 +25,7 @@ import java.util.stream.Collectors;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.openhab.binding.mqtt.handler.TopicSubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -145,7 +146,8 @@ public abstract class AbstractMqttAttributeClass implements SubscribeFieldToMQTT
             return CompletableFuture.completedFuture(null);
         }
 
-        final CompletableFuture<?>[] futures = subscriptions.stream().map(m -> connection.unsubscribe(m.topic, m))
+        final TopicSubscriptionIndex index = TopicSubscriptionIndex.of(connection);
+        final CompletableFuture<?>[] futures = subscriptions.stream().map(m -> index.unsubscribe(m.topic, m))
                 .toArray(CompletableFuture[]::new);
         subscriptions.clear();
         return CompletableFuture.allOf(futures);
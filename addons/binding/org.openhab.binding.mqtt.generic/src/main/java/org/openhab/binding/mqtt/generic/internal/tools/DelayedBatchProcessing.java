@@ -13,11 +13,14 @@
 package org.openhab.binding.mqtt.generic.internal.tools;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -27,32 +30,84 @@ import org.eclipse.jdt.annotation.Nullable;
  * Collects objects over time until a specified delay passed by.
  * Then call the user back with a list of accumulated objects and start over again.
  *
+ * <p>
+ * Objects are collected in a lock-free queue, any number of threads may call {@link #accept(Object)}.
+ * The first object of a batch arms the delay timer. Arming and disarming happen under one lock, so there is never more
+ * than one timer. The consumer is never called concurrently, batches are delivered one after another.
+ *
+ * <p>
+ * Optionally the batch size is bounded. If the bound is reached, the {@link OverflowPolicy} decides whether the batch
+ * is delivered immediately on the producing thread (which slows the producer down to the pace of the consumer) or
+ * whether objects are dropped.
+ *
  * @author David Graeff - Initial contribution
  *
  * @param <T> Any object
  */
 @NonNullByDefault
 public class DelayedBatchProcessing<T> implements Consumer<T> {
+    /**
+     * What happens if an object is added to a batch that already reached its maximum size.
+     */
+    public enum OverflowPolicy {
+        /** Deliver the batch immediately on the thread that added the object */
+        FLUSH,
+        /** Drop the added object */
+        DROP_NEWEST,
+        /** Drop the oldest object of the batch */
+        DROP_OLDEST
+    }
+
     private final int delay;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
     private final Consumer<List<T>> consumer;
-    private final List<T> queue = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    /** The number of queued objects. Reserved before an object is added and released after it was removed. */
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
     private final ScheduledExecutorService executor;
+    /** Guards arming and disarming of the timer */
+    private final Object timerLock = new Object();
+    /** Serializes the calls of the consumer */
+    private final Object processLock = new Object();
+    /** Written under the timer lock, read without it to skip the lock if already armed */
+    private volatile boolean armed = false;
     protected @Nullable ScheduledFuture<?> future;
 
     /**
-     * Creates a {@link DelayedBatchProcessing}.
+     * Creates a {@link DelayedBatchProcessing} with an unbounded batch size.
      *
      * @param delay A delay in milliseconds
      * @param consumer A consumer of the list of collected objects
      * @param executor A scheduled executor service
      */
     public DelayedBatchProcessing(int delay, Consumer<List<T>> consumer, ScheduledExecutorService executor) {
+        this(delay, 0, OverflowPolicy.FLUSH, consumer, executor);
+    }
+
+    /**
+     * Creates a {@link DelayedBatchProcessing}.
+     *
+     * @param delay A delay in milliseconds
+     * @param maxBatchSize The maximum number of collected objects. 0 for an unbounded batch size.
+     * @param overflowPolicy Decides what happens if the maximum batch size is reached
+     * @param consumer A consumer of the list of collected objects
+     * @param executor A scheduled executor service
+     */
+    public DelayedBatchProcessing(int delay, int maxBatchSize, OverflowPolicy overflowPolicy,
+            Consumer<List<T>> consumer, ScheduledExecutorService executor) {
         this.delay = delay;
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
         this.consumer = consumer;
         this.executor = executor;
         if (delay <= 0) {
             throw new IllegalArgumentException("Delay need to be greater than 0!");
         }
+        if (maxBatchSize < 0) {
+            throw new IllegalArgumentException("The maximum batch size must not be negative!");
+        }
     }
 
     /**
@@ -63,10 +118,76 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      */
     @Override
     public void accept(T t) {
+        if (!reserve()) {
+            return;
+        }
         queue.add(t);
-        final ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture == null || scheduledFuture.isDone()) {
-            this.future = executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+
+        if (overflowPolicy == OverflowPolicy.FLUSH && maxBatchSize > 0 && size.get() >= maxBatchSize) {
+            process();
+            return;
+        }
+
+        if (!armed) {
+            synchronized (timerLock) {
+                if (!armed) {
+                    armed = true;
+                    future = executor.schedule(this::timerExpired, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves a place in the batch for a new object, applying the overflow policy.
+     *
+     * @return Return false if the new object is to be dropped.
+     */
+    private boolean reserve() {
+        for (;;) {
+            int current = size.get();
+            if (maxBatchSize > 0 && current >= maxBatchSize && overflowPolicy != OverflowPolicy.FLUSH) {
+                if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                // DROP_OLDEST: A concurrent producer may have reserved but not yet added its object. Try again then.
+                if (queue.poll() != null) {
+                    size.decrementAndGet();
+                    dropped.incrementAndGet();
+                } else {
+                    Thread.yield();
+                }
+                continue;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all objects that were queued when this method was called.
+     */
+    private List<T> drain() {
+        final int count = size.get();
+        List<T> batch = new ArrayList<>(count);
+        T t;
+        while (batch.size() < count && (t = queue.poll()) != null) {
+            batch.add(t);
+        }
+        size.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void disarm() {
+        synchronized (timerLock) {
+            ScheduledFuture<?> scheduledFuture = this.future;
+            if (scheduledFuture != null && !scheduledFuture.isDone()) {
+                scheduledFuture.cancel(false);
+            }
+            future = null;
+            armed = false;
         }
     }
 
@@ -76,46 +197,54 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      * @return A list of accumulated objects
      */
     public List<T> join() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture != null && !scheduledFuture.isDone()) {
-            scheduledFuture.cancel(false);
-        }
-        List<T> lqueue = new ArrayList<>();
-        synchronized (queue) {
-            lqueue.addAll(queue);
-            queue.clear();
-        }
-        return lqueue;
+        disarm();
+        return drain();
     }
 
     /**
      * Return true if there is a delayed processing going on.
      */
     public boolean isArmed() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        return scheduledFuture != null && !scheduledFuture.isDone();
+        return armed;
     }
 
     /**
      * Deliver queued items now to the target consumer.
      */
     public void forceProcessNow() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture != null && !scheduledFuture.isDone()) {
-            scheduledFuture.cancel(false);
-        }
-        run();
+        disarm();
+        process();
+    }
+
+    /**
+     * Return the number of objects waiting for delivery.
+     */
+    public int getQueued() {
+        return size.get();
     }
 
-    private void run() {
-        List<T> lqueue = new ArrayList<>();
-        synchronized (queue) {
-            lqueue.addAll(queue);
-            queue.clear();
+    /**
+     * Return the number of objects that were dropped because of the overflow policy.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void timerExpired() {
+        // Disarm before draining: An object added after the drain arms a new timer
+        synchronized (timerLock) {
+            future = null;
+            armed = false;
         }
+        process();
+    }
 
-        if (!lqueue.isEmpty()) {
-            consumer.accept(lqueue);
+    private void process() {
+        synchronized (processLock) {
+            List<T> lqueue = drain();
+            if (!lqueue.isEmpty()) {
+                consumer.accept(lqueue);
+            }
         }
     }
 }
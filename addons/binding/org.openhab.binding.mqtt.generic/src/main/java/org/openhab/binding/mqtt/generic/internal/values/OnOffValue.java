@@ -12,6 +12,8 @@
  */
 package org.openhab.binding.mqtt.generic.internal.values;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,14 +33,14 @@ import org.eclipse.smarthome.core.types.Command;
 public class OnOffValue extends Value {
     private final String onString;
     private final String offString;
+    private final byte[] onBytes;
+    private final byte[] offBytes;
 
     /**
      * Creates a switch On/Off type, that accepts "ON", "1" for on and "OFF","0" for off.
      */
     public OnOffValue() {
-        super(CoreItemFactory.SWITCH, Stream.of(OnOffType.class, StringType.class).collect(Collectors.toList()));
-        this.onString = OnOffType.ON.name();
-        this.offString = OnOffType.OFF.name();
+        this(null, null);
     }
 
     /**
@@ -51,6 +53,8 @@ public class OnOffValue extends Value {
         super(CoreItemFactory.SWITCH, Stream.of(OnOffType.class, StringType.class).collect(Collectors.toList()));
         this.onString = onValue == null ? OnOffType.ON.name() : onValue;
         this.offString = offValue == null ? OnOffType.OFF.name() : offValue;
+        this.onBytes = onString.getBytes(StandardCharsets.UTF_8);
+        this.offBytes = offString.getBytes(StandardCharsets.UTF_8);
     }
 
     @Override
@@ -69,6 +73,20 @@ public class OnOffValue extends Value {
         }
     }
 
+    @Override
+    public @Nullable Command parsePayload(byte[] payload) {
+        // "ON" and "OFF" take precedence over the custom strings, like with the generic parsing
+        final OnOffType onOff = parseOnOff(payload);
+        if (onOff != null) {
+            return onOff;
+        } else if (Arrays.equals(payload, onBytes)) {
+            return OnOffType.ON;
+        } else if (Arrays.equals(payload, offBytes)) {
+            return OnOffType.OFF;
+        }
+        return null;
+    }
+
     @Override
     public String getMQTTpublishValue() {
         return (state == OnOffType.ON) ? onString : offString;
@@ -106,6 +106,13 @@ public class PercentageValue extends Value {
         }
     }
 
+    @Override
+    public @Nullable Command parsePayload(byte[] payload) {
+        final Command command = parseDecimal(payload);
+        // Custom on/off strings are matched by the generic parsing
+        return command != null ? command : parseOnOff(payload);
+    }
+
     @Override
     public String getMQTTpublishValue() {
         if (state == UnDefType.UNDEF) {
@@ -14,6 +14,7 @@ package org.openhab.binding.mqtt.generic.internal.values;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URLConnection;
 import java.util.Collections;
 import java.util.List;
@@ -22,6 +23,7 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.library.CoreItemFactory;
 import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.library.types.PercentType;
 import org.eclipse.smarthome.core.library.types.RawType;
 import org.eclipse.smarthome.core.types.Command;
@@ -133,6 +135,78 @@ public abstract class Value {
         return null;
     }
 
+    /**
+     * Parses common untransformed payloads straight from the bytes, without creating a String and without trying every
+     * supported command type.
+     * <p>
+     * Updating with the result must lead to the same state as updating with the command the framework would parse
+     * from the payload string with {@link #getSupportedCommandTypes()}. Returns null if the payload is not one of the
+     * common payloads of this value type and must be parsed the generic way.
+     * </p>
+     *
+     * @param payload The MQTT payload
+     */
+    public @Nullable Command parsePayload(byte[] payload) {
+        return null;
+    }
+
+    /**
+     * Parses a plain decimal number like "-12" or "21.5" from the given UTF-8 bytes.
+     * Returns null for everything else, including exponents, a leading '+' and more than 18 digits.
+     *
+     * @param payload The MQTT payload
+     */
+    protected static @Nullable DecimalType parseDecimal(byte[] payload) {
+        final int length = payload.length;
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && payload[0] == '-') {
+            negative = true;
+            i++;
+        }
+        if (i == length) {
+            return null;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < length; i++) {
+            final byte b = payload[i];
+            if (b >= '0' && b <= '9') {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0 && digits > 0) {
+                scale = 0;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0 || digits > 18 || scale == 0) {
+            return null;
+        }
+        if (negative) {
+            unscaled = -unscaled;
+        }
+        return scale < 0 ? new DecimalType(unscaled) : new DecimalType(BigDecimal.valueOf(unscaled, scale));
+    }
+
+    /**
+     * Parses "ON" and "OFF" from the given UTF-8 bytes. Returns null for everything else.
+     *
+     * @param payload The MQTT payload
+     */
+    protected static @Nullable OnOffType parseOnOff(byte[] payload) {
+        if (payload.length == 2 && payload[0] == 'O' && payload[1] == 'N') {
+            return OnOffType.ON;
+        } else if (payload.length == 3 && payload[0] == 'O' && payload[1] == 'F' && payload[2] == 'F') {
+            return OnOffType.OFF;
+        }
+        return null;
+    }
+
     /**
      * Updates the internal value state with the given binary payload.
      *
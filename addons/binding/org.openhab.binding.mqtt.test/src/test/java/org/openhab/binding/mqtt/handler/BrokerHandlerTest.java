@@ -22,7 +22,9 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.thing.Bridge;
+import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusInfo;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
@@ -45,6 +47,7 @@ import org.osgi.service.cm.ConfigurationException;
  * Test cases for {@link BrokerHandler}.
  *
  * @author David Graeff - Initial contribution
+ * @author agent - Publish queue metrics channels
  */
 public class BrokerHandlerTest {
     private ScheduledExecutorService scheduler;
@@ -143,4 +146,19 @@ public class BrokerHandlerTest {
         return s;
     }
 
+    @Test
+    public void publishQueueMetricsChannels()
+            throws InterruptedException, IllegalArgumentException, MqttException, ConfigurationException {
+        assertThat(initializeHandlerWaitForTimeout(), is(true));
+
+        handler.updateMetrics();
+
+        verify(callback).stateUpdated(eq(new ChannelUID(thing.getUID(), BrokerHandler.CHANNEL_PUBLISH_BACKLOG)),
+                eq(new DecimalType(0)));
+        verify(callback).stateUpdated(eq(new ChannelUID(thing.getUID(), BrokerHandler.CHANNEL_PUBLISHED)),
+                eq(new DecimalType(0)));
+        verify(callback).stateUpdated(eq(new ChannelUID(thing.getUID(), BrokerHandler.CHANNEL_PUBLISH_LATENCY)),
+                eq(new DecimalType(0)));
+    }
+
 }
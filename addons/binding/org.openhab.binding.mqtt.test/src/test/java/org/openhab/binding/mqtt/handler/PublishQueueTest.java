@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests cases for {@link PublishQueue}.
+ *
+ * @author agent - Initial contribution
+ */
+public class PublishQueueTest {
+    @Mock
+    private MqttBrokerConnection connection;
+
+    /** The acknowledgements of the broker, completed by the test */
+    private final List<CompletableFuture<Boolean>> acks = new ArrayList<>();
+
+    private PublishQueue queue;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doAnswer(invocation -> {
+            CompletableFuture<Boolean> ack = new CompletableFuture<>();
+            acks.add(ack);
+            return ack;
+        }).when(connection).publish(any(), any(), anyInt(), anyBoolean());
+        queue = new PublishQueue(connection);
+    }
+
+    @Test
+    public void inFlightWindow() {
+        queue.configure(2, false);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(queue.publish("topic/" + i, new byte[] { (byte) i }, 1, false));
+        }
+
+        // Two publishes are pipelined, the rest waits
+        verify(connection, times(2)).publish(any(), any(), anyInt(), anyBoolean());
+        assertThat(queue.getInFlight(), is(2));
+        assertThat(queue.getBacklog(), is(3));
+
+        acks.get(1).complete(true);
+        assertTrue(futures.get(1).join());
+        verify(connection, times(3)).publish(any(), any(), anyInt(), anyBoolean());
+        assertThat(queue.getInFlight(), is(2));
+        assertThat(queue.getBacklog(), is(2));
+
+        for (int i = 0; i < 5; i++) {
+            acks.get(i).complete(true);
+        }
+        verify(connection, times(5)).publish(any(), any(), anyInt(), anyBoolean());
+        assertThat(queue.getInFlight(), is(0));
+        assertThat(queue.getBacklog(), is(0));
+        assertThat(queue.getMaxBacklog(), is(3));
+        assertThat(queue.getPublished(), is(5L));
+        futures.forEach(f -> assertTrue(f.join()));
+    }
+
+    @Test
+    public void coalesceRetained() {
+        queue.configure(1, true);
+        CompletableFuture<Boolean> first = queue.publish("light/state", "ON".getBytes(), 1, true);
+        CompletableFuture<Boolean> second = queue.publish("light/state", "OFF".getBytes(), 1, true);
+        CompletableFuture<Boolean> third = queue.publish("light/state", "ON".getBytes(), 1, true);
+        CompletableFuture<Boolean> other = queue.publish("light/command", "ON".getBytes(), 1, false);
+        CompletableFuture<Boolean> notRetained = queue.publish("light/command", "OFF".getBytes(), 1, false);
+        assertThat(queue.getBacklog(), is(3));
+        assertThat(queue.getCoalesced(), is(1L));
+
+        acks.get(0).complete(true);
+        acks.get(1).complete(true);
+        acks.get(2).complete(true);
+        acks.get(3).complete(false);
+
+        // The second publish was replaced by the third one, both are informed
+        verify(connection, times(2)).publish(eq("light/state"), eq("ON".getBytes()), eq(1), eq(true));
+        verify(connection, times(0)).publish(eq("light/state"), eq("OFF".getBytes()), anyInt(), anyBoolean());
+        assertTrue(first.join());
+        assertTrue(second.join());
+        assertTrue(third.join());
+        assertTrue(other.join());
+        assertFalse(notRetained.join());
+        assertThat(queue.getPublished(), is(3L));
+        assertThat(queue.getFailed(), is(1L));
+    }
+
+    @Test
+    public void failedPublish() {
+        queue.configure(1, false);
+        CompletableFuture<Boolean> first = queue.publish("a", new byte[0], 0, false);
+        CompletableFuture<Boolean> second = queue.publish("b", new byte[0], 0, false);
+
+        acks.get(0).completeExceptionally(new Exception("Broker gone"));
+        assertTrue(first.isCompletedExceptionally());
+        // The next message is still sent
+        acks.get(1).complete(true);
+        assertTrue(second.join());
+        assertThat(queue.getFailed(), is(1L));
+    }
+
+    @Test
+    public void releaseInFlightOnConnectionLoss() {
+        queue.configure(1, false);
+        CompletableFuture<Boolean> first = queue.publish("a", new byte[0], 1, false);
+        CompletableFuture<Boolean> second = queue.publish("b", new byte[0], 1, false);
+        assertThat(queue.getBacklog(), is(1));
+
+        // The acknowledgement of the first publish never arrives
+        queue.releaseInFlight();
+        assertFalse(first.join());
+        verify(connection).publish(eq("b"), any(), anyInt(), anyBoolean());
+        assertThat(queue.getInFlight(), is(1));
+        assertThat(queue.getBacklog(), is(0));
+
+        // A late acknowledgement does not free another slot
+        acks.get(0).complete(true);
+        assertThat(queue.getInFlight(), is(1));
+        acks.get(1).complete(true);
+        assertTrue(second.join());
+        assertThat(queue.getInFlight(), is(0));
+        assertThat(queue.getPublished(), is(1L));
+        assertThat(queue.getFailed(), is(1L));
+    }
+
+    @Test
+    public void windowIsLimitedToClientInFlightLimit() {
+        queue.configure(100, false);
+        assertThat(queue.getWindow(), is(PublishQueue.MAX_WINDOW));
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests cases for {@link TopicSubscriptionIndex}.
+ *
+ * @author agent - Initial contribution
+ */
+public class TopicSubscriptionIndexTest {
+    private final Logger logger = LoggerFactory.getLogger(TopicSubscriptionIndexTest.class);
+
+    @Mock
+    private MqttBrokerConnection connection;
+
+    private TopicSubscriptionIndex index;
+
+    private static class Recorder implements MqttMessageSubscriber {
+        final List<String> topics = new ArrayList<>();
+        int count = 0;
+
+        @Override
+        public void processMessage(String topic, byte[] payload) {
+            topics.add(topic);
+            count++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doReturn(CompletableFuture.completedFuture(true)).when(connection).subscribe(any(), any());
+        doReturn(CompletableFuture.completedFuture(true)).when(connection).unsubscribe(any(), any());
+        index = new TopicSubscriptionIndex(connection);
+    }
+
+    /**
+     * Hands a message to the index like the connection does: once for every matching filter
+     */
+    private void receive(String topic, String... matchingFilters) {
+        byte[] payload = "20".getBytes();
+        for (int i = 0; i < matchingFilters.length; i++) {
+            index.processMessage(topic, payload);
+        }
+    }
+
+    @Test
+    public void validFilters() {
+        assertTrue(TopicSubscriptionIndex.isValidFilter("a/b"));
+        assertTrue(TopicSubscriptionIndex.isValidFilter("a/+/c"));
+        assertTrue(TopicSubscriptionIndex.isValidFilter("a/#"));
+        assertTrue(TopicSubscriptionIndex.isValidFilter("#"));
+        assertFalse(TopicSubscriptionIndex.isValidFilter(""));
+        assertFalse(TopicSubscriptionIndex.isValidFilter("a/#/c"));
+        assertFalse(TopicSubscriptionIndex.isValidFilter("a/b+"));
+        assertFalse(TopicSubscriptionIndex.isValidFilter("a#"));
+    }
+
+    @Test
+    public void invalidFilterIsRejected() {
+        assertTrue(index.subscribe("a/#/c", new Recorder()).isCompletedExceptionally());
+        verify(connection, times(0)).subscribe(any(), any());
+    }
+
+    @Test
+    public void oneBrokerSubscriptionPerFilter() {
+        Recorder a = new Recorder();
+        Recorder b = new Recorder();
+        index.subscribe("home/+/temp", a, false);
+        index.subscribe("home/+/temp", b, false);
+        assertThat(index.getFilterCount(), is(1));
+        verify(connection, times(1)).subscribe(eq("home/+/temp"), same(index));
+
+        receive("home/kitchen/temp", "home/+/temp");
+        assertThat(a.count, is(1));
+        assertThat(b.count, is(1));
+
+        index.unsubscribe("home/+/temp", a);
+        verify(connection, times(0)).unsubscribe(any(), any());
+        assertTrue(index.isSubscribed("home/+/temp", b));
+
+        index.unsubscribe("home/+/temp", b);
+        verify(connection).unsubscribe(eq("home/+/temp"), same(index));
+        assertThat(index.getFilterCount(), is(0));
+    }
+
+    @Test
+    public void overlappingWildcardFilters() {
+        Recorder exact = new Recorder();
+        Recorder singleLevel = new Recorder();
+        Recorder multiLevel = new Recorder();
+        Recorder leadingWildcard = new Recorder();
+        Recorder all = new Recorder();
+        Recorder other = new Recorder();
+        Recorder system = new Recorder();
+        index.subscribe("home/kitchen/temp", exact);
+        index.subscribe("home/+/temp", singleLevel);
+        index.subscribe("home/#", multiLevel);
+        index.subscribe("+/kitchen/+", leadingWildcard);
+        index.subscribe("#", all);
+        index.subscribe("home/+", other);
+        index.subscribe("$SYS/#", system);
+        assertThat(index.getFilterCount(), is(7));
+
+        // Each matching subscriber gets the message once, although the connection hands it over per filter
+        receive("home/kitchen/temp", "home/kitchen/temp", "home/+/temp", "home/#", "+/kitchen/+", "#");
+        assertThat(exact.count, is(1));
+        assertThat(singleLevel.count, is(1));
+        assertThat(multiLevel.count, is(1));
+        assertThat(leadingWildcard.count, is(1));
+        assertThat(all.count, is(1));
+        assertThat(other.count, is(0));
+        assertThat(system.count, is(0));
+
+        // A new message on the same topic is delivered again
+        receive("home/kitchen/temp", "home/kitchen/temp", "home/+/temp", "home/#", "+/kitchen/+", "#");
+        assertThat(exact.count, is(2));
+        assertThat(all.count, is(2));
+
+        // '#' matches the parent level as well
+        receive("home", "home/#", "#");
+        assertThat(multiLevel.count, is(3));
+        assertThat(other.count, is(0));
+
+        // Wildcards on the first level do not match '$' topics
+        receive("$SYS/broker/uptime", "$SYS/#");
+        assertThat(system.count, is(1));
+        assertThat(all.count, is(3));
+
+        index.unsubscribe("home/+/temp", singleLevel);
+        receive("home/kitchen/temp", "home/kitchen/temp", "home/#", "+/kitchen/+", "#");
+        assertThat(singleLevel.count, is(2));
+        assertThat(exact.count, is(3));
+        assertThat(index.getFilterCount(), is(6));
+    }
+
+    @Test
+    public void lateSubscriberRequestsRetainedMessagesThroughSharedSubscription() {
+        Recorder first = new Recorder();
+        Recorder late = new Recorder();
+        index.subscribe("home/+/temp", first);
+        index.subscribe("home/+/temp", late);
+        assertThat(index.getFilterCount(), is(1));
+
+        // A second SUBSCRIBE of the filter, its placeholder is removed again once acknowledged
+        ArgumentCaptor<MqttMessageSubscriber> captor = ArgumentCaptor.forClass(MqttMessageSubscriber.class);
+        verify(connection, times(2)).subscribe(eq("home/+/temp"), captor.capture());
+        assertSame(index, captor.getAllValues().get(0));
+        MqttMessageSubscriber placeholder = captor.getAllValues().get(1);
+        assertNotSame(index, placeholder);
+        assertNotSame(late, placeholder);
+        verify(connection).unsubscribe(eq("home/+/temp"), same(placeholder));
+
+        // The retained messages arrive through the shared subscription
+        receive("home/kitchen/temp", "home/+/temp");
+        assertThat(first.count, is(1));
+        assertThat(late.count, is(1));
+
+        index.unsubscribe("home/+/temp", late);
+        index.unsubscribe("home/+/temp", first);
+        verify(connection).unsubscribe(eq("home/+/temp"), same(index));
+        assertThat(index.getFilterCount(), is(0));
+    }
+
+    @Test
+    public void lateTriggerDoesNotRequestRetainedMessages() {
+        index.subscribe("home/+/button", new Recorder());
+        index.subscribe("home/+/button", new Recorder(), false);
+        verify(connection, times(1)).subscribe(any(), any());
+    }
+
+    @Test
+    public void oneIndexPerConnection() {
+        assertSame(TopicSubscriptionIndex.of(connection), TopicSubscriptionIndex.of(connection));
+        TopicSubscriptionIndex previous = TopicSubscriptionIndex.of(connection);
+        TopicSubscriptionIndex.remove(connection);
+        assertNotSame(previous, TopicSubscriptionIndex.of(connection));
+    }
+
+    @Test
+    public void benchmarkDispatch() {
+        final int devices = 2000;
+        final int messages = 100_000;
+        Recorder recorder = new Recorder();
+        List<Pattern> linear = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            for (String filter : new String[] { "home/device" + i + "/temp", "home/device" + i + "/humidity",
+                    "home/device" + i + "/+/state", "home/device" + i + "/#", "zigbee/+/device" + i }) {
+                index.subscribe(filter, recorder);
+                linear.add(Pattern.compile(filter.replace("+", "[^/]*").replace("/#", "(/.*)?")));
+            }
+        }
+        assertThat(index.getFilterCount(), is(10_000));
+
+        String[] topics = new String[1000];
+        byte[][] payloads = new byte[messages][];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = "home/device" + (i * 7 % devices) + "/temp";
+        }
+        for (int i = 0; i < messages; i++) {
+            payloads[i] = "21.5".getBytes();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            index.processMessage(topics[i % topics.length], payloads[i]);
+        }
+        long trieNanos = System.nanoTime() - start;
+        // Each topic matches the exact filter and the '#' filter of its device
+        assertThat(recorder.count, is(2 * messages));
+
+        final int linearMessages = messages / 200;
+        int linearMatches = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < linearMessages; i++) {
+            String topic = topics[i % topics.length];
+            for (Pattern pattern : linear) {
+                if (pattern.matcher(topic).matches()) {
+                    linearMatches++;
+                }
+            }
+        }
+        long linearNanos = System.nanoTime() - start;
+        assertThat(linearMatches, is(2 * linearMessages));
+
+        logger.info("Dispatch against 10000 subscriptions: trie {} msg/s, linear scan {} msg/s",
+                messages * 1_000_000_000L / Math.max(1, trieNanos),
+                linearMessages * 1_000_000_000L / Math.max(1, linearNanos));
+    }
+}
@@ -28,6 +28,7 @@ import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerService;
+import org.eclipse.smarthome.core.thing.type.ChannelKind;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionObserver;
@@ -76,6 +77,20 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         return connection;
     }
 
+    /**
+     * Returns the shared {@link TopicSubscriptionIndex} of the underlying {@link MqttBrokerConnection}.
+     */
+    public TopicSubscriptionIndex getSubscriptionIndex() {
+        return TopicSubscriptionIndex.of(connection);
+    }
+
+    /**
+     * Returns the outbound {@link PublishQueue} of the underlying {@link MqttBrokerConnection}.
+     */
+    public PublishQueue getPublishQueue() {
+        return PublishQueue.of(connection);
+    }
+
     /**
      * Does nothing in the base implementation.
      */
@@ -90,6 +105,10 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
     @Override
     public void initialize() {
         for (Channel channel : thing.getChannels()) {
+            // Only trigger channels are publish triggers, a subclass may add state channels
+            if (channel.getKind() != ChannelKind.TRIGGER) {
+                continue;
+            }
             final PublishTriggerChannelConfig channelConfig = channel.getConfiguration()
                     .as(PublishTriggerChannelConfig.class);
             PublishTriggerChannel c = new PublishTriggerChannel(channelConfig, channel.getUID(), connection, this);
@@ -118,6 +137,8 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
             channelStateByChannelUID.values().forEach(c -> c.start());
         } else {
             channelStateByChannelUID.values().forEach(c -> c.stop());
+            // Acknowledgements of publishes in flight may never arrive
+            PublishQueue.of(connection).releaseInFlight();
             if (error == null) {
                 updateStatus(ThingStatus.OFFLINE);
             } else {
@@ -139,6 +160,8 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         channelStateByChannelUID.values().forEach(c -> c.stop());
         channelStateByChannelUID.clear();
         connection.removeConnectionObserver(this);
+        TopicSubscriptionIndex.remove(connection);
+        PublishQueue.remove(connection);
         this.connection = null;
         connectionFuture = new CompletableFuture<>();
         super.dispose();
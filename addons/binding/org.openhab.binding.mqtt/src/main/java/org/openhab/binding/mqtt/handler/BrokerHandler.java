@@ -14,6 +14,7 @@ package org.openhab.binding.mqtt.handler;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -21,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.thing.Bridge;
 import org.eclipse.smarthome.core.util.HexUtils;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
@@ -41,14 +43,27 @@ import org.slf4j.LoggerFactory;
  * This handler provided more detailed connection information from a
  * {@link MqttBrokerConnection} via a Thing property, put the Thing
  * offline or online depending on the connection and adds the configured
- * connection to the {@link MqttService}.
+ * connection to the {@link MqttService}. The metrics of the {@link PublishQueue}
+ * of the connection are provided via channels.
  *
  * @author David Graeff - Initial contribution
  */
 @NonNullByDefault
 public class BrokerHandler extends AbstractBrokerHandler implements PinnedCallback {
+    // Publish queue metrics channels
+    public static final String CHANNEL_PUBLISH_IN_FLIGHT = "publishInFlight";
+    public static final String CHANNEL_PUBLISH_BACKLOG = "publishBacklog";
+    public static final String CHANNEL_PUBLISH_MAX_BACKLOG = "publishMaxBacklog";
+    public static final String CHANNEL_PUBLISHED = "published";
+    public static final String CHANNEL_PUBLISH_FAILED = "publishFailed";
+    public static final String CHANNEL_PUBLISH_COALESCED = "publishCoalesced";
+    public static final String CHANNEL_PUBLISH_LATENCY = "publishLatency";
+    public static final String CHANNEL_PUBLISH_MAX_LATENCY = "publishMaxLatency";
+
+    private static final int METRICS_INTERVAL_SECONDS = 10;
     private final Logger logger = LoggerFactory.getLogger(BrokerHandler.class);
     protected BrokerHandlerConfig config = new BrokerHandlerConfig();
+    private @Nullable ScheduledFuture<?> metricsFuture;
 
     public BrokerHandler(Bridge thing) {
         super(thing);
@@ -108,8 +123,33 @@ public class BrokerHandler extends AbstractBrokerHandler implements PinnedCallba
     public void pinnedConnectionAccepted() {
     }
 
+    /**
+     * Updates the channels of the {@link PublishQueue} metrics.
+     */
+    protected void updateMetrics() {
+        final MqttBrokerConnection connection = this.connection;
+        if (connection == null) {
+            return;
+        }
+        final PublishQueue queue = PublishQueue.of(connection);
+        logger.trace("Broker {}: {}", getThing().getUID(), queue);
+        updateState(CHANNEL_PUBLISH_IN_FLIGHT, new DecimalType(queue.getInFlight()));
+        updateState(CHANNEL_PUBLISH_BACKLOG, new DecimalType(queue.getBacklog()));
+        updateState(CHANNEL_PUBLISH_MAX_BACKLOG, new DecimalType(queue.getMaxBacklog()));
+        updateState(CHANNEL_PUBLISHED, new DecimalType(queue.getPublished()));
+        updateState(CHANNEL_PUBLISH_FAILED, new DecimalType(queue.getFailed()));
+        updateState(CHANNEL_PUBLISH_COALESCED, new DecimalType(queue.getCoalesced()));
+        updateState(CHANNEL_PUBLISH_LATENCY, new DecimalType(queue.getMeanLatencyMillis()));
+        updateState(CHANNEL_PUBLISH_MAX_LATENCY, new DecimalType(queue.getMaxLatencyMillis()));
+    }
+
     @Override
     public void dispose() {
+        final ScheduledFuture<?> metricsFuture = this.metricsFuture;
+        if (metricsFuture != null) {
+            metricsFuture.cancel(false);
+            this.metricsFuture = null;
+        }
         try {
             connection.stop().get(1000, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException ignore) {
@@ -222,6 +262,9 @@ public class BrokerHandler extends AbstractBrokerHandler implements PinnedCallba
         config = getConfigAs(BrokerHandlerConfig.class);
         connection = createBrokerConnection();
         assignSSLContextProvider(config, connection, this);
+        PublishQueue.of(connection).configure(config.publishWindow, config.coalesceRetained);
         super.initialize();
+        metricsFuture = scheduler.scheduleWithFixedDelay(this::updateMetrics, METRICS_INTERVAL_SECONDS,
+                METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 }
@@ -28,6 +28,11 @@ public class BrokerHandlerConfig extends MqttBrokerConnectionConfig {
     public @Nullable Integer reconnectTime;
     public @Nullable Integer timeoutInMs;
 
+    // Outbound publish queue, see PublishQueue
+
+    public int publishWindow = PublishQueue.DEFAULT_WINDOW;
+    public boolean coalesceRetained = false;
+
     // For more security, the following optional parameters can be altered
 
     public boolean certificatepin = false;
@@ -0,0 +1,334 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Outbound publish queue of a {@link MqttBrokerConnection}.
+ *
+ * <p>
+ * Up to {@link #getWindow()} publishes are in flight at the same time, their acknowledgements are awaited in
+ * parallel. Further publishes wait in a backlog and are sent as soon as an acknowledgement arrives, instead of being
+ * rejected by the MQTT client once its own in-flight limit is reached. With
+ * retained message coalescing enabled, a retained publish waiting in the backlog is replaced by a newer publish to the
+ * same topic (last value wins). All callers of a coalesced publish are informed about the outcome of the publish
+ * that was actually sent.
+ *
+ * <p>
+ * Publishes still awaiting their acknowledgement when the connection is lost are failed by
+ * {@link #releaseInFlight()}, so a lost acknowledgement cannot block the window.
+ *
+ * <p>
+ * There is one queue per connection, see {@link #of(MqttBrokerConnection)}. The {@link BrokerHandler} configures the
+ * queue of its connection and provides its metrics as channels.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class PublishQueue {
+    public static final int DEFAULT_WINDOW = 10;
+    /** The default in-flight limit of the Paho client, more publishes would be rejected by the client */
+    public static final int MAX_WINDOW = 10;
+
+    private static final Map<MqttBrokerConnection, PublishQueue> QUEUES = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    private final Logger logger = LoggerFactory.getLogger(PublishQueue.class);
+
+    /**
+     * The connection is only weakly referenced, otherwise the {@link #QUEUES} entry would never be released
+     */
+    private final WeakReference<MqttBrokerConnection> connection;
+
+    private int window = DEFAULT_WINDOW;
+    private boolean coalesceRetained = false;
+
+    private final Deque<Publish> backlog = new ArrayDeque<>();
+    /** Retained publishes in the backlog by topic, for coalescing */
+    private final Map<String, Publish> backlogRetained = new HashMap<>();
+    /** Publishes awaiting their acknowledgement */
+    private final Set<Publish> inFlight = new LinkedHashSet<>();
+
+    // Metrics, guarded by this
+    private long published = 0;
+    private long failed = 0;
+    private long coalesced = 0;
+    private int maxBacklog = 0;
+    private long totalLatencyNanos = 0;
+    private long maxLatencyNanos = 0;
+
+    private static class Publish {
+        final String topic;
+        byte[] payload;
+        final int qos;
+        final boolean retain;
+        final long enqueuedNanos = System.nanoTime();
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>(1);
+
+        Publish(String topic, byte[] payload, int qos, boolean retain) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retain = retain;
+        }
+    }
+
+    PublishQueue(MqttBrokerConnection connection) {
+        this.connection = new WeakReference<>(connection);
+    }
+
+    /**
+     * Returns the publish queue of the given connection. The queue is created on first use.
+     *
+     * @param connection A broker connection
+     */
+    public static PublishQueue of(MqttBrokerConnection connection) {
+        return QUEUES.computeIfAbsent(connection, PublishQueue::new);
+    }
+
+    /**
+     * Drops the publish queue of the given connection. Waiting publishes are still sent.
+     *
+     * @param connection A broker connection
+     */
+    static void remove(MqttBrokerConnection connection) {
+        QUEUES.remove(connection);
+    }
+
+    /**
+     * Configures the queue.
+     *
+     * @param window The maximum number of publishes awaiting their acknowledgement. At least 1 and at most
+     *            {@link #MAX_WINDOW}.
+     * @param coalesceRetained If true, a retained publish waiting in the backlog is replaced by a newer retained
+     *            publish to the same topic.
+     */
+    public synchronized void configure(int window, boolean coalesceRetained) {
+        this.window = Math.min(MAX_WINDOW, Math.max(1, window));
+        this.coalesceRetained = coalesceRetained;
+    }
+
+    /**
+     * Publishes a message, either immediately or as soon as the in-flight window allows.
+     *
+     * @param topic The topic
+     * @param payload The message payload
+     * @param qos The quality of service level
+     * @param retain True if the message should be retained by the broker
+     * @return A future that completes with true if the message was published, with false if the connection is not
+     *         established and exceptionally otherwise.
+     */
+    public CompletableFuture<Boolean> publish(String topic, byte[] payload, int qos, boolean retain) {
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        final Publish send;
+        synchronized (this) {
+            if (retain && coalesceRetained) {
+                Publish waiting = backlogRetained.get(topic);
+                if (waiting != null && waiting.qos == qos) {
+                    waiting.payload = payload;
+                    waiting.futures.add(future);
+                    coalesced++;
+                    return future;
+                }
+            }
+
+            Publish publish = new Publish(topic, payload, qos, retain);
+            publish.futures.add(future);
+            if (inFlight.size() < window) {
+                inFlight.add(publish);
+                send = publish;
+            } else {
+                backlog.add(publish);
+                if (retain && coalesceRetained) {
+                    backlogRetained.put(topic, publish);
+                }
+                maxBacklog = Math.max(maxBacklog, backlog.size());
+                send = null;
+            }
+        }
+        if (send != null) {
+            send(send);
+        }
+        return future;
+    }
+
+    private void send(Publish publish) {
+        final MqttBrokerConnection connection = this.connection.get();
+        if (connection == null) {
+            completed(publish, false, null);
+            return;
+        }
+        connection.publish(publish.topic, publish.payload, publish.qos, publish.retain)
+                .whenComplete((result, error) -> completed(publish, result, error));
+    }
+
+    private void completed(Publish publish, @Nullable Boolean result, @Nullable Throwable error) {
+        final long latency = System.nanoTime() - publish.enqueuedNanos;
+        final Publish next;
+        synchronized (this) {
+            if (!inFlight.remove(publish)) {
+                // Already failed by releaseInFlight()
+                return;
+            }
+            if (error == null && Boolean.TRUE.equals(result)) {
+                published++;
+            } else {
+                failed++;
+            }
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+
+            next = pollBacklog();
+        }
+
+        if (error != null) {
+            logger.debug("Publishing to {} failed", publish.topic, error);
+        }
+        for (CompletableFuture<Boolean> future : publish.futures) {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(Boolean.TRUE.equals(result));
+            }
+        }
+
+        if (next != null) {
+            send(next);
+        }
+    }
+
+    /**
+     * Fails all publishes awaiting their acknowledgement, with false like a publish on a connection that is not
+     * established, and sends waiting publishes in their place. Acknowledgements arriving later are ignored.
+     * To be called when the connection is lost, the acknowledgements of in-flight publishes may never arrive.
+     */
+    public void releaseInFlight() {
+        final List<Publish> released;
+        final List<Publish> next = new ArrayList<>();
+        synchronized (this) {
+            released = new ArrayList<>(inFlight);
+            inFlight.clear();
+            final long now = System.nanoTime();
+            for (Publish publish : released) {
+                failed++;
+                totalLatencyNanos += now - publish.enqueuedNanos;
+                maxLatencyNanos = Math.max(maxLatencyNanos, now - publish.enqueuedNanos);
+            }
+            Publish waiting;
+            while (next.size() < window && (waiting = pollBacklog()) != null) {
+                next.add(waiting);
+            }
+        }
+        if (!released.isEmpty()) {
+            logger.debug("Connection lost, releasing {} publishes awaiting their acknowledgement", released.size());
+        }
+        released.forEach(publish -> publish.futures.forEach(future -> future.complete(false)));
+        next.forEach(this::send);
+    }
+
+    /**
+     * Takes the next publish from the backlog and marks it in flight. Must be called with this locked.
+     */
+    private @Nullable Publish pollBacklog() {
+        final Publish next = backlog.poll();
+        if (next != null) {
+            backlogRetained.remove(next.topic, next);
+            inFlight.add(next);
+        }
+        return next;
+    }
+
+    public synchronized int getWindow() {
+        return window;
+    }
+
+    public synchronized boolean isCoalesceRetained() {
+        return coalesceRetained;
+    }
+
+    /**
+     * Returns the number of publishes awaiting their acknowledgement.
+     */
+    public synchronized int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the number of publishes waiting for a free slot in the in-flight window.
+     */
+    public synchronized int getBacklog() {
+        return backlog.size();
+    }
+
+    public synchronized int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    public synchronized long getPublished() {
+        return published;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of publishes that were replaced by a newer retained publish to the same topic.
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Returns the mean time from queuing a publish to its acknowledgement.
+     */
+    public synchronized double getMeanLatencyMillis() {
+        long count = published + failed;
+        return count == 0 ? 0 : (double) totalLatencyNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the maximum time from queuing a publish to its acknowledgement.
+     */
+    public synchronized double getMaxLatencyMillis() {
+        return (double) maxLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PublishQueue{inFlight=" + inFlight.size() + ", backlog=" + backlog.size() + ", maxBacklog=" + maxBacklog
+                + ", published=" + published + ", failed=" + failed + ", coalesced=" + coalesced + ", meanLatency="
+                + String.format(Locale.ROOT, "%.1f", getMeanLatencyMillis()) + "ms, maxLatency="
+                + String.format(Locale.ROOT, "%.1f", getMaxLatencyMillis()) + "ms}";
+    }
+}
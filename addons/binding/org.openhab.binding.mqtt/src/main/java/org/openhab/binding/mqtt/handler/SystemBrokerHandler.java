@@ -12,20 +12,27 @@
  */
 package org.openhab.binding.mqtt.handler;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.thing.Bridge;
+import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionState;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.eclipse.smarthome.io.transport.mqtt.MqttService;
 import org.eclipse.smarthome.io.transport.mqtt.MqttServiceObserver;
 import org.eclipse.smarthome.io.transport.mqtt.MqttWillAndTestament;
 import org.eclipse.smarthome.io.transport.mqtt.reconnect.PeriodicReconnectStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This handler does not much except providing all information from a
@@ -47,10 +54,38 @@ public class SystemBrokerHandler extends AbstractBrokerHandler implements MqttSe
     public static final String PROPERTY_KEEP_ALIVE_TIME = "keep_alive_time_ms";
     public static final String PROPERTY_CONNECT_TIMEOUT = "connect_timeout_ms";
 
+    // Broker metrics channels
+    public static final String CHANNEL_CLIENTS_CONNECTED = "clientsConnected";
+    public static final String CHANNEL_SUBSCRIPTIONS = "subscriptions";
+    public static final String CHANNEL_RETAINED_MESSAGES = "retainedMessages";
+    public static final String CHANNEL_MESSAGES_RECEIVED = "messagesReceived";
+    public static final String CHANNEL_MESSAGES_RECEIVED_RATE = "messagesReceivedRate";
+    public static final String CHANNEL_MESSAGES_ACKNOWLEDGED_RATE = "messagesAcknowledgedRate";
+    public static final String CHANNEL_BYTES_RECEIVED_RATE = "bytesReceivedRate";
+
+    static final String SYS_TOPIC_FILTER = "$SYS/broker/#";
+    static final Map<String, String> SYS_TOPIC_TO_CHANNEL;
+    static {
+        Map<String, String> map = new HashMap<>();
+        map.put("$SYS/broker/clients/connected", CHANNEL_CLIENTS_CONNECTED);
+        map.put("$SYS/broker/subscriptions/count", CHANNEL_SUBSCRIPTIONS);
+        map.put("$SYS/broker/retained messages/count", CHANNEL_RETAINED_MESSAGES);
+        map.put("$SYS/broker/messages/received", CHANNEL_MESSAGES_RECEIVED);
+        map.put("$SYS/broker/load/messages/received/1min", CHANNEL_MESSAGES_RECEIVED_RATE);
+        map.put("$SYS/broker/load/messages/acknowledged/1min", CHANNEL_MESSAGES_ACKNOWLEDGED_RATE);
+        map.put("$SYS/broker/load/bytes/received/1min", CHANNEL_BYTES_RECEIVED_RATE);
+        SYS_TOPIC_TO_CHANNEL = Collections.unmodifiableMap(map);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(SystemBrokerHandler.class);
+
     protected final MqttService service;
 
     protected String brokerID = "";
 
+    private final MqttMessageSubscriber sysTopicSubscriber = this::sysTopicReceived;
+    private boolean sysTopicsSubscribed = false;
+
     public SystemBrokerHandler(Bridge thing, MqttService service) {
         super(thing);
         this.service = service;
@@ -85,6 +120,60 @@ public class SystemBrokerHandler extends AbstractBrokerHandler implements MqttSe
 
         updateProperties(properties);
         super.connectionStateChanged(state, error);
+        if (state == MqttConnectionState.CONNECTED) {
+            subscribeSysTopics();
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        super.channelLinked(channelUID);
+        final MqttBrokerConnection connection = this.connection;
+        if (connection != null && connection.connectionState() == MqttConnectionState.CONNECTED) {
+            subscribeSysTopics();
+        }
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        if (SYS_TOPIC_TO_CHANNEL.values().stream().noneMatch(this::isLinked)) {
+            unsubscribeSysTopics();
+        }
+    }
+
+    /**
+     * Subscribes to the $SYS topics of the broker, if a metrics channel is linked.
+     */
+    private synchronized void subscribeSysTopics() {
+        final MqttBrokerConnection connection = this.connection;
+        if (sysTopicsSubscribed || connection == null
+                || SYS_TOPIC_TO_CHANNEL.values().stream().noneMatch(this::isLinked)) {
+            return;
+        }
+        sysTopicsSubscribed = true;
+        TopicSubscriptionIndex.of(connection).subscribe(SYS_TOPIC_FILTER, sysTopicSubscriber);
+    }
+
+    private synchronized void unsubscribeSysTopics() {
+        final MqttBrokerConnection connection = this.connection;
+        if (sysTopicsSubscribed && connection != null) {
+            TopicSubscriptionIndex.of(connection).unsubscribe(SYS_TOPIC_FILTER, sysTopicSubscriber);
+        }
+        sysTopicsSubscribed = false;
+    }
+
+    void sysTopicReceived(String topic, byte[] payload) {
+        final String channelID = SYS_TOPIC_TO_CHANNEL.get(topic);
+        if (channelID == null) {
+            return;
+        }
+        final String value = new String(payload, StandardCharsets.UTF_8).trim();
+        try {
+            updateState(channelID, new DecimalType(value));
+        } catch (NumberFormatException e) {
+            logger.trace("Broker metric {} is not a number: {}", topic, value);
+        }
     }
 
     /**
@@ -106,6 +195,7 @@ public class SystemBrokerHandler extends AbstractBrokerHandler implements MqttSe
     public void brokerRemoved(String connectionName, MqttBrokerConnection removedConnection) {
         final MqttBrokerConnection connection = this.connection;
         if (removedConnection == connection) {
+            unsubscribeSysTopics();
             connection.removeConnectionObserver(this);
             this.connection = null;
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "@text/offline.sharedremoved");
@@ -129,6 +219,7 @@ public class SystemBrokerHandler extends AbstractBrokerHandler implements MqttSe
 
     @Override
     public void dispose() {
+        unsubscribeSysTopics();
         service.removeBrokersListener(this);
         super.dispose();
     }
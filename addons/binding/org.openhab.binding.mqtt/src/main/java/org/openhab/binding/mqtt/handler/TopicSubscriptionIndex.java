@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared subscription index of a {@link MqttBrokerConnection}.
+ *
+ * <p>
+ * Topic filters, including the MQTT wildcards '+' and '#', are kept in a topic trie with one node per topic level.
+ * The broker connection only sees one subscription per distinct filter, no matter how many
+ * {@link MqttMessageSubscriber}s are interested in it. The index itself is the subscriber of all these filters:
+ * {@link #processMessage(String, byte[])} delivers a message to the subscribers of all matching filters with a single
+ * walk through the trie.
+ *
+ * <p>
+ * The broker only sends retained messages on SUBSCRIBE. A subscriber that joins an already subscribed filter and
+ * needs the retained messages therefore makes the index send the SUBSCRIBE of the filter again. The retained messages
+ * then arrive through the shared subscription, like every other message. Subscribers that only want new messages,
+ * like triggers, just join the filter.
+ *
+ * <p>
+ * There is one index per connection, see {@link #of(MqttBrokerConnection)}. The {@link AbstractBrokerHandler}
+ * creates the index of its connection and drops it on dispose.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class TopicSubscriptionIndex implements MqttMessageSubscriber {
+    private static final Map<MqttBrokerConnection, TopicSubscriptionIndex> INDICES = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    private final Logger logger = LoggerFactory.getLogger(TopicSubscriptionIndex.class);
+
+    /**
+     * The connection is only weakly referenced, otherwise the {@link #INDICES} entry would never be released
+     */
+    private final WeakReference<MqttBrokerConnection> connection;
+
+    /**
+     * The root of the topic trie. Changes to the trie are guarded by it, lookups do not lock.
+     */
+    private final Node root = new Node(null, "");
+    private int filterCount = 0;
+
+    /**
+     * The connection hands a message to the index once for every matching filter, one call after the other. The last
+     * message the calling thread dispatched, to drop these repeated calls. The payload is compared by identity: each
+     * received message has its own payload array.
+     */
+    private final ThreadLocal<Object[]> lastDispatched = ThreadLocal.withInitial(() -> new Object[2]);
+
+    /**
+     * Subscribers of one topic filter
+     */
+    private static class Subscription {
+        final Set<MqttMessageSubscriber> subscribers = new CopyOnWriteArraySet<>();
+        final CompletableFuture<Boolean> subscribed = new CompletableFuture<>();
+    }
+
+    /**
+     * A trie node, one per topic level
+     */
+    private static class Node {
+        final @Nullable Node parent;
+        final String level;
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+        volatile @Nullable Subscription subscription;
+
+        Node(@Nullable Node parent, String level) {
+            this.parent = parent;
+            this.level = level;
+        }
+    }
+
+    TopicSubscriptionIndex(MqttBrokerConnection connection) {
+        this.connection = new WeakReference<>(connection);
+    }
+
+    /**
+     * Returns the subscription index of the given connection. The index is created on first use.
+     *
+     * @param connection A broker connection
+     */
+    public static TopicSubscriptionIndex of(MqttBrokerConnection connection) {
+        return INDICES.computeIfAbsent(connection, TopicSubscriptionIndex::new);
+    }
+
+    /**
+     * Drops the subscription index of the given connection without touching the broker subscriptions.
+     *
+     * @param connection A broker connection
+     */
+    static void remove(MqttBrokerConnection connection) {
+        INDICES.remove(connection);
+    }
+
+    /**
+     * Subscribes to the given topic filter and receives the retained messages of the matching topics.
+     *
+     * @param filter A topic or topic filter with '+' and '#' wildcards
+     * @param subscriber The subscriber
+     * @return The future of the broker subscription. It completes with true if subscribing worked, with false if the
+     *         connection is not established and exceptionally otherwise.
+     */
+    public CompletableFuture<Boolean> subscribe(String filter, MqttMessageSubscriber subscriber) {
+        return subscribe(filter, subscriber, true);
+    }
+
+    /**
+     * Subscribes to the given topic filter. The broker connection is only asked to subscribe for the first subscriber
+     * of a filter. Like the connection itself, the subscription is kept if that fails.
+     *
+     * @param filter A topic or topic filter with '+' and '#' wildcards
+     * @param subscriber The subscriber
+     * @param retained If true, the subscriber receives the retained messages of the matching topics, even if the
+     *            filter is already subscribed. The other subscribers of the filter receive them again as well.
+     *            Should be false for subscribers that must only see new messages, like triggers.
+     * @return The future of the broker subscription. It completes with true if subscribing worked, with false if the
+     *         connection is not established and exceptionally otherwise.
+     */
+    public CompletableFuture<Boolean> subscribe(String filter, MqttMessageSubscriber subscriber, boolean retained) {
+        if (!isValidFilter(filter)) {
+            CompletableFuture<Boolean> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalArgumentException("Invalid topic filter '" + filter + "'"));
+            return f;
+        }
+        final MqttBrokerConnection connection = this.connection.get();
+        if (connection == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        synchronized (root) {
+            Node node = root;
+            for (String level : filter.split("/", -1)) {
+                final Node parent = node;
+                node = parent.children.computeIfAbsent(level, l -> new Node(parent, l));
+            }
+            Subscription subscription = node.subscription;
+            if (subscription == null) {
+                subscription = new Subscription();
+                subscription.subscribers.add(subscriber);
+                node.subscription = subscription;
+                filterCount++;
+                logger.trace("Subscribing to topic filter {}", filter);
+                final CompletableFuture<Boolean> subscribed = subscription.subscribed;
+                connection.subscribe(filter, this).whenComplete((v, e) -> {
+                    if (e != null) {
+                        subscribed.completeExceptionally(e);
+                    } else {
+                        subscribed.complete(v);
+                    }
+                });
+                return subscribed;
+            }
+            if (!subscription.subscribers.add(subscriber) || !retained) {
+                return subscription.subscribed;
+            }
+        }
+        return requestRetained(connection, filter);
+    }
+
+    /**
+     * Sends the SUBSCRIBE of an already subscribed filter again, which makes the broker send the retained messages of
+     * the filter. The connection only sends a SUBSCRIBE for a new subscriber, so a placeholder is subscribed and
+     * removed again as soon as the broker has acknowledged. The filter stays subscribed by the index in between, the
+     * connection therefore does not send an UNSUBSCRIBE.
+     */
+    private CompletableFuture<Boolean> requestRetained(MqttBrokerConnection connection, String filter) {
+        logger.trace("Requesting the retained messages of topic filter {}", filter);
+        final MqttMessageSubscriber placeholder = (topic, payload) -> {
+        };
+        return connection.subscribe(filter, placeholder).whenComplete((v, e) -> {
+            connection.unsubscribe(filter, placeholder);
+        });
+    }
+
+    /**
+     * Unsubscribes from the given topic filter. The broker connection is only asked to unsubscribe if this was the
+     * last subscriber of the filter.
+     *
+     * @param filter A topic or topic filter
+     * @param subscriber The subscriber
+     * @return A future that completes with true if unsubscribing worked or was not necessary, with false if the
+     *         connection is not established and exceptionally otherwise.
+     */
+    public CompletableFuture<Boolean> unsubscribe(String filter, MqttMessageSubscriber subscriber) {
+        synchronized (root) {
+            Node node = find(filter);
+            Subscription subscription = node != null ? node.subscription : null;
+            if (node == null || subscription == null || !subscription.subscribers.remove(subscriber)
+                    || !subscription.subscribers.isEmpty()) {
+                return CompletableFuture.completedFuture(true);
+            }
+            node.subscription = null;
+            filterCount--;
+            prune(node);
+        }
+        logger.trace("Unsubscribing from topic filter {}", filter);
+
+        final MqttBrokerConnection connection = this.connection.get();
+        if (connection == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return connection.unsubscribe(filter, this);
+    }
+
+    /**
+     * Delivers a message to the subscribers of all filters matching the given topic. Called by the broker connection.
+     *
+     * @param topic A topic without wildcards
+     * @param payload The message payload
+     */
+    @Override
+    public void processMessage(String topic, byte[] payload) {
+        final Object[] last = lastDispatched.get();
+        if (last[1] == payload && topic.equals(last[0])) {
+            return;
+        }
+        last[0] = topic;
+        last[1] = payload;
+        match(topic, subscription -> {
+            for (MqttMessageSubscriber subscriber : subscription.subscribers) {
+                subscriber.processMessage(topic, payload);
+            }
+        });
+    }
+
+    /**
+     * Returns true if the given subscriber is subscribed to exactly the given filter.
+     *
+     * @param filter A topic or topic filter
+     * @param subscriber The subscriber
+     */
+    public boolean isSubscribed(String filter, MqttMessageSubscriber subscriber) {
+        Node node = find(filter);
+        Subscription subscription = node != null ? node.subscription : null;
+        return subscription != null && subscription.subscribers.contains(subscriber);
+    }
+
+    /**
+     * Returns the number of distinct topic filters, which is the number of subscriptions of the broker connection.
+     */
+    public int getFilterCount() {
+        synchronized (root) {
+            return filterCount;
+        }
+    }
+
+    /**
+     * Returns true if the given string is a valid MQTT topic filter: '+' and '#' must occupy an entire level and '#'
+     * must be the last level.
+     *
+     * @param filter A topic or topic filter
+     */
+    public static boolean isValidFilter(String filter) {
+        if (filter.isEmpty()) {
+            return false;
+        }
+        String[] levels = filter.split("/", -1);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.equals("#")) {
+                if (i != levels.length - 1) {
+                    return false;
+                }
+            } else if (!level.equals("+") && (level.contains("#") || level.contains("+"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void match(String topic, Consumer<Subscription> consumer) {
+        match(root, topic.split("/", -1), 0, topic.startsWith("$"), consumer);
+    }
+
+    private static void match(Node node, String[] levels, int index, boolean systemTopic,
+            Consumer<Subscription> consumer) {
+        // Wildcards do not match topics beginning with '$' on the first level
+        boolean wildcards = !(index == 0 && systemTopic);
+
+        if (wildcards) {
+            // '#' also matches the parent level, "a/#" matches "a"
+            Node multiLevel = node.children.get("#");
+            Subscription subscription = multiLevel != null ? multiLevel.subscription : null;
+            if (subscription != null) {
+                consumer.accept(subscription);
+            }
+        }
+
+        if (index == levels.length) {
+            Subscription subscription = node.subscription;
+            if (subscription != null) {
+                consumer.accept(subscription);
+            }
+            return;
+        }
+
+        Node child = node.children.get(levels[index]);
+        if (child != null) {
+            match(child, levels, index + 1, systemTopic, consumer);
+        }
+        if (wildcards) {
+            Node singleLevel = node.children.get("+");
+            if (singleLevel != null) {
+                match(singleLevel, levels, index + 1, systemTopic, consumer);
+            }
+        }
+    }
+
+    private @Nullable Node find(String filter) {
+        Node node = root;
+        for (String level : filter.split("/", -1)) {
+            node = node.children.get(level);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Removes empty nodes up to the root. Must be called with the root locked.
+     */
+    private void prune(Node node) {
+        Node current = node;
+        Node parent = current.parent;
+        while (parent != null && current.subscription == null && current.children.isEmpty()) {
+            parent.children.remove(current.level, current);
+            current = parent;
+            parent = current.parent;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TopicSubscriptionIndex{filters=" + getFilterCount() + "}";
+    }
+}
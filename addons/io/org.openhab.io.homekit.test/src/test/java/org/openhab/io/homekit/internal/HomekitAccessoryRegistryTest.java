@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.storage.Storage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.beowulfe.hap.HomekitAccessory;
+import com.beowulfe.hap.HomekitRoot;
+
+/**
+ * Tests the configuration index handling of {@link HomekitAccessoryRegistry}.
+ *
+ * @author agent - Initial contribution
+ */
+public class HomekitAccessoryRegistryTest {
+    private @Mock HomekitRoot bridge;
+    private @Mock Storage<String> storage;
+
+    private final Map<String, String> stored = new HashMap<>();
+    private HomekitAccessoryRegistry registry;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(storage.get(anyString())).thenAnswer(invocation -> stored.get(invocation.getArgument(0)));
+        when(storage.put(anyString(), anyString()))
+                .thenAnswer(invocation -> stored.put(invocation.getArgument(0), invocation.getArgument(1)));
+        registry = newRegistry();
+    }
+
+    private HomekitAccessoryRegistry newRegistry() {
+        HomekitAccessoryRegistry registry = new HomekitAccessoryRegistry();
+        registry.setStorage(storage);
+        registry.setBridge(bridge);
+        return registry;
+    }
+
+    private static HomekitAccessory accessory(int id, String label) {
+        HomekitAccessory accessory = mock(HomekitAccessory.class);
+        when(accessory.getId()).thenReturn(id);
+        when(accessory.getLabel()).thenReturn(label);
+        return accessory;
+    }
+
+    private int configurationIndex() {
+        return Integer.parseInt(stored.get("configurationIndex"));
+    }
+
+    @Test
+    public void topologyHashIgnoresOrder() {
+        registry.addRootDevice(accessory(2, "Kitchen"));
+        registry.addRootDevice(accessory(3, "Bath"));
+
+        HomekitAccessoryRegistry other = newRegistry();
+        other.addRootDevice(accessory(3, "Bath"));
+        other.addRootDevice(accessory(2, "Kitchen"));
+
+        assertThat(other.topologyHash(), is(registry.topologyHash()));
+    }
+
+    @Test
+    public void topologyHashCoversIdsAndLabels() {
+        registry.addRootDevice(accessory(2, "Kitchen"));
+        final int hash = registry.topologyHash();
+
+        HomekitAccessoryRegistry renamed = newRegistry();
+        renamed.addRootDevice(accessory(2, "Living room"));
+        assertThat(renamed.topologyHash(), not(hash));
+
+        HomekitAccessoryRegistry otherId = newRegistry();
+        otherId.addRootDevice(accessory(4, "Kitchen"));
+        assertThat(otherId.topologyHash(), not(hash));
+    }
+
+    @Test
+    public void unchangedTopologyKeepsIndex() throws IOException {
+        registry.addRootDevice(accessory(2, "Kitchen"));
+        assertTrue(registry.updateConfigurationIndex());
+        final int index = configurationIndex();
+
+        assertFalse(registry.updateConfigurationIndex());
+        assertThat(configurationIndex(), is(index));
+        verify(bridge, times(2)).setConfigurationIndex(index);
+
+        // The same accessories after a restart
+        HomekitAccessoryRegistry restarted = newRegistry();
+        restarted.addRootDevice(accessory(2, "Kitchen"));
+        assertFalse(restarted.updateConfigurationIndex());
+        assertThat(configurationIndex(), is(index));
+    }
+
+    @Test
+    public void changedTopologyIncreasesIndexOnce() throws IOException {
+        registry.addRootDevice(accessory(2, "Kitchen"));
+        registry.updateConfigurationIndex();
+        final int index = configurationIndex();
+
+        registry.addRootDevice(accessory(3, "Bath"));
+        assertTrue(registry.updateConfigurationIndex());
+        assertFalse(registry.updateConfigurationIndex());
+        assertThat(configurationIndex(), is(index + 1));
+        verify(bridge, times(2)).setConfigurationIndex(index + 1);
+    }
+
+    @Test
+    public void indexWrapsAround() throws IOException {
+        stored.put("configurationIndex", Integer.toString(Integer.MAX_VALUE));
+        registry.addRootDevice(accessory(2, "Kitchen"));
+        assertTrue(registry.updateConfigurationIndex());
+        assertThat(configurationIndex(), is(1));
+        verify(bridge).setConfigurationIndex(1);
+    }
+
+    @Test
+    public void noIndexWithoutBridge() {
+        HomekitAccessoryRegistry registry = new HomekitAccessoryRegistry();
+        registry.setStorage(storage);
+        registry.addRootDevice(accessory(2, "Kitchen"));
+        assertFalse(registry.updateConfigurationIndex());
+        assertTrue(stored.isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.items.GenericItem;
+import org.eclipse.smarthome.core.items.StateChangeListener;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.beowulfe.hap.HomekitCharacteristicChangeCallback;
+
+/**
+ * Tests the rate limiting of {@link HomekitAccessoryUpdater}.
+ *
+ * @author agent - Initial contribution
+ */
+public class HomekitAccessoryUpdaterTest {
+    private static final int INTERVAL = 60000;
+
+    private @Mock ScheduledExecutorService scheduler;
+    private @Mock GenericItem item;
+    private @Mock HomekitCharacteristicChangeCallback callback;
+
+    private HomekitAccessoryUpdater updater;
+    private StateChangeListener listener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        updater = new HomekitAccessoryUpdater(scheduler);
+        listener = subscribe(item, callback);
+    }
+
+    private StateChangeListener subscribe(GenericItem item, HomekitCharacteristicChangeCallback callback) {
+        updater.subscribe(item, callback);
+        ArgumentCaptor<StateChangeListener> captor = ArgumentCaptor.forClass(StateChangeListener.class);
+        verify(item).addStateChangeListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private void change(StateChangeListener listener, GenericItem item) {
+        listener.stateChanged(item, OnOffType.OFF, OnOffType.ON);
+    }
+
+    private Runnable scheduledNotification() {
+        ArgumentCaptor<Runnable> runnable = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        verify(scheduler).schedule(runnable.capture(), delay.capture(), eq(TimeUnit.NANOSECONDS));
+        assertTrue(delay.getValue() <= TimeUnit.MILLISECONDS.toNanos(INTERVAL));
+        return runnable.getValue();
+    }
+
+    @Test
+    public void noLimitByDefault() {
+        change(listener, item);
+        change(listener, item);
+        change(listener, item);
+
+        verify(callback, times(3)).changed();
+        verifyZeroInteractions(scheduler);
+        assertThat(updater.getSentNotifications(), is(3L));
+    }
+
+    @Test
+    public void changesWithinIntervalAreNotifiedOnceAtItsEnd() {
+        updater.setNotificationInterval(INTERVAL);
+
+        // Leading edge
+        change(listener, item);
+        verify(callback).changed();
+        verifyZeroInteractions(scheduler);
+
+        change(listener, item);
+        change(listener, item);
+        verify(callback).changed();
+        assertThat(updater.getSuppressedNotifications(), is(1L));
+
+        // End of the interval
+        scheduledNotification().run();
+        verify(callback, times(2)).changed();
+        assertThat(updater.getSentNotifications(), is(2L));
+    }
+
+    @Test
+    public void changeAfterIntervalIsNotifiedImmediately() throws InterruptedException {
+        updater.setNotificationInterval(1);
+
+        change(listener, item);
+        Thread.sleep(10);
+        change(listener, item);
+
+        verify(callback, times(2)).changed();
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void limitIsPerCharacteristic() {
+        updater.setNotificationInterval(INTERVAL);
+        GenericItem otherItem = mock(GenericItem.class);
+        HomekitCharacteristicChangeCallback otherCallback = mock(HomekitCharacteristicChangeCallback.class);
+        StateChangeListener otherListener = subscribe(otherItem, otherCallback);
+
+        change(listener, item);
+        change(otherListener, otherItem);
+
+        verify(callback).changed();
+        verify(otherCallback).changed();
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void unsubscribedCharacteristicIsNotNotified() {
+        updater.setNotificationInterval(INTERVAL);
+        change(listener, item);
+        change(listener, item);
+
+        updater.unsubscribe(item);
+        scheduledNotification().run();
+        verify(callback).changed();
+    }
+}
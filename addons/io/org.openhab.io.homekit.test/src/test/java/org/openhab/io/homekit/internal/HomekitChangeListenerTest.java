@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.storage.Storage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.beowulfe.hap.HomekitRoot;
+
+/**
+ * Tests that {@link HomekitChangeListener} applies item registry changes as a minimal delta.
+ *
+ * @author agent - Initial contribution
+ */
+public class HomekitChangeListenerTest {
+    private @Mock ItemRegistry itemRegistry;
+    private @Mock HomekitRoot bridge;
+    private @Mock Storage<String> storage;
+
+    private final Map<String, String> stored = new HashMap<>();
+    private HomekitChangeListener listener;
+    private int initialIndex;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(storage.get(anyString())).thenAnswer(invocation -> stored.get(invocation.getArgument(0)));
+        when(storage.put(anyString(), anyString()))
+                .thenAnswer(invocation -> stored.put(invocation.getArgument(0), invocation.getArgument(1)));
+
+        listener = new HomekitChangeListener();
+        listener.setStorage(storage);
+        listener.setBridge(bridge);
+        listener.setItemRegistry(itemRegistry);
+
+        listener.added(light("kitchen", "Kitchen"));
+        listener.added(light("bath", "Bath"));
+        verify(bridge, times(2)).addAccessory(any());
+        initialIndex = configurationIndex();
+    }
+
+    private static SwitchItem light(String name, String label) {
+        SwitchItem item = new SwitchItem(name);
+        item.setLabel(label);
+        item.addTag("Lighting");
+        return item;
+    }
+
+    private int configurationIndex() {
+        return Integer.parseInt(stored.get("configurationIndex"));
+    }
+
+    @Test
+    public void unchangedItemKeepsAccessory() {
+        listener.updated(light("kitchen", "Kitchen"), light("kitchen", "Kitchen"));
+
+        verify(bridge, never()).removeAccessory(any());
+        verify(bridge, times(2)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex));
+    }
+
+    @Test
+    public void reloadWithUnchangedItemsKeepsAccessories() {
+        when(itemRegistry.getAll()).thenReturn(Arrays.asList(light("kitchen", "Kitchen"), light("bath", "Bath")));
+        listener.allItemsChanged(Arrays.asList("kitchen", "bath"));
+
+        verify(bridge, never()).removeAccessory(any());
+        verify(bridge, times(2)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex));
+    }
+
+    @Test
+    public void untaggedItemIsIgnored() {
+        listener.added(new SwitchItem("untagged"));
+
+        verify(bridge, times(2)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex));
+    }
+
+    @Test
+    public void addedItemIncreasesIndexOnce() {
+        listener.added(light("hall", "Hall"));
+
+        verify(bridge, never()).removeAccessory(any());
+        verify(bridge, times(3)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex + 1));
+    }
+
+    @Test
+    public void removedItemIncreasesIndexOnce() {
+        listener.removed(light("bath", "Bath"));
+
+        verify(bridge, times(1)).removeAccessory(any());
+        verify(bridge, times(2)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex + 1));
+    }
+
+    @Test
+    public void changedItemIncreasesIndexOnce() {
+        listener.updated(light("kitchen", "Kitchen"), light("kitchen", "Kitchen table"));
+
+        verify(bridge, times(1)).removeAccessory(any());
+        verify(bridge, times(3)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex + 1));
+    }
+
+    @Test
+    public void reloadIsAppliedAsOneBatch() {
+        // kitchen changed, bath removed, hall added
+        Item[] items = { light("kitchen", "Kitchen table"), light("hall", "Hall") };
+        when(itemRegistry.getAll()).thenReturn(Arrays.asList(items));
+        listener.allItemsChanged(Arrays.asList("kitchen", "bath"));
+
+        verify(bridge, times(2)).removeAccessory(any());
+        verify(bridge, times(4)).addAccessory(any());
+        assertThat(configurationIndex(), is(initialIndex + 1));
+    }
+}
@@ -37,4 +37,15 @@ public interface Homekit {
      * @param allow boolean indicating whether or not to allow unauthenticated requests
      */
     void allowUnauthenticatedRequests(boolean allow);
+
+    /**
+     * Returns the number of characteristic change notifications sent to HomeKit clients.
+     */
+    long getSentNotifications();
+
+    /**
+     * Returns the number of characteristic changes that were not notified on their own,
+     * because a notification for the same characteristic was already pending.
+     */
+    long getSuppressedNotifications();
 }
@@ -12,14 +12,16 @@
  */
 package org.openhab.io.homekit.internal;
 
+import java.io.IOException;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
+import org.eclipse.smarthome.core.storage.Storage;
 import org.openhab.io.homekit.internal.accessories.GroupedAccessory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,47 +33,84 @@ import com.beowulfe.hap.HomekitRoot;
  * Stores the created HomekitAccessories. GroupedAccessories are also held here
  * in a pre-created pending state until all required characteristics are found.
  *
+ * <p>
+ * The registry keeps track of the accessory topology that is published by the bridge. If the topology
+ * changed, {@link #updateConfigurationIndex()} increases the Homekit configuration number, so that
+ * controllers fetch the accessory database again. The index and a hash of the published topology are
+ * stored, to also detect changes that happened while openHAB was not running.
+ *
  * @author Andy Lintner - Initial contribution
  */
 class HomekitAccessoryRegistry {
+    private static final String CONFIGURATION_INDEX = "configurationIndex";
+    private static final String CONFIGURATION_HASH = "configurationHash";
 
     private HomekitRoot bridge;
-    private final List<HomekitAccessory> createdAccessories = new LinkedList<>();
-    private final Set<Integer> createdIds = new HashSet<>();
+    private Storage<String> storage;
+    private final Map<Integer, HomekitAccessory> createdAccessories = new LinkedHashMap<>();
     private final Map<String, GroupedAccessory> pendingGroupedAccessories = new HashMap<>();
-    private final List<HomekitTaggedItem> pendingCharacteristics = new LinkedList<>();
+    private final List<HomekitTaggedItem> characteristics = new LinkedList<>();
 
     private final Logger logger = LoggerFactory.getLogger(HomekitAccessoryRegistry.class);
 
-    public void remove(HomekitTaggedItem taggedItem) {
-        Iterator<HomekitAccessory> i = createdAccessories.iterator();
-        while (i.hasNext()) {
-            HomekitAccessory accessory = i.next();
-            if (accessory.getId() == taggedItem.getId()) {
-                logger.debug("Removed accessory {}", accessory.getId());
-                bridge.removeAccessory(accessory);
-                i.remove();
+    /**
+     * Removes the accessory of a root device or forgets a characteristic.
+     *
+     * @return Returns true if a published accessory was removed
+     */
+    public synchronized boolean remove(HomekitTaggedItem taggedItem) {
+        final String itemName = taggedItem.getItem().getName();
+        if (taggedItem.isCharacteristic()) {
+            Iterator<HomekitTaggedItem> i = characteristics.iterator();
+            while (i.hasNext()) {
+                if (i.next().getItem().getName().equals(itemName)) {
+                    i.remove();
+                }
             }
         }
+        if (!taggedItem.isRootDevice()) {
+            return false;
+        }
+        pendingGroupedAccessories.remove(itemName);
+        HomekitAccessory accessory = createdAccessories.remove(taggedItem.getId());
+        if (accessory == null) {
+            return false;
+        }
+        if (bridge != null) {
+            bridge.removeAccessory(accessory);
+        }
+        logger.debug("Removed accessory {}", accessory.getId());
+        return true;
     }
 
     public synchronized void clear() {
-        while (!createdAccessories.isEmpty()) {
-            bridge.removeAccessory(createdAccessories.remove(0));
+        if (bridge != null) {
+            createdAccessories.values().forEach(accessory -> bridge.removeAccessory(accessory));
         }
-        createdIds.clear();
+        createdAccessories.clear();
+        pendingGroupedAccessories.clear();
+        characteristics.clear();
     }
 
     public synchronized void setBridge(HomekitRoot bridge) {
         this.bridge = bridge;
-        createdAccessories.forEach(accessory -> bridge.addAccessory(accessory));
+        if (bridge != null) {
+            createdAccessories.values().forEach(accessory -> bridge.addAccessory(accessory));
+        }
+    }
+
+    /**
+     * Sets the storage for the configuration index and the hash of the published topology.
+     */
+    public synchronized void setStorage(Storage<String> storage) {
+        this.storage = storage;
     }
 
     public synchronized void addRootDevice(HomekitAccessory accessory) {
         if (accessory instanceof GroupedAccessory) {
             GroupedAccessory groupedAccessory = (GroupedAccessory) accessory;
             pendingGroupedAccessories.put(groupedAccessory.getGroupName(), groupedAccessory);
-            for (HomekitTaggedItem characteristic : pendingCharacteristics) {
+            for (HomekitTaggedItem characteristic : characteristics) {
                 if (characteristic.getItem().getGroupNames().contains(groupedAccessory.getGroupName())) {
                     addCharacteristicToGroup(groupedAccessory.getGroupName(), characteristic);
                 }
@@ -82,6 +121,8 @@ class HomekitAccessoryRegistry {
     }
 
     public synchronized void addCharacteristic(HomekitTaggedItem item) {
+        // Characteristics are kept, in case the grouped accessory is created again
+        characteristics.add(item);
         for (String group : item.getItem().getGroupNames()) {
             if (pendingGroupedAccessories.containsKey(group)) {
                 addCharacteristicToGroup(group, item);
@@ -89,12 +130,86 @@ class HomekitAccessoryRegistry {
                 return;
             }
         }
-        pendingCharacteristics.add(item);
-        logger.debug("Stored {} until group is ready", item.getItem().getName());
+        // A characteristic of an already published group is picked up when the group is created again
+        if (item.getItem().getGroupNames().stream().noneMatch(this::isPublishedGroup)) {
+            logger.debug("Stored {} until group is ready", item.getItem().getName());
+        }
+    }
+
+    private boolean isPublishedGroup(String group) {
+        return createdAccessories.values().stream().anyMatch(accessory -> accessory instanceof GroupedAccessory
+                && group.equals(((GroupedAccessory) accessory).getGroupName()));
+    }
+
+    /**
+     * Returns the number of published accessories.
+     */
+    public synchronized int size() {
+        return createdAccessories.size();
+    }
+
+    /**
+     * Increases the configuration index of the bridge, if the published accessories differ from the last
+     * published topology. Does nothing without a bridge or storage.
+     *
+     * @return Returns true if the configuration index was increased
+     */
+    public synchronized boolean updateConfigurationIndex() {
+        if (bridge == null || storage == null) {
+            return false;
+        }
+        final String hash = Integer.toHexString(topologyHash());
+        int index = parseIndex(storage.get(CONFIGURATION_INDEX));
+        final boolean changed = !hash.equals(storage.get(CONFIGURATION_HASH));
+        if (changed) {
+            // The index is a 32 bit value, starting at 1
+            index = index == Integer.MAX_VALUE ? 1 : index + 1;
+            storage.put(CONFIGURATION_INDEX, Integer.toString(index));
+            storage.put(CONFIGURATION_HASH, hash);
+            logger.debug("Homekit accessory topology changed, configuration index is now {}", index);
+        }
+        try {
+            bridge.setConfigurationIndex(index);
+        } catch (IOException e) {
+            logger.warn("Could not advertise the Homekit configuration index {}: {}", index, e.getMessage());
+        }
+        return changed;
+    }
+
+    /**
+     * The hash covers everything a controller caches about the bridge: the accessory IDs, their labels
+     * and their kind. The items that are backing a grouped accessory are not part of it.
+     */
+    synchronized int topologyHash() {
+        int hash = 1;
+        for (HomekitAccessory accessory : sortedAccessories()) {
+            hash = 31 * hash + accessory.getId();
+            hash = 31 * hash + String.valueOf(accessory.getLabel()).hashCode();
+            hash = 31 * hash + accessory.getClass().getName().hashCode();
+        }
+        return hash;
+    }
+
+    private List<HomekitAccessory> sortedAccessories() {
+        List<HomekitAccessory> accessories = new LinkedList<>(createdAccessories.values());
+        accessories.sort(Comparator.comparingInt(HomekitAccessory::getId));
+        return accessories;
+    }
+
+    private static int parseIndex(String value) {
+        try {
+            return value == null ? 1 : Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
     }
 
     private void addCharacteristicToGroup(String group, HomekitTaggedItem item) {
         GroupedAccessory accessory = pendingGroupedAccessories.get(group);
+        if (accessory == null) {
+            // Already complete
+            return;
+        }
         accessory.addCharacteristic(item);
         if (accessory.isComplete()) {
             pendingGroupedAccessories.remove(group);
@@ -103,9 +218,11 @@ class HomekitAccessoryRegistry {
     }
 
     private void doAddDevice(HomekitAccessory accessory) {
-        createdAccessories.add(accessory);
-        createdIds.add(accessory.getId());
+        HomekitAccessory previous = createdAccessories.put(accessory.getId(), accessory);
         if (bridge != null) {
+            if (previous != null) {
+                bridge.removeAccessory(previous);
+            }
             bridge.addAccessory(accessory);
         }
         logger.debug("Added accessory {}", accessory.getId());
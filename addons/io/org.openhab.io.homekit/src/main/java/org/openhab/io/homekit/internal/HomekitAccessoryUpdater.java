@@ -14,7 +14,11 @@ package org.openhab.io.homekit.internal;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.StateChangeListener;
@@ -30,12 +34,40 @@ import com.beowulfe.hap.HomekitCharacteristicChangeCallback;
  * Homekit library takes care of insuring only a single subscription exists for
  * each accessory.
  *
+ * <p>
+ * Notifications can be rate limited per characteristic: The first change is notified immediately. Changes within
+ * the notification interval after that are notified once, at the end of the interval. The Homekit library reads the
+ * current value when it notifies a client, so the last value wins.
+ *
  * @author Andy Lintner - Initial contribution
  */
 public class HomekitAccessoryUpdater {
+    /** The default minimum interval between two notifications of a characteristic in milliseconds: no limit */
+    public static final int DEFAULT_NOTIFICATION_INTERVAL = 0;
 
     private Logger logger = LoggerFactory.getLogger(HomekitAccessoryUpdater.class);
     private final ConcurrentMap<ItemKey, Subscription> subscriptionsByName = new ConcurrentHashMap<>();
+    private final LongAdder sentNotifications = new LongAdder();
+    private final LongAdder suppressedNotifications = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+    private volatile int notificationInterval = DEFAULT_NOTIFICATION_INTERVAL;
+
+    public HomekitAccessoryUpdater() {
+        this(ThreadPoolManager.getScheduledPool("homekit"));
+    }
+
+    public HomekitAccessoryUpdater(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Sets the minimum interval between two notifications of the same characteristic.
+     *
+     * @param notificationInterval An interval in milliseconds. 0 notifies every change immediately.
+     */
+    public void setNotificationInterval(int notificationInterval) {
+        this.notificationInterval = Math.max(0, notificationInterval);
+    }
 
     public void subscribe(GenericItem item, HomekitCharacteristicChangeCallback callback) {
         subscribe(item, null, callback);
@@ -54,7 +86,7 @@ public class HomekitAccessoryUpdater {
                 logger.error("Received duplicate subscription on {}", item.getName());
                 unsubscribe(item, key);
             }
-            Subscription subscription = (changedItem, oldState, newState) -> callback.changed();
+            Subscription subscription = new Subscription(callback);
             item.addStateChangeListener(subscription);
             return subscription;
         });
@@ -70,18 +102,111 @@ public class HomekitAccessoryUpdater {
         }
         subscriptionsByName.computeIfPresent(new ItemKey(item, key), (k, v) -> {
             item.removeStateChangeListener(v);
+            v.active = false;
             return null;
         });
     }
 
-    @FunctionalInterface
-    private static interface Subscription extends StateChangeListener {
+    /**
+     * Moves all subscriptions of an item to the instance that replaced it in the item registry.
+     * The accessories of an updated item can be kept that way, instead of being created again.
+     *
+     * @param oldItem The item that is no longer part of the item registry
+     * @param newItem The item with the same name that replaced it
+     */
+    public void itemReplaced(GenericItem oldItem, GenericItem newItem) {
+        if (oldItem == newItem) {
+            return;
+        }
+        for (ItemKey itemKey : subscriptionsByName.keySet()) {
+            if (itemKey.item != oldItem) {
+                continue;
+            }
+            Subscription subscription = subscriptionsByName.remove(itemKey);
+            if (subscription != null) {
+                oldItem.removeStateChangeListener(subscription);
+                newItem.addStateChangeListener(subscription);
+                subscriptionsByName.put(new ItemKey(newItem, itemKey.key), subscription);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of characteristic change notifications that were passed to the Homekit library.
+     */
+    public long getSentNotifications() {
+        return sentNotifications.sum();
+    }
+
+    /**
+     * Returns the number of characteristic changes that were covered by an already pending notification.
+     */
+    public long getSuppressedNotifications() {
+        return suppressedNotifications.sum();
+    }
+
+    private void changed(Subscription subscription) {
+        final long interval = TimeUnit.MILLISECONDS.toNanos(notificationInterval);
+        if (interval > 0) {
+            synchronized (subscription) {
+                if (subscription.pending) {
+                    suppressedNotifications.increment();
+                    return;
+                }
+                final long now = System.nanoTime();
+                final long remaining = subscription.lastNotification + interval - now;
+                if (subscription.notified && remaining > 0) {
+                    // Notify once, at the end of the interval
+                    subscription.pending = true;
+                    scheduler.schedule(() -> pendingChanged(subscription), remaining, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                subscription.notified = true;
+                subscription.lastNotification = now;
+            }
+        }
+        sendNotification(subscription);
+    }
+
+    private void pendingChanged(Subscription subscription) {
+        synchronized (subscription) {
+            subscription.pending = false;
+            subscription.lastNotification = System.nanoTime();
+        }
+        sendNotification(subscription);
+    }
+
+    private void sendNotification(Subscription subscription) {
+        if (!subscription.active) {
+            return;
+        }
+        try {
+            subscription.callback.changed();
+            sentNotifications.increment();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to notify Homekit clients about a changed characteristic", e);
+        }
+    }
+
+    private class Subscription implements StateChangeListener {
+        final HomekitCharacteristicChangeCallback callback;
+        volatile boolean active = true;
+        // Rate limiting, guarded by the subscription
+        boolean notified;
+        long lastNotification;
+        boolean pending;
+
+        Subscription(HomekitCharacteristicChangeCallback callback) {
+            this.callback = callback;
+        }
 
         @Override
-        void stateChanged(Item item, State oldState, State newState);
+        public void stateChanged(Item item, State oldState, State newState) {
+            changed(this);
+        }
 
         @Override
-        default void stateUpdated(Item item, State state) {
+        public void stateUpdated(Item item, State state) {
             // Do nothing on non-change update
         }
     }
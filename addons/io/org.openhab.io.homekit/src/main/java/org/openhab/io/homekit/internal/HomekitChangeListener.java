@@ -12,11 +12,22 @@
  */
 package org.openhab.io.homekit.internal;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemRegistry;
 import org.eclipse.smarthome.core.items.ItemRegistryChangeListener;
+import org.eclipse.smarthome.core.storage.Storage;
 import org.openhab.io.homekit.internal.accessories.HomekitAccessoryFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +38,14 @@ import com.beowulfe.hap.HomekitRoot;
  * Listens for changes to the item registry. When changes are detected, check
  * for Homekit tags and, if present, add the items to the HomekitAccessoryRegistry.
  *
+ * <p>
+ * Every change of the item registry is applied as a delta: The Homekit relevant properties of an item
+ * (device or characteristic type, item type, label and the groups of a characteristic) are compared with the already applied ones. Only
+ * accessories with changed properties are created again. The Homekit library drops all controller
+ * connections for every added or removed accessory, so unchanged accessories are kept and their
+ * subscriptions are moved to the new item instance. The configuration index is only increased if the
+ * published topology changed.
+ *
  * @author Andy Lintner - Initial contribution
  */
 public class HomekitChangeListener implements ItemRegistryChangeListener {
@@ -35,52 +54,75 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     private HomekitAccessoryUpdater updater = new HomekitAccessoryUpdater();
     private Logger logger = LoggerFactory.getLogger(HomekitChangeListener.class);
     private final HomekitAccessoryRegistry accessoryRegistry = new HomekitAccessoryRegistry();
+    private final Map<String, AppliedItem> appliedItems = new LinkedHashMap<>();
     private HomekitSettings settings;
 
-    @Override
-    public synchronized void added(Item item) {
-        HomekitTaggedItem taggedItem = new HomekitTaggedItem(item, itemRegistry);
-        if (taggedItem.isTagged()) {
-            if (taggedItem.isRootDevice()) {
-                createRootDevice(taggedItem);
-            }
-            if (taggedItem.isCharacteristic()) {
-                createCharacteristic(taggedItem);
-            }
+    /**
+     * A tagged item together with the Homekit relevant properties it was applied with.
+     */
+    private static class AppliedItem {
+        final HomekitTaggedItem taggedItem;
+        final String signature;
+
+        AppliedItem(HomekitTaggedItem taggedItem, String signature) {
+            this.taggedItem = taggedItem;
+            this.signature = signature;
         }
     }
 
     @Override
-    public void allItemsChanged(Collection<String> oldItemNames) {
-        clearAccessories();
+    public void added(Item item) {
+        applyChanges(Collections.emptySet(), Collections.singleton(item));
     }
 
     @Override
-    public synchronized void removed(Item item) {
-        HomekitTaggedItem taggedItem = new HomekitTaggedItem(item, itemRegistry);
-        if (taggedItem.isTagged()) {
-            accessoryRegistry.remove(taggedItem);
+    public void allItemsChanged(Collection<String> oldItemNames) {
+        if (itemRegistry == null) {
+            clearAccessories();
+            return;
+        }
+        Collection<Item> items = itemRegistry.getAll();
+        Set<String> removedItemNames = new HashSet<>(oldItemNames);
+        synchronized (this) {
+            removedItemNames.addAll(appliedItems.keySet());
         }
+        items.forEach(item -> removedItemNames.remove(item.getName()));
+        applyChanges(removedItemNames, items);
+    }
+
+    @Override
+    public void removed(Item item) {
+        applyChanges(Collections.singleton(item.getName()), Collections.emptySet());
     }
 
     @Override
     public void updated(Item oldElement, Item element) {
-        removed(oldElement);
-        added(element);
+        applyChanges(Collections.emptySet(), Collections.singleton(element));
     }
 
     public synchronized void clearAccessories() {
         accessoryRegistry.clear();
+        appliedItems.clear();
     }
 
     public synchronized void setBridge(HomekitRoot bridge) {
         accessoryRegistry.setBridge(bridge);
+        accessoryRegistry.updateConfigurationIndex();
+    }
+
+    /**
+     * Sets the storage for the Homekit configuration index. Must be set before the bridge.
+     */
+    public void setStorage(Storage<String> storage) {
+        accessoryRegistry.setStorage(storage);
     }
 
     public synchronized void setItemRegistry(ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
-        itemRegistry.addRegistryChangeListener(this);
-        itemRegistry.getAll().forEach(item -> added(item));
+        if (itemRegistry != null) {
+            itemRegistry.addRegistryChangeListener(this);
+            applyChanges(Collections.emptySet(), itemRegistry.getAll());
+        }
     }
 
     public void setUpdater(HomekitAccessoryUpdater updater) {
@@ -89,6 +131,11 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
 
     public void setSettings(HomekitSettings settings) {
         this.settings = settings;
+        updater.setNotificationInterval(settings.getNotificationInterval());
+    }
+
+    public HomekitAccessoryUpdater getUpdater() {
+        return updater;
     }
 
     public void stop() {
@@ -97,6 +144,110 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
         }
     }
 
+    /**
+     * Applies removed and added or updated items as one batch.
+     *
+     * @param removedItemNames Names of items that are no longer in the item registry
+     * @param items Added or updated items
+     */
+    private synchronized void applyChanges(Collection<String> removedItemNames, Collection<Item> items) {
+        final long start = System.nanoTime();
+        List<HomekitTaggedItem> removals = new ArrayList<>();
+        List<HomekitTaggedItem> additions = new ArrayList<>();
+        // Grouped accessories that need to be created again, because one of their characteristics changed
+        Set<String> changedGroups = new TreeSet<>();
+        int kept = 0;
+
+        for (String itemName : removedItemNames) {
+            AppliedItem applied = appliedItems.remove(itemName);
+            if (applied != null) {
+                removals.add(applied.taggedItem);
+                changedGroups.addAll(characteristicGroups(applied.taggedItem));
+            }
+        }
+
+        for (Item item : items) {
+            HomekitTaggedItem taggedItem = new HomekitTaggedItem(item, itemRegistry);
+            String signature = taggedItem.isTagged() ? signature(taggedItem) : null;
+            AppliedItem applied = appliedItems.get(item.getName());
+            if (applied == null && signature == null) {
+                continue;
+            }
+            if (applied != null && applied.signature.equals(signature)) {
+                // Unchanged: The accessory stays, only the item instance is replaced
+                if (applied.taggedItem.getItem() instanceof GenericItem && item instanceof GenericItem) {
+                    updater.itemReplaced((GenericItem) applied.taggedItem.getItem(), (GenericItem) item);
+                }
+                appliedItems.put(item.getName(), new AppliedItem(taggedItem, signature));
+                ++kept;
+                continue;
+            }
+            if (applied != null) {
+                removals.add(applied.taggedItem);
+                changedGroups.addAll(characteristicGroups(applied.taggedItem));
+                appliedItems.remove(item.getName());
+            }
+            if (signature != null) {
+                additions.add(taggedItem);
+                changedGroups.addAll(characteristicGroups(taggedItem));
+                appliedItems.put(item.getName(), new AppliedItem(taggedItem, signature));
+            }
+        }
+
+        // Create grouped accessories of changed characteristics again, if the group itself did not change
+        for (String groupName : changedGroups) {
+            AppliedItem group = appliedItems.get(groupName);
+            if (group != null && group.taggedItem.isRootDevice() && !additions.contains(group.taggedItem)) {
+                removals.add(group.taggedItem);
+                additions.add(group.taggedItem);
+            }
+        }
+
+        if (removals.isEmpty() && additions.isEmpty()) {
+            return;
+        }
+
+        int removed = 0;
+        for (HomekitTaggedItem taggedItem : removals) {
+            if (accessoryRegistry.remove(taggedItem)) {
+                ++removed;
+            }
+        }
+        for (HomekitTaggedItem taggedItem : additions) {
+            if (taggedItem.isRootDevice()) {
+                createRootDevice(taggedItem);
+            }
+            if (taggedItem.isCharacteristic()) {
+                createCharacteristic(taggedItem);
+            }
+        }
+        final boolean topologyChanged = accessoryRegistry.updateConfigurationIndex();
+
+        logger.debug(
+                "Applied Homekit changes in {} ms: {} accessories removed, {} items added, {} items kept, {} accessories published, topology changed: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), removed, additions.size(), kept,
+                accessoryRegistry.size(), topologyChanged);
+    }
+
+    /**
+     * Returns the Homekit relevant properties of a tagged item. Accessories of items with equal signatures
+     * do not need to be created again.
+     */
+    private static String signature(HomekitTaggedItem taggedItem) {
+        Item item = taggedItem.getItem();
+        StringBuilder b = new StringBuilder();
+        b.append(item.getType()).append('|').append(item.getLabel()).append('|').append(taggedItem.getDeviceType())
+                .append('|').append(taggedItem.getCharacteristicType());
+        if (taggedItem.isCharacteristic()) {
+            b.append('|').append(new TreeSet<>(item.getGroupNames()));
+        }
+        return b.toString();
+    }
+
+    private static Collection<String> characteristicGroups(HomekitTaggedItem taggedItem) {
+        return taggedItem.isCharacteristic() ? taggedItem.getItem().getGroupNames() : Collections.emptySet();
+    }
+
     private void createRootDevice(HomekitTaggedItem taggedItem) {
         try {
             logger.debug("Adding homekit device {}", taggedItem.getItem().getName());
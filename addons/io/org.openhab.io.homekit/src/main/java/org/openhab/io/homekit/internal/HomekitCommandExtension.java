@@ -35,6 +35,7 @@ public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
 
     private static final String SUBCMD_CLEAR_PAIRINGS = "clearPairings";
     private static final String SUBCMD_ALLOW_UNAUTHENTICATED = "allowUnauthenticated";
+    private static final String SUBCMD_NOTIFICATIONS = "notifications";
 
     private final Logger logger = LoggerFactory.getLogger(HomekitCommandExtension.class);
     private StorageService storageService;
@@ -62,6 +63,11 @@ public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
                     }
                     break;
 
+                case SUBCMD_NOTIFICATIONS:
+                    console.println("Sent notifications: " + homekit.getSentNotifications());
+                    console.println("Suppressed notifications: " + homekit.getSuppressedNotifications());
+                    break;
+
                 default:
                     console.println("Unknown command '" + subCommand + "'");
                     printUsage(console);
@@ -75,7 +81,9 @@ public class HomekitCommandExtension extends AbstractConsoleCommandExtension {
         return Arrays.asList(
                 new String[] { buildCommandUsage(SUBCMD_CLEAR_PAIRINGS, "removes all pairings with Homekit clients"),
                         buildCommandUsage(SUBCMD_ALLOW_UNAUTHENTICATED + " <boolean>",
-                                "enables or disables unauthenticated access to facilitate debugging") });
+                                "enables or disables unauthenticated access to facilitate debugging"),
+                        buildCommandUsage(SUBCMD_NOTIFICATIONS,
+                                "shows the number of sent and suppressed characteristic change notifications") });
     }
 
     @Reference
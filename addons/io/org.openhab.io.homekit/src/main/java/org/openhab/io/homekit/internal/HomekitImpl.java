@@ -122,11 +122,23 @@ public class HomekitImpl implements Homekit {
         }
     }
 
+    @Override
+    public long getSentNotifications() {
+        return changeListener.getUpdater().getSentNotifications();
+    }
+
+    @Override
+    public long getSuppressedNotifications() {
+        return changeListener.getUpdater().getSuppressedNotifications();
+    }
+
     private void start() throws IOException, InvalidAlgorithmParameterException {
         homekit = new HomekitServer(settings.getNetworkInterface(), settings.getPort());
         bridge = homekit.createBridge(new HomekitAuthInfoImpl(storageService, settings.getPin()), settings.getName(),
                 settings.getManufacturer(), settings.getModel(), settings.getSerialNumber());
-        bridge.start();
+        // Accessories are added before the bridge is started, to advertise them with the right configuration index
+        changeListener.setStorage(storageService.getStorage("homekit"));
         changeListener.setBridge(bridge);
+        bridge.start();
     }
 }
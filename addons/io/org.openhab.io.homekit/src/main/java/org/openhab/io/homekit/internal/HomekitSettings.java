@@ -42,6 +42,7 @@ public class HomekitSettings {
     private String thermostatCoolMode = "CoolOn";
     private String thermostatAutoMode = "Auto";
     private String thermostatOffMode = "Off";
+    private int notificationInterval = HomekitAccessoryUpdater.DEFAULT_NOTIFICATION_INTERVAL;
     private InetAddress networkInterface;
 
     private final Logger logger = LoggerFactory.getLogger(HomekitSettings.class);
@@ -78,6 +79,10 @@ public class HomekitSettings {
         if (maximumTemperature != null) {
             this.maximumTemperature = Double.parseDouble(maximumTemperature.toString());
         }
+        Object notificationInterval = properties.get("notificationInterval");
+        if (notificationInterval != null) {
+            this.notificationInterval = Integer.parseInt(notificationInterval.toString());
+        }
         this.thermostatHeatMode = (String) properties.get("thermostatHeatMode");
         this.thermostatCoolMode = (String) properties.get("thermostatCoolMode");
         this.thermostatAutoMode = (String) properties.get("thermostatAutoMode");
@@ -136,6 +141,13 @@ public class HomekitSettings {
         return minimumTemperature;
     }
 
+    /**
+     * Returns the minimum interval between two change notifications of a characteristic in milliseconds.
+     */
+    public int getNotificationInterval() {
+        return notificationInterval;
+    }
+
     public String getThermostatHeatMode() {
         return thermostatHeatMode;
     }
@@ -161,6 +173,7 @@ public class HomekitSettings {
         result = prime * result + (int) (temp ^ (temp >>> 32));
         temp = Double.doubleToLongBits(minimumTemperature);
         result = prime * result + (int) (temp ^ (temp >>> 32));
+        result = prime * result + notificationInterval;
         result = prime * result + ((pin == null) ? 0 : pin.hashCode());
         result = prime * result + port;
         result = prime * result + ((thermostatAutoMode == null) ? 0 : thermostatAutoMode.hashCode());
@@ -189,6 +202,9 @@ public class HomekitSettings {
         if (Double.doubleToLongBits(minimumTemperature) != Double.doubleToLongBits(other.minimumTemperature)) {
             return false;
         }
+        if (notificationInterval != other.notificationInterval) {
+            return false;
+        }
         if (pin == null) {
             if (other.pin != null) {
                 return false;
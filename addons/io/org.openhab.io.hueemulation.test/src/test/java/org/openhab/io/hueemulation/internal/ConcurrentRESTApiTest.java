@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.StringWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openhab.io.hueemulation.internal.RESTApi.HttpMethod;
+import org.openhab.io.hueemulation.internal.dto.HueDataStore;
+import org.openhab.io.hueemulation.internal.dto.HueGroup;
+import org.openhab.io.hueemulation.internal.dto.HueUserAuth;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Drives many REST API clients against a {@link HueDataStore} that is changed by the item registry at the same time.
+ *
+ * @author agent - Initial contribution
+ */
+public class ConcurrentRESTApiTest {
+    private static final int ITEMS = 100;
+    private static final int CLIENTS = 8;
+
+    private HueDataStore ds;
+    private LightItems lightItems;
+    private RESTApi restAPI;
+    private List<Item> items = new ArrayList<>();
+
+    @Mock
+    private ItemRegistry itemRegistry;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        for (int i = 0; i < ITEMS; ++i) {
+            SwitchItem item = new SwitchItem("switch" + i);
+            item.setCategory("Light");
+            items.add(item);
+        }
+        GroupItem group = new GroupItem("group", new SwitchItem("groupSwitch"));
+        group.addMember(items.get(0));
+        group.setCategory("Light");
+        items.add(group);
+        when(itemRegistry.getItems()).thenReturn(items);
+
+        Gson gson = new GsonBuilder().registerTypeAdapter(HueGroup.class, new HueGroup.Serializer()).create();
+        ds = new HueDataStore();
+        ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
+        ResponseCache responseCache = new ResponseCache(ds, gson);
+        lightItems = new LightItems(ds, responseCache);
+        lightItems.setItemRegistry(itemRegistry);
+        lightItems.setFilterTags(Collections.emptySet(), Collections.emptySet(), Collections.emptySet());
+        restAPI = new RESTApi(ds, new UserManagement(ds), new ConfigManagement(ds), responseCache, gson);
+    }
+
+    @Test
+    public void readersDuringRegistryChanges() throws InterruptedException {
+        assertThat(ds.lights.size(), is(ITEMS + 1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS + 1);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong requests = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(CLIENTS + 1);
+
+        for (int c = 0; c < CLIENTS; ++c) {
+            final String path = c % 2 == 0 ? "/api/testuser/lights" : "/api/testuser";
+            executor.execute(() -> {
+                JsonParser parser = new JsonParser();
+                try {
+                    while (running.get()) {
+                        StringWriter out = new StringWriter();
+                        assertThat(restAPI.handle(HttpMethod.GET, "", out, Paths.get(path), false), is(200));
+                        JsonObject response = parser.parse(out.toString()).getAsJsonObject();
+                        JsonObject lights = path.endsWith("lights") ? response
+                                : response.getAsJsonObject("lights");
+                        // Refetching all items never exposes an empty store
+                        assertTrue(lights.size() >= ITEMS / 2);
+                        requests.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        executor.execute(() -> {
+            try {
+                for (int round = 0; round < 50; ++round) {
+                    for (int i = 0; i < ITEMS / 2; ++i) {
+                        Item item = items.get(i);
+                        lightItems.removed(item);
+                        lightItems.added(item);
+                        ((SwitchItem) items.get(ITEMS - 1 - i)).setState(round % 2 == 0 ? OnOffType.ON : OnOffType.OFF);
+                        lightItems.itemStateChanged(items.get(ITEMS - 1 - i).getName());
+                    }
+                    lightItems.fetchItems();
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            } finally {
+                running.set(false);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+        if (!errors.isEmpty()) {
+            throw new AssertionError("Concurrent request failed", errors.peek());
+        }
+        assertTrue(requests.get() > 0);
+        assertThat(ds.lights.size(), is(ITEMS + 1));
+        assertThat(ds.groups.get(0).lights.size(), is(ITEMS + 1));
+    }
+}
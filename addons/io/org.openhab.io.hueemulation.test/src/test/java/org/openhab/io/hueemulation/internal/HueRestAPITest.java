@@ -21,6 +21,11 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -36,9 +41,12 @@ import org.mockito.MockitoAnnotations;
 import org.openhab.io.hueemulation.internal.RESTApi.HttpMethod;
 import org.openhab.io.hueemulation.internal.dto.HueDataStore;
 import org.openhab.io.hueemulation.internal.dto.HueDevice;
+import org.openhab.io.hueemulation.internal.dto.HueGroup;
 import org.openhab.io.hueemulation.internal.dto.HueStateColorBulb;
 import org.openhab.io.hueemulation.internal.dto.HueStatePlug;
 import org.openhab.io.hueemulation.internal.dto.HueUserAuth;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 
@@ -48,6 +56,7 @@ import com.google.gson.Gson;
  * @author David Graeff - Initial contribution
  */
 public class HueRestAPITest {
+    private final Logger logger = LoggerFactory.getLogger(HueRestAPITest.class);
 
     private Gson gson;
     private HueDataStore ds;
@@ -114,6 +123,31 @@ public class HueRestAPITest {
         assertThat(ds.config.whitelist.get("testuser").name, is("user-label"));
     }
 
+    @Test
+    public void etag() throws IOException {
+        assertNull(restAPI.etag(Paths.get("/api/testuser/lights")));
+        ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
+
+        final String etag = restAPI.etag(Paths.get("/api/testuser/lights"));
+        assertNotNull(etag);
+        assertThat(restAPI.etag(Paths.get("/api/testuser/lights/1")), is(etag));
+        assertNull(restAPI.etag(Paths.get("/api/testuser/lights/99")));
+        assertNull(restAPI.etag(Paths.get("/api/testuser/lights/new")));
+        assertNull(restAPI.etag(Paths.get("/api/testuser/groups")));
+        assertThat(restAPI.etag(Paths.get("/api/testuser")), startsWith("W/"));
+
+        // Reading does not change the tag
+        StringWriter out = new StringWriter();
+        assertEquals(200, restAPI.handle(HttpMethod.GET, "", out, Paths.get("/api/testuser/lights"), false));
+        assertThat(restAPI.etag(Paths.get("/api/testuser/lights")), is(etag));
+
+        // A state change does
+        int result = restAPI.handle(HttpMethod.PUT, "{'on':true}", new StringWriter(),
+                Paths.get("/api/testuser/lights/1/state"), false);
+        assertEquals(200, result);
+        assertThat(restAPI.etag(Paths.get("/api/testuser/lights")), not(etag));
+    }
+
     @Test
     public void changeSwitchState() throws IOException {
         ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
@@ -187,4 +221,99 @@ public class HueRestAPITest {
         assertThat(((HueStateColorBulb) ds.lights.get(2).state).toHSBType().getSaturation().intValue(), is(88));
         assertThat(((HueStateColorBulb) ds.lights.get(2).state).toHSBType().getBrightness().intValue(), is(78));
     }
+
+    @Test
+    public void groupAction() throws IOException {
+        ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
+
+        // Group 0 contains all lights
+        final int groupSize = 5;
+        List<String> groupLights = new ArrayList<>();
+        for (int i = 0; i < groupSize; ++i) {
+            ds.lights.put(100 + i, new HueDevice(new SwitchItem("switch" + i), "switch" + i, DeviceType.SwitchType));
+            groupLights.add(String.valueOf(100 + i));
+        }
+        ds.groups.get(0).lights = groupLights;
+
+        StringWriter out = new StringWriter();
+        String body = "{'on':true}";
+        int result = restAPI.handle(HttpMethod.PUT, body, out, Paths.get("/api/testuser/groups/0/action"), false);
+        assertEquals(200, result);
+        assertThat(out.toString(), containsString("/groups/0/action/on"));
+        assertThat(out.toString(), not(containsString("error")));
+        for (int i = 0; i < groupSize; ++i) {
+            assertThat(((HueStatePlug) ds.lights.get(100 + i).state).on, is(true));
+        }
+        verify(eventPublisher, times(groupSize)).post(any());
+    }
+
+    /**
+     * Measures group actions on a large group. Every action must result in one command per light.
+     */
+    @Test
+    public void groupActionThroughput() throws IOException {
+        ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
+
+        final int groupSize = 60;
+        final int actions = 200;
+        List<String> groupLights = new ArrayList<>();
+        for (int i = 0; i < groupSize; ++i) {
+            ds.lights.put(100 + i, new HueDevice(new SwitchItem("switch" + i), "switch" + i, DeviceType.SwitchType));
+            groupLights.add(String.valueOf(100 + i));
+        }
+        ds.groups.get(0).lights = groupLights;
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < actions; ++i) {
+            String body = i % 2 == 0 ? "{'on':true}" : "{'on':false}";
+            int result = restAPI.handle(HttpMethod.PUT, body, new StringWriter(),
+                    Paths.get("/api/testuser/groups/0/action"), false);
+            assertEquals(200, result);
+        }
+        final long duration = System.nanoTime() - start;
+
+        verify(eventPublisher, times(groupSize * actions)).post(any());
+        logger.info("{} group actions for {} lights took {} ms, {} us per action", actions, groupSize,
+                TimeUnit.NANOSECONDS.toMillis(duration), TimeUnit.NANOSECONDS.toMicros(duration) / actions);
+    }
+
+    @Test
+    public void groupActionSkipsGroupItemsOfCommandedLights() throws IOException {
+        ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
+
+        // Light 10 is a group item with the item of light 1 as member
+        ((GroupItem) ds.lights.get(10).item).addMember(ds.lights.get(1).item);
+        ds.groups.get(0).lights = Arrays.asList("1", "10");
+
+        StringWriter out = new StringWriter();
+        int result = restAPI.handle(HttpMethod.PUT, "{'on':true}", out, Paths.get("/api/testuser/groups/0/action"),
+                false);
+        assertEquals(200, result);
+        verify(eventPublisher, times(1)).post(argThat((Event t) -> {
+            assertThat(t.getTopic(), containsString("/switch/"));
+            return true;
+        }));
+    }
+
+    @Test
+    public void groupItemAction() throws IOException {
+        ds.config.whitelist.put("testuser", new HueUserAuth("testuser"));
+        GroupItem groupItem = (GroupItem) ds.lights.get(10).item;
+        ds.groups.put(10, new HueGroup("white", groupItem, Collections.emptyMap()));
+
+        // No member is exposed as a light: The group item receives the command
+        StringWriter out = new StringWriter();
+        int result = restAPI.handle(HttpMethod.PUT, "{'on':true}", out, Paths.get("/api/testuser/groups/10/action"),
+                false);
+        assertEquals(200, result);
+        verify(eventPublisher).post(argThat((Event t) -> {
+            assertThat(t.getTopic(), containsString("white"));
+            return true;
+        }));
+
+        // Unknown groups
+        result = restAPI.handle(HttpMethod.PUT, "{'on':true}", out, Paths.get("/api/testuser/groups/11/action"),
+                false);
+        assertEquals(404, result);
+    }
 }
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.eclipse.smarthome.core.library.items.ColorItem;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.hueemulation.internal.dto.HueDataStore;
+import org.openhab.io.hueemulation.internal.dto.HueDevice;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+/**
+ * Tests for {@link ResponseCache} and the entity tag utility methods.
+ *
+ * @author agent - Initial contribution
+ */
+public class ResponseCacheTest {
+    private Gson gson;
+    private HueDataStore ds;
+    private ResponseCache responseCache;
+    private SwitchItem switchItem;
+
+    @Before
+    public void setUp() {
+        gson = new Gson();
+        ds = new HueDataStore();
+        responseCache = new ResponseCache(ds, gson);
+
+        switchItem = new SwitchItem("switch");
+        ds.lights.put(1, new HueDevice(switchItem, "switch", DeviceType.SwitchType));
+        ds.lights.put(2, new HueDevice(new ColorItem("color"), "color", DeviceType.ColorType));
+    }
+
+    @Test
+    public void equalToSerializedDataStore() {
+        JsonParser parser = new JsonParser();
+        assertThat(responseCache.lights(), is(gson.toJson(ds.lights)));
+        assertThat(parser.parse(responseCache.fullState()), is(parser.parse(gson.toJson(ds))));
+    }
+
+    @Test
+    public void emptyLights() {
+        ds.lights.clear();
+        assertThat(responseCache.lights(), is("{}"));
+    }
+
+    @Test
+    public void invalidate() {
+        assertThat(responseCache.light(1, ds.lights.get(1)), containsString("\"on\":false"));
+
+        // Without an invalidation the fragment is reused
+        switchItem.setState(OnOffType.ON);
+        assertThat(responseCache.light(1, ds.lights.get(1)), containsString("\"on\":false"));
+
+        responseCache.invalidate(1);
+        assertThat(responseCache.light(1, ds.lights.get(1)), containsString("\"on\":true"));
+        assertThat(responseCache.lights(), containsString("\"on\":true"));
+    }
+
+    @Test
+    public void replacedDeviceIsRenderedAgain() {
+        assertThat(responseCache.lights(), containsString("\"switch\""));
+        ds.lights.put(1, new HueDevice(new SwitchItem("plug"), "plug", DeviceType.SwitchType));
+        assertThat(responseCache.lights(), containsString("\"plug\""));
+    }
+
+    @Test
+    public void stateChangeInvalidates() {
+        LightItems lightItems = new LightItems(ds, responseCache);
+        lightItems.itemUIDtoHueID.put("switch", 1);
+        assertThat(responseCache.lights(), containsString("\"on\":false"));
+
+        switchItem.setState(OnOffType.ON);
+        lightItems.itemStateChanged("switch");
+        assertThat(responseCache.lights(), containsString("\"on\":true"));
+    }
+
+    @Test
+    public void versions() {
+        final long lightsVersion = responseCache.getLightsVersion();
+        final long version = responseCache.getVersion();
+
+        // Rendering changes nothing
+        responseCache.fullState();
+        assertThat(responseCache.getLightsVersion(), is(lightsVersion));
+        assertThat(responseCache.getVersion(), is(version));
+
+        responseCache.changed();
+        assertThat(responseCache.getLightsVersion(), is(lightsVersion));
+        assertThat(responseCache.getVersion(), not(version));
+
+        final long changedVersion = responseCache.getVersion();
+        responseCache.invalidate(1);
+        assertThat(responseCache.getLightsVersion(), not(lightsVersion));
+        assertThat(responseCache.getVersion(), not(changedVersion));
+    }
+
+    @Test
+    public void etag() {
+        String etag = Utils.etag(responseCache.getEpoch(), responseCache.getLightsVersion(), false);
+        assertTrue(Utils.etagMatches(etag, etag));
+        assertTrue(Utils.etagMatches(etag, "\"other\", W/" + etag));
+        assertTrue(Utils.etagMatches(etag, "*"));
+        assertFalse(Utils.etagMatches(etag, null));
+        assertFalse(Utils.etagMatches(etag, "\"other\""));
+
+        String weakEtag = Utils.etag(responseCache.getEpoch(), responseCache.getVersion(), true);
+        assertThat(weakEtag, startsWith("W/"));
+        assertTrue(Utils.etagMatches(weakEtag, weakEtag));
+        assertTrue(Utils.etagMatches(weakEtag, weakEtag.substring(2)));
+
+        responseCache.invalidate(1);
+        assertThat(Utils.etag(responseCache.getEpoch(), responseCache.getLightsVersion(), false), not(etag));
+    }
+
+    @Test
+    public void etagOfNewCacheDiffers() {
+        // A new cache, for example after a restart, starts with the same versions
+        ResponseCache newResponseCache = new ResponseCache(ds, gson);
+        assertThat(newResponseCache.getLightsVersion(), is(responseCache.getLightsVersion()));
+        assertThat(newResponseCache.getEpoch(), not(responseCache.getEpoch()));
+
+        String etag = Utils.etag(responseCache.getEpoch(), responseCache.getLightsVersion(), false);
+        String newEtag = Utils.etag(newResponseCache.getEpoch(), newResponseCache.getLightsVersion(), false);
+        assertFalse(Utils.etagMatches(newEtag, etag));
+    }
+}
@@ -28,8 +28,10 @@ import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -37,10 +39,16 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigurableService;
 import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventFilter;
 import org.eclipse.smarthome.core.events.EventPublisher;
+import org.eclipse.smarthome.core.events.EventSubscriber;
 import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.items.events.GroupItemStateChangedEvent;
+import org.eclipse.smarthome.core.items.events.ItemStateChangedEvent;
 import org.eclipse.smarthome.core.net.NetworkAddressService;
 import org.eclipse.smarthome.core.service.ReadyMarker;
 import org.eclipse.smarthome.core.service.ReadyService;
@@ -91,15 +99,17 @@ import com.google.gson.stream.JsonWriter;
 @SuppressWarnings("serial")
 @NonNullByDefault
 @Component(immediate = true, service = {
-        HueEmulationService.class }, configurationPid = "org.openhab.hueemulation", property = {
+        HueEmulationService.class, EventSubscriber.class }, configurationPid = "org.openhab.hueemulation", property = {
                 org.osgi.framework.Constants.SERVICE_PID + "=org.openhab.hueemulation",
                 ConfigurableService.SERVICE_PROPERTY_DESCRIPTION_URI + "=io:hueemulation",
                 ConfigurableService.SERVICE_PROPERTY_CATEGORY + "=io",
                 ConfigurableService.SERVICE_PROPERTY_LABEL + "=Hue Emulation" })
-public class HueEmulationService implements ReadyTracker {
+public class HueEmulationService implements ReadyTracker, EventSubscriber {
 
     private final Path DISCOVERY_PATH = Paths.get(RESTApi.PATH + "/description.xml");
     private final Path DISCOVERY_PATH_ROOT = Paths.get("/description.xml");
+    private static final Set<String> SUBSCRIBED_EVENT_TYPES = Stream
+            .of(ItemStateChangedEvent.TYPE, GroupItemStateChangedEvent.TYPE).collect(Collectors.toSet());
 
     private final Logger logger = LoggerFactory.getLogger(HueEmulationService.class);
     private final Gson gson = new GsonBuilder()
@@ -118,9 +128,10 @@ public class HueEmulationService implements ReadyTracker {
 
     protected final HueDataStore ds = new HueDataStore();
     protected final UserManagement userManagement = new UserManagement(ds);
-    protected final LightItems lightItems = new LightItems(ds);
+    protected final ResponseCache responseCache = new ResponseCache(ds, gson);
+    protected final LightItems lightItems = new LightItems(ds, responseCache);
     protected final ConfigManagement configManagement = new ConfigManagement(ds);
-    protected final RESTApi restAPI = new RESTApi(ds, userManagement, configManagement, gson);
+    protected final RESTApi restAPI = new RESTApi(ds, userManagement, configManagement, responseCache, gson);
     protected boolean started = false;
 
     /**
@@ -174,6 +185,14 @@ public class HueEmulationService implements ReadyTracker {
                     postBody = "";
                 }
 
+                // Clients poll the same resources every few seconds. Allow them to skip unchanged responses.
+                final String etag = method == HttpMethod.GET && !isDebug ? restAPI.etag(path) : null;
+                if (etag != null && Utils.etagMatches(etag, req.getHeader("If-None-Match"))) {
+                    resp.setHeader("ETag", etag);
+                    resp.setStatus(304);
+                    return;
+                }
+
                 int statuscode = 0;
                 try {
                     statuscode = restAPI.handle(method, postBody, out, path, isDebug);
@@ -200,6 +219,14 @@ public class HueEmulationService implements ReadyTracker {
                     apiServerError(req, out, HueResponse.INVALID_JSON, "Invalid request: " + e.getMessage());
                 }
 
+                if (etag != null && statuscode == 200) {
+                    resp.setHeader("ETag", etag);
+                }
+                // Any other method may have changed the data store
+                if (method != HttpMethod.GET) {
+                    responseCache.changed();
+                }
+
                 resp.setStatus(statuscode);
                 httpOut.print(out.toString());
 
@@ -252,6 +279,7 @@ public class HueEmulationService implements ReadyTracker {
         ds.config.linkbutton = config.pairingEnabled;
         ds.config.createNewUserOnEveryEndpoint = config.createNewUserOnEveryEndpoint;
         ds.config.networkopenduration = config.pairingTimeout;
+        responseCache.changed();
 
         // If started: restart all parts of this service that depend on configuration
         if (!started) {
@@ -280,6 +308,26 @@ public class HueEmulationService implements ReadyTracker {
         }
     }
 
+    @Override
+    public Set<String> getSubscribedEventTypes() {
+        return SUBSCRIBED_EVENT_TYPES;
+    }
+
+    @Override
+    public @Nullable EventFilter getEventFilter() {
+        return null;
+    }
+
+    /**
+     * Item state changes invalidate the pre-rendered JSON of the corresponding lights.
+     */
+    @Override
+    public void receive(Event event) {
+        if (event instanceof ItemStateChangedEvent) {
+            lightItems.itemStateChanged(((ItemStateChangedEvent) event).getItemName());
+        }
+    }
+
     @Override
     public void onReadyMarkerRemoved(ReadyMarker readyMarker) {
     }
@@ -13,8 +13,10 @@
 package org.openhab.io.hueemulation.internal;
 
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,9 +71,10 @@ public class LightItems implements RegistryChangeListener<Item> {
             .of(CoreItemFactory.COLOR, CoreItemFactory.DIMMER, CoreItemFactory.ROLLERSHUTTER, CoreItemFactory.SWITCH, ITEM_TYPE_GROUP)
             .collect(Collectors.toSet());
 
-    // deviceMap maps a unique Item id to a Hue numeric id
-    final TreeMap<String, Integer> itemUIDtoHueID = new TreeMap<>();
+    // deviceMap maps a unique Item id to a Hue numeric id. Read by the REST API and event threads without locking.
+    final Map<String, Integer> itemUIDtoHueID = new ConcurrentSkipListMap<>();
     private final HueDataStore dataStore;
+    private final @Nullable ResponseCache responseCache;
     private Set<String> switchFilter = Collections.emptySet();
     private Set<String> colorFilter = Collections.emptySet();
     private Set<String> whiteFilter = Collections.emptySet();
@@ -80,7 +83,18 @@ public class LightItems implements RegistryChangeListener<Item> {
     private @NonNullByDefault({}) ItemRegistry itemRegistry;
 
     public LightItems(HueDataStore ds) {
+        this(ds, null);
+    }
+
+    /**
+     * Creates a {@link LightItems} object that also invalidates the pre-rendered JSON of changed devices.
+     *
+     * @param ds The data store
+     * @param responseCache The response cache of the REST API
+     */
+    public LightItems(HueDataStore ds, @Nullable ResponseCache responseCache) {
         dataStore = ds;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -149,20 +163,34 @@ public class LightItems implements RegistryChangeListener<Item> {
      * Registers to the {@link ItemRegistry} and enumerates currently existing items.
      * Call {@link #close(ItemRegistry)} when you are done with this object.
      *
+     * <p>
+     * The items are applied on top of the current lights and groups, entries that are not exposed anymore
+     * are removed afterwards. Concurrent readers of the {@link HueDataStore} therefore never see an
+     * empty or partially filled data store.
+     * </p>
+     *
      * Only call this after you have set the filter tags with {@link #setFilterTags(Set, Set, Set)}.
      */
     public synchronized void fetchItems() {
         initDone = false;
 
-        dataStore.resetGroupsAndLights();
-
         itemRegistry.removeRegistryChangeListener(this);
         itemRegistry.addRegistryChangeListener(this);
 
         boolean changed = false;
+        Set<Integer> exposedHueIDs = new HashSet<>();
         for (Item item : itemRegistry.getItems()) {
             changed |= addItem(item);
+            Integer hueID = itemUIDtoHueID.get(item.getUID());
+            HueDevice device = hueID != null ? dataStore.lights.get(hueID) : null;
+            if (device != null && device.item == item) {
+                exposedHueIDs.add(hueID);
+            }
         }
+        dataStore.lights.keySet().retainAll(exposedHueIDs);
+        dataStore.groups.keySet().removeIf(hueID -> hueID != 0 && !exposedHueIDs.contains(hueID));
+        updateGroup0();
+        invalidateAll();
         initDone = true;
 
         logger.debug("Added items: {}",
@@ -287,9 +315,12 @@ public class LightItems implements RegistryChangeListener<Item> {
             g.getMembers();
             HueGroup group = new HueGroup(g.getName(), g, itemUIDtoHueID);
             dataStore.groups.put(hueID, group);
+        } else {
+            dataStore.groups.remove(hueID);
         }
         updateGroup0();
         itemUIDtoHueID.put(element.getUID(), hueID);
+        invalidate(hueID);
         if (initDone) {
             logger.debug("Add item {}", element.getUID());
             if (itemAssociationCreated) {
@@ -319,9 +350,36 @@ public class LightItems implements RegistryChangeListener<Item> {
         dataStore.groups.remove(hueID);
         updateGroup0();
         itemUIDtoHueID.remove(element.getUID());
+        invalidate(hueID);
         writeToFile();
     }
 
+    /**
+     * Called when the state of an item changed. The pre-rendered JSON of the corresponding device is invalidated.
+     *
+     * @param itemName The item name
+     */
+    public void itemStateChanged(String itemName) {
+        Integer hueID = itemUIDtoHueID.get(itemName);
+        if (hueID != null) {
+            invalidate(hueID);
+        }
+    }
+
+    private void invalidate(int hueID) {
+        ResponseCache responseCache = this.responseCache;
+        if (responseCache != null) {
+            responseCache.invalidate(hueID);
+        }
+    }
+
+    private void invalidateAll() {
+        ResponseCache responseCache = this.responseCache;
+        if (responseCache != null) {
+            responseCache.invalidateAll();
+        }
+    }
+
     /**
      * The tags might have changed
      */
@@ -359,5 +417,6 @@ public class LightItems implements RegistryChangeListener<Item> {
         }
 
         hueDevice.updateItem(element);
+        invalidate(hueID);
     }
 }
@@ -20,19 +20,27 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.events.Event;
 import org.eclipse.smarthome.core.events.EventPublisher;
+import org.eclipse.smarthome.core.items.GroupItem;
+import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.events.ItemEventFactory;
 import org.eclipse.smarthome.core.types.Command;
 import org.openhab.io.hueemulation.internal.dto.HueDataStore;
 import org.openhab.io.hueemulation.internal.dto.HueDevice;
+import org.openhab.io.hueemulation.internal.dto.HueGroup;
 import org.openhab.io.hueemulation.internal.dto.HueNewLights;
 import org.openhab.io.hueemulation.internal.dto.HueStateChange;
 import org.openhab.io.hueemulation.internal.dto.HueUnauthorizedConfig;
@@ -65,6 +73,7 @@ public class RESTApi {
     private final Gson gson;
     private final UserManagement userManagement;
     private final ConfigManagement configManagement;
+    private final ResponseCache responseCache;
     private @NonNullByDefault({}) EventPublisher eventPublisher;
 
     public static enum HttpMethod {
@@ -75,9 +84,15 @@ public class RESTApi {
     }
 
     public RESTApi(HueDataStore ds, UserManagement userManagement, ConfigManagement configManagement, Gson gson) {
+        this(ds, userManagement, configManagement, new ResponseCache(ds, gson), gson);
+    }
+
+    public RESTApi(HueDataStore ds, UserManagement userManagement, ConfigManagement configManagement,
+            ResponseCache responseCache, Gson gson) {
         this.ds = ds;
         this.userManagement = userManagement;
         this.configManagement = configManagement;
+        this.responseCache = responseCache;
         this.gson = gson;
     }
 
@@ -143,6 +158,49 @@ public class RESTApi {
         return handleUser(method, body, out, userPath.getName(0).toString(), remaining(userPath), path, isDebug);
     }
 
+    /**
+     * Returns the entity tag of a GET request for /api/{username}, /api/{username}/lights or
+     * /api/{username}/lights/{id}. It is derived from the versions of the {@link ResponseCache},
+     * without rendering the response.
+     *
+     * <p>
+     * The response of /api/{username} gets a weak tag: the last use date of the user changes with
+     * every request and is not part of the version.
+     *
+     * @param path The request path
+     * @return The entity tag or null if the resource has none, or the user is not authorized
+     */
+    public @Nullable String etag(Path path) throws IOException {
+        if (path.getNameCount() < 2 || path.getNameCount() > 4 || !"api".equals(path.getName(0).toString())) {
+            return null;
+        }
+        final String userName = path.getName(1).toString();
+        if ("config".equals(userName) || !userManagement.authorizeUser(userName)) {
+            return null;
+        }
+
+        /** /api/{username} */
+        if (path.getNameCount() == 2) {
+            updateDataStore();
+            return Utils.etag(responseCache.getEpoch(), responseCache.getVersion(), true);
+        }
+
+        if (!"lights".equals(path.getName(2).toString())) {
+            return null;
+        }
+        /** /api/{username}/lights/{id} */
+        if (path.getNameCount() == 4) {
+            try {
+                if (!ds.lights.containsKey(Integer.parseInt(path.getName(3).toString()))) {
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return Utils.etag(responseCache.getEpoch(), responseCache.getLightsVersion(), false);
+    }
+
     /**
      * Handles /api/config and /api/{user-name} and forwards any deeper path
      */
@@ -160,6 +218,7 @@ public class RESTApi {
         if (!userManagement.authorizeUser(userName)) {
             if (ds.config.linkbutton && ds.config.createNewUserOnEveryEndpoint) {
                 userManagement.addUser(userName, "Formerly authorized device");
+                responseCache.changed();
             } else {
                 return 403;
             }
@@ -168,7 +227,7 @@ public class RESTApi {
         if (remainingPath.getNameCount() == 0) { /** /api/{username} */
             switch (method) {
                 case GET:
-                    out.write(gson.toJson(ds));
+                    out.write(responseCache.fullState());
                     return 200;
                 default:
                     return 405;
@@ -182,7 +241,7 @@ public class RESTApi {
             case "lights":
                 return handleLights(method, body, out, remaining(remainingPath), fullURI, isDebug);
             case "groups":
-                return handleGroups(method, body, out, remaining(remainingPath));
+                return handleGroups(method, body, out, remaining(remainingPath), fullURI);
             case "config":
                 return handleConfig(method, body, out, remaining(remainingPath), userName);
             default:
@@ -274,8 +333,7 @@ public class RESTApi {
                             out.write("\n");
                         }
                     } else {
-                        ds.lights.values().forEach(v -> v.updateState());
-                        out.write(gson.toJson(ds.lights));
+                        out.write(responseCache.lights());
                     }
                     return 200;
                 case POST:
@@ -318,8 +376,7 @@ public class RESTApi {
 
         /** /api/{username}/lights/{id} */
         if (remainingPath.getNameCount() == 1) {
-            hueDevice.updateState();
-            out.write(gson.toJson(hueDevice));
+            out.write(responseCache.light(hueID, hueDevice));
             return 200;
         }
 
@@ -336,7 +393,8 @@ public class RESTApi {
     }
 
     @SuppressWarnings({ "null", "unused" })
-    public int handleGroups(HttpMethod method, String body, Writer out, Path remainingPath) throws IOException {
+    public int handleGroups(HttpMethod method, String body, Writer out, Path remainingPath, Path fullURI)
+            throws IOException, JsonParseException {
         /** /api/{username}/groups */
         if (remainingPath.getNameCount() == 0) {
             switch (method) {
@@ -376,9 +434,97 @@ public class RESTApi {
                 return 200;
             }
         }
+
+        /** /api/{username}/groups/{id}/action */
+        if (remainingPath.getNameCount() == 2 && "action".equals(remainingPath.getName(1).toString())) {
+            HueGroup hueGroup = ds.groups.get(hueID);
+            if (hueGroup == null) {
+                return 404;
+            }
+            switch (method) {
+                case PUT:
+                    return handleGroupAction(fullURI, body, out, hueID, hueGroup);
+                default:
+                    return 405;
+            }
+        }
         return 404;
     }
 
+    /**
+     * Hue API call to set the state of all lights of a group.
+     * Endpoint: /api/{username}/groups/{id}/action
+     *
+     * <p>
+     * The state change is applied to every member light first and all resulting commands are
+     * posted afterwards in one go. The event publisher delivers them asynchronously, the response
+     * does not wait for any item. Member group items that contain an already commanded light are
+     * skipped, they would forward the same command again. A group that is exposed as a light itself
+     * but has no exposed member lights receives the command directly.
+     */
+    @SuppressWarnings({ "null", "unused" })
+    private int handleGroupAction(Path fullURI, String body, Writer out, int groupID, HueGroup hueGroup)
+            throws IOException, JsonParseException {
+        HueStateChange state = gson.fromJson(body, HueStateChange.class);
+        if (state == null) {
+            throw new JsonParseException("No state change data received!");
+        }
+
+        Map<Integer, HueDevice> devices = new TreeMap<>();
+        for (String lightID : hueGroup.updateLights()) {
+            try {
+                int hueID = Integer.parseInt(lightID);
+                HueDevice hueDevice = ds.lights.get(hueID);
+                if (hueDevice != null) {
+                    devices.put(hueID, hueDevice);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        // A group item forwards commands to its members. Skip it if a member is commanded already.
+        Set<String> itemNames = devices.values().stream().map(d -> d.item.getName()).collect(Collectors.toSet());
+        devices.values().removeIf(d -> d.item instanceof GroupItem && containsAny((GroupItem) d.item, itemNames));
+
+        HueDevice groupDevice = ds.lights.get(groupID);
+        if (devices.isEmpty() && groupDevice != null && hueGroup.groupItem != null) {
+            devices.put(groupID, groupDevice);
+        }
+
+        // Apply the new state to all lights. An attribute is successfully applied if it could be applied to any light
+        Map<String, Object> successApplied = new TreeMap<>();
+        Set<String> errorApplied = new TreeSet<>();
+        List<Event> commands = new ArrayList<>(devices.size());
+        devices.forEach((hueID, hueDevice) -> {
+            List<String> errors = new ArrayList<>();
+            Command command = hueDevice.applyState(state, successApplied, errors);
+            responseCache.invalidate(hueID);
+            errorApplied.addAll(errors);
+            if (command != null) {
+                commands.add(ItemEventFactory.createCommandEvent(hueDevice.item.getName(), command, "hueemulation"));
+            }
+        });
+        errorApplied.removeAll(successApplied.keySet());
+
+        logger.debug("sending {} commands for group {}", commands.size(), hueGroup.name);
+        commands.forEach(eventPublisher::post);
+
+        writeStateChangeResponse(fullURI.subpath(2, fullURI.getNameCount()), successApplied, errorApplied, out);
+        return 200;
+    }
+
+    /**
+     * Returns true if the group item or one of its nested group items has a member with one of the given names.
+     */
+    private static boolean containsAny(GroupItem groupItem, Set<String> itemNames) {
+        for (Item member : groupItem.getMembers()) {
+            if (itemNames.contains(member.getName())
+                    || (member instanceof GroupItem && containsAny((GroupItem) member, itemNames))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Hue API call to set the state of a light.
      * Enpoint: /api/{username}/lights/{id}/state
@@ -397,6 +543,7 @@ public class RESTApi {
         Map<String, Object> successApplied = new TreeMap<>();
         List<String> errorApplied = new ArrayList<>();
         Command command = hueDevice.applyState(state, successApplied, errorApplied);
+        responseCache.invalidate(hueID);
 
         // If a command could be created, post it to the framework now
         if (command != null) {
@@ -404,10 +551,17 @@ public class RESTApi {
             eventPublisher.post(ItemEventFactory.createCommandEvent(hueDevice.item.getName(), command, "hueemulation"));
         }
 
-        // Generate the response. The response consists of a list with an entry each for all
-        // submitted change requests. If for example "on" and "bri" was send, 2 entries in the response are
-        // expected.
-        Path contextPath = fullURI.subpath(2, fullURI.getNameCount() - 1);
+        writeStateChangeResponse(fullURI.subpath(2, fullURI.getNameCount() - 1), successApplied, errorApplied, out);
+        return 200;
+    }
+
+    /**
+     * Generate the response of a state change. The response consists of a list with an entry each for all
+     * submitted change requests. If for example "on" and "bri" was send, 2 entries in the response are
+     * expected.
+     */
+    private void writeStateChangeResponse(Path contextPath, Map<String, Object> successApplied,
+            Collection<String> errorApplied, Writer out) throws IOException {
         List<HueResponse> responses = new ArrayList<>();
         successApplied.forEach((t, v) -> {
             responses.add(new HueResponse(new HueSuccessResponseStateChanged(contextPath.resolve(t).toString(), v)));
@@ -421,14 +575,19 @@ public class RESTApi {
             gson.toJson(responses, new TypeToken<List<?>>() {
             }.getType(), writer);
         }
-        return 200;
     }
 
     /**
      * Update changing parameters of the data store like the time.
+     * Like a real bridge, the time has a resolution of seconds. A new second is a change of the data store.
      */
     public void updateDataStore() {
-        ds.config.UTC = LocalDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        ds.config.localtime = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        final String utc = LocalDateTime.now(ZoneOffset.UTC).withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        final boolean changed = !utc.equals(ds.config.UTC);
+        ds.config.UTC = utc;
+        ds.config.localtime = LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        if (changed) {
+            responseCache.changed();
+        }
     }
 }
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.hueemulation.internal.dto.HueDataStore;
+import org.openhab.io.hueemulation.internal.dto.HueDevice;
+
+import com.google.gson.Gson;
+
+/**
+ * Keeps a pre-rendered JSON fragment for every {@link HueDevice} of the {@link HueDataStore}.
+ * Hue clients poll /api/{username} and /api/{username}/lights every few seconds. Those responses
+ * are assembled out of the fragments, only changed devices are serialized again.
+ *
+ * <p>
+ * A fragment is rendered on first access and kept until it is invalidated with {@link #invalidate(int)},
+ * usually because of an item state change. A device that got replaced in the data store is rendered
+ * again as well.
+ *
+ * <p>
+ * Every change increments a version. Entity tags are derived from the versions, so an unchanged
+ * response can be confirmed without rendering it. The versions start at 0 again with a new cache,
+ * the random epoch of the cache keeps its entity tags apart from those of a previous cache.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ResponseCache {
+    private final HueDataStore ds;
+    private final Gson gson;
+    private final Map<Integer, Fragment> lights = new ConcurrentHashMap<>();
+    /** Incremented on every change of a light */
+    private final AtomicLong lightsVersion = new AtomicLong();
+    /** Incremented on every change of the data store, including the lights */
+    private final AtomicLong version = new AtomicLong();
+    /** Identifies this cache and thereby its versions, for example across restarts */
+    private final long epoch = new Random().nextLong();
+
+    private static class Fragment {
+        final HueDevice device;
+        final String json;
+
+        Fragment(HueDevice device, String json) {
+            this.device = device;
+            this.json = json;
+        }
+    }
+
+    public ResponseCache(HueDataStore ds, Gson gson) {
+        this.ds = ds;
+        this.gson = gson;
+    }
+
+    /**
+     * Removes the fragment of the given hue ID. It is rendered again on the next access.
+     *
+     * @param hueID A hue light ID
+     */
+    public void invalidate(int hueID) {
+        lights.remove(hueID);
+        lightsChanged();
+    }
+
+    /**
+     * Removes all fragments.
+     */
+    public void invalidateAll() {
+        lights.clear();
+        lightsChanged();
+    }
+
+    /**
+     * Marks a change of the data store that does not affect the lights, like the config, groups or users.
+     * Call this after the change has been applied.
+     */
+    public void changed() {
+        version.incrementAndGet();
+    }
+
+    private void lightsChanged() {
+        lightsVersion.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns a random value that identifies this cache. The versions are only comparable within one epoch.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the version of the lights. It changes whenever a light is invalidated.
+     */
+    public long getLightsVersion() {
+        return lightsVersion.get();
+    }
+
+    /**
+     * Returns the version of the entire data store. It changes whenever a light is invalidated or
+     * {@link #changed()} is called.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns the JSON representation of a single light. Renders the light, if there is no valid fragment.
+     *
+     * @param hueID The hue light ID
+     * @param device The device of the data store with that ID
+     */
+    public String light(int hueID, HueDevice device) {
+        Fragment fragment = lights.get(hueID);
+        if (fragment != null && fragment.device == device) {
+            return fragment.json;
+        }
+
+        final long generation = lightsVersion.get();
+        device.updateState();
+        fragment = new Fragment(device, gson.toJson(device));
+        lights.put(hueID, fragment);
+        // An invalidation during rendering may have missed this fragment
+        if (generation != lightsVersion.get()) {
+            lights.remove(hueID, fragment);
+        }
+        return fragment.json;
+    }
+
+    /**
+     * Returns the JSON representation of all lights, for /api/{username}/lights.
+     */
+    public String lights() {
+        return appendLights(new StringBuilder()).toString();
+    }
+
+    /**
+     * Returns the JSON representation of the entire data store, for /api/{username}.
+     * The result is equal to serializing the {@link HueDataStore}.
+     */
+    public String fullState() {
+        StringBuilder b = new StringBuilder();
+        b.append("{\"config\":").append(gson.toJson(ds.config));
+        appendLights(b.append(",\"lights\":"));
+        b.append(",\"groups\":").append(gson.toJson(ds.groups));
+        b.append(",\"scenes\":").append(gson.toJson(ds.scenes));
+        b.append(",\"rules\":").append(gson.toJson(ds.rules));
+        b.append(",\"sensors\":").append(gson.toJson(ds.sensors));
+        b.append(",\"schedules\":").append(gson.toJson(ds.schedules));
+        b.append(",\"resourcelinks\":").append(gson.toJson(ds.resourcelinks));
+        return b.append('}').toString();
+    }
+
+    private StringBuilder appendLights(StringBuilder b) {
+        b.append('{');
+        boolean first = true;
+        for (Map.Entry<Integer, HueDevice> entry : ds.lights.entrySet()) {
+            if (!first) {
+                b.append(',');
+            }
+            first = false;
+            b.append('"').append(entry.getKey()).append("\":").append(light(entry.getKey(), entry.getValue()));
+        }
+        return b.append('}');
+    }
+}
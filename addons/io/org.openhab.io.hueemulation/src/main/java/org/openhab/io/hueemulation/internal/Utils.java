@@ -20,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * Network utility methods
@@ -39,6 +40,42 @@ public class Utils {
         response.setHeader("Access-Control-Allow-Headers", "Origin, X-Requested-With, Content-Type, Accept");
     }
 
+    /**
+     * Computes an entity tag from a version of the {@link ResponseCache}.
+     *
+     * @param epoch The epoch of the response cache, see {@link ResponseCache#getEpoch()}
+     * @param version A response cache version
+     * @param weak True if responses of the same version are equivalent, but not necessarily byte for byte equal
+     * @return An entity tag like "\"5f3e9a2c41d07b68-1a\"" or "W/\"5f3e9a2c41d07b68-1a\""
+     */
+    static String etag(long epoch, long version, boolean weak) {
+        return (weak ? "W/\"" : "\"") + Long.toHexString(epoch) + "-" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * Returns true if the If-None-Match request header contains the given entity tag.
+     *
+     * @param etag The entity tag of the current response
+     * @param ifNoneMatch The If-None-Match header value. May be null.
+     */
+    static boolean etagMatches(String etag, @Nullable String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // If-None-Match uses the weak comparison
+        final String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || tag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Try to get the ethernet interface MAC for the network interface that belongs to the given IP address.
      * Returns a default MAC on any failure.
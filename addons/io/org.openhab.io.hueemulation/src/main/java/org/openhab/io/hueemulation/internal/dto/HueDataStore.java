@@ -15,6 +15,7 @@ package org.openhab.io.hueemulation.internal.dto;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 
@@ -22,6 +23,12 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
  * Hue data store object. Contains all lights, configuration, user whitelist etc.
  * Is used as a data store but also as API DTO.
  *
+ * <p>
+ * Lights and groups are read by the REST API on http server threads without any locking,
+ * while the item registry changes them. Both are concurrent sorted maps for that reason:
+ * Readers never block and always see valid entries. An entry that is changed
+ * during an iteration may or may not be seen.
+ *
  * @author Dan Cunningham - Initial contribution
  * @author David Graeff - Add groups,scenes,rules,sensors,resourcelinks and config entries
  *
@@ -29,8 +36,8 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 @NonNullByDefault
 public class HueDataStore {
     public HueAuthorizedConfig config = new HueAuthorizedConfig();
-    public TreeMap<Integer, HueDevice> lights = new TreeMap<>();
-    public TreeMap<Integer, HueGroup> groups = new TreeMap<>();
+    public final ConcurrentSkipListMap<Integer, HueDevice> lights = new ConcurrentSkipListMap<>();
+    public final ConcurrentSkipListMap<Integer, HueGroup> groups = new ConcurrentSkipListMap<>();
     public Map<Integer, Dummy> scenes = new TreeMap<>();
     public Map<Integer, Dummy> rules = new TreeMap<>();
     public Map<Integer, Dummy> sensors = new TreeMap<>();
@@ -42,18 +49,21 @@ public class HueDataStore {
     }
 
     public void resetGroupsAndLights() {
-        groups.clear();
         lights.clear();
-        // There must be a group 0 all the time!
-        groups.put(0, new HueGroup("All lights", null, Collections.emptyMap()));
+        // There must be a group 0 all the time! Concurrent readers should never miss it.
+        groups.keySet().removeIf(hueID -> hueID != 0);
+        HueGroup group0 = groups.putIfAbsent(0, new HueGroup("All lights", null, Collections.emptyMap()));
+        if (group0 != null) {
+            group0.lights = Collections.emptyList();
+        }
     }
 
     public int generateNextLightHueID() {
-        return lights.size() == 0 ? 1 : new Integer(lights.lastKey().intValue() + 1);
+        return lights.isEmpty() ? 1 : new Integer(lights.lastKey().intValue() + 1);
     }
 
     public int generateNextGroupHueID() {
-        return groups.size() == 0 ? 1 : new Integer(groups.lastKey().intValue() + 1);
+        return groups.isEmpty() ? 1 : new Integer(groups.lastKey().intValue() + 1);
     }
 
     public static class Dummy {
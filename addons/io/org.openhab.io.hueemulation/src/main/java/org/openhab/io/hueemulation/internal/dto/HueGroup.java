@@ -52,10 +52,24 @@ public class HueGroup {
         groupItem = element;
     }
 
+    /**
+     * Computes the {@link #lights} list by looking up all item members of the referenced groupItem and map them
+     * to either a known hue ID or filtering them out. Without a groupItem, the list is returned as is.
+     *
+     * @return The hue IDs of the member lights
+     */
+    public List<String> updateLights() {
+        GroupItem item = groupItem;
+        if (item != null) {
+            lights = item.getMembers().stream().map(gitem -> itemUIDtoHueID.get(gitem.getUID()))
+                    .filter(id -> id != null).map(e -> String.valueOf(e)).collect(Collectors.toList());
+        }
+        return lights;
+    }
+
     /**
      * This custom serializer computes the {@link HueGroup#lights} list, before serializing.
-     * It does so, by looking up all item members of the references groupItem and map them to
-     * either a known hue ID or filtering them out.
+     * See {@link HueGroup#updateLights()}.
      *
      */
     @NonNullByDefault({})
@@ -64,11 +78,7 @@ public class HueGroup {
         @SuppressWarnings("null")
         @Override
         public JsonElement serialize(HueGroup product, Type type, JsonSerializationContext jsc) {
-            GroupItem item = product.groupItem;
-            if (item != null) {
-                product.lights = item.getMembers().stream().map(gitem -> product.itemUIDtoHueID.get(gitem.getUID()))
-                        .filter(id -> id != null).map(e -> String.valueOf(e)).collect(Collectors.toList());
-            }
+            product.updateLights();
 
             JsonObject o = new JsonObject();
             o.addProperty("name", product.name);
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.mqttembeddedbroker.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.mqttembeddedbroker.internal.MqttEmbeddedBrokerMetrics.Rate;
+
+import io.moquette.interception.messages.InterceptConnectionLostMessage;
+import io.moquette.interception.messages.InterceptDisconnectMessage;
+import io.moquette.interception.messages.InterceptPublishMessage;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+/**
+ * Tests cases for {@link MqttEmbeddedBrokerMetrics}.
+ *
+ * @author agent - Initial contribution
+ */
+public class MqttEmbeddedBrokerMetricsTest {
+    private MqttEmbeddedBrokerMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new MqttEmbeddedBrokerMetrics(clientIDs -> {
+        });
+    }
+
+    private void publish(String clientID, String topic, String payload, boolean retain) {
+        metrics.onPublish(new InterceptPublishMessage(MqttMessageBuilders.publish().topicName(topic).retained(retain)
+                .qos(MqttQoS.AT_MOST_ONCE).payload(Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)))
+                .build(), clientID, null));
+    }
+
+    @Test
+    public void countsInboundMessages() {
+        publish("sensor1", "homie/device/temp", "21.5", false);
+        publish("sensor1", "homie/device/humidity", "45", false);
+        publish("sensor2", "homeassistant/sensor/x/config", new String(new char[100]), false);
+
+        assertThat(metrics.getMessagesReceived(), is(3L));
+        assertThat(metrics.getBytesReceived(), is(4L + 2 + 100));
+        assertThat(metrics.getClients().get("sensor1").getMessages(), is(2L));
+        assertThat(metrics.getClients().get("sensor2").getBytes(), is(100L));
+        assertThat(metrics.getTopicPrefixes().get("homie").getMessages(), is(2L));
+        assertThat(metrics.getTopicPrefixes().get("homeassistant").getMessages(), is(1L));
+        // Two payloads up to 16 bytes, one up to 256 bytes
+        assertArrayEquals(new long[] { 2, 0, 1, 0, 0, 0, 0 }, metrics.getPayloadSizeHistogram());
+    }
+
+    @Test
+    public void countsRetainedMessages() {
+        publish("c", "a/b", "1", true);
+        publish("c", "a/b", "2", true);
+        publish("c", "a/c", "1", true);
+        publish("c", "a/d", "1", false);
+        assertThat(metrics.getRetainedMessages(), is(2));
+
+        // An empty retained message removes the retained message
+        publish("c", "a/b", "", true);
+        assertThat(metrics.getRetainedMessages(), is(1));
+    }
+
+    @Test
+    public void ownSysTopicsAreNotCounted() {
+        publish("embedded-mqtt-broker", MqttEmbeddedBrokerMetrics.SYS_TOPIC + "messages/received", "1", true);
+        assertThat(metrics.getMessagesReceived(), is(0L));
+        assertThat(metrics.getRetainedMessages(), is(0));
+    }
+
+    @Test
+    public void trackedKeysAreBounded() {
+        for (int i = 0; i < MqttEmbeddedBrokerMetrics.MAX_TRACKED_KEYS + 10; ++i) {
+            publish("client" + i, "topic" + i, "1", false);
+        }
+        assertThat(metrics.getClients().size(), is(MqttEmbeddedBrokerMetrics.MAX_TRACKED_KEYS + 1));
+        assertThat(metrics.getClients().get(MqttEmbeddedBrokerMetrics.OTHER).getMessages(), is(10L));
+        assertThat(metrics.getTopicPrefixes().size(), is(MqttEmbeddedBrokerMetrics.MAX_TRACKED_KEYS + 1));
+    }
+
+    @Test
+    public void disconnectedClientsAreForgotten() {
+        for (int i = 0; i < MqttEmbeddedBrokerMetrics.MAX_TRACKED_KEYS; ++i) {
+            publish("client" + i, "topic", "1", false);
+            metrics.onDisconnect(new InterceptDisconnectMessage("client" + i, null));
+        }
+        publish("lost", "topic", "1", false);
+        assertThat(metrics.getClients().get("lost").getMessages(), is(1L));
+        metrics.onConnectionLost(new InterceptConnectionLostMessage("lost", null));
+
+        assertTrue(metrics.getClients().isEmpty());
+        assertThat(metrics.getMessagesReceived(), is(MqttEmbeddedBrokerMetrics.MAX_TRACKED_KEYS + 1L));
+    }
+
+    @Test
+    public void rate() {
+        final long start = 0;
+        Rate rate = new Rate(start);
+        // 100 messages per 10 seconds for two minutes: The rate approaches 600 per minute
+        for (int i = 1; i <= 12; ++i) {
+            rate.tick(i * 100, start + i * TimeUnit.SECONDS.toNanos(10));
+        }
+        assertEquals(600, rate.getPerMinute(), 600 * 0.2);
+    }
+
+    @Test
+    public void sysTopics() {
+        publish("sensor/1", "homie/device/temp", "21.5", true);
+        Map<String, String> topics = metrics.getSysTopics();
+        assertThat(topics.get("$SYS/broker/messages/received"), is("1"));
+        assertThat(topics.get("$SYS/broker/retained messages/count"), is("1"));
+        assertThat(topics.get("$SYS/broker/clients/connected"), is("0"));
+        assertThat(topics.get("$SYS/broker/payload size/16"), is("1"));
+        // Client IDs are escaped to a single topic level
+        assertThat(topics.get("$SYS/broker/clients/sensor_1/messages/received"), is("1"));
+        assertThat(topics.get("$SYS/broker/topics/homie/bytes/received"), is("4"));
+        assertThat(topics.get("$SYS/broker/load/messages/received/1min"), is("0.00"));
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.mqttembeddedbroker.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.moquette.persistence.MemoryStorageService;
+import io.moquette.server.config.MemoryConfig;
+import io.moquette.spi.IMessagesStore;
+import io.moquette.spi.IMessagesStore.StoredMessage;
+import io.moquette.spi.impl.subscriptions.Topic;
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+/**
+ * Tests cases for {@link SnapshotMessagesStore}.
+ *
+ * @author agent - Initial contribution
+ */
+public class SnapshotMessagesStoreTest {
+    private final Logger logger = LoggerFactory.getLogger(SnapshotMessagesStoreTest.class);
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mqttembedded");
+        file = directory.resolve("mqttembedded.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    private static StoredMessage message(String topic, String payload) {
+        StoredMessage message = new StoredMessage(payload.getBytes(StandardCharsets.UTF_8), MqttQoS.AT_LEAST_ONCE,
+                topic);
+        message.setClientID("client");
+        message.setRetained(true);
+        return message;
+    }
+
+    private static void store(IMessagesStore store, String topic, String payload) {
+        store.storeRetained(new Topic(topic), message(topic, payload));
+    }
+
+    private static String payload(StoredMessage message) {
+        return message.getPayload().toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void restoresSnapshot() throws IOException {
+        SnapshotMessagesStore store = new SnapshotMessagesStore(file, 1024);
+        store.initStore();
+        store(store, "a/b", "1");
+        store(store, "a/b", "2");
+        store(store, "a/c", "3");
+        assertTrue(store.snapshot());
+
+        SnapshotMessagesStore restored = new SnapshotMessagesStore(file, 1024);
+        restored.initStore();
+        assertThat(restored.size(), is(2));
+        Collection<StoredMessage> messages = restored.searchMatching(topic -> topic.equals(new Topic("a/b")));
+        assertThat(messages.size(), is(1));
+        StoredMessage message = messages.iterator().next();
+        assertThat(payload(message), is("2"));
+        assertThat(message.getTopic(), is("a/b"));
+        assertThat(message.getQos(), is(MqttQoS.AT_LEAST_ONCE));
+        assertThat(message.getClientID(), is("client"));
+        assertTrue(message.isRetained());
+    }
+
+    @Test
+    public void snapshotOnlyIfChanged() throws IOException {
+        SnapshotMessagesStore store = new SnapshotMessagesStore(file, 1024);
+        store.initStore();
+        assertFalse(store.snapshot());
+        assertFalse(Files.exists(file));
+
+        store(store, "a/b", "1");
+        assertTrue(store.snapshot());
+        assertFalse(store.snapshot());
+        assertThat(store.getSnapshotCount(), is(1));
+
+        // Removing a topic without a retained message changes nothing
+        store.cleanRetained(new Topic("a/c"));
+        assertFalse(store.snapshot());
+    }
+
+    @Test
+    public void cleanRetained() throws IOException {
+        SnapshotMessagesStore store = new SnapshotMessagesStore(file, 1024);
+        store.initStore();
+        store(store, "a/b", "1");
+        store(store, "a/c", "1");
+        store.snapshot();
+        store.cleanRetained(new Topic("a/b"));
+        assertTrue(store.snapshot());
+
+        SnapshotMessagesStore restored = new SnapshotMessagesStore(file, 1024);
+        restored.initStore();
+        assertThat(restored.size(), is(1));
+        assertThat(restored.searchMatching(topic -> topic.equals(new Topic("a/b"))).size(), is(0));
+    }
+
+    @Test
+    public void systemTopicsAreNotPersisted() throws IOException {
+        SnapshotMessagesStore store = new SnapshotMessagesStore(file, 1024);
+        store.initStore();
+        store(store, "a/b", "1");
+        assertTrue(store.snapshot());
+
+        // The periodically published broker metrics do not cause a snapshot
+        store(store, "$SYS/broker/uptime", "10");
+        store(store, "$SYS/broker/clients/connected", "2");
+        assertFalse(store.snapshot());
+        store.cleanRetained(new Topic("$SYS/broker/uptime"));
+        assertFalse(store.snapshot());
+
+        // But are still available to new subscribers
+        assertThat(store.searchMatching(topic -> topic.equals(new Topic("$SYS/broker/clients/connected"))).size(),
+                is(1));
+
+        store(store, "a/c", "2");
+        assertTrue(store.snapshot());
+        SnapshotMessagesStore restored = new SnapshotMessagesStore(file, 1024);
+        restored.initStore();
+        assertThat(restored.size(), is(2));
+        assertThat(restored.searchMatching(topic -> topic.toString().startsWith("$SYS/")).size(), is(0));
+    }
+
+    @Test
+    public void corruptSnapshot() throws IOException {
+        Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        SnapshotMessagesStore store = new SnapshotMessagesStore(file, 1024);
+        store.initStore();
+        assertThat(store.size(), is(0));
+    }
+
+    /**
+     * Many updates of the same topics between snapshots end up as one compacted entry per topic
+     */
+    @Test
+    public void snapshotIsCompacted() throws IOException {
+        final int topics = 100;
+        final int messages = 2000;
+        SnapshotMessagesStore store = new SnapshotMessagesStore(file, SnapshotStorageService.DEFAULT_BUFFER_SIZE);
+        store.initStore();
+        for (int i = 0; i < messages; ++i) {
+            store(store, "device/" + (i % topics), Integer.toString(i));
+            if (i % 500 == 0) {
+                store.snapshot();
+            }
+        }
+        assertTrue(store.snapshot());
+        assertThat(store.getSnapshotCount(), is(messages / 500 + 1));
+
+        SnapshotMessagesStore restored = new SnapshotMessagesStore(file, SnapshotStorageService.DEFAULT_BUFFER_SIZE);
+        restored.initStore();
+        assertThat(restored.size(), is(topics));
+        for (int t = 0; t < topics; ++t) {
+            final Topic topic = new Topic("device/" + t);
+            Collection<StoredMessage> found = restored.searchMatching(topic::equals);
+            assertThat(found.size(), is(1));
+            assertThat(payload(found.iterator().next()), is(Integer.toString(messages - topics + t)));
+        }
+    }
+
+    /**
+     * Compares the publish throughput of retained messages for the in-memory store, the snapshot store and a store
+     * that writes every change to disk.
+     */
+    @Test
+    public void publishThroughput() throws IOException {
+        final int topics = 100;
+        final int messages = 2000;
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            MemoryStorageService memoryStorage = new MemoryStorageService(new MemoryConfig(new Properties()),
+                    scheduler);
+            memoryStorage.initStore();
+            IMessagesStore memory = memoryStorage.messagesStore();
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; ++i) {
+                store(memory, "device/" + (i % topics), Integer.toString(i));
+            }
+            final long memoryNanos = System.nanoTime() - start;
+            memoryStorage.close();
+
+            SnapshotMessagesStore snapshot = new SnapshotMessagesStore(file,
+                    SnapshotStorageService.DEFAULT_BUFFER_SIZE);
+            snapshot.initStore();
+            start = System.nanoTime();
+            for (int i = 0; i < messages; ++i) {
+                store(snapshot, "device/" + (i % topics), Integer.toString(i));
+                // A snapshot interval of every 500 messages
+                if (i % 500 == 0) {
+                    snapshot.snapshot();
+                }
+            }
+            snapshot.snapshot();
+            final long snapshotNanos = System.nanoTime() - start;
+            assertThat(snapshot.getSnapshotCount(), is(messages / 500 + 1));
+
+            // A store that writes through on every change
+            SnapshotMessagesStore writeThrough = new SnapshotMessagesStore(file,
+                    SnapshotStorageService.DEFAULT_BUFFER_SIZE);
+            writeThrough.initStore();
+            start = System.nanoTime();
+            for (int i = 0; i < messages; ++i) {
+                store(writeThrough, "device/" + (i % topics), Integer.toString(i));
+                writeThrough.snapshot();
+            }
+            final long writeThroughNanos = System.nanoTime() - start;
+            assertThat(writeThrough.getSnapshotCount(), is(messages));
+
+            logger.info("Retained publishes per second: memory {}, snapshot {}, write-through {}",
+                    perSecond(messages, memoryNanos), perSecond(messages, snapshotNanos),
+                    perSecond(messages, writeThroughNanos));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static long perSecond(int messages, long nanos) {
+        return messages * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+}
@@ -48,4 +48,9 @@ public interface EmbeddedBrokerService {
      */
     @Nullable
     MqttBrokerConnection getConnection();
+
+    /**
+     * Returns the metrics of the embedded broker, like message rates and the retained message count.
+     */
+    MqttEmbeddedBrokerMetrics getMetrics();
 }
@@ -13,12 +13,15 @@
 package org.openhab.io.mqttembeddedbroker.internal;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -29,6 +32,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.config.core.ConfigurableService;
 import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionObserver;
 import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionState;
@@ -82,6 +86,13 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
     protected MqttEmbeddedBrokerMetrics metrics = new MqttEmbeddedBrokerMetrics(new BrokerMetricsListenerEx());
 
     private @Nullable MqttBrokerConnection connection;
+    private ServiceConfiguration config = new ServiceConfiguration();
+
+    /** The metrics are published every few seconds as retained $SYS topics */
+    static final int SYS_TOPICS_INTERVAL = 10;
+    private final ScheduledExecutorService metricsScheduler = ThreadPoolManager.getScheduledPool("mqttembeddedbroker");
+    private @Nullable ScheduledFuture<?> metricsFuture;
+    private final Map<String, String> publishedSysTopics = new HashMap<>();
 
     @Reference
     public void setMqttService(MqttService service) {
@@ -105,6 +116,7 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
 
     @SuppressWarnings("null")
     public void initialize(ServiceConfiguration config) throws IOException {
+        this.config = config;
         int port = config.port == null ? (config.port = config.secure ? 8883 : 1883) : config.port;
 
         // Create MqttBrokerConnection
@@ -128,6 +140,7 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
 
     @Deactivate
     public void deactivate() {
+        stopPublishingMetrics();
         if (service != null) {
             service.removeBrokersListener(this);
         }
@@ -200,13 +213,19 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
             properties.put(BrokerConstants.ALLOW_ANONYMOUS_PROPERTY_NAME, true);
         }
 
-        // Persistence: If not set, an in-memory database is used.
+        // Persistence: If not set, an in-memory database is used. Otherwise retained messages are kept in memory
+        // as well, but written to the persistence file periodically and on shutdown.
         if (!persistenceFilename.isEmpty()) {
             if (!Paths.get(persistenceFilename).isAbsolute()) {
                 persistenceFilename = Paths.get(ConfigConstants.getUserDataFolder()).toAbsolutePath()
                         .resolve(persistenceFilename).toString();
             }
             properties.put(BrokerConstants.PERSISTENT_STORE_PROPERTY_NAME, persistenceFilename);
+            properties.put(BrokerConstants.STORAGE_CLASS_NAME, SnapshotStorageService.class.getName());
+            final int snapshotInterval = config.autosave ? Math.max(1, config.snapshotInterval) : 0;
+            properties.put(BrokerConstants.AUTOSAVE_INTERVAL_PROPERTY_NAME, Integer.toString(snapshotInterval));
+            properties.put(SnapshotStorageService.BUFFER_SIZE_PROPERTY_NAME,
+                    Integer.toString(config.snapshotBufferSize * 1024));
         }
 
         // We may provide ACL functionality at some point as well
@@ -230,6 +249,7 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
 
     @Override
     public void stopEmbeddedServer() {
+        stopPublishingMetrics();
         if (this.server != null) {
             server.stopServer();
             server = null;
@@ -238,6 +258,46 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
         metrics.resetServer();
     }
 
+    private synchronized void startPublishingMetrics() {
+        stopPublishingMetrics();
+        publishedSysTopics.clear();
+        metricsFuture = metricsScheduler.scheduleWithFixedDelay(this::publishMetrics, SYS_TOPICS_INTERVAL,
+                SYS_TOPICS_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    private synchronized void stopPublishingMetrics() {
+        final ScheduledFuture<?> metricsFuture = this.metricsFuture;
+        if (metricsFuture != null) {
+            metricsFuture.cancel(false);
+            this.metricsFuture = null;
+        }
+    }
+
+    /**
+     * Updates the metric rates and publishes changed metrics as retained messages.
+     */
+    protected synchronized void publishMetrics() {
+        metrics.tick();
+        final MqttBrokerConnection connection = this.connection;
+        if (connection == null || connection.connectionState() != MqttConnectionState.CONNECTED) {
+            return;
+        }
+        final Map<String, String> sysTopics = metrics.getSysTopics();
+        sysTopics.forEach((topic, value) -> {
+            if (!value.equals(publishedSysTopics.put(topic, value))) {
+                connection.publish(topic, value.getBytes(StandardCharsets.UTF_8), 0, true);
+            }
+        });
+        // Delete the retained topics of clients that are gone
+        publishedSysTopics.keySet().removeIf(topic -> {
+            if (sysTopics.containsKey(topic)) {
+                return false;
+            }
+            connection.publish(topic, new byte[0], 0, true);
+            return true;
+        });
+    }
+
     /**
      * For testing: Returns true if the embedded server confirms that the MqttBrokerConnection is connected.
      */
@@ -283,11 +343,16 @@ public class EmbeddedBrokerServiceImpl implements EmbeddedBrokerService, Configu
                 connectionStateChanged(MqttConnectionState.DISCONNECTED, new TimeoutException("Timeout"));
             }
         });
-
+        startPublishingMetrics();
     }
 
     @Override
     public @Nullable MqttBrokerConnection getConnection() {
         return connection;
     }
+
+    @Override
+    public MqttEmbeddedBrokerMetrics getMetrics() {
+        return metrics;
+    }
 }
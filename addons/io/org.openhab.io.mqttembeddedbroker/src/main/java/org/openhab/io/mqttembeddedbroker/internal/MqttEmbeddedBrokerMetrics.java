@@ -13,6 +13,15 @@
 package org.openhab.io.mqttembeddedbroker.internal;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -28,10 +37,17 @@ import io.moquette.interception.messages.InterceptUnsubscribeMessage;
 import io.moquette.server.Server;
 
 /**
- * Informs the given listener about connected clients and maybe other
- * server metrics in the future. You need to set the server with {@link #setServer(Server)}.
+ * Informs the given listener about connected clients and collects server metrics.
+ * You need to set the server with {@link #setServer(Server)}.
  *
- * Right now this is an adapter interface for Moquettes InterceptHandler.
+ * <p>
+ * Collected are inbound messages and bytes (in total, per client and per first topic level), acknowledged outbound
+ * messages, the retained message count and the payload size distribution. Moquette calls the interceptor for every
+ * message, therefore all counters are striped {@link LongAdder}s that do not contend between the broker threads.
+ * Message rates are exponentially weighted moving averages over one minute, they are updated by {@link #tick()}.
+ *
+ * <p>
+ * {@link #getSysTopics()} returns the metrics as MQTT topic/value pairs, following the $SYS topic tree of other brokers.
  *
  * @author David Graeff - Initial contribution
  */
@@ -44,11 +60,94 @@ public class MqttEmbeddedBrokerMetrics implements InterceptHandler {
         void connectedClientIDs(Collection<String> clientIDs);
     }
 
+    /** The base topic of {@link #getSysTopics()} */
+    public static final String SYS_TOPIC = "$SYS/broker/";
+    /** Upper bounds of the payload size histogram buckets in bytes. The last bucket is unbounded. */
+    public static final int[] PAYLOAD_SIZE_BUCKETS = { 16, 64, 256, 1024, 4096, 16384 };
+    /**
+     * At most this many connected clients and topic prefixes are tracked. Further ones are accounted as {@link #OTHER}.
+     * Clients are tracked for as long as they are connected.
+     */
+    static final int MAX_TRACKED_KEYS = 256;
+    static final String OTHER = "other";
+
+    /**
+     * Messages and bytes of a client or topic prefix.
+     */
+    public static class Throughput {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        void add(int size) {
+            messages.increment();
+            bytes.add(size);
+        }
+
+        public long getMessages() {
+            return messages.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+    }
+
+    /**
+     * A per minute rate, exponentially weighted over the last minute.
+     */
+    public static class Rate {
+        private static final double WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+        private long lastCount = 0;
+        private long lastNanos;
+        private double perMinute = 0;
+
+        Rate(long nanos) {
+            lastNanos = nanos;
+        }
+
+        synchronized void tick(long count, long nanos) {
+            final long elapsed = nanos - lastNanos;
+            if (elapsed <= 0) {
+                return;
+            }
+            final double instant = (count - lastCount) * WINDOW_NANOS / elapsed;
+            final double alpha = 1 - Math.exp(-elapsed / WINDOW_NANOS);
+            perMinute += alpha * (instant - perMinute);
+            lastCount = count;
+            lastNanos = nanos;
+        }
+
+        public synchronized double getPerMinute() {
+            return perMinute;
+        }
+    }
+
     private final BrokerMetricsListener listener;
     private @Nullable Server server;
 
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder messagesAcknowledged = new LongAdder();
+    private final LongAdder subscribes = new LongAdder();
+    private final LongAdder unsubscribes = new LongAdder();
+    private final LongAdder[] payloadSizes = new LongAdder[PAYLOAD_SIZE_BUCKETS.length + 1];
+    private final Map<String, Throughput> clients = new ConcurrentHashMap<>();
+    private final Map<String, Throughput> topicPrefixes = new ConcurrentHashMap<>();
+    private final Set<String> retainedTopics = ConcurrentHashMap.newKeySet();
+
+    private final Rate messagesReceivedRate;
+    private final Rate bytesReceivedRate;
+    private final Rate messagesAcknowledgedRate;
+
     public MqttEmbeddedBrokerMetrics(BrokerMetricsListener listener) {
         this.listener = listener;
+        for (int i = 0; i < payloadSizes.length; ++i) {
+            payloadSizes[i] = new LongAdder();
+        }
+        final long now = System.nanoTime();
+        messagesReceivedRate = new Rate(now);
+        bytesReceivedRate = new Rate(now);
+        messagesAcknowledgedRate = new Rate(now);
     }
 
     /**
@@ -76,22 +175,52 @@ public class MqttEmbeddedBrokerMetrics implements InterceptHandler {
 
     @Override
     public void onUnsubscribe(@Nullable InterceptUnsubscribeMessage msg) {
+        unsubscribes.increment();
     }
 
     @Override
     public void onSubscribe(@Nullable InterceptSubscribeMessage msg) {
+        subscribes.increment();
     }
 
     @Override
     public void onPublish(@Nullable InterceptPublishMessage msg) {
+        if (msg == null) {
+            return;
+        }
+        final String topic = msg.getTopicName();
+        // Do not count our own statistics
+        if (topic.startsWith(SYS_TOPIC)) {
+            return;
+        }
+        final int size = msg.getPayload().readableBytes();
+        messagesReceived.increment();
+        bytesReceived.add(size);
+        payloadSizes[bucket(size)].increment();
+        final String clientID = msg.getClientID();
+        throughput(clients, clientID != null ? clientID : OTHER).add(size);
+        throughput(topicPrefixes, prefix(topic)).add(size);
+
+        if (msg.isRetainFlag()) {
+            // An empty retained message deletes the retained message of the topic
+            if (size == 0) {
+                retainedTopics.remove(topic);
+            } else {
+                retainedTopics.add(topic);
+            }
+        }
     }
 
     @Override
     public void onMessageAcknowledged(@Nullable InterceptAcknowledgedMessage msg) {
+        messagesAcknowledged.increment();
     }
 
     @Override
     public void onDisconnect(@Nullable InterceptDisconnectMessage msg) {
+        if (msg != null) {
+            clientGone(msg.getClientID());
+        }
         Server server = this.server;
         if (server != null) {
             listener.connectedClientIDs(server.getConnectionsManager().getConnectedClientIds());
@@ -100,6 +229,9 @@ public class MqttEmbeddedBrokerMetrics implements InterceptHandler {
 
     @Override
     public void onConnectionLost(@Nullable InterceptConnectionLostMessage msg) {
+        if (msg != null) {
+            clientGone(msg.getClientID());
+        }
         Server server = this.server;
         if (server != null) {
             listener.connectedClientIDs(server.getConnectionsManager().getConnectedClientIds());
@@ -117,11 +249,182 @@ public class MqttEmbeddedBrokerMetrics implements InterceptHandler {
     @Override
     public Class<?>[] getInterceptedMessageTypes() {
         return new Class<?>[] { InterceptConnectMessage.class, InterceptConnectionLostMessage.class,
-                InterceptDisconnectMessage.class };
+                InterceptDisconnectMessage.class, InterceptPublishMessage.class, InterceptSubscribeMessage.class,
+                InterceptUnsubscribeMessage.class, InterceptAcknowledgedMessage.class };
     }
 
     @Override
     public String getID() {
         return "collectmetrics";
     }
+
+    /**
+     * Stops tracking the throughput of a disconnected client, so that clients with generated IDs do not use up the
+     * tracked keys.
+     */
+    private void clientGone(@Nullable String clientID) {
+        if (clientID != null) {
+            clients.remove(clientID);
+        }
+    }
+
+    static int bucket(int size) {
+        for (int i = 0; i < PAYLOAD_SIZE_BUCKETS.length; ++i) {
+            if (size <= PAYLOAD_SIZE_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return PAYLOAD_SIZE_BUCKETS.length;
+    }
+
+    /**
+     * Returns the first level of the given topic.
+     */
+    static String prefix(String topic) {
+        final int index = topic.indexOf('/');
+        return index < 0 ? topic : topic.substring(0, index);
+    }
+
+    private static Throughput throughput(Map<String, Throughput> map, String key) {
+        Throughput throughput = map.get(key);
+        if (throughput != null) {
+            return throughput;
+        }
+        return map.computeIfAbsent(map.size() < MAX_TRACKED_KEYS ? key : OTHER, k -> new Throughput());
+    }
+
+    /**
+     * Updates the message rates. Call this periodically, for example every few seconds.
+     */
+    public void tick() {
+        final long now = System.nanoTime();
+        messagesReceivedRate.tick(messagesReceived.sum(), now);
+        bytesReceivedRate.tick(bytesReceived.sum(), now);
+        messagesAcknowledgedRate.tick(messagesAcknowledged.sum(), now);
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Returns the number of outbound messages that were acknowledged by clients (QoS 1 and 2 only).
+     */
+    public long getMessagesAcknowledged() {
+        return messagesAcknowledged.sum();
+    }
+
+    public long getSubscribes() {
+        return subscribes.sum();
+    }
+
+    public long getUnsubscribes() {
+        return unsubscribes.sum();
+    }
+
+    /**
+     * Returns the number of topics with a retained message, that were published since the broker started.
+     */
+    public int getRetainedMessages() {
+        return retainedTopics.size();
+    }
+
+    public Rate getMessagesReceivedRate() {
+        return messagesReceivedRate;
+    }
+
+    public Rate getBytesReceivedRate() {
+        return bytesReceivedRate;
+    }
+
+    public Rate getMessagesAcknowledgedRate() {
+        return messagesAcknowledgedRate;
+    }
+
+    /**
+     * Returns the number of received messages per payload size bucket, see {@link #PAYLOAD_SIZE_BUCKETS}.
+     */
+    public long[] getPayloadSizeHistogram() {
+        long[] histogram = new long[payloadSizes.length];
+        for (int i = 0; i < payloadSizes.length; ++i) {
+            histogram[i] = payloadSizes[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the inbound throughput per client ID of the connected clients.
+     */
+    public Map<String, Throughput> getClients() {
+        return Collections.unmodifiableMap(clients);
+    }
+
+    /**
+     * Returns the inbound throughput per first topic level.
+     */
+    public Map<String, Throughput> getTopicPrefixes() {
+        return Collections.unmodifiableMap(topicPrefixes);
+    }
+
+    public int getConnectedClients() {
+        final Server server = this.server;
+        return server == null ? 0 : server.getConnectionsManager().getConnectedClientIds().size();
+    }
+
+    public int getSubscriptions() {
+        final Server server = this.server;
+        return server == null ? 0 : server.getSubscriptions().size();
+    }
+
+    /**
+     * Returns all metrics as MQTT topics (below {@link #SYS_TOPIC}) and values.
+     */
+    public Map<String, String> getSysTopics() {
+        Map<String, String> topics = new LinkedHashMap<>();
+        topics.put(SYS_TOPIC + "clients/connected", String.valueOf(getConnectedClients()));
+        topics.put(SYS_TOPIC + "subscriptions/count", String.valueOf(getSubscriptions()));
+        topics.put(SYS_TOPIC + "retained messages/count", String.valueOf(getRetainedMessages()));
+        topics.put(SYS_TOPIC + "messages/received", String.valueOf(getMessagesReceived()));
+        topics.put(SYS_TOPIC + "messages/acknowledged", String.valueOf(getMessagesAcknowledged()));
+        topics.put(SYS_TOPIC + "bytes/received", String.valueOf(getBytesReceived()));
+        topics.put(SYS_TOPIC + "load/messages/received/1min", rate(messagesReceivedRate));
+        topics.put(SYS_TOPIC + "load/messages/acknowledged/1min", rate(messagesAcknowledgedRate));
+        topics.put(SYS_TOPIC + "load/bytes/received/1min", rate(bytesReceivedRate));
+
+        final long[] histogram = getPayloadSizeHistogram();
+        for (int i = 0; i < histogram.length; ++i) {
+            final String bucket = i < PAYLOAD_SIZE_BUCKETS.length ? String.valueOf(PAYLOAD_SIZE_BUCKETS[i]) : "larger";
+            topics.put(SYS_TOPIC + "payload size/" + bucket, String.valueOf(histogram[i]));
+        }
+        for (Map.Entry<String, Throughput> entry : new HashMap<>(clients).entrySet()) {
+            final String client = escape(entry.getKey());
+            topics.put(SYS_TOPIC + "clients/" + client + "/messages/received",
+                    String.valueOf(entry.getValue().getMessages()));
+            topics.put(SYS_TOPIC + "clients/" + client + "/bytes/received",
+                    String.valueOf(entry.getValue().getBytes()));
+        }
+        for (Map.Entry<String, Throughput> entry : new HashMap<>(topicPrefixes).entrySet()) {
+            final String prefix = escape(entry.getKey());
+            topics.put(SYS_TOPIC + "topics/" + prefix + "/messages/received",
+                    String.valueOf(entry.getValue().getMessages()));
+            topics.put(SYS_TOPIC + "topics/" + prefix + "/bytes/received",
+                    String.valueOf(entry.getValue().getBytes()));
+        }
+        return topics;
+    }
+
+    private static String rate(Rate rate) {
+        return String.format(Locale.ROOT, "%.2f", rate.getPerMinute());
+    }
+
+    /**
+     * Client IDs and topic levels may contain characters that are not allowed in a topic level
+     */
+    private static String escape(String level) {
+        return level.isEmpty() ? "_" : level.replace('/', '_').replace('+', '_').replace('#', '_');
+    }
 }
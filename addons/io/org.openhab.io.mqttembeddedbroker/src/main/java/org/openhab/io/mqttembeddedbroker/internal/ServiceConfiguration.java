@@ -25,6 +25,11 @@ public class ServiceConfiguration {
     public @Nullable Integer port;
     public Boolean secure = false;
     public String persistenceFile = "mqttembedded.bin";
+    /** Retained messages are written to the persistence file every snapshotInterval seconds, if autosave is set */
+    public Boolean autosave = true;
+    public Integer snapshotInterval = SnapshotStorageService.DEFAULT_AUTOSAVE_INTERVAL;
+    /** The snapshot buffer size in KB */
+    public Integer snapshotBufferSize = SnapshotStorageService.DEFAULT_BUFFER_SIZE / 1024;
 
     public @Nullable String username;
     public @Nullable String password;
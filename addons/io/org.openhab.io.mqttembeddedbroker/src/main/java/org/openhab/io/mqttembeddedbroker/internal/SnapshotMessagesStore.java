@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.mqttembeddedbroker.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.moquette.spi.IMatchingCondition;
+import io.moquette.spi.IMessagesStore;
+import io.moquette.spi.impl.subscriptions.Topic;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+/**
+ * Keeps the retained messages in memory and writes them as a compacted snapshot to a file on request, see
+ * {@link #snapshot()}. Only the latest retained message per topic is written and nothing is written if no retained
+ * message changed since the last snapshot. Compared to a store that writes every change, this avoids the write
+ * amplification of frequently updated retained topics.
+ *
+ * <p>
+ * The snapshot is written to a temporary file first, which replaces the previous snapshot afterwards. A crash during a
+ * snapshot therefore keeps the previous snapshot intact.
+ *
+ * <p>
+ * Retained messages of {@code $SYS/} topics, like the broker metrics, are kept in memory only. They are republished
+ * periodically and would otherwise cause a snapshot every interval.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class SnapshotMessagesStore implements IMessagesStore {
+    private static final int MAGIC = 0x4D514531; // "MQE1"
+    private static final String SYSTEM_TOPIC_PREFIX = "$SYS/";
+
+    private final Logger logger = LoggerFactory.getLogger(SnapshotMessagesStore.class);
+    private final Path file;
+    private final int bufferSize;
+    private final Map<Topic, StoredMessage> retained = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private int snapshotCount = 0;
+    private long lastSnapshotSize = 0;
+
+    /**
+     * Creates a snapshot store.
+     *
+     * @param file The snapshot file
+     * @param bufferSize The read and write buffer size in bytes
+     */
+    public SnapshotMessagesStore(Path file, int bufferSize) {
+        this.file = file;
+        this.bufferSize = Math.max(512, bufferSize);
+    }
+
+    /**
+     * Restores the retained messages of the last snapshot.
+     */
+    @Override
+    public void initStore() {
+        retained.clear();
+        try (InputStream inputStream = Files.newInputStream(file);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream, bufferSize))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("The file {} is not a retained message snapshot. Starting without retained messages",
+                        file);
+                return;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; ++i) {
+                final String topic = in.readUTF();
+                final MqttQoS qos = MqttQoS.valueOf(in.readByte());
+                final String clientID = in.readBoolean() ? in.readUTF() : null;
+                final byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+
+                StoredMessage message = new StoredMessage(payload, qos, topic);
+                message.setClientID(clientID);
+                message.setRetained(true);
+                retained.put(new Topic(topic), message);
+            }
+            logger.debug("Restored {} retained messages from {}", count, file);
+        } catch (NoSuchFileException e) {
+            logger.debug("No retained message snapshot {} yet", file);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Failed to restore retained messages from {}", file, e);
+        }
+        dirty.set(false);
+    }
+
+    @Override
+    public Collection<StoredMessage> searchMatching(IMatchingCondition condition) {
+        List<StoredMessage> results = new ArrayList<>();
+        for (Map.Entry<Topic, StoredMessage> entry : retained.entrySet()) {
+            if (condition.match(entry.getKey())) {
+                results.add(entry.getValue());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void cleanRetained(Topic topic) {
+        if (retained.remove(topic) != null && !isSystemTopic(topic.toString())) {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    public void storeRetained(Topic topic, StoredMessage storedMessage) {
+        retained.put(topic, storedMessage);
+        if (!isSystemTopic(topic.toString())) {
+            dirty.set(true);
+        }
+    }
+
+    private static boolean isSystemTopic(String topic) {
+        return topic.startsWith(SYSTEM_TOPIC_PREFIX);
+    }
+
+    /**
+     * Writes all retained messages to the snapshot file, if a retained message changed since the last snapshot.
+     *
+     * @return Return true if a snapshot was written.
+     * @throws IOException If the file could not be written
+     */
+    public synchronized boolean snapshot() throws IOException {
+        if (!dirty.getAndSet(false)) {
+            return false;
+        }
+        final List<StoredMessage> messages = new ArrayList<>(retained.size());
+        for (StoredMessage message : retained.values()) {
+            if (!isSystemTopic(message.getTopic())) {
+                messages.add(message);
+            }
+        }
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(tempFile);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, bufferSize))) {
+            out.writeInt(MAGIC);
+            out.writeInt(messages.size());
+            for (StoredMessage message : messages) {
+                out.writeUTF(message.getTopic());
+                out.writeByte(message.getQos().value());
+                final String clientID = message.getClientID();
+                out.writeBoolean(clientID != null);
+                if (clientID != null) {
+                    out.writeUTF(clientID);
+                }
+                final ByteBuf payload = message.getPayload();
+                out.writeInt(payload.readableBytes());
+                payload.readBytes(out, payload.readableBytes());
+            }
+            out.flush();
+            lastSnapshotSize = out.size();
+        } catch (IOException e) {
+            // Try again with the next snapshot
+            dirty.set(true);
+            throw e;
+        }
+
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        snapshotCount++;
+        return true;
+    }
+
+    /**
+     * Returns the number of retained messages.
+     */
+    public int size() {
+        return retained.size();
+    }
+
+    /**
+     * Returns the number of written snapshots.
+     */
+    public synchronized int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Returns the size of the last written snapshot in bytes.
+     */
+    public synchronized long getLastSnapshotSize() {
+        return lastSnapshotSize;
+    }
+}
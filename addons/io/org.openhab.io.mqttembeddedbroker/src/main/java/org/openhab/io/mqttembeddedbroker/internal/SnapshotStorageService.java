@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.mqttembeddedbroker.internal;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.moquette.BrokerConstants;
+import io.moquette.persistence.MemoryStorageService;
+import io.moquette.server.config.IConfig;
+import io.moquette.spi.IMessagesStore;
+import io.moquette.spi.ISessionsStore;
+import io.moquette.spi.IStore;
+
+/**
+ * A Moquette storage, configured with the {@link BrokerConstants#STORAGE_CLASS_NAME} property. Retained messages are
+ * kept in a {@link SnapshotMessagesStore} that is written to the {@link BrokerConstants#PERSISTENT_STORE_PROPERTY_NAME}
+ * file every {@link BrokerConstants#AUTOSAVE_INTERVAL_PROPERTY_NAME} seconds and when the broker stops. Sessions are
+ * kept in memory.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class SnapshotStorageService implements IStore {
+    /** The snapshot read and write buffer size in bytes */
+    public static final String BUFFER_SIZE_PROPERTY_NAME = "snapshot_buffer_size";
+    public static final int DEFAULT_AUTOSAVE_INTERVAL = 300;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(SnapshotStorageService.class);
+    private final MemoryStorageService memoryStore;
+    private final SnapshotMessagesStore messagesStore;
+    private final ScheduledExecutorService scheduler;
+    private final int autosaveInterval;
+    private @Nullable ScheduledFuture<?> autosaveFuture;
+
+    /**
+     * Creates the storage. Called by Moquette.
+     *
+     * @param config The broker configuration
+     * @param scheduler The broker scheduler
+     */
+    public SnapshotStorageService(IConfig config, ScheduledExecutorService scheduler) {
+        this.memoryStore = new MemoryStorageService(config, scheduler);
+        this.messagesStore = new SnapshotMessagesStore(
+                Paths.get(config.getProperty(BrokerConstants.PERSISTENT_STORE_PROPERTY_NAME)),
+                config.intProp(BUFFER_SIZE_PROPERTY_NAME, DEFAULT_BUFFER_SIZE));
+        this.scheduler = scheduler;
+        this.autosaveInterval = config.intProp(BrokerConstants.AUTOSAVE_INTERVAL_PROPERTY_NAME,
+                DEFAULT_AUTOSAVE_INTERVAL);
+    }
+
+    @Override
+    public void initStore() {
+        memoryStore.initStore();
+        messagesStore.initStore();
+        if (autosaveInterval > 0) {
+            autosaveFuture = scheduler.scheduleWithFixedDelay(this::snapshot, autosaveInterval, autosaveInterval,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    private void snapshot() {
+        try {
+            messagesStore.snapshot();
+        } catch (IOException e) {
+            logger.warn("Failed to write the retained message snapshot", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        final ScheduledFuture<?> autosaveFuture = this.autosaveFuture;
+        if (autosaveFuture != null) {
+            autosaveFuture.cancel(false);
+            this.autosaveFuture = null;
+        }
+        snapshot();
+        memoryStore.close();
+    }
+
+    @Override
+    public IMessagesStore messagesStore() {
+        return messagesStore;
+    }
+
+    @Override
+    public ISessionsStore sessionsStore() {
+        return memoryStore.sessionsStore();
+    }
+}
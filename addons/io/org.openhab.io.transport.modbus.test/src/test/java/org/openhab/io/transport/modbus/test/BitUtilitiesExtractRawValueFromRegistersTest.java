@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusRegister;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusRegister;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+
+public class BitUtilitiesExtractRawValueFromRegistersTest {
+
+    private static final int REGISTERS = 64;
+
+    /**
+     * Create random registers
+     *
+     * @param seed random seed
+     */
+    private static ModbusRegisterArray randomRegisters(long seed) {
+        Random random = new Random(seed);
+        ModbusRegister[] registers = new ModbusRegister[REGISTERS];
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = new BasicModbusRegister((byte) random.nextInt(), (byte) random.nextInt());
+        }
+        return new BasicModbusRegisterArray(registers);
+    }
+
+    private static int items(ValueType type) {
+        return type.getBits() >= 16 ? REGISTERS - type.getBits() / 16 + 1 : REGISTERS * 16 / type.getBits();
+    }
+
+    /**
+     * Straightforward decoding of the registers, used as reference
+     */
+    private static DecimalType decode(ModbusRegisterArray registers, int index, ValueType type) {
+        if (type.getBits() < 16) {
+            int register = registers.getRegister(index * type.getBits() / 16).toUnsignedShort();
+            int value = (register >> (index * type.getBits() % 16)) & ((1 << type.getBits()) - 1);
+            return new DecimalType(type == ValueType.INT8 ? (byte) value : value);
+        }
+        int count = type.getBits() / 16;
+        boolean swap = type.getConfigValue().endsWith("_swap");
+        ByteBuffer buffer = ByteBuffer.allocate(2 * count);
+        for (int i = 0; i < count; i++) {
+            buffer.put(registers.getRegister(index + (swap ? count - 1 - i : i)).getBytes());
+        }
+        byte[] bytes = buffer.array();
+        if (type == ValueType.FLOAT32 || type == ValueType.FLOAT32_SWAP) {
+            return new DecimalType(ByteBuffer.wrap(bytes).getFloat());
+        }
+        boolean unsigned = type.getConfigValue().startsWith("u");
+        return new DecimalType(new BigDecimal(unsigned ? new BigInteger(1, bytes) : new BigInteger(bytes)));
+    }
+
+    @Test
+    public void testAllValueTypesMatchReference() {
+        for (long seed = 0; seed < 20; seed++) {
+            ModbusRegisterArray registers = randomRegisters(seed);
+            for (ValueType type : ValueType.values()) {
+                for (int index = 0; index < items(type); index++) {
+                    long raw = ModbusBitUtilities.extractRawValueFromRegisters(registers, index, type);
+                    if ((type == ValueType.FLOAT32 || type == ValueType.FLOAT32_SWAP)
+                            && !Float.isFinite(Float.intBitsToFloat((int) raw))) {
+                        // NaN and infinity cannot be represented as DecimalType
+                        continue;
+                    }
+                    DecimalType expected = decode(registers, index, type);
+                    assertThat(String.format("%s at %d", type, index),
+                            ModbusBitUtilities.rawValueToDecimalType(raw, type), is(equalTo(expected)));
+                    assertThat(ModbusBitUtilities.extractStateFromRegisters(registers, index, type),
+                            is(equalTo(expected)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUint64AboveLongRange() {
+        ModbusRegisterArray registers = new BasicModbusRegisterArray(new ModbusRegister[] {
+                new BasicModbusRegister((byte) 0xff, (byte) 0xff), new BasicModbusRegister((byte) 0xff, (byte) 0xff),
+                new BasicModbusRegister((byte) 0xff, (byte) 0xff), new BasicModbusRegister((byte) 0xff, (byte) 0xfe) });
+
+        long raw = ModbusBitUtilities.extractRawValueFromRegisters(registers, 0, ValueType.UINT64);
+
+        assertThat(raw, is(equalTo(-2L)));
+        assertThat(ModbusBitUtilities.rawValueToDecimalType(raw, ValueType.UINT64),
+                is(equalTo(new DecimalType(new BigDecimal("18446744073709551614")))));
+        assertThat(ModbusBitUtilities.rawValueToDecimalType(raw, ValueType.INT64), is(equalTo(new DecimalType(-2))));
+    }
+}
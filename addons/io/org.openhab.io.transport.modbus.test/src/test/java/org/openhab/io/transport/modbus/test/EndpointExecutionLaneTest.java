@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicWriteTask;
+import org.openhab.io.transport.modbus.ModbusWriteCallback;
+import org.openhab.io.transport.modbus.ModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.WriteTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.EndpointExecutionLane;
+import org.openhab.io.transport.modbus.internal.EndpointExecutionLane.LaneTask;
+
+public class EndpointExecutionLaneTest {
+
+    private final EndpointExecutionLane lane = new EndpointExecutionLane(new ModbusTCPSlaveEndpoint("localhost", 502),
+            10);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        lane.shutdown();
+    }
+
+    private Runnable record(String name) {
+        return () -> executed.add(name);
+    }
+
+    private void blockLane() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        lane.submitPoll(null, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWritesAreExecutedBeforePolls() throws Exception {
+        blockLane();
+        lane.submitPoll("poll1", record("poll1"));
+        lane.submitWrite(record("write1"));
+        lane.submitPoll("poll2", record("poll2"));
+        LaneTask last = lane.submitWrite(record("write2"));
+        release.countDown();
+
+        LaneTask lastPoll = lane.submitPoll("poll3", record("poll3"));
+        last.get(5, TimeUnit.SECONDS);
+        lastPoll.get(5, TimeUnit.SECONDS);
+        assertThat(executed, is(equalTo(Arrays.asList("write1", "write2", "poll1", "poll2", "poll3"))));
+    }
+
+    @Test
+    public void testPollsAreNotStarvedByWrites() throws Exception {
+        blockLane();
+        LaneTask poll = lane.submitPoll("poll", record("poll"));
+        for (int i = 0; i < 6; i++) {
+            lane.submitWrite(record("write" + i));
+        }
+        release.countDown();
+        poll.get(5, TimeUnit.SECONDS);
+
+        assertThat(executed.indexOf("poll"), is(equalTo(4)));
+    }
+
+    @Test
+    public void testSamePollIsQueuedOnlyOnce() throws Exception {
+        blockLane();
+        LaneTask first = lane.submitPoll("poll", record("poll"));
+        LaneTask second = lane.submitPoll("poll", record("poll"));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(lane.getQueueSize(), is(equalTo(1)));
+        release.countDown();
+    }
+
+    @Test
+    public void testQueuedWritesAreCoalesced() throws Exception {
+        EndpointExecutionLane coalescingLane = new EndpointExecutionLane(new ModbusTCPSlaveEndpoint("localhost", 502),
+                10, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<WriteTask> written = new CopyOnWriteArrayList<>();
+        try {
+            coalescingLane.submitPoll(null, () -> {
+                started.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            LaneTask first = coalescingLane.submitWrite(write(10, 1), written::add);
+            assertThat(coalescingLane.submitWrite(write(10, 2), written::add), is(sameInstance(first)));
+            assertThat(coalescingLane.submitWrite(write(11, 3), written::add), is(sameInstance(first)));
+            // not coalesced with the first write, it would be written before register 11 otherwise
+            LaneTask second = coalescingLane.submitWrite(write(10, 4), written::add);
+            assertThat(second, is(not(sameInstance(first))));
+            blocked.countDown();
+            second.get(5, TimeUnit.SECONDS);
+
+            assertThat(written.size(), is(equalTo(2)));
+            ModbusWriteRegisterRequestBlueprint request = (ModbusWriteRegisterRequestBlueprint) written.get(0)
+                    .getRequest();
+            assertThat(request.getReference(), is(equalTo(10)));
+            assertThat(request.getRegisters().getRegister(0).getValue(), is(equalTo(2)));
+            assertThat(request.getRegisters().getRegister(1).getValue(), is(equalTo(3)));
+            request = (ModbusWriteRegisterRequestBlueprint) written.get(1).getRequest();
+            assertThat(request.getReference(), is(equalTo(10)));
+            assertThat(request.getRegisters().getRegister(0).getValue(), is(equalTo(4)));
+            assertThat(coalescingLane.getReplacedWrites(), is(equalTo(1L)));
+            assertThat(coalescingLane.getMergedWrites(), is(equalTo(1L)));
+        } finally {
+            blocked.countDown();
+            coalescingLane.shutdown();
+        }
+    }
+
+    private WriteTask write(int reference, int value) {
+        return new BasicWriteTask(new ModbusTCPSlaveEndpoint("localhost", 502),
+                new BasicModbusWriteRegisterRequestBlueprint(1, reference, new BasicModbusRegisterArray(value), false,
+                        1),
+                Mockito.mock(ModbusWriteCallback.class));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testQueueIsBounded() throws Exception {
+        blockLane();
+        try {
+            for (int i = 0; i <= 10; i++) {
+                lane.submitPoll(null, record("poll" + i));
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.ModbusUnexpectedTransactionIdException;
+import org.openhab.io.transport.modbus.internal.ModbusSlaveIOExceptionImpl;
+import org.openhab.io.transport.modbus.metrics.LatencyHistogram;
+import org.openhab.io.transport.modbus.metrics.ModbusEndpointMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusOperationMetrics;
+
+public class ModbusMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getPercentileMillis(50), is(equalTo(0L)));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(4);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(150);
+        }
+
+        assertThat(histogram.getCount(), is(equalTo(100L)));
+        assertThat(histogram.getMaxMillis(), is(equalTo(150L)));
+        assertThat(histogram.getPercentileMillis(50), is(equalTo(5L)));
+        assertThat(histogram.getPercentileMillis(90), is(equalTo(5L)));
+        assertThat(histogram.getPercentileMillis(95), is(equalTo(150L)));
+        assertThat(histogram.getMeanMillis(), is(equalTo(18.6)));
+    }
+
+    @Test
+    public void testHistogramOverflowBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(30000);
+
+        long[] counts = histogram.getBucketCounts();
+        assertThat(counts.length, is(equalTo(LatencyHistogram.getBucketBoundsMillis().length + 1)));
+        assertThat(counts[counts.length - 1], is(equalTo(1L)));
+        assertThat(histogram.getPercentileMillis(99), is(equalTo(30000L)));
+    }
+
+    @Test
+    public void testErrorsByType() {
+        ModbusOperationMetrics metrics = new ModbusOperationMetrics();
+        metrics.recordOperation(10, 2, 7, 1, 1, null);
+        metrics.recordOperation(10, 2, 7, 1, 3, new ModbusSlaveIOExceptionImpl(new IOException("broken pipe")));
+        metrics.recordOperation(10, 2, 7, 1, 2, new ModbusUnexpectedTransactionIdException(1, 2));
+        metrics.recordOperation(10, 2, 7, 1, 1, new ModbusSlaveIOExceptionImpl(new IOException("timeout")));
+
+        assertThat(metrics.getOperations(), is(equalTo(4L)));
+        assertThat(metrics.getFailedOperations(), is(equalTo(3L)));
+        assertThat(metrics.getRetries(), is(equalTo(3L)));
+        assertThat(metrics.getErrorRate(), is(equalTo(0.75)));
+        assertThat(metrics.getErrorCounts().get("ModbusSlaveIOExceptionImpl"), is(equalTo(2L)));
+        assertThat(metrics.getErrorCounts().get("ModbusUnexpectedTransactionIdException"), is(equalTo(1L)));
+        assertThat(metrics.getTransaction().getCount(), is(equalTo(4L)));
+
+        metrics.reset();
+        assertThat(metrics.getOperations(), is(equalTo(0L)));
+        assertThat(metrics.getErrorCounts().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testEndpointPoolAndQueue() {
+        ModbusEndpointMetrics metrics = new ModbusEndpointMetrics();
+        metrics.recordBorrow(0, false, true);
+        metrics.recordBorrow(80, true, true);
+        metrics.recordBorrow(3000, true, false);
+        metrics.updateQueueDepth(7);
+        metrics.updateQueueDepth(2);
+
+        assertThat(metrics.getBorrowWait().getCount(), is(equalTo(3L)));
+        assertThat(metrics.getPoolExhausted(), is(equalTo(2L)));
+        assertThat(metrics.getConnectFailures(), is(equalTo(1L)));
+        assertThat(metrics.getQueueDepth(), is(equalTo(2)));
+        assertThat(metrics.getMaxQueueDepth(), is(equalTo(7)));
+    }
+}
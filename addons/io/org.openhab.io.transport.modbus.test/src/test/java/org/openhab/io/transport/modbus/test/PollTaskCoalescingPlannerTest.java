@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.CoalescedPollTask;
+import org.openhab.io.transport.modbus.internal.PollTaskCoalescingPlanner;
+
+public class PollTaskCoalescingPlannerTest {
+
+    private static class RecordingCallback implements ModbusReadCallback {
+        final List<Object> received = new ArrayList<>();
+
+        @Override
+        public void onRegisters(@NonNull ModbusReadRequestBlueprint request, @NonNull ModbusRegisterArray registers) {
+            received.add(registers);
+        }
+
+        @Override
+        public void onBits(@NonNull ModbusReadRequestBlueprint request, @NonNull BitArray bits) {
+            received.add(bits);
+        }
+
+        @Override
+        public void onError(@NonNull ModbusReadRequestBlueprint request, @NonNull Exception error) {
+            received.add(error);
+        }
+    }
+
+    private final ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("localhost", 502);
+
+    private PollTask task(ModbusSlaveEndpoint endpoint, int unitId, ModbusReadFunctionCode functionCode, int start,
+            int length, ModbusReadCallback callback) {
+        return new BasicPollTaskImpl(endpoint,
+                new BasicModbusReadRequestBlueprint(unitId, functionCode, start, length, 1), callback);
+    }
+
+    private PollTask task(int start, int length, ModbusReadCallback callback) {
+        return task(endpoint, 1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length, callback);
+    }
+
+    @Test
+    public void testAdjacentRequestsAreMerged() {
+        RecordingCallback callback = new RecordingCallback();
+        List<PollTask> planned = PollTaskCoalescingPlanner.plan(
+                Arrays.asList(task(10, 2, callback), task(0, 5, callback), task(5, 5, callback)), 0, t -> true);
+
+        assertThat(planned.size(), is(equalTo(1)));
+        assertThat(planned.get(0), is(instanceOf(CoalescedPollTask.class)));
+        ModbusReadRequestBlueprint merged = planned.get(0).getRequest();
+        assertThat(merged.getReference(), is(equalTo(0)));
+        assertThat(merged.getDataLength(), is(equalTo(12)));
+        assertThat(((CoalescedPollTask) planned.get(0)).getMembers().size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void testGapLimitsMerging() {
+        RecordingCallback callback = new RecordingCallback();
+        List<PollTask> tasks = Arrays.asList(task(0, 5, callback), task(8, 2, callback));
+
+        assertThat(PollTaskCoalescingPlanner.plan(tasks, 2, t -> true).size(), is(equalTo(2)));
+        List<PollTask> planned = PollTaskCoalescingPlanner.plan(tasks, 3, t -> true);
+        assertThat(planned.size(), is(equalTo(1)));
+        assertThat(planned.get(0).getRequest().getDataLength(), is(equalTo(10)));
+    }
+
+    @Test
+    public void testIncompatibleRequestsAreNotMerged() {
+        RecordingCallback callback = new RecordingCallback();
+        List<PollTask> tasks = Arrays.asList(task(0, 5, callback),
+                task(endpoint, 2, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 5, 5, callback),
+                task(endpoint, 1, ModbusReadFunctionCode.READ_INPUT_REGISTERS, 5, 5, callback),
+                task(new ModbusTCPSlaveEndpoint("otherhost", 502), 1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS,
+                        5, 5, callback));
+
+        List<PollTask> planned = PollTaskCoalescingPlanner.plan(tasks, 0, t -> true);
+        assertThat(planned.size(), is(equalTo(4)));
+        for (PollTask task : planned) {
+            assertThat(task, is(not(instanceOf(CoalescedPollTask.class))));
+        }
+    }
+
+    @Test
+    public void testMaximumPduLengthIsRespected() {
+        RecordingCallback callback = new RecordingCallback();
+        List<PollTask> planned = PollTaskCoalescingPlanner
+                .plan(Arrays.asList(task(0, 100, callback), task(100, 26, callback)), 0, t -> true);
+        assertThat(planned.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testRegistersAreSlicedForEachMember() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        PollTask unregistered = task(0, 1, new RecordingCallback());
+        List<PollTask> planned = PollTaskCoalescingPlanner.plan(
+                Arrays.asList(task(0, 2, first), task(3, 1, second), unregistered), 1, t -> t != unregistered);
+
+        CoalescedPollTask coalesced = (CoalescedPollTask) planned.get(0);
+        coalesced.getCallback().onRegisters(coalesced.getRequest(), new BasicModbusRegisterArray(1, 2, 3, 4));
+
+        assertThat(first.received.size(), is(equalTo(1)));
+        ModbusRegisterArray firstRegisters = (ModbusRegisterArray) first.received.get(0);
+        assertThat(firstRegisters.size(), is(equalTo(2)));
+        assertThat(firstRegisters.getRegister(0).getValue(), is(equalTo(1)));
+        assertThat(firstRegisters.getRegister(1).getValue(), is(equalTo(2)));
+
+        ModbusRegisterArray secondRegisters = (ModbusRegisterArray) second.received.get(0);
+        assertThat(secondRegisters.size(), is(equalTo(1)));
+        assertThat(secondRegisters.getRegister(0).getValue(), is(equalTo(4)));
+
+        assertThat(((RecordingCallback) unregistered.getCallback()).received.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testBitsAreSlicedForEachMember() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        List<PollTask> planned = PollTaskCoalescingPlanner
+                .plan(Arrays.asList(task(endpoint, 1, ModbusReadFunctionCode.READ_COILS, 0, 2, first),
+                        task(endpoint, 1, ModbusReadFunctionCode.READ_COILS, 2, 2, second)), 0, t -> true);
+
+        CoalescedPollTask coalesced = (CoalescedPollTask) planned.get(0);
+        coalesced.getCallback().onBits(coalesced.getRequest(), new BasicBitArray(true, false, false, true));
+
+        assertThat(first.received.get(0), is(equalTo(new BasicBitArray(true, false))));
+        assertThat(second.received.get(0), is(equalTo(new BasicBitArray(false, true))));
+    }
+
+    @Test
+    public void testShortResponseIsReportedAsError() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        List<PollTask> planned = PollTaskCoalescingPlanner
+                .plan(Arrays.asList(task(0, 2, first), task(2, 2, second)), 0, t -> true);
+
+        CoalescedPollTask coalesced = (CoalescedPollTask) planned.get(0);
+        coalesced.getCallback().onRegisters(coalesced.getRequest(), new BasicModbusRegisterArray(1, 2, 3));
+
+        assertThat(first.received.get(0), is(instanceOf(ModbusRegisterArray.class)));
+        assertThat(second.received.get(0), is(instanceOf(Exception.class)));
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicModbusWriteCoilRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicWriteTask;
+import org.openhab.io.transport.modbus.ModbusResponse;
+import org.openhab.io.transport.modbus.ModbusWriteCallback;
+import org.openhab.io.transport.modbus.ModbusWriteFunctionCode;
+import org.openhab.io.transport.modbus.ModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
+import org.openhab.io.transport.modbus.WriteTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.CoalescedWriteTask;
+import org.openhab.io.transport.modbus.internal.MergedRegisterWriteTask;
+import org.openhab.io.transport.modbus.internal.WriteTaskCoalescer;
+
+public class WriteTaskCoalescerTest {
+
+    private static class RecordingCallback implements ModbusWriteCallback {
+        final List<ModbusWriteRequestBlueprint> responses = new ArrayList<>();
+
+        @Override
+        public void onError(@NonNull ModbusWriteRequestBlueprint request, @NonNull Exception error) {
+        }
+
+        @Override
+        public void onWriteResponse(@NonNull ModbusWriteRequestBlueprint request, @NonNull ModbusResponse response) {
+            responses.add(request);
+        }
+    }
+
+    private final ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("localhost", 502);
+
+    private WriteTask register(int unitId, int reference, int value, ModbusWriteCallback callback) {
+        return new BasicWriteTask(endpoint, new BasicModbusWriteRegisterRequestBlueprint(unitId, reference,
+                new BasicModbusRegisterArray(value), false, 1), callback);
+    }
+
+    private WriteTask register(int reference, int value) {
+        return register(1, reference, value, new RecordingCallback());
+    }
+
+    @Test
+    public void testWriteToSameRegisterReplacesPendingWrite() {
+        WriteTask pending = register(10, 1);
+        WriteTask incoming = register(10, 2);
+
+        WriteTask replaced = WriteTaskCoalescer.replace(pending, incoming);
+        assertThat(replaced, is(instanceOf(CoalescedWriteTask.class)));
+        assertThat(replaced.getRequest(), is(sameInstance(incoming.getRequest())));
+        assertThat(WriteTaskCoalescer.replace(pending, register(11, 2)), is(nullValue()));
+        assertThat(WriteTaskCoalescer.replace(pending, register(2, 10, 2, new RecordingCallback())),
+                is(nullValue()));
+        assertThat(WriteTaskCoalescer.replace(pending,
+                new BasicWriteTask(endpoint, new BasicModbusWriteCoilRequestBlueprint(1, 10, true, false, 1),
+                        new RecordingCallback())),
+                is(nullValue()));
+    }
+
+    @Test
+    public void testSupersededWritesAreCompleted() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RecordingCallback third = new RecordingCallback();
+        WriteTask firstTask = register(1, 10, 1, first);
+        WriteTask secondTask = register(1, 10, 2, second);
+        WriteTask thirdTask = register(1, 10, 3, third);
+        WriteTask replaced = WriteTaskCoalescer.replace(WriteTaskCoalescer.replace(firstTask, secondTask), thirdTask);
+
+        assertThat(replaced.getRequest(), is(sameInstance(thirdTask.getRequest())));
+        replaced.getCallback().onWriteResponse(replaced.getRequest(), () -> 6);
+
+        assertThat(first.responses, is(equalTo(Collections.singletonList(firstTask.getRequest()))));
+        assertThat(second.responses, is(equalTo(Collections.singletonList(secondTask.getRequest()))));
+        assertThat(third.responses, is(equalTo(Collections.singletonList(thirdTask.getRequest()))));
+    }
+
+    @Test
+    public void testContiguousWritesAreMerged() {
+        WriteTask merged = WriteTaskCoalescer.merge(register(10, 1), register(11, 2));
+        merged = WriteTaskCoalescer.merge(merged, register(9, 3));
+
+        assertThat(merged, is(instanceOf(MergedRegisterWriteTask.class)));
+        ModbusWriteRegisterRequestBlueprint request = (ModbusWriteRegisterRequestBlueprint) merged.getRequest();
+        assertThat(request.getFunctionCode(), is(equalTo(ModbusWriteFunctionCode.WRITE_MULTIPLE_REGISTERS)));
+        assertThat(request.getReference(), is(equalTo(9)));
+        assertThat(request.getRegisters().size(), is(equalTo(3)));
+        assertThat(request.getRegisters().getRegister(0).getValue(), is(equalTo(3)));
+        assertThat(request.getRegisters().getRegister(1).getValue(), is(equalTo(1)));
+        assertThat(request.getRegisters().getRegister(2).getValue(), is(equalTo(2)));
+
+        assertThat(WriteTaskCoalescer.merge(merged, register(13, 4)), is(nullValue()));
+    }
+
+    @Test
+    public void testWriteToMergedRegisterIsNotCoalesced() {
+        // replacing the value within the merged write would write it ahead of the other member
+        WriteTask merged = WriteTaskCoalescer.merge(register(10, 1), register(11, 2));
+
+        assertThat(WriteTaskCoalescer.replace(merged, register(10, 5)), is(nullValue()));
+        assertThat(WriteTaskCoalescer.merge(merged, register(10, 5)), is(nullValue()));
+    }
+
+    @Test
+    public void testResponseIsPassedToAllMembers() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        WriteTask firstTask = register(1, 10, 1, first);
+        WriteTask secondTask = register(1, 11, 2, second);
+        WriteTask merged = WriteTaskCoalescer.merge(firstTask, secondTask);
+
+        merged.getCallback().onWriteResponse(merged.getRequest(), () -> 16);
+
+        assertThat(first.responses.size(), is(equalTo(1)));
+        assertThat(first.responses.get(0), is(sameInstance(firstTask.getRequest())));
+        assertThat(second.responses.get(0), is(sameInstance(secondTask.getRequest())));
+    }
+}
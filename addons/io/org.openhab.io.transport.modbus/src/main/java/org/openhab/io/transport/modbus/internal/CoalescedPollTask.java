@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Poll task reading the data of several other poll tasks with a single transaction
+ *
+ * The merged request covers the data of all member tasks. On response, the data is sliced and each member callback is
+ * called with its original request and the matching part of the data. Errors are passed to all member callbacks.
+ *
+ * Equality is identity based, instances are created by {@link PollTaskCoalescingPlanner} for each poll cycle.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class CoalescedPollTask implements PollTask, ModbusReadCallback {
+
+    private static final StandardToStringStyle TO_STRING_STYLE = new StandardToStringStyle();
+    static {
+        TO_STRING_STYLE.setUseShortClassName(true);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(CoalescedPollTask.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final ModbusReadRequestBlueprint request;
+    private final List<PollTask> members;
+    private final Predicate<PollTask> isRegistered;
+
+    /**
+     *
+     * @param endpoint endpoint shared by all member tasks
+     * @param request merged request covering the data of all members
+     * @param members tasks served by this task
+     * @param isRegistered used to skip callbacks of members that were unregistered while the poll was executing
+     */
+    public CoalescedPollTask(ModbusSlaveEndpoint endpoint, ModbusReadRequestBlueprint request, List<PollTask> members,
+            Predicate<PollTask> isRegistered) {
+        this.endpoint = endpoint;
+        this.request = request;
+        this.members = Collections.unmodifiableList(members);
+        this.isRegistered = isRegistered;
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public ModbusReadRequestBlueprint getRequest() {
+        return request;
+    }
+
+    @Override
+    public ModbusReadCallback getCallback() {
+        return this;
+    }
+
+    /**
+     * Get the tasks served by this task
+     *
+     * @return member tasks
+     */
+    public List<PollTask> getMembers() {
+        return members;
+    }
+
+    /**
+     * Whether any of the member tasks is still registered
+     *
+     * @return true when at least one member is registered
+     */
+    public boolean hasRegisteredMembers() {
+        return members.stream().anyMatch(isRegistered);
+    }
+
+    @Override
+    public void onRegisters(ModbusReadRequestBlueprint mergedRequest, ModbusRegisterArray registers) {
+        for (PollTask member : members) {
+            ModbusReadCallback callback = member.getCallback();
+            if (callback == null || !isRegistered.test(member)) {
+                continue;
+            }
+            ModbusReadRequestBlueprint memberRequest = member.getRequest();
+            int offset = memberRequest.getReference() - request.getReference();
+            if (offset + memberRequest.getDataLength() > registers.size()) {
+                callback.onError(memberRequest, shortResponse(registers.size()));
+                continue;
+            }
+            invoke(member, () -> callback.onRegisters(memberRequest,
+                    new RegisterArraySlice(registers, offset, memberRequest.getDataLength())));
+        }
+    }
+
+    @Override
+    public void onBits(ModbusReadRequestBlueprint mergedRequest, BitArray bits) {
+        for (PollTask member : members) {
+            ModbusReadCallback callback = member.getCallback();
+            if (callback == null || !isRegistered.test(member)) {
+                continue;
+            }
+            ModbusReadRequestBlueprint memberRequest = member.getRequest();
+            int offset = memberRequest.getReference() - request.getReference();
+            if (offset + memberRequest.getDataLength() > bits.size()) {
+                callback.onError(memberRequest, shortResponse(bits.size()));
+                continue;
+            }
+            invoke(member, () -> callback.onBits(memberRequest,
+                    new BitArraySlice(bits, offset, memberRequest.getDataLength())));
+        }
+    }
+
+    @Override
+    public void onError(ModbusReadRequestBlueprint mergedRequest, Exception error) {
+        for (PollTask member : members) {
+            ModbusReadCallback callback = member.getCallback();
+            if (callback == null || !isRegistered.test(member)) {
+                continue;
+            }
+            invoke(member, () -> callback.onError(member.getRequest(), error));
+        }
+    }
+
+    /**
+     * Call member callback, making sure that one failing callback does not prevent calling the others
+     */
+    private void invoke(PollTask member, Runnable callbackInvocation) {
+        try {
+            callbackInvocation.run();
+        } catch (RuntimeException e) {
+            logger.error("Callback of coalesced poll task {} failed: {} {}", member, e.getClass().getName(),
+                    e.getMessage(), e);
+        }
+    }
+
+    private Exception shortResponse(int received) {
+        return new ModbusSlaveIOExceptionImpl(new IOException(String.format(
+                "Response of coalesced request %s contained only %d items", request, received)));
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, TO_STRING_STYLE).append("request", request).append("endpoint", endpoint)
+                .append("members", members.size()).toString();
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.ModbusResponse;
+import org.openhab.io.transport.modbus.ModbusWriteCallback;
+import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
+import org.openhab.io.transport.modbus.WriteTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write task superseding one or more pending writes to the same data
+ *
+ * Only the request of the latest write is executed. Its response, or error, completes the superseded writes as well:
+ * their callbacks are called with their original request, after the callback of the latest write.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class CoalescedWriteTask implements WriteTask, ModbusWriteCallback {
+
+    private static final StandardToStringStyle TO_STRING_STYLE = new StandardToStringStyle();
+    static {
+        TO_STRING_STYLE.setUseShortClassName(true);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(CoalescedWriteTask.class);
+
+    private final WriteTask latest;
+    private final List<WriteTask> superseded;
+
+    /**
+     *
+     * @param pending write superseded by <code>latest</code>, possibly itself a {@link CoalescedWriteTask}
+     * @param latest write to execute
+     */
+    public CoalescedWriteTask(WriteTask pending, WriteTask latest) {
+        List<WriteTask> superseded = new ArrayList<>();
+        if (pending instanceof CoalescedWriteTask) {
+            CoalescedWriteTask coalesced = (CoalescedWriteTask) pending;
+            superseded.addAll(coalesced.superseded);
+            superseded.add(coalesced.latest);
+        } else {
+            superseded.add(pending);
+        }
+        this.latest = latest;
+        this.superseded = Collections.unmodifiableList(superseded);
+    }
+
+    /**
+     * Get the write that is executed
+     *
+     * @return latest write
+     */
+    public WriteTask getLatest() {
+        return latest;
+    }
+
+    /**
+     * Get the writes that are completed without being executed
+     *
+     * @return superseded writes, in the order they were submitted
+     */
+    public List<WriteTask> getSuperseded() {
+        return superseded;
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return latest.getEndpoint();
+    }
+
+    @Override
+    public ModbusWriteRequestBlueprint getRequest() {
+        return latest.getRequest();
+    }
+
+    @Override
+    public ModbusWriteCallback getCallback() {
+        return this;
+    }
+
+    @Override
+    public void onError(ModbusWriteRequestBlueprint request, Exception error) {
+        invoke(latest, callback -> callback.onError(latest.getRequest(), error));
+        for (WriteTask task : superseded) {
+            invoke(task, callback -> callback.onError(task.getRequest(), error));
+        }
+    }
+
+    @Override
+    public void onWriteResponse(ModbusWriteRequestBlueprint request, ModbusResponse response) {
+        invoke(latest, callback -> callback.onWriteResponse(latest.getRequest(), response));
+        for (WriteTask task : superseded) {
+            invoke(task, callback -> callback.onWriteResponse(task.getRequest(), response));
+        }
+    }
+
+    /**
+     * Call task callback, making sure that one failing callback does not prevent calling the others
+     */
+    private void invoke(WriteTask task, Consumer<ModbusWriteCallback> callbackInvocation) {
+        ModbusWriteCallback callback = task.getCallback();
+        if (callback == null) {
+            return;
+        }
+        try {
+            callbackInvocation.accept(callback);
+        } catch (RuntimeException e) {
+            logger.error("Callback of coalesced write task {} failed: {} {}", task, e.getClass().getName(),
+                    e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, TO_STRING_STYLE).append("latest", latest)
+                .append("superseded", superseded.size()).toString();
+    }
+}
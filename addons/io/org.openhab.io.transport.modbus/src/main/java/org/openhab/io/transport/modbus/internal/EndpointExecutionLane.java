@@ -0,0 +1,324 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.openhab.io.transport.modbus.WriteTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serialized execution lane for the operations of a single endpoint
+ *
+ * Each lane executes its operations one at a time with its own thread, so that a slow or unresponsive endpoint cannot
+ * occupy threads needed by other endpoints. Writes are executed ahead of queued polls, but after
+ * {@link #MAX_CONSECUTIVE_WRITES} writes in a row a waiting poll is executed so that polls are not starved by
+ * continuous writes.
+ *
+ * The thread of the lane is released when the lane is idle.
+ *
+ * Optionally, writes waiting in the lane are coalesced using {@link WriteTaskCoalescer}: a write to the same data as the
+ * last queued write replaces it, and a single register write contiguous to the last queued write is merged into it.
+ * Writes are never coalesced with an earlier write, so the order in which the device receives them is kept.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class EndpointExecutionLane {
+
+    /**
+     * Number of writes executed in a row before a waiting poll is given a turn
+     */
+    static final int MAX_CONSECUTIVE_WRITES = 4;
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Operation queued in the lane. Implements {@link ScheduledFuture} so that it can be returned from the
+     * {@link org.openhab.io.transport.modbus.ModbusManager} methods.
+     *
+     * @author agent - Initial contribution
+     *
+     */
+    public static class LaneTask extends FutureTask<@Nullable Void> implements ScheduledFuture<@Nullable Void> {
+
+        private final @Nullable Object key;
+        private final @Nullable PendingWrite pendingWrite;
+
+        LaneTask(Runnable runnable, @Nullable Object key) {
+            this(runnable, key, null);
+        }
+
+        LaneTask(Runnable runnable, @Nullable Object key, @Nullable PendingWrite pendingWrite) {
+            super(runnable, null);
+            this.key = key;
+            this.pendingWrite = pendingWrite;
+        }
+
+        /**
+         * Key identifying the operation, used to avoid queuing the same operation twice
+         */
+        @Nullable
+        Object getKey() {
+            return key;
+        }
+
+        @Override
+        public long getDelay(@Nullable TimeUnit unit) {
+            return 0;
+        }
+
+        @Override
+        public int compareTo(@Nullable Delayed other) {
+            return other == null ? 1 : Long.compare(0, other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Write waiting in the lane. The task is replaced when later writes are coalesced with it.
+     */
+    private static class PendingWrite {
+        WriteTask task;
+
+        PendingWrite(WriteTask task) {
+            this.task = task;
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(EndpointExecutionLane.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final int maxQueueSize;
+    private final boolean coalesceWrites;
+    private final ThreadPoolExecutor executor;
+
+    private final Object lock = new Object();
+    private final Deque<LaneTask> writes = new ArrayDeque<>();
+    private final Deque<LaneTask> polls = new ArrayDeque<>();
+    private boolean draining;
+    private int consecutiveWrites;
+    private final AtomicLong replacedWrites = new AtomicLong();
+    private final AtomicLong mergedWrites = new AtomicLong();
+
+    /**
+     *
+     * @param endpoint endpoint served by this lane
+     * @param maxQueueSize maximum number of queued operations, separately for polls and writes
+     */
+    public EndpointExecutionLane(ModbusSlaveEndpoint endpoint, int maxQueueSize) {
+        this(endpoint, maxQueueSize, false);
+    }
+
+    /**
+     *
+     * @param endpoint endpoint served by this lane
+     * @param maxQueueSize maximum number of queued operations, separately for polls and writes
+     * @param coalesceWrites whether to coalesce queued writes submitted with
+     *            {@link #submitWrite(WriteTask, Consumer)}
+     */
+    public EndpointExecutionLane(ModbusSlaveEndpoint endpoint, int maxQueueSize, boolean coalesceWrites) {
+        this.endpoint = endpoint;
+        this.maxQueueSize = maxQueueSize;
+        this.coalesceWrites = coalesceWrites;
+        this.executor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("modbusLane-" + endpoint, true));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue poll operation
+     *
+     * @param key identifies the poll. If a poll with equal key is already queued, nothing is queued
+     * @param operation operation to execute
+     * @return queued task, or the already queued task with the same key
+     * @throws RejectedExecutionException when the queue is full or the lane has been shut down
+     */
+    public LaneTask submitPoll(@Nullable Object key, Runnable operation) {
+        synchronized (lock) {
+            if (key != null) {
+                for (LaneTask queued : polls) {
+                    if (key.equals(queued.getKey())) {
+                        logger.debug("Poll {} is already queued in lane of endpoint {}, not queuing again", key,
+                                endpoint);
+                        return queued;
+                    }
+                }
+            }
+            return enqueue(polls, new LaneTask(operation, key));
+        }
+    }
+
+    /**
+     * Queue write operation. Writes are executed ahead of queued polls.
+     *
+     * @param operation operation to execute
+     * @return queued task
+     * @throws RejectedExecutionException when the queue is full or the lane has been shut down
+     */
+    public LaneTask submitWrite(Runnable operation) {
+        synchronized (lock) {
+            return enqueue(writes, new LaneTask(operation, null));
+        }
+    }
+
+    /**
+     * Queue write task. Writes are executed ahead of queued polls.
+     *
+     * When write coalescing is enabled, the task might be combined with a write already queued. In that case the
+     * future of the queued write is returned, and the task is executed as part of it.
+     *
+     * @param task write task
+     * @param operation executes the write task, or the task combined from several write tasks
+     * @return queued task
+     * @throws RejectedExecutionException when the queue is full or the lane has been shut down
+     */
+    public LaneTask submitWrite(WriteTask task, Consumer<WriteTask> operation) {
+        synchronized (lock) {
+            if (coalesceWrites) {
+                // Coalesce only with the last queued write, so that writes are not reordered
+                LaneTask last = writes.peekLast();
+                PendingWrite lastPending = last == null ? null : last.pendingWrite;
+                if (last != null && lastPending != null) {
+                    WriteTask replacement = WriteTaskCoalescer.replace(lastPending.task, task);
+                    if (replacement != null) {
+                        logger.debug("Write {} supersedes queued write {} in lane of endpoint {}", task,
+                                lastPending.task, endpoint);
+                        lastPending.task = replacement;
+                        replacedWrites.incrementAndGet();
+                        return last;
+                    }
+                    WriteTask merged = WriteTaskCoalescer.merge(lastPending.task, task);
+                    if (merged != null) {
+                        logger.debug("Merged write {} with queued write(s) in lane of endpoint {}", task, endpoint);
+                        lastPending.task = merged;
+                        mergedWrites.incrementAndGet();
+                        return last;
+                    }
+                }
+            }
+            PendingWrite pending = new PendingWrite(task);
+            return enqueue(writes, new LaneTask(() -> operation.accept(pending.task), null, pending));
+        }
+    }
+
+    /**
+     * Get number of writes that were superseded by a later write to the same data, and thus never executed
+     *
+     * @return number of superseded writes
+     */
+    public long getReplacedWrites() {
+        return replacedWrites.get();
+    }
+
+    /**
+     * Get number of writes that were merged into a preceding write
+     *
+     * @return number of merged writes
+     */
+    public long getMergedWrites() {
+        return mergedWrites.get();
+    }
+
+    /**
+     * Get number of queued operations, not including the operation currently executing
+     *
+     * @return number of queued polls and writes
+     */
+    public int getQueueSize() {
+        synchronized (lock) {
+            return writes.size() + polls.size();
+        }
+    }
+
+    /**
+     * Cancel all queued operations and release the thread of the lane. The currently executing operation is
+     * interrupted.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            writes.forEach(task -> task.cancel(false));
+            polls.forEach(task -> task.cancel(false));
+            writes.clear();
+            polls.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    private LaneTask enqueue(Deque<LaneTask> queue, LaneTask task) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException(String.format("Lane of endpoint %s has been shut down", endpoint));
+        }
+        if (queue.size() >= maxQueueSize) {
+            throw new RejectedExecutionException(
+                    String.format("Lane of endpoint %s is full (%d queued operations)", endpoint, queue.size()));
+        }
+        queue.add(task);
+        if (!draining) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+        return task;
+    }
+
+    private @Nullable LaneTask next() {
+        synchronized (lock) {
+            LaneTask next;
+            if (!writes.isEmpty() && (polls.isEmpty() || consecutiveWrites < MAX_CONSECUTIVE_WRITES)) {
+                consecutiveWrites++;
+                next = writes.poll();
+            } else {
+                consecutiveWrites = 0;
+                next = polls.poll();
+            }
+            if (next == null) {
+                draining = false;
+            }
+            return next;
+        }
+    }
+
+    private void drain() {
+        LaneTask task;
+        while ((task = next()) != null) {
+            // FutureTask catches all exceptions of the operation
+            task.run();
+            // Canceling a running task interrupts the lane thread. Clear the flag so that it does not affect the
+            // next operation, unless the whole lane is shutting down.
+            if (Thread.interrupted() && executor.isShutdown()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointExecutionLane(endpoint=" + Objects.toString(endpoint) + ")";
+    }
+}
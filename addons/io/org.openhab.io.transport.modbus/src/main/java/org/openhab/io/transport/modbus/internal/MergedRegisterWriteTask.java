@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegister;
+import org.openhab.io.transport.modbus.ModbusResponse;
+import org.openhab.io.transport.modbus.ModbusWriteCallback;
+import org.openhab.io.transport.modbus.ModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
+import org.openhab.io.transport.modbus.WriteTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write task writing the registers of several contiguous single register writes with one
+ * {@link org.openhab.io.transport.modbus.ModbusWriteFunctionCode#WRITE_MULTIPLE_REGISTERS} request
+ *
+ * The response, or error, is passed to the callbacks of all member tasks, together with their original request.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class MergedRegisterWriteTask implements WriteTask, ModbusWriteCallback {
+
+    private static final StandardToStringStyle TO_STRING_STYLE = new StandardToStringStyle();
+    static {
+        TO_STRING_STYLE.setUseShortClassName(true);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(MergedRegisterWriteTask.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final List<WriteTask> members;
+    private final ModbusWriteRegisterRequestBlueprint request;
+
+    /**
+     *
+     * @param members single register writes to the same endpoint and unit, ordered by reference and with contiguous
+     *            references
+     */
+    public MergedRegisterWriteTask(List<WriteTask> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Must have at least one member");
+        }
+        this.members = Collections.unmodifiableList(members);
+        WriteTask first = members.get(0);
+        this.endpoint = first.getEndpoint();
+
+        ModbusRegister[] registers = new ModbusRegister[members.size()];
+        int maxTries = 1;
+        for (int i = 0; i < registers.length; i++) {
+            ModbusWriteRequestBlueprint memberRequest = members.get(i).getRequest();
+            registers[i] = ((ModbusWriteRegisterRequestBlueprint) memberRequest).getRegisters().getRegister(0);
+            maxTries = Math.max(maxTries, memberRequest.getMaxTries());
+        }
+        this.request = new BasicModbusWriteRegisterRequestBlueprint(first.getRequest().getUnitID(),
+                first.getRequest().getReference(), new BasicModbusRegisterArray(registers), true, maxTries);
+    }
+
+    /**
+     * Get the single register writes served by this task
+     *
+     * @return member tasks, ordered by reference
+     */
+    public List<WriteTask> getMembers() {
+        return members;
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public ModbusWriteRequestBlueprint getRequest() {
+        return request;
+    }
+
+    @Override
+    public ModbusWriteCallback getCallback() {
+        return this;
+    }
+
+    @Override
+    public void onError(ModbusWriteRequestBlueprint mergedRequest, Exception error) {
+        for (WriteTask member : members) {
+            ModbusWriteCallback callback = member.getCallback();
+            if (callback != null) {
+                invoke(member, () -> callback.onError(member.getRequest(), error));
+            }
+        }
+    }
+
+    @Override
+    public void onWriteResponse(ModbusWriteRequestBlueprint mergedRequest, ModbusResponse response) {
+        for (WriteTask member : members) {
+            ModbusWriteCallback callback = member.getCallback();
+            if (callback != null) {
+                invoke(member, () -> callback.onWriteResponse(member.getRequest(), response));
+            }
+        }
+    }
+
+    /**
+     * Call member callback, making sure that one failing callback does not prevent calling the others
+     */
+    private void invoke(WriteTask member, Runnable callbackInvocation) {
+        try {
+            callbackInvocation.run();
+        } catch (RuntimeException e) {
+            logger.error("Callback of merged write task {} failed: {} {}", member, e.getClass().getName(),
+                    e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, TO_STRING_STYLE).append("request", request).append("endpoint", endpoint)
+                .append("members", members.size()).toString();
+    }
+}
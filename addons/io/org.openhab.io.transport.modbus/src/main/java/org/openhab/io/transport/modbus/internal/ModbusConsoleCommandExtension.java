@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.metrics.ModbusEndpointMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusOperationMetrics;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands for inspecting the metrics of the modbus transport
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+@NonNullByDefault
+public class ModbusConsoleCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String SUBCMD_METRICS = "metrics";
+    private static final String SUBCMD_RESET_METRICS = "resetMetrics";
+    private static final String METRICS_ENDPOINTS = "endpoints";
+    private static final String METRICS_POLLS = "polls";
+
+    private @Nullable ModbusMetrics metrics;
+
+    public ModbusConsoleCommandExtension() {
+        super("modbus", "Inspect the modbus transport.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        ModbusMetrics metrics = this.metrics;
+        if (args.length == 0 || metrics == null) {
+            printUsage(console);
+            return;
+        }
+        switch (args[0]) {
+            case SUBCMD_METRICS:
+                String scope = args.length > 1 ? args[1] : "";
+                if (scope.isEmpty() || METRICS_ENDPOINTS.equals(scope)) {
+                    printEndpointMetrics(metrics.getEndpointMetrics(), console);
+                }
+                if (scope.isEmpty() || METRICS_POLLS.equals(scope)) {
+                    printPollTaskMetrics(metrics.getPollTaskMetrics(), console);
+                }
+                break;
+            case SUBCMD_RESET_METRICS:
+                metrics.resetMetrics();
+                console.println("Modbus metrics reset");
+                break;
+            default:
+                console.println("Unknown command '" + args[0] + "'");
+                printUsage(console);
+                break;
+        }
+    }
+
+    private void printEndpointMetrics(Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> endpointMetrics,
+            Console console) {
+        console.println(String.format("Endpoints (%d):", endpointMetrics.size()));
+        endpointMetrics.forEach((endpoint, metrics) -> {
+            console.println("  " + endpoint);
+            console.println(String.format("    operations: %d, failed: %d (%.1f %%), retries: %d, errors: %s",
+                    metrics.getOperations(), metrics.getFailedOperations(), metrics.getErrorRate() * 100,
+                    metrics.getRetries(), metrics.getErrorCounts()));
+            console.println("    total:       " + metrics.getTotal());
+            console.println("    connection:  " + metrics.getConnection());
+            console.println("    transaction: " + metrics.getTransaction());
+            console.println("    callback:    " + metrics.getCallback());
+            console.println("    borrow wait: " + metrics.getBorrowWait());
+            console.println(String.format(
+                    "    pool exhausted: %d, connect failures: %d, queue depth: %d (max %d), superseded writes: %d, merged writes: %d",
+                    metrics.getPoolExhausted(), metrics.getConnectFailures(), metrics.getQueueDepth(),
+                    metrics.getMaxQueueDepth(), metrics.getSupersededWrites(), metrics.getMergedWrites()));
+        });
+    }
+
+    private void printPollTaskMetrics(Map<PollTask, ModbusOperationMetrics> pollTaskMetrics, Console console) {
+        console.println(String.format("Regular polls (%d):", pollTaskMetrics.size()));
+        pollTaskMetrics.forEach((task, metrics) -> {
+            console.println(String.format("  %s, unit %d, FC %s, start %d, length %d", task.getEndpoint(),
+                    task.getRequest().getUnitID(), task.getRequest().getFunctionCode(),
+                    task.getRequest().getReference(), task.getRequest().getDataLength()));
+            console.println("    " + metrics);
+        });
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(
+                buildCommandUsage(SUBCMD_METRICS + " [" + METRICS_ENDPOINTS + "|" + METRICS_POLLS + "]",
+                        "shows latencies, errors and queueing per endpoint and regular poll"),
+                buildCommandUsage(SUBCMD_RESET_METRICS, "resets all metrics"));
+    }
+
+    @Reference
+    protected void setModbusMetrics(ModbusMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    protected void unsetModbusMetrics(ModbusMetrics metrics) {
+        this.metrics = null;
+    }
+}
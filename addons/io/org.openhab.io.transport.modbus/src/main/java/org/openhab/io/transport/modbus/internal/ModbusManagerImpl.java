@@ -13,13 +13,18 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -55,6 +60,9 @@ import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpointVisitor;
 import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
 import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
+import org.openhab.io.transport.modbus.metrics.ModbusEndpointMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusOperationMetrics;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -77,11 +85,14 @@ import net.wimpi.modbus.net.ModbusSlaveConnection;
  * important with serial slaves but practice has shown that even many tcp slaves have limited
  * capability to handle many connections at the same time
  *
+ * The manager also provides the {@link ModbusMetrics} of the executed operations.
+ *
  * @author Sami Salonen - Initial contribution
  */
-@Component(service = ModbusManager.class, immediate = true, configurationPid = "transport.modbus")
+@Component(service = { ModbusManager.class,
+        ModbusMetrics.class }, immediate = true, configurationPid = "transport.modbus")
 @NonNullByDefault
-public class ModbusManagerImpl implements ModbusManager {
+public class ModbusManagerImpl implements ModbusManager, ModbusMetrics {
 
     static class PollTaskUnregistered extends Exception {
         public PollTaskUnregistered(String msg) {
@@ -249,6 +260,52 @@ public class ModbusManagerImpl implements ModbusManager {
     private static final long WARN_QUEUE_SIZE = 500;
     private static final long MONITOR_QUEUE_INTERVAL_MILLIS = 10000;
 
+    /**
+     * Configuration parameter enabling coalescing of regular polls. When enabled, regular polls with the same endpoint
+     * and poll period are executed together, and compatible requests are merged into single transactions.
+     */
+    static final String CONFIG_COALESCE_POLLS = "coalescePolls";
+
+    /**
+     * Configuration parameter for maximum number of unrequested registers/bits between two requests that are still
+     * merged
+     */
+    static final String CONFIG_COALESCE_MAX_GAP = "coalesceMaxGap";
+
+    static final int DEFAULT_COALESCE_MAX_GAP = 0;
+
+    /**
+     * Configuration parameter enabling execution lanes. When enabled, the operations of each endpoint are executed
+     * one at a time with a dedicated thread, writes ahead of polls. The shared thread pool is then only used for
+     * timing the regular polls.
+     */
+    static final String CONFIG_ENDPOINT_LANES = "endpointLanes";
+
+    /**
+     * Configuration parameter for maximum number of queued polls (and writes) per endpoint lane
+     */
+    static final String CONFIG_LANE_QUEUE_SIZE = "laneQueueSize";
+
+    static final int DEFAULT_LANE_QUEUE_SIZE = 100;
+
+    /**
+     * Configuration parameter enabling coalescing of queued writes, see {@link WriteTaskCoalescer}. Requires
+     * endpoint lanes.
+     */
+    static final String CONFIG_COALESCE_WRITES = "coalesceWrites";
+
+    /**
+     * Regular polls sharing endpoint and poll period, executed together
+     *
+     * @author agent - Initial contribution
+     *
+     */
+    private static class CoalescedPollGroup {
+        final Set<PollTask> tasks = new CopyOnWriteArraySet<>();
+        @Nullable
+        ScheduledFuture<?> future;
+    }
+
     private final PollOperation pollOperation = new PollOperation();
     private final WriteOperation writeOperation = new WriteOperation();
 
@@ -268,6 +325,20 @@ public class ModbusManagerImpl implements ModbusManager {
     @Nullable
     private volatile ModbusSlaveConnectionFactoryImpl connectionFactory;
     private volatile Map<PollTask, ScheduledFuture<?>> scheduledPollTasks = new ConcurrentHashMap<>();
+    /**
+     * Groups of coalesced regular polls, keyed by endpoint and poll period
+     */
+    private final Map<List<Object>, CoalescedPollGroup> coalescedPollGroups = new ConcurrentHashMap<>();
+    private volatile boolean coalescePolls;
+    private volatile int coalesceMaxGap = DEFAULT_COALESCE_MAX_GAP;
+    /**
+     * Execution lanes per endpoint, used when lanes are enabled
+     */
+    private final Map<ModbusSlaveEndpoint, EndpointExecutionLane> lanes = new ConcurrentHashMap<>();
+    private volatile boolean useEndpointLanes;
+    private volatile int laneQueueSize = DEFAULT_LANE_QUEUE_SIZE;
+    private volatile boolean coalesceWrites;
+    private final ModbusMetricsRegistry metrics = new ModbusMetricsRegistry();
     /**
      * Executor for requests
      */
@@ -334,6 +405,9 @@ public class ModbusManagerImpl implements ModbusManager {
             return connection;
         }
         long start = System.currentTimeMillis();
+        // Borrowing blocks when all connections of the endpoint are in use
+        boolean exhausted = pool instanceof GenericKeyedObjectPool
+                && pool.getNumActive(endpoint) >= ((GenericKeyedObjectPool<?, ?>) pool).getMaxTotalPerKey();
         try {
             connection = Optional.ofNullable(pool.borrowObject(endpoint));
         } catch (Exception e) {
@@ -349,8 +423,9 @@ public class ModbusManagerImpl implements ModbusManager {
                 connection = Optional.empty();
             }
         }
-        logger.trace("borrowing connection (got {}) for endpoint {} took {} ms", connection, endpoint,
-                System.currentTimeMillis() - start);
+        long waited = System.currentTimeMillis() - start;
+        metrics.getEndpointMetrics(endpoint).recordBorrow(waited, exhausted, connection.isPresent());
+        logger.trace("borrowing connection (got {}) for endpoint {} took {} ms", connection, endpoint, waited);
         return connection;
     }
 
@@ -468,7 +543,9 @@ public class ModbusManagerImpl implements ModbusManager {
     }
 
     private void verifyTaskIsRegistered(PollTask task) throws PollTaskUnregistered {
-        if (!this.scheduledPollTasks.containsKey(task)) {
+        boolean registered = task instanceof CoalescedPollTask ? ((CoalescedPollTask) task).hasRegisteredMembers()
+                : this.scheduledPollTasks.containsKey(task);
+        if (!registered) {
             String msg = String.format("Poll task %s is unregistered", task);
             logger.debug(msg);
             throw new PollTaskUnregistered(msg);
@@ -505,6 +582,10 @@ public class ModbusManagerImpl implements ModbusManager {
         logTaskQueueInfo();
         R request = task.getRequest();
         ModbusSlaveEndpoint endpoint = task.getEndpoint();
+        EndpointExecutionLane lane = lanes.get(endpoint);
+        if (lane != null) {
+            metrics.updateLane(endpoint, lane);
+        }
         @Nullable
         C callback = task.getCallback();
         int maxTries = task.getMaxTries();
@@ -517,6 +598,9 @@ public class ModbusManagerImpl implements ModbusManager {
         }
 
         Optional<ModbusSlaveConnection> connection = Optional.empty();
+        int tryIndex = 0;
+        // operations aborted due to deactivation, interruption or unregistration are not recorded to metrics
+        boolean aborted = false;
         try {
             logger.trace("Starting new operation with task {}. Trying to get connection [operation ID {}]", task,
                     operationId);
@@ -533,10 +617,10 @@ public class ModbusManagerImpl implements ModbusManager {
             if (scheduledThreadPoolExecutor == null) {
                 logger.debug("Manager has been shut down, aborting proecssing request {} [operation ID {}]", request,
                         operationId);
+                aborted = true;
                 return;
             }
 
-            int tryIndex = 0;
             /**
              * last execution is tracked such that the endpoint is not spammed on retry. First retry can be executed
              * right away since getConnection ensures enough time has passed since last transaction. More precisely,
@@ -555,6 +639,7 @@ public class ModbusManagerImpl implements ModbusManager {
                 }
                 if (Thread.interrupted()) {
                     logger.warn("Thread interrupted. Aborting operation [operation ID {}]", operationId);
+                    aborted = true;
                     return;
                 }
                 // Check poll task is still registered (this is all asynchronous)
@@ -675,10 +760,12 @@ public class ModbusManagerImpl implements ModbusManager {
         } catch (PollTaskUnregistered e) {
             logger.warn("Poll task was unregistered -- not executing/proceeding with the poll: {} [operation ID {}]",
                     e.getMessage(), operationId);
+            aborted = true;
             return;
         } catch (InterruptedException e) {
             logger.warn("Poll task was canceled -- not executing/proceeding with the poll: {} [operation ID {}]",
                     e.getMessage(), operationId);
+            aborted = true;
             // Invalidate connection, and empty (so that new connection is acquired before new retry)
             timer.connection.timeConsumer(c -> invalidate(endpoint, c), connection);
             connection = Optional.empty();
@@ -687,6 +774,14 @@ public class ModbusManagerImpl implements ModbusManager {
             logger.trace("Connection was returned to the pool, ending operation [operation ID {}]", operationId);
             timer.suspendAllRunning();
             logger.debug("Modbus operation ended, timing info: {} [operation ID {}]", timer, operationId);
+            if (!aborted) {
+                Exception error = lastError.get();
+                if (error == null && tryIndex == 0) {
+                    // no try was executed since connection could not be established
+                    error = new ModbusConnectionException(endpoint);
+                }
+                metrics.recordOperation(task, oneOffTask, timer, tryIndex, error);
+            }
         }
     }
 
@@ -696,6 +791,18 @@ public class ModbusManagerImpl implements ModbusManager {
         Objects.requireNonNull(executor, "Not activated!");
         long scheduleTime = System.currentTimeMillis();
         logger.debug("Scheduling one-off poll task {}", task);
+        if (useEndpointLanes) {
+            try {
+                return getLane(task.getEndpoint()).submitPoll(null, () -> {
+                    long millisInLaneWaiting = System.currentTimeMillis() - scheduleTime;
+                    logger.debug("Will now execute one-off poll task {}, waited in endpoint lane for {}", task,
+                            millisInLaneWaiting);
+                    executeOperation(task, true, pollOperation);
+                });
+            } catch (RejectedExecutionException e) {
+                return rejectOneTimeTask(executor, task, e);
+            }
+        }
         ScheduledFuture<?> future = executor.schedule(() -> {
             long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
             logger.debug("Will now execute one-off poll task {}, waited in thread pool for {}", task,
@@ -716,7 +823,16 @@ public class ModbusManagerImpl implements ModbusManager {
                 logger.trace("Unregistering previous poll task (possibly with different period)");
                 unregisterRegularPoll(task);
             }
+            metrics.registerPollTask(task);
+            if (coalescePolls) {
+                registerCoalescedPoll(executor, task, pollPeriodMillis, initialDelayMillis);
+                return;
+            }
             ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
+                if (useEndpointLanes) {
+                    submitRegularPollToLane(task, task, pollPeriodMillis);
+                    return;
+                }
                 long started = System.currentTimeMillis();
                 logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task,
                         started);
@@ -733,6 +849,104 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * Add poll task to the group of polls sharing the same endpoint and poll period. The group is scheduled when the
+     * first task is added, using the initial delay of that task.
+     */
+    private void registerCoalescedPoll(ScheduledExecutorService executor, PollTask task, long pollPeriodMillis,
+            long initialDelayMillis) {
+        List<Object> key = Arrays.asList(task.getEndpoint(), pollPeriodMillis);
+        CoalescedPollGroup group = coalescedPollGroups.computeIfAbsent(key, k -> new CoalescedPollGroup());
+        group.tasks.add(task);
+        ScheduledFuture<?> future = group.future;
+        if (future == null) {
+            group.future = future = executor.scheduleWithFixedDelay(() -> {
+                long started = System.currentTimeMillis();
+                List<PollTask> planned = PollTaskCoalescingPlanner.plan(group.tasks, coalesceMaxGap,
+                        scheduledPollTasks::containsKey);
+                logger.debug("Executing {} coalesced ({}ms) poll tasks for endpoint {} with {} transactions",
+                        group.tasks.size(), pollPeriodMillis, task.getEndpoint(), planned.size());
+                for (PollTask plannedTask : planned) {
+                    if (useEndpointLanes) {
+                        Object laneKey = plannedTask instanceof CoalescedPollTask
+                                ? ((CoalescedPollTask) plannedTask).getMembers()
+                                : plannedTask;
+                        submitRegularPollToLane(plannedTask, laneKey, pollPeriodMillis);
+                    } else {
+                        executeOperation(plannedTask, false, pollOperation);
+                    }
+                }
+                logger.debug("Execution of coalesced ({}ms) poll tasks for endpoint {} took {} millis",
+                        pollPeriodMillis, task.getEndpoint(), System.currentTimeMillis() - started);
+            }, initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+        scheduledPollTasks.put(task, future);
+        logger.trace("Registered poll task {} with period {} to coalesced group of {} tasks", task, pollPeriodMillis,
+                group.tasks.size());
+    }
+
+    /**
+     * Queue regular poll to the lane of its endpoint. If the previous execution of the same poll is still queued, the
+     * poll is not queued again.
+     */
+    private void submitRegularPollToLane(PollTask task, Object laneKey, long pollPeriodMillis) {
+        long scheduleTime = System.currentTimeMillis();
+        try {
+            getLane(task.getEndpoint()).submitPoll(laneKey, () -> {
+                long started = System.currentTimeMillis();
+                logger.debug("Executing scheduled ({}ms) poll task {}, waited in endpoint lane for {}",
+                        pollPeriodMillis, task, started - scheduleTime);
+                executeOperation(task, false, pollOperation);
+                logger.debug("Execution of scheduled ({}ms) poll task {} took {} millis", pollPeriodMillis, task,
+                        System.currentTimeMillis() - started);
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Skipping scheduled ({}ms) poll task {}: {}", pollPeriodMillis, task, e.getMessage());
+        }
+    }
+
+    /**
+     * Report a one-off task that the lane of its endpoint did not accept to the callback of the task, like any other
+     * failed operation. The callback is called from the thread pool, not from the caller submitting the task.
+     *
+     * @return future of the callback invocation
+     */
+    private ScheduledFuture<?> rejectOneTimeTask(ScheduledExecutorService executor,
+            TaskWithEndpoint<? extends ModbusRequestBlueprint, ? extends ModbusCallback> task,
+            RejectedExecutionException e) {
+        logger.warn("Could not queue one-off task {}: {}", task, e.getMessage());
+        ModbusCallback callback = task.getCallback();
+        return executor.schedule(() -> {
+            if (callback != null) {
+                invokeCallbackWithError(task.getRequest(), callback, e);
+            }
+        }, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    private EndpointExecutionLane getLane(ModbusSlaveEndpoint endpoint) {
+        return lanes.computeIfAbsent(endpoint, ep -> new EndpointExecutionLane(ep, laneQueueSize, coalesceWrites));
+    }
+
+    /**
+     * Remove poll task from its coalesced group, canceling the group once it is empty
+     *
+     * @return whether the group was canceled
+     */
+    private boolean unregisterCoalescedPoll(PollTask task) {
+        for (Iterator<CoalescedPollGroup> iterator = coalescedPollGroups.values().iterator(); iterator.hasNext();) {
+            CoalescedPollGroup group = iterator.next();
+            if (group.tasks.remove(task)) {
+                if (group.tasks.isEmpty()) {
+                    iterator.remove();
+                    return true;
+                }
+                return false;
+            }
+        }
+        // not coalesced
+        return true;
+    }
+
     @SuppressWarnings({ "null", "unused" })
     @Override
     public boolean unregisterRegularPoll(PollTask task) {
@@ -751,12 +965,15 @@ public class ModbusManagerImpl implements ModbusManager {
                 return false;
             }
             logger.info("Unregistering regular poll task {} (interrupting if necessary)", task);
+            metrics.unregisterPollTask(task);
 
             // Make sure connections to this endpoint are closed when they are returned to pool (which
             // is usually pretty soon as transactions should be relatively short-lived)
             factory.disconnectOnReturn(task.getEndpoint(), System.currentTimeMillis());
 
-            future.cancel(true);
+            if (unregisterCoalescedPoll(task)) {
+                future.cancel(true);
+            }
 
             logger.info("Poll task {} canceled", task);
 
@@ -781,6 +998,18 @@ public class ModbusManagerImpl implements ModbusManager {
         Objects.requireNonNull(scheduledThreadPoolExecutor, "Not activated!");
         long scheduleTime = System.currentTimeMillis();
         logger.debug("Scheduling one-off write task {}", task);
+        if (useEndpointLanes) {
+            try {
+                return getLane(task.getEndpoint()).submitWrite(task, writeTask -> {
+                    long millisInLaneWaiting = System.currentTimeMillis() - scheduleTime;
+                    logger.debug("Will now execute one-off write task {}, waited in endpoint lane for {}", writeTask,
+                            millisInLaneWaiting);
+                    executeOperation(writeTask, true, writeOperation);
+                });
+            } catch (RejectedExecutionException e) {
+                return rejectOneTimeTask(scheduledThreadPoolExecutor, task, e);
+            }
+        }
         ScheduledFuture<?> future = scheduledThreadPoolExecutor.schedule(() -> {
             long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
             logger.debug("Will now execute one-off write task {}, waited in thread pool for {}", task,
@@ -821,10 +1050,39 @@ public class ModbusManagerImpl implements ModbusManager {
         return this.scheduledPollTasks.keySet();
     }
 
+    @Override
+    public Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> getEndpointMetrics() {
+        lanes.forEach(metrics::updateLane);
+        return metrics.getEndpointMetrics();
+    }
+
+    @Override
+    public Map<PollTask, ModbusOperationMetrics> getPollTaskMetrics() {
+        return metrics.getPollTaskMetrics();
+    }
+
+    @Override
+    public void resetMetrics() {
+        metrics.resetMetrics();
+    }
+
     @Activate
     protected void activate(Map<String, Object> configProperties) {
         synchronized (this) {
             logger.info("Modbus manager activated");
+            coalescePolls = Boolean.parseBoolean(String.valueOf(configProperties.get(CONFIG_COALESCE_POLLS)));
+            coalesceMaxGap = Math.max(0,
+                    parseIntConfig(configProperties, CONFIG_COALESCE_MAX_GAP, DEFAULT_COALESCE_MAX_GAP));
+            logger.debug("Coalescing of regular polls enabled: {}, maximum gap: {}", coalescePolls, coalesceMaxGap);
+            useEndpointLanes = Boolean.parseBoolean(String.valueOf(configProperties.get(CONFIG_ENDPOINT_LANES)));
+            laneQueueSize = Math.max(1,
+                    parseIntConfig(configProperties, CONFIG_LANE_QUEUE_SIZE, DEFAULT_LANE_QUEUE_SIZE));
+            coalesceWrites = Boolean.parseBoolean(String.valueOf(configProperties.get(CONFIG_COALESCE_WRITES)));
+            if (coalesceWrites && !useEndpointLanes) {
+                logger.warn("Coalescing of writes requires {}=true, writes are not coalesced", CONFIG_ENDPOINT_LANES);
+            }
+            logger.debug("Endpoint execution lanes enabled: {}, queue size: {}, coalesce writes: {}",
+                    useEndpointLanes, laneQueueSize, coalesceWrites);
             if (connectionPool == null) {
                 constructConnectionPool();
             }
@@ -860,6 +1118,8 @@ public class ModbusManagerImpl implements ModbusManager {
                 monitorFuture.cancel(true);
                 monitorFuture = null;
             }
+            lanes.values().forEach(EndpointExecutionLane::shutdown);
+            lanes.clear();
             // Note that it is not allowed to shutdown the executor, since they will be reused when
             // when pool is received from ThreadPoolManager is called
             scheduledThreadPoolExecutor = null;
@@ -868,6 +1128,20 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    private int parseIntConfig(Map<String, Object> configProperties, String key, int defaultValue) {
+        Object value = configProperties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return new BigDecimal(value.toString().trim()).intValue();
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for configuration parameter {}, using default {}", value, key,
+                    defaultValue);
+            return defaultValue;
+        }
+    }
+
     private void logTaskQueueInfo() {
         synchronized (pollMonitorLogger) {
             ScheduledExecutorService scheduledThreadPoolExecutor = this.scheduledThreadPoolExecutor;
@@ -899,6 +1173,19 @@ public class ModbusManagerImpl implements ModbusManager {
                 }
             }
 
+            lanes.forEach((endpoint, lane) -> {
+                metrics.updateLane(endpoint, lane);
+                int queueSize = lane.getQueueSize();
+                pollMonitorLogger.trace(
+                        "POLL MONITOR: endpoint lane {} queue size: {}, superseded writes: {}, merged writes: {}",
+                        endpoint, queueSize, lane.getReplacedWrites(), lane.getMergedWrites());
+                if (queueSize >= laneQueueSize) {
+                    pollMonitorLogger.warn(
+                            "Many ({}) tasks queued in lane of endpoint {}! The endpoint might be too slow for the configured poll periods.",
+                            queueSize, endpoint);
+                }
+            });
+
             pollMonitorLogger.trace("</POLL MONITOR>");
         }
     }
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.TaskWithEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.metrics.ModbusEndpointMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusMetrics;
+import org.openhab.io.transport.modbus.metrics.ModbusOperationMetrics;
+
+/**
+ * Registry collecting the metrics of {@link ModbusManagerImpl}
+ *
+ * Operations are recorded per endpoint. Regular polls are additionally recorded per poll task, as long as the task is
+ * registered. Coalesced polls are recorded for each of the merged poll tasks.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusMetricsRegistry implements ModbusMetrics {
+
+    private final Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final Map<PollTask, ModbusOperationMetrics> pollTasks = new ConcurrentHashMap<>();
+
+    /**
+     * Start collecting metrics of a regular poll
+     *
+     * @param task registered poll task
+     */
+    public void registerPollTask(PollTask task) {
+        pollTasks.putIfAbsent(task, new ModbusOperationMetrics());
+    }
+
+    /**
+     * Stop collecting and discard metrics of a regular poll
+     *
+     * @param task unregistered poll task
+     */
+    public void unregisterPollTask(PollTask task) {
+        pollTasks.remove(task);
+    }
+
+    /**
+     * Get metrics of an endpoint, creating them if necessary
+     *
+     * @param endpoint endpoint
+     * @return metrics of the endpoint
+     */
+    public ModbusEndpointMetrics getEndpointMetrics(ModbusSlaveEndpoint endpoint) {
+        return endpoints.computeIfAbsent(endpoint, ep -> new ModbusEndpointMetrics());
+    }
+
+    /**
+     * Record finished operation
+     *
+     * @param task executed task
+     * @param oneOffTask whether the task was one-off, or execution of a regular poll
+     * @param timer timing of the operation, with all stop watches suspended
+     * @param tries number of tries executed
+     * @param error error of the operation, or null if it succeeded
+     */
+    public void recordOperation(TaskWithEndpoint<?, ?> task, boolean oneOffTask, AggregateStopWatch timer, int tries,
+            @Nullable Exception error) {
+        long total = timer.total.getTotalTimeMillis();
+        long connection = timer.connection.getTotalTimeMillis();
+        long transaction = timer.transaction.getTotalTimeMillis();
+        long callback = timer.callback.getTotalTimeMillis();
+        getEndpointMetrics(task.getEndpoint()).recordOperation(total, connection, transaction, callback, tries, error);
+        if (oneOffTask || !(task instanceof PollTask)) {
+            return;
+        }
+        if (task instanceof CoalescedPollTask) {
+            for (PollTask member : ((CoalescedPollTask) task).getMembers()) {
+                recordPollTask(member, total, connection, transaction, callback, tries, error);
+            }
+        } else {
+            recordPollTask((PollTask) task, total, connection, transaction, callback, tries, error);
+        }
+    }
+
+    private void recordPollTask(PollTask task, long total, long connection, long transaction, long callback,
+            int tries, @Nullable Exception error) {
+        ModbusOperationMetrics metrics = pollTasks.get(task);
+        if (metrics != null) {
+            metrics.recordOperation(total, connection, transaction, callback, tries, error);
+        }
+    }
+
+    /**
+     * Update queue depth and write coalescing counters of an endpoint from its execution lane
+     *
+     * @param endpoint endpoint of the lane
+     * @param lane execution lane
+     */
+    public void updateLane(ModbusSlaveEndpoint endpoint, EndpointExecutionLane lane) {
+        ModbusEndpointMetrics metrics = getEndpointMetrics(endpoint);
+        metrics.updateQueueDepth(lane.getQueueSize());
+        metrics.updateCoalescedWrites(lane.getReplacedWrites(), lane.getMergedWrites());
+    }
+
+    @Override
+    public Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> getEndpointMetrics() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    @Override
+    public Map<PollTask, ModbusOperationMetrics> getPollTaskMetrics() {
+        return Collections.unmodifiableMap(pollTasks);
+    }
+
+    @Override
+    public void resetMetrics() {
+        endpoints.values().forEach(ModbusEndpointMetrics::reset);
+        pollTasks.values().forEach(ModbusOperationMetrics::reset);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.PollTask;
+
+/**
+ * Plans the execution of poll tasks that are due at the same time, merging compatible requests into single
+ * transactions.
+ *
+ * Requests are compatible when they target the same endpoint, unit id, protocol id and function code, and their
+ * ranges overlap or are separated by at most <code>maxGap</code> registers/bits. The merged request never exceeds
+ * the maximum amount of data that fits into a single Modbus PDU.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class PollTaskCoalescingPlanner {
+
+    /**
+     * Maximum number of registers in a single read request (FC 3 and FC 4)
+     */
+    public static final int MAX_REGISTERS_PER_READ = 125;
+
+    /**
+     * Maximum number of coils or discrete inputs in a single read request (FC 1 and FC 2)
+     */
+    public static final int MAX_BITS_PER_READ = 2000;
+
+    private PollTaskCoalescingPlanner() {
+    }
+
+    /**
+     * Get maximum data length of a read request with the given function code
+     *
+     * @param functionCode function code of the request
+     * @return maximum number of registers or bits
+     */
+    public static int getMaxDataLength(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return MAX_BITS_PER_READ;
+            default:
+                return MAX_REGISTERS_PER_READ;
+        }
+    }
+
+    /**
+     * Plan execution of the given tasks
+     *
+     * @param tasks tasks due for execution
+     * @param maxGap maximum number of unrequested registers/bits between two requests that are still merged
+     * @param isRegistered predicate telling whether a task is still registered, passed to the merged tasks
+     * @return tasks to execute. Tasks that could not be merged are returned as such, others are replaced by
+     *         {@link CoalescedPollTask}s
+     */
+    public static List<PollTask> plan(Collection<PollTask> tasks, int maxGap, Predicate<PollTask> isRegistered) {
+        Map<List<Object>, List<PollTask>> compatible = new LinkedHashMap<>();
+        for (PollTask task : tasks) {
+            ModbusReadRequestBlueprint request = task.getRequest();
+            List<Object> key = Arrays.asList(task.getEndpoint(), request.getUnitID(), request.getProtocolID(),
+                    request.getFunctionCode());
+            compatible.computeIfAbsent(key, k -> new ArrayList<>()).add(task);
+        }
+
+        List<PollTask> planned = new ArrayList<>(tasks.size());
+        for (List<PollTask> group : compatible.values()) {
+            group.sort(Comparator.comparingInt((PollTask task) -> task.getRequest().getReference())
+                    .thenComparingInt(task -> task.getRequest().getDataLength()));
+            int maxLength = getMaxDataLength(group.get(0).getRequest().getFunctionCode());
+
+            List<PollTask> run = new ArrayList<>();
+            int runStart = 0;
+            int runEnd = 0;
+            for (PollTask task : group) {
+                ModbusReadRequestBlueprint request = task.getRequest();
+                int start = request.getReference();
+                int end = start + request.getDataLength();
+                if (!run.isEmpty() && start - runEnd <= maxGap && Math.max(end, runEnd) - runStart <= maxLength) {
+                    run.add(task);
+                    runEnd = Math.max(end, runEnd);
+                    continue;
+                }
+                flush(run, runStart, runEnd, planned, isRegistered);
+                run = new ArrayList<>();
+                run.add(task);
+                runStart = start;
+                runEnd = end;
+            }
+            flush(run, runStart, runEnd, planned, isRegistered);
+        }
+        return planned;
+    }
+
+    private static void flush(List<PollTask> run, int start, int end, List<PollTask> planned,
+            Predicate<PollTask> isRegistered) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (run.size() == 1) {
+            planned.add(run.get(0));
+            return;
+        }
+        PollTask first = run.get(0);
+        ModbusReadRequestBlueprint firstRequest = first.getRequest();
+        int maxTries = run.stream().mapToInt(task -> task.getRequest().getMaxTries()).max().orElse(1);
+        ModbusReadRequestBlueprint merged = new BasicModbusReadRequestBlueprint(firstRequest.getUnitID(),
+                firstRequest.getFunctionCode(), start, end - start, maxTries) {
+            @Override
+            public int getProtocolID() {
+                return firstRequest.getProtocolID();
+            }
+        };
+        planned.add(new CoalescedPollTask(first.getEndpoint(), merged, run, isRegistered));
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.ModbusWriteCoilRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusWriteFunctionCode;
+import org.openhab.io.transport.modbus.ModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
+import org.openhab.io.transport.modbus.WriteTask;
+
+import net.wimpi.modbus.Modbus;
+
+/**
+ * Combines pending writes that have not been executed yet
+ *
+ * Two kinds of combinations are supported:
+ * <ul>
+ * <li>replacing: a write to exactly the same data as the last pending write supersedes the pending write. The
+ * superseded write is not executed, its callback is called with the outcome of the superseding write, see
+ * {@link CoalescedWriteTask}.</li>
+ * <li>merging: a single register write contiguous to the last pending write(s) is merged into one
+ * {@link ModbusWriteFunctionCode#WRITE_MULTIPLE_REGISTERS} request, see {@link MergedRegisterWriteTask}.</li>
+ * </ul>
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class WriteTaskCoalescer {
+
+    /**
+     * Maximum number of registers in a single write request (FC 16)
+     */
+    public static final int MAX_REGISTERS_PER_WRITE = 123;
+
+    private WriteTaskCoalescer() {
+    }
+
+    /**
+     * Replace pending write with a newer write to the same data
+     *
+     * The caller must only pass the most recently queued write as <code>pending</code>, otherwise the newer value
+     * would be written ahead of the writes queued in between.
+     *
+     * @param pending write waiting for execution
+     * @param incoming newly submitted write
+     * @return task to execute instead of <code>pending</code>, completing both writes, or null if
+     *         <code>incoming</code> does not supersede <code>pending</code>
+     */
+    public static @Nullable WriteTask replace(WriteTask pending, WriteTask incoming) {
+        if (!isSameSlave(pending, incoming) || !isSameTarget(pending.getRequest(), incoming.getRequest())) {
+            return null;
+        }
+        return new CoalescedWriteTask(pending, incoming);
+    }
+
+    /**
+     * Merge single register write with pending single register write(s) directly before or after it
+     *
+     * @param pending write waiting for execution
+     * @param incoming newly submitted write
+     * @return merged task to execute instead of <code>pending</code>, or null if the writes cannot be merged
+     */
+    public static @Nullable WriteTask merge(WriteTask pending, WriteTask incoming) {
+        if (!isSameSlave(pending, incoming) || !isSingleRegisterWrite(incoming)) {
+            return null;
+        }
+        List<WriteTask> members;
+        if (pending instanceof MergedRegisterWriteTask) {
+            members = new ArrayList<>(((MergedRegisterWriteTask) pending).getMembers());
+        } else if (isSingleRegisterWrite(pending)) {
+            members = new ArrayList<>(Collections.singletonList(pending));
+        } else {
+            return null;
+        }
+        if (members.size() >= MAX_REGISTERS_PER_WRITE) {
+            return null;
+        }
+        int start = members.get(0).getRequest().getReference();
+        int end = start + members.size();
+        int reference = incoming.getRequest().getReference();
+        if (reference == end) {
+            members.add(incoming);
+        } else if (reference == start - 1) {
+            members.add(0, incoming);
+        } else {
+            return null;
+        }
+        return new MergedRegisterWriteTask(members);
+    }
+
+    private static boolean isSameSlave(WriteTask pending, WriteTask incoming) {
+        ModbusWriteRequestBlueprint pendingRequest = pending.getRequest();
+        ModbusWriteRequestBlueprint incomingRequest = incoming.getRequest();
+        return pending.getEndpoint().equals(incoming.getEndpoint())
+                && pendingRequest.getUnitID() == incomingRequest.getUnitID()
+                && pendingRequest.getProtocolID() == incomingRequest.getProtocolID();
+    }
+
+    private static boolean isSameTarget(ModbusWriteRequestBlueprint pending, ModbusWriteRequestBlueprint incoming) {
+        int length = getDataLength(pending);
+        return length >= 0 && pending.getFunctionCode() == incoming.getFunctionCode()
+                && pending.getReference() == incoming.getReference() && length == getDataLength(incoming);
+    }
+
+    private static boolean isSingleRegisterWrite(WriteTask task) {
+        ModbusWriteRequestBlueprint request = task.getRequest();
+        return request.getFunctionCode() == ModbusWriteFunctionCode.WRITE_SINGLE_REGISTER
+                && request.getProtocolID() == Modbus.DEFAULT_PROTOCOL_ID
+                && request instanceof ModbusWriteRegisterRequestBlueprint && getDataLength(request) == 1;
+    }
+
+    private static int getDataLength(ModbusWriteRequestBlueprint request) {
+        if (request instanceof ModbusWriteRegisterRequestBlueprint) {
+            return ((ModbusWriteRegisterRequestBlueprint) request).getRegisters().size();
+        } else if (request instanceof ModbusWriteCoilRequestBlueprint) {
+            return ((ModbusWriteCoilRequestBlueprint) request).getCoils().size();
+        }
+        return -1;
+    }
+}
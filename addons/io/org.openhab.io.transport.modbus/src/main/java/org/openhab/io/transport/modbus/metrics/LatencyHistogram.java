@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Thread-safe histogram of durations, using fixed millisecond buckets
+ *
+ * Percentiles are estimated with the upper bound of the bucket they fall into, which is accurate enough for sizing
+ * poll periods and connection pools.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+            10000 };
+
+    /**
+     * Counts per bucket. The last bucket counts durations longer than the last bound.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    /**
+     * Record single duration
+     *
+     * @param millis duration in milliseconds
+     */
+    public void record(long millis) {
+        long value = Math.max(0, millis);
+        int index = 0;
+        while (index < BUCKET_BOUNDS_MILLIS.length && value > BUCKET_BOUNDS_MILLIS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        count.increment();
+        totalMillis.add(value);
+        maxMillis.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalMillis() {
+        return totalMillis.sum();
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    public double getMeanMillis() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getTotalMillis() / n;
+    }
+
+    /**
+     * Estimate percentile of the recorded durations
+     *
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket containing the percentile, or the maximum recorded duration if that is
+     *         smaller. Zero when nothing has been recorded.
+     */
+    public long getPercentileMillis(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        long max = getMaxMillis();
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MILLIS.length ? Math.min(BUCKET_BOUNDS_MILLIS[i], max) : max;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get upper bounds of the buckets in milliseconds. Durations longer than the last bound are counted in an extra
+     * bucket.
+     *
+     * @return bucket bounds
+     */
+    public static long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Get snapshot of the bucket counts
+     *
+     * @return counts per bucket, having one element more than {@link #getBucketBoundsMillis()}
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Reset all recorded durations
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalMillis.reset();
+        maxMillis.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{count=%d, mean=%.1f ms, p50=%d ms, p95=%d ms, p99=%d ms, max=%d ms}", getCount(),
+                getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99),
+                getMaxMillis());
+    }
+}
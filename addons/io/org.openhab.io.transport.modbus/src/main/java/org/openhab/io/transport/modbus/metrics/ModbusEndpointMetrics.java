@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Metrics of single endpoint: all operations with the endpoint, connection pool usage and queueing
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusEndpointMetrics extends ModbusOperationMetrics {
+
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LongAdder poolExhausted = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong supersededWrites = new AtomicLong();
+    private final AtomicLong mergedWrites = new AtomicLong();
+
+    /**
+     * Record borrowing of a connection from the connection pool
+     *
+     * @param waitMillis time waited for the connection
+     * @param exhausted whether all connections of the endpoint were in use, i.e. the borrow had to wait for another
+     *            operation to return its connection
+     * @param connected whether a connected connection was received
+     */
+    public void recordBorrow(long waitMillis, boolean exhausted, boolean connected) {
+        borrowWait.record(waitMillis);
+        if (exhausted) {
+            poolExhausted.increment();
+        }
+        if (!connected) {
+            connectFailures.increment();
+        }
+    }
+
+    /**
+     * Update number of operations waiting for execution
+     *
+     * @param depth current number of queued operations
+     */
+    public void updateQueueDepth(int depth) {
+        queueDepth.set(depth);
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Update write coalescing counters of the endpoint
+     *
+     * @param superseded total number of writes superseded by a later write to the same data
+     * @param merged total number of writes merged into a preceding write
+     */
+    public void updateCoalescedWrites(long superseded, long merged) {
+        supersededWrites.set(superseded);
+        mergedWrites.set(merged);
+    }
+
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    public long getPoolExhausted() {
+        return poolExhausted.sum();
+    }
+
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getSupersededWrites() {
+        return supersededWrites.get();
+    }
+
+    public long getMergedWrites() {
+        return mergedWrites.get();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        borrowWait.reset();
+        poolExhausted.reset();
+        connectFailures.reset();
+        maxQueueDepth.set(queueDepth.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s, borrowWait=%s, poolExhausted=%d, connectFailures=%d, queueDepth=%d (max %d), supersededWrites=%d, mergedWrites=%d",
+                super.toString(), borrowWait, getPoolExhausted(), getConnectFailures(), getQueueDepth(),
+                getMaxQueueDepth(), getSupersededWrites(), getMergedWrites());
+    }
+}
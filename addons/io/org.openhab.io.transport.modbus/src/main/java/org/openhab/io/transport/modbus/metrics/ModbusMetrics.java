@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.metrics;
+
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.ModbusManager;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+/**
+ * Service providing runtime metrics of the {@link ModbusManager}
+ *
+ * The metrics are live views, updated as operations are executed.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface ModbusMetrics {
+
+    /**
+     * Get metrics of all endpoints that have been used
+     *
+     * @return metrics per endpoint
+     */
+    public Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> getEndpointMetrics();
+
+    /**
+     * Get metrics of the registered regular polls. Metrics of a poll are removed when the poll is unregistered.
+     *
+     * @return metrics per poll task
+     */
+    public Map<PollTask, ModbusOperationMetrics> getPollTaskMetrics();
+
+    /**
+     * Reset all metrics
+     */
+    public void resetMetrics();
+
+}
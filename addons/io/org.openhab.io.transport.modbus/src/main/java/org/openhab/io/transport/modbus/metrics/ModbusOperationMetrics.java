@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Metrics of modbus operations (reads or writes), including retries
+ *
+ * Latencies are split into the same phases as the operation timing logged by the manager: connection handling, the
+ * actual transaction with the slave, and calling the callback.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusOperationMetrics {
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram connection = new LatencyHistogram();
+    private final LatencyHistogram transaction = new LatencyHistogram();
+    private final LatencyHistogram callback = new LatencyHistogram();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder failedOperations = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Record finished operation
+     *
+     * @param totalMillis total time of the operation
+     * @param connectionMillis time spent for borrowing, returning and invalidating connections
+     * @param transactionMillis time spent for transactions with the slave
+     * @param callbackMillis time spent in callbacks
+     * @param tries number of tries executed
+     * @param error error of the last try, or null if the operation succeeded
+     */
+    public void recordOperation(long totalMillis, long connectionMillis, long transactionMillis, long callbackMillis,
+            int tries, @Nullable Exception error) {
+        total.record(totalMillis);
+        connection.record(connectionMillis);
+        transaction.record(transactionMillis);
+        callback.record(callbackMillis);
+        operations.increment();
+        if (tries > 1) {
+            retries.add(tries - 1);
+        }
+        if (error != null) {
+            failedOperations.increment();
+            errors.computeIfAbsent(error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+        }
+    }
+
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    public LatencyHistogram getConnection() {
+        return connection;
+    }
+
+    public LatencyHistogram getTransaction() {
+        return transaction;
+    }
+
+    public LatencyHistogram getCallback() {
+        return callback;
+    }
+
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    public long getFailedOperations() {
+        return failedOperations.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Get ratio of failed operations
+     *
+     * @return failed operations divided by all operations, or zero if no operation has been recorded
+     */
+    public double getErrorRate() {
+        long n = getOperations();
+        return n == 0 ? 0 : (double) getFailedOperations() / n;
+    }
+
+    /**
+     * Get number of failed operations per exception type, e.g. <code>ModbusSlaveIOExceptionImpl</code>
+     *
+     * @return failed operations by simple class name of the exception, sorted by name
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((type, count) -> counts.put(type, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Reset all metrics
+     */
+    public void reset() {
+        total.reset();
+        connection.reset();
+        transaction.reset();
+        callback.reset();
+        operations.reset();
+        failedOperations.reset();
+        retries.reset();
+        errors.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "operations=%d, failed=%d (%.1f %%), retries=%d, errors=%s, total=%s, connection=%s, transaction=%s, callback=%s",
+                getOperations(), getFailedOperations(), getErrorRate() * 100, getRetries(), getErrorCounts(), total,
+                connection, transaction, callback);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbBulkLoader;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemCodec;
+
+/**
+ * Verifies the bulk loading of all item states.
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbBulkLoaderTest {
+
+    @Test
+    public void loadAllShouldSkipCorruptEntries() {
+        Map<String, byte[]> store = createStore(10);
+        store.put("corrupt", new byte[] { 42 });
+
+        assertThat(MapDbBulkLoader.loadAll(store).size(), is(10));
+    }
+
+    @Test
+    public void loadAllShouldDecodeLargeStoresInParallel() {
+        // large enough to be decoded in parallel
+        int count = 3000;
+        Map<String, byte[]> store = createStore(count);
+
+        Map<String, MapDbItem> items = MapDbBulkLoader.loadAll(store);
+
+        assertThat(items.size(), is(count));
+        for (int i = 0; i < count; i++) {
+            assertThat(items.get("item" + i).getState(), is(equalTo(stateFor(i))));
+        }
+    }
+
+    private static Map<String, byte[]> createStore(int count) {
+        Map<String, byte[]> store = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            MapDbItem item = new MapDbItem();
+            item.setName("item" + i);
+            item.setState(stateFor(i));
+            item.setTimestamp(new Date());
+            store.put(item.getName(), MapDbItemCodec.encode(item));
+        }
+        return store;
+    }
+
+    private static State stateFor(int i) {
+        switch (i % 4) {
+            case 0:
+                return new DecimalType(i / 10.0);
+            case 1:
+                return i % 3 == 0 ? OnOffType.ON : OnOffType.OFF;
+            case 2:
+                return HSBType.BLUE;
+            default:
+                return StringType.valueOf("value " + i);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemCodec;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbItemCodecTest {
+
+    @Test
+    public void encodeDecodeRoundtripShouldRecreateTheWrittenState() {
+        assertThat(roundtrip(OnOffType.ON), is(equalTo(OnOffType.ON)));
+        assertThat(roundtrip(OnOffType.OFF), is(equalTo(OnOffType.OFF)));
+        assertThat(roundtrip(PercentType.HUNDRED), is(equalTo(PercentType.HUNDRED)));
+        assertThat(roundtrip(HSBType.GREEN), is(equalTo(HSBType.GREEN)));
+        assertThat(roundtrip(new DecimalType("-12.345")), is(equalTo(new DecimalType("-12.345"))));
+        assertThat(roundtrip(new DecimalType(new BigDecimal("123456789012345678901234567890.5"))),
+                is(equalTo(new DecimalType(new BigDecimal("123456789012345678901234567890.5")))));
+        assertThat(roundtrip(StringType.valueOf("test äöü")), is(equalTo(StringType.valueOf("test äöü"))));
+        assertThat(roundtrip(OpenClosedType.CLOSED), is(equalTo(OpenClosedType.CLOSED)));
+
+        DateTimeType dateTime = new DateTimeType("2019-02-28T13:14:15.123+01:00");
+        assertThat(((DateTimeType) roundtrip(dateTime)).getZonedDateTime(),
+                is(equalTo(dateTime.getZonedDateTime())));
+    }
+
+    @Test
+    public void decodeShouldRestoreNameAndTimestamp() {
+        MapDbItem item = new MapDbItem();
+        item.setName("ignored");
+        item.setState(OnOffType.ON);
+        item.setTimestamp(new Date(1551356055123L));
+
+        MapDbItem decoded = MapDbItemCodec.decode("switch", MapDbItemCodec.encode(item));
+
+        assertThat(decoded.getName(), is(equalTo("switch")));
+        assertThat(decoded.getTimestamp(), is(equalTo(item.getTimestamp())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeShouldRejectTruncatedData() {
+        MapDbItem item = new MapDbItem();
+        item.setState(StringType.valueOf("truncated"));
+        byte[] data = MapDbItemCodec.encode(item);
+
+        byte[] truncated = new byte[data.length - 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        MapDbItemCodec.decode("string", truncated);
+    }
+
+    private State roundtrip(State state) {
+        MapDbItem item = new MapDbItem();
+        item.setName("item");
+        item.setState(state);
+        item.setTimestamp(new Date());
+        return MapDbItemCodec.decode("item", MapDbItemCodec.encode(item)).getState();
+    }
+}
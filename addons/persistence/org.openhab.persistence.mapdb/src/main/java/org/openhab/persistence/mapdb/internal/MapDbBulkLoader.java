@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads all item states from the database at once, e.g. to warm up the in-memory index on startup.
+ *
+ * The raw values are collected in a single pass over the B-tree and decoded in parallel afterwards, so loading
+ * large installations scales with the number of cores instead of being bound to the calling thread.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbBulkLoader {
+
+    /** below this number of entries the overhead of parallel decoding outweighs its benefit */
+    static final int PARALLEL_THRESHOLD = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapDbBulkLoader.class);
+
+    private MapDbBulkLoader() {
+        // static utility class
+    }
+
+    /**
+     * Decodes all entries of the given store.
+     *
+     * @param store the database map holding the encoded item states
+     * @return the decoded items keyed by item name, entries that cannot be decoded are skipped
+     */
+    public static Map<String, MapDbItem> loadAll(Map<String, byte[]> store) {
+        return decode(new ArrayList<>(store.entrySet()));
+    }
+
+    private static Map<String, MapDbItem> decode(List<Entry<String, byte[]>> entries) {
+        Stream<Entry<String, byte[]>> stream = entries.size() < PARALLEL_THRESHOLD ? entries.stream()
+                : entries.parallelStream();
+        return stream.map(MapDbBulkLoader::decode).filter(Optional::isPresent).map(Optional::get)
+                .collect(Collectors.toMap(MapDbItem::getName, item -> item, (first, second) -> second));
+    }
+
+    private static Optional<MapDbItem> decode(Entry<String, byte[]> entry) {
+        try {
+            return Optional.of(MapDbItemCodec.decode(entry.getKey(), entry.getValue()));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Couldn't deserialize state of item '{}': {}", entry.getKey(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
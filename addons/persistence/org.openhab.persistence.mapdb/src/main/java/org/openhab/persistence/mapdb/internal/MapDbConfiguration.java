@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Configuration of the {@link MapDbPersistenceService}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbConfiguration {
+    /**
+     * Maximum time in milliseconds an update is kept in memory before it is written to the database. The default of 0
+     * disables write-behind and commits every update individually.
+     */
+    public Integer commitInterval = 0;
+
+    /**
+     * Number of distinct pending items that triggers a commit before the commit interval has elapsed.
+     */
+    public Integer commitSize = 1000;
+
+    /**
+     * Maximum number of item states kept in memory. A value of 0 keeps all states in memory, otherwise only the most
+     * recently used states are held and all other reads are served from the database.
+     */
+    public Integer indexSize = 0;
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands for inspecting the write-behind queue of the {@link MapDbPersistenceService}
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+@NonNullByDefault
+public class MapDbConsoleCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String SUBCMD_STATISTICS = "statistics";
+
+    private @Nullable MapDbPersistenceService persistenceService;
+
+    public MapDbConsoleCommandExtension() {
+        super("mapdb", "Inspect the MapDB persistence service.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        MapDbPersistenceService persistenceService = this.persistenceService;
+        if (args.length == 0 || persistenceService == null) {
+            printUsage(console);
+            return;
+        }
+        if (SUBCMD_STATISTICS.equals(args[0])) {
+            MapDbWriteBehindStatistics statistics = persistenceService.getWriteBehindStatistics();
+            console.println(String.format("Stores: %d, merged: %d", statistics.getStores(),
+                    statistics.getMergedStores()));
+            console.println(String.format("Queue depth: %d", statistics.getQueueDepth()));
+            console.println(String.format("Commits: %d (%d items), %.2f/s during the last minute",
+                    statistics.getCommits(), statistics.getCommittedItems(), statistics.getCommitsPerSecond()));
+            console.println(String.format("Commit latency: last %.2f ms, average %.2f ms",
+                    statistics.getLastCommitMillis(), statistics.getAverageCommitMillis()));
+        } else {
+            console.println("Unknown command '" + args[0] + "'");
+            printUsage(console);
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Collections.singletonList(buildCommandUsage(SUBCMD_STATISTICS,
+                "shows queue depth, commit latency and commit rate of the write-behind queue"));
+    }
+
+    @Reference(target = "(component.name=org.openhab.persistence.mapdb.internal.MapDbPersistenceService)")
+    protected void setPersistenceService(PersistenceService persistenceService) {
+        this.persistenceService = (MapDbPersistenceService) persistenceService;
+    }
+
+    protected void unsetPersistenceService(PersistenceService persistenceService) {
+        this.persistenceService = null;
+    }
+}
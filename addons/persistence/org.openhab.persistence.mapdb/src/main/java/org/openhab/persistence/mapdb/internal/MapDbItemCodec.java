@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.TypeParser;
+
+/**
+ * A compact, versioned binary representation of a {@link MapDbItem}.
+ *
+ * The encoded form is a version byte, a type tag, the timestamp in milliseconds as unsigned varint and the type
+ * specific payload. The item name is not part of the value since it is the key in the database. State types without a
+ * dedicated tag are written with their class name and full string representation.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCodec {
+
+    static final byte VERSION = 1;
+
+    static final byte TAG_GENERIC = 0;
+    static final byte TAG_DECIMAL = 1;
+    static final byte TAG_ON_OFF = 2;
+    static final byte TAG_PERCENT = 3;
+    static final byte TAG_HSB = 4;
+    static final byte TAG_DATE_TIME = 5;
+    static final byte TAG_STRING = 6;
+
+    private MapDbItemCodec() {
+        // static utility class
+    }
+
+    /**
+     * Encodes timestamp and state of the given item.
+     *
+     * @param item the item to encode
+     * @return the binary representation
+     */
+    public static byte[] encode(MapDbItem item) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(24);
+        State state = item.getState();
+        Class<?> type = state.getClass();
+
+        out.write(VERSION);
+        if (type == DecimalType.class) {
+            out.write(TAG_DECIMAL);
+            writeVarLong(out, item.getTimestamp().getTime());
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (type == OnOffType.class) {
+            out.write(TAG_ON_OFF);
+            writeVarLong(out, item.getTimestamp().getTime());
+            out.write(state == OnOffType.ON ? 1 : 0);
+        } else if (type == PercentType.class) {
+            out.write(TAG_PERCENT);
+            writeVarLong(out, item.getTimestamp().getTime());
+            writeDecimal(out, ((PercentType) state).toBigDecimal());
+        } else if (type == HSBType.class) {
+            HSBType hsb = (HSBType) state;
+            out.write(TAG_HSB);
+            writeVarLong(out, item.getTimestamp().getTime());
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (type == DateTimeType.class) {
+            ZonedDateTime dateTime = ((DateTimeType) state).getZonedDateTime();
+            out.write(TAG_DATE_TIME);
+            writeVarLong(out, item.getTimestamp().getTime());
+            writeVarLong(out, zigZag(dateTime.toEpochSecond()));
+            writeVarLong(out, dateTime.getNano());
+            writeString(out, dateTime.getZone().getId());
+        } else if (type == StringType.class) {
+            out.write(TAG_STRING);
+            writeVarLong(out, item.getTimestamp().getTime());
+            writeString(out, state.toFullString());
+        } else {
+            out.write(TAG_GENERIC);
+            writeVarLong(out, item.getTimestamp().getTime());
+            writeString(out, type.getName());
+            writeString(out, state.toFullString());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a value written by {@link #encode(MapDbItem)}.
+     *
+     * @param name the name of the item, i.e. the key of the value in the database
+     * @param data the binary representation
+     * @return the decoded item
+     * @throws IllegalArgumentException if the data is malformed or the state cannot be restored
+     */
+    public static MapDbItem decode(String name, byte[] data) {
+        Reader in = new Reader(data);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported encoding version " + version);
+        }
+        byte tag = in.readByte();
+        Date timestamp = new Date(in.readVarLong());
+        State state;
+        switch (tag) {
+            case TAG_DECIMAL:
+                state = new DecimalType(in.readDecimal());
+                break;
+            case TAG_ON_OFF:
+                state = in.readByte() == 0 ? OnOffType.OFF : OnOffType.ON;
+                break;
+            case TAG_PERCENT:
+                state = new PercentType(in.readDecimal());
+                break;
+            case TAG_HSB:
+                state = new HSBType(new DecimalType(in.readDecimal()), new PercentType(in.readDecimal()),
+                        new PercentType(in.readDecimal()));
+                break;
+            case TAG_DATE_TIME:
+                long epochSecond = unZigZag(in.readVarLong());
+                long nano = in.readVarLong();
+                ZoneId zone = ZoneId.of(in.readString());
+                state = new DateTimeType(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), zone));
+                break;
+            case TAG_STRING:
+                state = new StringType(in.readString());
+                break;
+            case TAG_GENERIC:
+                state = parseState(in.readString(), in.readString());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type tag " + tag);
+        }
+
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setState(state);
+        item.setTimestamp(timestamp);
+        return item;
+    }
+
+    private static State parseState(String typeName, String value) {
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends State> valueType = (Class<? extends State>) Class.forName(typeName);
+            List<Class<? extends State>> types = Collections.singletonList(valueType);
+            State state = TypeParser.parseState(types, value);
+            if (state == null) {
+                throw new IllegalArgumentException("Cannot parse '" + value + "' as " + typeName);
+            }
+            return state;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown state type " + typeName, e);
+        }
+    }
+
+    private static void writeDecimal(ByteArrayOutputStream out, BigDecimal value) {
+        BigInteger unscaled = value.unscaledValue();
+        writeVarLong(out, zigZag(value.scale()));
+        if (unscaled.bitLength() < 63) {
+            // the common case fits into a varint, larger values are written as two's complement bytes
+            out.write(0);
+            writeVarLong(out, zigZag(unscaled.longValue()));
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            out.write(1);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Sequential reader over an encoded value.
+     */
+    private static class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Unexpected end of data");
+            }
+            return data[position++];
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        BigDecimal readDecimal() {
+            int scale = (int) unZigZag(readVarLong());
+            BigInteger unscaled;
+            if (readByte() == 0) {
+                unscaled = BigInteger.valueOf(unZigZag(readVarLong()));
+            } else {
+                int length = readLength();
+                byte[] bytes = new byte[length];
+                System.arraycopy(data, position, bytes, 0, length);
+                position += length;
+                unscaled = new BigInteger(bytes);
+            }
+            return new BigDecimal(unscaled, scale);
+        }
+
+        String readString() {
+            int length = readLength();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * In-heap mirror of the latest {@link MapDbItem} per item name.
+ *
+ * Without a size limit the index holds every stored item and answers all reads of the
+ * {@link MapDbPersistenceService}. With a size limit it only keeps the most recently used items, all other reads
+ * fall back to the database.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemIndex {
+
+    private final int maxSize;
+
+    private final Map<String, MapDbItem> items;
+
+    /**
+     * Creates a new index.
+     *
+     * @param maxSize the maximum number of items held in memory, 0 for no limit
+     */
+    public MapDbItemIndex(int maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize > 0) {
+            items = Collections.synchronizedMap(new LinkedHashMap<String, MapDbItem>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.@Nullable Entry<String, MapDbItem> eldest) {
+                    return size() > MapDbItemIndex.this.maxSize;
+                }
+            });
+        } else {
+            items = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * @return true if the index holds every stored item, i.e. a missing entry means the item is unknown
+     */
+    public boolean isComplete() {
+        return maxSize <= 0;
+    }
+
+    public @Nullable MapDbItem get(String name) {
+        return items.get(name);
+    }
+
+    public void put(MapDbItem item) {
+        items.put(item.getName(), item);
+    }
+
+    /**
+     * Adds an item read from the database. A newer state stored in the meantime is kept.
+     *
+     * @param item the item read from the database
+     * @return the item now held by the index
+     */
+    public MapDbItem fill(MapDbItem item) {
+        return items.merge(item.getName(), item,
+                (current, loaded) -> loaded.getTimestamp().after(current.getTimestamp()) ? loaded : current);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return a snapshot of all items currently held in memory
+     */
+    public Collection<MapDbItem> values() {
+        synchronized (items) {
+            return new ArrayList<>(items.values());
+        }
+    }
+
+    public void clear() {
+        items.clear();
+    }
+}
@@ -15,17 +15,24 @@ package org.openhab.persistence.mapdb.internal;
 import java.io.File;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
@@ -37,6 +44,7 @@ import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,7 +61,8 @@ import com.google.gson.GsonBuilder;
  * @author Martin Kühl - Port to Eclipse SmartHome
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class,
+        QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb")
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String SERVICE_NAME = "mapdb";
@@ -62,25 +71,50 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    /** name of the map holding the binary encoded item states */
+    private static final String STORE_NAME = "itemStates";
+
+    /** name of the map used by former versions holding item states as JSON strings */
+    private static final String JSON_STORE_NAME = "itemStore";
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
     @NonNullByDefault({})
-    private ExecutorService threadPool;
+    private ScheduledExecutorService threadPool;
 
     /** holds the local instance of the MapDB database */
     @NonNullByDefault({})
     private DB db;
     @NonNullByDefault({})
-    private Map<String, String> map;
+    private Map<String, byte[]> map;
+
+    /** updates not yet written to the database, merged per alias */
+    private final Map<String, MapDbItem> pending = new ConcurrentHashMap<>();
+
+    private final Object commitLock = new Object();
+
+    private final AtomicBoolean commitRequested = new AtomicBoolean();
+
+    private MapDbConfiguration config = new MapDbConfiguration();
 
+    /** latest state per item name, kept in sync with every store */
+    private MapDbItemIndex index = new MapDbItemIndex(0);
+
+    private MapDbWriteBehindStatistics statistics = new MapDbWriteBehindStatistics();
+
+    private @Nullable ScheduledFuture<?> commitJob;
+
+    /** only needed to read databases written by former versions */
     private transient Gson mapper = new GsonBuilder()
             .registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
             .create();
 
-    public void activate() {
+    public void activate(Map<String, Object> properties) {
         logger.debug("MapDB persistence service is being activated");
 
-        threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+        config = new Configuration(properties).as(MapDbConfiguration.class);
+        statistics = new MapDbWriteBehindStatistics();
+        threadPool = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
 
         File folder = new File(DB_FOLDER_NAME);
         if (!folder.exists()) {
@@ -93,18 +127,50 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
         File dbFile = new File(DB_FOLDER_NAME, DB_FILE_NAME);
         db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-        map = db.createTreeMap("itemStore").makeOrGet();
+        map = db.createTreeMap(STORE_NAME).valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        migrateJsonStore();
+
+        index = new MapDbItemIndex(config.indexSize);
+        if (index.isComplete()) {
+            long start = System.nanoTime();
+            MapDbBulkLoader.loadAll(map).values().forEach(index::put);
+            logger.debug("Loaded {} item states into memory in {} ms", index.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        if (isWriteBehind()) {
+            commitJob = threadPool.scheduleWithFixedDelay(this::commitPending, config.commitInterval,
+                    config.commitInterval, TimeUnit.MILLISECONDS);
+            logger.debug("MapDB write-behind enabled: commit interval {} ms, commit size {}", config.commitInterval,
+                    config.commitSize);
+        }
         logger.debug("MapDB persistence service is now activated");
     }
 
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
+        ScheduledFuture<?> job = commitJob;
+        if (job != null) {
+            job.cancel(false);
+            commitJob = null;
+        }
         if (db != null) {
+            // write everything that is still pending before the database gets closed
+            commitPending();
             db.close();
         }
         threadPool.shutdown();
     }
 
+    /**
+     * Returns the counters of the write-behind queue, e.g. queue depth, commit latency and commit rate.
+     *
+     * @return the statistics of this service instance
+     */
+    public MapDbWriteBehindStatistics getWriteBehindStatistics() {
+        return statistics;
+    }
+
     @Override
     public String getId() {
         return SERVICE_NAME;
@@ -117,10 +183,16 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream()
-                .map(this::deserialize)
+        if (index.isComplete()) {
+            return new HashSet<>(index.values());
+        }
+        Set<PersistenceItemInfo> items = map.entrySet().stream()
+                .filter(entry -> !pending.containsKey(entry.getKey()))
+                .map(entry -> deserialize(entry.getKey(), entry.getValue()))
                 .flatMap(MapDbPersistenceService::streamOptional)
                 .collect(Collectors.<PersistenceItemInfo>toSet());
+        items.addAll(pending.values());
+        return items;
     }
 
     @Override
@@ -145,30 +217,87 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         mItem.setName(alias);
         mItem.setState(state);
         mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(alias, json);
-        commit();
+        index.put(mItem);
+        if (isWriteBehind()) {
+            boolean merged = pending.put(alias, mItem) != null;
+            statistics.storeReceived(merged);
+            int queueDepth = pending.size();
+            statistics.setQueueDepth(queueDepth);
+            if (queueDepth >= config.commitSize && commitRequested.compareAndSet(false, true)) {
+                threadPool.submit(this::commitPending);
+            }
+        } else {
+            statistics.storeReceived(false);
+            map.put(alias, serialize(mItem));
+            commit();
+        }
         logger.debug("Stored '{}' with state '{}' in MapDB database", alias, state.toString());
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
+        String name = filter.getItemName();
+        if (name == null) {
+            return Collections.emptyList();
+        }
+        MapDbItem indexedItem = index.get(name);
+        if (indexedItem != null) {
+            return Collections.singletonList(indexedItem);
+        }
+        if (index.isComplete()) {
             return Collections.emptyList();
         }
-        Optional<MapDbItem> item = deserialize(json);
+        MapDbItem pendingItem = pending.get(name);
+        if (pendingItem != null) {
+            return Collections.singletonList(pendingItem);
+        }
+        byte[] data = map.get(name);
+        if (data == null) {
+            return Collections.emptyList();
+        }
+        Optional<MapDbItem> item = deserialize(name, data);
         if (!item.isPresent()) {
             return Collections.emptyList();
         }
-        return Collections.singletonList(item.get());
+        return Collections.singletonList(index.fill(item.get()));
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+    private byte[] serialize(MapDbItem item) {
+        return MapDbItemCodec.encode(item);
     }
 
-    private Optional<MapDbItem> deserialize(String json) {
+    private Optional<MapDbItem> deserialize(String name, byte[] data) {
+        try {
+            return Optional.of(MapDbItemCodec.decode(name, data));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Couldn't deserialize state of item '{}': {}", name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Converts the JSON based store of former versions into the binary store and removes it afterwards.
+     */
+    private void migrateJsonStore() {
+        if (!db.exists(JSON_STORE_NAME)) {
+            return;
+        }
+        Map<String, String> jsonMap = db.getTreeMap(JSON_STORE_NAME);
+        int total = jsonMap.size();
+        int migrated = 0;
+        for (Map.Entry<String, String> entry : jsonMap.entrySet()) {
+            Optional<MapDbItem> item = deserializeJson(entry.getValue());
+            if (item.isPresent()) {
+                map.put(entry.getKey(), serialize(item.get()));
+                migrated++;
+            }
+        }
+        db.delete(JSON_STORE_NAME);
+        db.commit();
+        logger.info("Migrated {} of {} item states to the binary MapDB format", migrated, total);
+    }
+
+    private Optional<MapDbItem> deserializeJson(String json) {
         MapDbItem item = mapper.<MapDbItem>fromJson(json, MapDbItem.class);
         if (item == null || !item.isValid()) {
             logger.warn("Deserialized invalid item: {}", item);
@@ -177,8 +306,44 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         return Optional.of(item);
     }
 
+    private boolean isWriteBehind() {
+        return config.commitInterval > 0;
+    }
+
     private void commit() {
-        threadPool.submit(() -> db.commit());
+        threadPool.submit(() -> {
+            long start = System.nanoTime();
+            db.commit();
+            statistics.commitFinished(1, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Writes all pending updates to the database within a single MapDB transaction.
+     */
+    private void commitPending() {
+        synchronized (commitLock) {
+            commitRequested.set(false);
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                Map<String, MapDbItem> batch = new HashMap<>(pending);
+                for (Map.Entry<String, MapDbItem> entry : batch.entrySet()) {
+                    map.put(entry.getKey(), serialize(entry.getValue()));
+                }
+                db.commit();
+                // only drop entries that have not been updated again while we were writing
+                batch.forEach(pending::remove);
+                int count = batch.size();
+                statistics.commitFinished(count, System.nanoTime() - start);
+                statistics.setQueueDepth(pending.size());
+                logger.trace("Committed {} pending items to MapDB: {}", count, statistics);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to commit pending items to MapDB: {}", e.getMessage());
+            }
+        }
     }
 
     private static <T> Stream<T> streamOptional(Optional<T> opt) {
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Counters describing the write-behind behaviour of the {@link MapDbPersistenceService}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbWriteBehindStatistics {
+
+    /** number of one second buckets the commit rate is calculated from */
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong mergedStores = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedItems = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong lastCommitNanos = new AtomicLong();
+
+    private final long[] commitsPerSecond = new long[RATE_WINDOW_SECONDS];
+    private final long[] bucketSeconds = new long[RATE_WINDOW_SECONDS];
+
+    private volatile int queueDepth;
+
+    void storeReceived(boolean merged) {
+        stores.incrementAndGet();
+        if (merged) {
+            mergedStores.incrementAndGet();
+        }
+    }
+
+    void commitFinished(int items, long durationNanos) {
+        commits.incrementAndGet();
+        committedItems.addAndGet(items);
+        totalCommitNanos.addAndGet(durationNanos);
+        lastCommitNanos.set(durationNanos);
+        long second = currentSecond();
+        int bucket = (int) Math.floorMod(second, (long) RATE_WINDOW_SECONDS);
+        synchronized (commitsPerSecond) {
+            if (bucketSeconds[bucket] != second) {
+                bucketSeconds[bucket] = second;
+                commitsPerSecond[bucket] = 0;
+            }
+            commitsPerSecond[bucket]++;
+        }
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * @return number of store calls received
+     */
+    public long getStores() {
+        return stores.get();
+    }
+
+    /**
+     * @return number of store calls that replaced a still pending update of the same item
+     */
+    public long getMergedStores() {
+        return mergedStores.get();
+    }
+
+    /**
+     * @return number of MapDB transactions committed
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * @return number of item updates written by all commits
+     */
+    public long getCommittedItems() {
+        return committedItems.get();
+    }
+
+    /**
+     * @return number of distinct items currently waiting to be written
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return duration of the most recent commit in milliseconds
+     */
+    public double getLastCommitMillis() {
+        return lastCommitNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return average duration of a commit in milliseconds
+     */
+    public double getAverageCommitMillis() {
+        long count = commits.get();
+        return count == 0 ? 0 : totalCommitNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return number of commits per second, averaged over the last minute
+     */
+    public double getCommitsPerSecond() {
+        long now = currentSecond();
+        long count = 0;
+        synchronized (commitsPerSecond) {
+            for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+                if (now - bucketSeconds[i] < RATE_WINDOW_SECONDS) {
+                    count += commitsPerSecond[i];
+                }
+            }
+        }
+        return count / (double) RATE_WINDOW_SECONDS;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("stores=%d, merged=%d, commits=%d, items=%d, queue=%d, last=%.2fms, avg=%.2fms, rate=%.2f/s",
+                getStores(), getMergedStores(), getCommits(), getCommittedItems(), getQueueDepth(),
+                getLastCommitMillis(), getAverageCommitMillis(), getCommitsPerSecond());
+    }
+}
@@ -13,6 +13,8 @@
 package org.openhab.transform.jsonpath.internal;
 
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -42,6 +44,23 @@ public class JSonPathTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    private static final int MAX_CACHE_SIZE = 256;
+
+    /**
+     * Compiled expressions, least recently used first. A compiled {@link JsonPath} is thread-safe. Guarded by itself,
+     * like the hit and miss counters.
+     */
+    private final Map<String, JsonPath> cache = new LinkedHashMap<String, JsonPath>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JsonPath> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -58,8 +77,9 @@ public class JSonPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
+        JsonPath compiled = getCompiled(jsonPathExpression);
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = compiled.read(source);
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -75,6 +95,37 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    /**
+     * Get compiled expression from the cache, compiling it on a miss. Invalid expressions are not cached.
+     */
+    private JsonPath getCompiled(String jsonPathExpression) throws TransformationException {
+        synchronized (cache) {
+            @Nullable
+            JsonPath compiled = cache.get(jsonPathExpression);
+            if (compiled != null) {
+                cacheHits++;
+                return compiled;
+            }
+            cacheMisses++;
+        }
+        // compile outside of the lock, a concurrent miss of the same expression just compiles it twice
+        JsonPath compiled = compile(jsonPathExpression);
+        synchronized (cache) {
+            cache.put(jsonPathExpression, compiled);
+            logger.debug("JSonPath cache: {} expressions, {} hits, {} misses", cache.size(), cacheHits, cacheMisses);
+        }
+        return compiled;
+    }
+
+    private JsonPath compile(String jsonPathExpression) throws TransformationException {
+        logger.debug("compiling JSonPath '{}'", jsonPathExpression);
+        try {
+            return JsonPath.compile(jsonPathExpression);
+        } catch (InvalidPathException | IllegalArgumentException e) {
+            throw new TransformationException("An error occurred while transforming JSON expression.", e);
+        }
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -79,4 +79,28 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testRepeatedTransformations() throws TransformationException {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("8", processor.transform(".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*", source));
+            assertEquals("foo", processor.transform("s/bar/foo/g", "bar"));
+        }
+    }
+
+    @Test
+    public void testMoreExpressionsThanCached() throws TransformationException {
+        for (int i = 0; i < 300; i++) {
+            assertEquals(Integer.toString(i), processor.transform("s/x/" + i + "/g", "x"));
+            // the first expression is used all along and stays cached, the others are evicted in turn
+            assertEquals("8", processor.transform(".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*", source));
+        }
+        assertEquals("0", processor.transform("s/x/0/g", "x"));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void testInvalidExpression() throws TransformationException {
+        processor.transform("(unclosed", source);
+    }
+
 }
@@ -12,8 +12,11 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -40,6 +43,41 @@ public class RegExTransformationService implements TransformationService {
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    /**
+     * Compiled form of a regular expression transformation
+     */
+    private static class CompiledRegEx {
+        final Pattern pattern;
+        /**
+         * Replacement with the substitution form, null with the matching form
+         */
+        final @Nullable String substitution;
+        final boolean global;
+
+        CompiledRegEx(Pattern pattern, @Nullable String substitution, boolean global) {
+            this.pattern = pattern;
+            this.substitution = substitution;
+            this.global = global;
+        }
+    }
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    /**
+     * Compiled regular expressions in access order, the least recently used expression is evicted when the cache
+     * exceeds {@link #MAX_CACHE_SIZE} entries. Guarded by itself, like the hit and miss counters.
+     */
+    private final Map<String, CompiledRegEx> cache = new LinkedHashMap<String, CompiledRegEx>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledRegEx> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -48,25 +86,15 @@ public class RegExTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, regExpression);
 
-        String result = "";
-
-        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
-        if (substMatcher.matches()) {
-            logger.debug("Using substitution form of regex transformation");
-            String regex = substMatcher.group(1);
-            String substitution = substMatcher.group(2);
-            String options = substMatcher.group(3);
-            if (options.equals("g")) {
-                result = source.trim().replaceAll(regex, substitution);
-            } else {
-                result = source.trim().replaceFirst(regex, substitution);
-            }
-            if (result != null) {
-                return result;
-            }
+        CompiledRegEx compiled = getCompiled(regExpression);
+        String substitution = compiled.substitution;
+        if (substitution != null) {
+            Matcher substMatcher = compiled.pattern.matcher(source.trim());
+            return compiled.global ? substMatcher.replaceAll(substitution) : substMatcher.replaceFirst(substitution);
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        String result = "";
+        Matcher matcher = compiled.pattern.matcher(source.trim());
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
@@ -95,4 +123,41 @@ public class RegExTransformationService implements TransformationService {
         return result;
     }
 
+    /**
+     * Get compiled expression from the cache, compiling it on a miss. Invalid expressions are not cached.
+     */
+    private CompiledRegEx getCompiled(String regExpression) throws TransformationException {
+        synchronized (cache) {
+            @Nullable
+            CompiledRegEx compiled = cache.get(regExpression);
+            if (compiled != null) {
+                cacheHits++;
+                return compiled;
+            }
+            cacheMisses++;
+        }
+        // compile outside of the lock, a concurrent miss of the same expression just compiles it twice
+        CompiledRegEx compiled = compile(regExpression);
+        synchronized (cache) {
+            cache.put(regExpression, compiled);
+            logger.debug("regex cache: {} expressions, {} hits, {} misses", cache.size(), cacheHits, cacheMisses);
+        }
+        return compiled;
+    }
+
+    private CompiledRegEx compile(String regExpression) throws TransformationException {
+        logger.debug("compiling regex '{}'", regExpression);
+        try {
+            Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+            if (substMatcher.matches()) {
+                logger.debug("Using substitution form of regex transformation");
+                return new CompiledRegEx(Pattern.compile(substMatcher.group(1)), substMatcher.group(2),
+                        substMatcher.group(3).equals("g"));
+            }
+            return new CompiledRegEx(Pattern.compile("^" + regExpression + "$", Pattern.DOTALL), null, false);
+        } catch (PatternSyntaxException e) {
+            throw new TransformationException("the given regex '" + regExpression + "' is invalid", e);
+        }
+    }
+
 }
@@ -13,12 +13,16 @@
 package org.openhab.transform.xpath.internal;
 
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -43,6 +47,31 @@ public class XPathTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    private final DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+    private final XPathFactory xpathFactory = XPathFactory.newInstance();
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    /**
+     * Compiled expressions, least recently used first. An {@link XPathExpression} is not thread-safe, so evaluations
+     * of the same expression are synchronized on the expression. Guarded by itself, like the hit and miss counters.
+     */
+    private final Map<String, XPathExpression> cache = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    public XPathTransformationService() {
+        domFactory.setNamespaceAware(true);
+        domFactory.setValidating(false);
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -51,34 +80,68 @@ public class XPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
-        StringReader stringReader = null;
-
-        try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setNamespaceAware(true);
-            domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
-
-            stringReader = new StringReader(source);
+        try (StringReader stringReader = new StringReader(source)) {
             InputSource inputSource = new InputSource(stringReader);
             inputSource.setEncoding("UTF-8");
 
-            Document doc = builder.parse(inputSource);
+            Document doc = newDocumentBuilder().parse(inputSource);
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
-
-            String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+            XPathExpression expr = getCompiled(xpathExpression);
+            String transformationResult;
+            synchronized (expr) {
+                transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+            }
 
             logger.debug("transformation resulted in '{}'", transformationResult);
 
             return transformationResult;
+        } catch (TransformationException e) {
+            throw e;
         } catch (Exception e) {
             throw new TransformationException("transformation throws exceptions", e);
-        } finally {
-            if (stringReader != null) {
-                stringReader.close();
+        }
+    }
+
+    private DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        // the factory is not thread-safe, the document builders are only used by one thread
+        synchronized (domFactory) {
+            return domFactory.newDocumentBuilder();
+        }
+    }
+
+    /**
+     * Get compiled expression from the cache, compiling it on a miss. Invalid expressions are not cached.
+     */
+    private XPathExpression getCompiled(String xpathExpression) throws TransformationException {
+        synchronized (cache) {
+            @Nullable
+            XPathExpression compiled = cache.get(xpathExpression);
+            if (compiled != null) {
+                cacheHits++;
+                return compiled;
+            }
+            cacheMisses++;
+        }
+        // compile outside of the lock, a concurrent miss of the same expression just compiles it twice
+        XPathExpression compiled = compile(xpathExpression);
+        synchronized (cache) {
+            cache.put(xpathExpression, compiled);
+            logger.debug("xpath cache: {} expressions, {} hits, {} misses", cache.size(), cacheHits, cacheMisses);
+        }
+        return compiled;
+    }
+
+    private XPathExpression compile(String xpathExpression) throws TransformationException {
+        logger.debug("compiling xpath '{}'", xpathExpression);
+        try {
+            XPath xpath;
+            // the factory is not thread-safe
+            synchronized (xpathFactory) {
+                xpath = xpathFactory.newXPath();
             }
+            return xpath.compile(xpathExpression);
+        } catch (XPathExpressionException e) {
+            throw new TransformationException("transformation throws exceptions", e);
         }
     }
 
@@ -14,6 +14,11 @@ package org.openhab.transform.xslt.internal;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Templates;
+
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Before;
 import org.junit.Test;
@@ -25,10 +30,22 @@ import org.openhab.transform.xslt.internal.XsltTransformationService;
 public class XsltTransformationServiceTest extends AbstractTransformationServiceTest {
 
     private XsltTransformationService processor;
+    private final AtomicInteger loads = new AtomicInteger();
 
     @Before
     public void init() {
-        processor = new XsltTransformationService();
+        processor = new XsltTransformationService() {
+            @Override
+            protected Locale getLocale() {
+                return Locale.US;
+            }
+
+            @Override
+            protected Templates internalLoadTransform(String filename) throws TransformationException {
+                loads.incrementAndGet();
+                return super.internalLoadTransform(filename);
+            }
+        };
     }
 
     @Test
@@ -41,4 +58,13 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         assertEquals("8", transformedResponse);
     }
 
+    @Test
+    public void testStylesheetIsCompiledOnce() throws TransformationException {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("8", processor.transform("http/google_weather.xsl", source));
+        }
+
+        assertEquals(1, loads.get());
+    }
+
 }